@@ -1,9 +1,15 @@
 package org.xhy.application.agent.assembler;
 
 import org.springframework.beans.BeanUtils;
+import org.xhy.application.agent.dto.WorkspaceAgentDTO;
 import org.xhy.domain.agent.model.LLMModelConfig;
+import org.xhy.domain.agent.model.WorkspaceAgentSummary;
 import org.xhy.interfaces.dto.agent.request.UpdateModelConfigRequest;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
 /**
  * Agent领域对象组装器
  * 负责DTO、Entity和Request之间的转换
@@ -18,4 +24,17 @@ public class AgentWorkspaceAssembler {
         return llmModelConfig;
     }
 
+    public static WorkspaceAgentDTO toDTO(WorkspaceAgentSummary summary) {
+        WorkspaceAgentDTO dto = new WorkspaceAgentDTO();
+        BeanUtils.copyProperties(summary, dto);
+        return dto;
+    }
+
+    public static List<WorkspaceAgentDTO> toDTOs(List<WorkspaceAgentSummary> summaries) {
+        if (summaries == null || summaries.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return summaries.stream().map(AgentWorkspaceAssembler::toDTO).collect(Collectors.toList());
+    }
+
 }
\ No newline at end of file
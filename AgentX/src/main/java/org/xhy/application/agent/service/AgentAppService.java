@@ -12,6 +12,7 @@ import org.xhy.domain.agent.model.AgentWorkspaceEntity;
 import org.xhy.domain.agent.model.LLMModelConfig;
 import org.xhy.domain.agent.service.AgentDomainService;
 import org.xhy.domain.agent.service.AgentWorkspaceDomainService;
+import org.xhy.domain.knowledge.service.KnowledgeBaseDomainService;
 import org.xhy.infrastructure.exception.ParamValidationException;
 import org.xhy.interfaces.dto.agent.*;
 import org.xhy.domain.agent.constant.PublishStatus;
@@ -31,10 +32,13 @@ public class AgentAppService {
 
     private final AgentDomainService agentServiceDomainService;
     private final AgentWorkspaceDomainService agentWorkspaceDomainService;
+    private final KnowledgeBaseDomainService knowledgeBaseDomainService;
 
-    public AgentAppService(AgentDomainService agentServiceDomainService, AgentWorkspaceDomainService agentWorkspaceDomainService) {
+    public AgentAppService(AgentDomainService agentServiceDomainService, AgentWorkspaceDomainService agentWorkspaceDomainService,
+                           KnowledgeBaseDomainService knowledgeBaseDomainService) {
         this.agentServiceDomainService = agentServiceDomainService;
         this.agentWorkspaceDomainService = agentWorkspaceDomainService;
+        this.knowledgeBaseDomainService = knowledgeBaseDomainService;
     }
 
     /**
@@ -48,6 +52,8 @@ public class AgentAppService {
         // 使用组装器创建领域实体
         AgentEntity entity = AgentAssembler.toEntity(request,userId);
         entity.setUserId(userId);
+        // 只能关联自己的知识库
+        knowledgeBaseDomainService.checkOwnership(entity.getKnowledgeBaseIds(), userId);
         AgentEntity agent = agentServiceDomainService.createAgent(entity);
         AgentWorkspaceEntity agentWorkspaceEntity = new AgentWorkspaceEntity(agent.getId(),userId,new LLMModelConfig());
         agentWorkspaceDomainService.save(agentWorkspaceEntity);
@@ -90,6 +96,7 @@ public class AgentAppService {
         AgentEntity updateEntity = AgentAssembler.toEntity(request,userId);
 
         updateEntity.setUserId(userId);
+        knowledgeBaseDomainService.checkOwnership(updateEntity.getKnowledgeBaseIds(), userId);
         // 调用领域服务更新Agent
         AgentEntity agentEntity = agentServiceDomainService.updateAgent(updateEntity);
         return AgentAssembler.toDTO(agentEntity);
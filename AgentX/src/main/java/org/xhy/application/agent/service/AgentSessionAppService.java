@@ -12,6 +12,7 @@ import org.xhy.application.conversation.dto.SessionDTO;
 import org.xhy.domain.conversation.constant.Role;
 import org.xhy.domain.conversation.model.MessageEntity;
 import org.xhy.domain.conversation.model.SessionEntity;
+import org.xhy.domain.conversation.model.SessionSummary;
 import org.xhy.domain.conversation.service.ConversationDomainService;
 import org.xhy.domain.conversation.service.SessionDomainService;
 import org.xhy.infrastructure.exception.BusinessException;
@@ -55,14 +56,17 @@ public class AgentSessionAppService {
             throw new BusinessException("助理不存在");
         }
 
-        // 获取对应的会话列表
-        List<SessionEntity> sessions = sessionDomainService.getSessionsByAgentId(agentId);
+        // 获取当前用户的会话列表，消息数和最后一条消息一并查出
+        List<SessionSummary> sessions = sessionDomainService.getSessionSummaries(userId, agentId);
         if (sessions.isEmpty()) {
             // 如果会话列表为空，则新创建一个并且返回
             SessionEntity session = sessionDomainService.createSession(agentId, userId);
-            sessions.add(session);
+            SessionDTO sessionDTO = SessionAssembler.toDTO(session);
+            sessionDTO.setMessageCount(0L);
+            sessionDTO.setLastActivityAt(session.getUpdatedAt());
+            return List.of(sessionDTO);
         }
-        return SessionAssembler.toDTOs(sessions);
+        return SessionAssembler.toSummaryDTOs(sessions);
 
     }
 
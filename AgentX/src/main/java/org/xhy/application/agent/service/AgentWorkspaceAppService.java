@@ -1,11 +1,11 @@
 package org.xhy.application.agent.service;
 
+import com.baomidou.mybatisplus.core.toolkit.StringUtils;
 import org.springframework.boot.autoconfigure.info.ProjectInfoProperties;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.xhy.application.agent.assembler.AgentAssembler;
 import org.xhy.application.agent.assembler.AgentWorkspaceAssembler;
-import org.xhy.application.agent.dto.AgentDTO;
+import org.xhy.application.agent.dto.WorkspaceAgentDTO;
 import org.xhy.domain.agent.model.AgentEntity;
 import org.xhy.domain.agent.model.AgentWorkspaceEntity;
 import org.xhy.domain.agent.model.LLMModelConfig;
@@ -17,6 +17,7 @@ import org.xhy.domain.conversation.service.SessionDomainService;
 import org.xhy.domain.llm.model.ModelEntity;
 import org.xhy.domain.llm.model.ProviderEntity;
 import org.xhy.domain.llm.service.LlmDomainService;
+import org.xhy.domain.token.service.TokenDomainService;
 import org.xhy.infrastructure.exception.BusinessException;
 import org.xhy.interfaces.dto.agent.request.UpdateModelConfigRequest;
 
@@ -43,26 +44,28 @@ public class AgentWorkspaceAppService {
     private final ConversationDomainService conversationDomainService;
     private final LlmDomainService llmDomainService;
     private final ProjectInfoProperties projectInfoProperties;
+    private final TokenDomainService tokenDomainService;
 
     public AgentWorkspaceAppService(AgentWorkspaceDomainService agentWorkspaceDomainService,
-                                    AgentDomainService agentServiceDomainService, SessionDomainService sessionDomainService, ConversationDomainService conversationDomainService, LlmDomainService llmDomainService, ProjectInfoProperties projectInfoProperties) {
+                                    AgentDomainService agentServiceDomainService, SessionDomainService sessionDomainService, ConversationDomainService conversationDomainService, LlmDomainService llmDomainService, ProjectInfoProperties projectInfoProperties,
+                                    TokenDomainService tokenDomainService) {
         this.agentWorkspaceDomainService = agentWorkspaceDomainService;
         this.agentServiceDomainService = agentServiceDomainService;
         this.sessionDomainService = sessionDomainService;
         this.conversationDomainService = conversationDomainService;
         this.llmDomainService = llmDomainService;
         this.projectInfoProperties = projectInfoProperties;
+        this.tokenDomainService = tokenDomainService;
     }
 
     /**
-     * 获取工作区下的助理
+     * 获取工作区下的助理，附带会话数和最近一条消息
      * 
      * @param  userId 用户id
-     * @return AgentDTO
+     * @return WorkspaceAgentDTO
      */
-    public List<AgentDTO> getAgents(String userId) {
-        List<AgentEntity> workspaceAgents = agentWorkspaceDomainService.getWorkspaceAgents(userId);
-        return AgentAssembler.toDTOs(workspaceAgents);
+    public List<WorkspaceAgentDTO> getAgents(String userId) {
+        return AgentWorkspaceAssembler.toDTOs(agentWorkspaceDomainService.getWorkspaceAgentSummaries(userId));
     }
 
     /**
@@ -112,6 +115,12 @@ public class AgentWorkspaceAppService {
         model.isActive();
         ProviderEntity provider = llmDomainService.getProvider(model.getProviderId());
         provider.isActive();
+
+        // 自定义策略需已注册，避免保存后每轮对话都回退到无策略
+        String customStrategyName = llmModelConfig.getCustomStrategyName();
+        if (StringUtils.isNotEmpty(customStrategyName) && !tokenDomainService.hasStrategy(customStrategyName)) {
+            throw new BusinessException("Token策略不存在: " + customStrategyName);
+        }
         agentWorkspaceDomainService.update(new AgentWorkspaceEntity(agentId,userId,llmModelConfig));
     }
 }
\ No newline at end of file
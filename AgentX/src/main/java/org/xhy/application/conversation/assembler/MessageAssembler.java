@@ -1,7 +1,11 @@
 package org.xhy.application.conversation.assembler;
 
 import org.xhy.domain.conversation.model.MessageEntity;
+import org.xhy.domain.conversation.model.MessageSearchHit;
+import org.xhy.domain.conversation.model.MessageSearchResult;
 import org.xhy.application.conversation.dto.MessageDTO;
+import org.xhy.application.conversation.dto.MessageSearchHitDTO;
+import org.xhy.application.conversation.dto.MessageSearchResultDTO;
 
 import java.util.Collections;
 import java.util.List;
@@ -47,4 +51,34 @@ public class MessageAssembler {
                 .map(MessageAssembler::toDTO)
                 .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+
+    /**
+     * 将消息搜索结果转换为DTO
+     *
+     * @param result   搜索结果
+     * @param page     页码
+     * @param pageSize 每页条数
+     * @return 搜索结果DTO
+     */
+    public static MessageSearchResultDTO toSearchResultDTO(MessageSearchResult result, int page, int pageSize) {
+        MessageSearchResultDTO dto = new MessageSearchResultDTO();
+        dto.setTotal(result.getTotal());
+        dto.setPage(page);
+        dto.setPageSize(pageSize);
+        dto.setRecords(result.getHits().stream()
+                .map(MessageAssembler::toSearchHitDTO)
+                .collect(Collectors.toList()));
+        return dto;
+    }
+
+    private static MessageSearchHitDTO toSearchHitDTO(MessageSearchHit hit) {
+        MessageSearchHitDTO dto = new MessageSearchHitDTO();
+        dto.setMessageId(hit.getMessageId());
+        dto.setSessionId(hit.getSessionId());
+        dto.setSessionTitle(hit.getSessionTitle());
+        dto.setRole(hit.getRole());
+        dto.setSnippet(hit.getSnippet());
+        dto.setCreatedAt(hit.getCreatedAt());
+        return dto;
+    }
+}
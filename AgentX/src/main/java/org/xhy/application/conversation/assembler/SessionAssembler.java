@@ -2,6 +2,7 @@ package org.xhy.application.conversation.assembler;
 
 import org.xhy.application.conversation.dto.SessionDTO;
 import org.xhy.domain.conversation.model.SessionEntity;
+import org.xhy.domain.conversation.model.SessionSummary;
 
 import java.util.Collections;
 import java.util.List;
@@ -40,4 +41,27 @@ public class SessionAssembler {
         }
         return sessions.stream().map(SessionAssembler::toDTO).collect(Collectors.toList());
     }
+
+    public static SessionDTO toDTO(SessionSummary summary) {
+        SessionDTO sessionDTO = new SessionDTO();
+        sessionDTO.setId(summary.getId());
+        sessionDTO.setTitle(summary.getTitle());
+        sessionDTO.setAgentId(summary.getAgentId());
+        sessionDTO.setCreatedAt(summary.getCreatedAt());
+        sessionDTO.setUpdatedAt(summary.getUpdatedAt());
+        sessionDTO.setDescription(summary.getDescription());
+        sessionDTO.setArchived(summary.isArchived());
+        sessionDTO.setMessageCount(summary.getMessageCount());
+        sessionDTO.setLastMessagePreview(summary.getLastMessagePreview());
+        sessionDTO.setLastMessageRole(summary.getLastMessageRole());
+        sessionDTO.setLastActivityAt(summary.getLastActivityAt());
+        return sessionDTO;
+    }
+
+    public static List<SessionDTO> toSummaryDTOs(List<SessionSummary> summaries) {
+        if (summaries == null || summaries.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return summaries.stream().map(SessionAssembler::toDTO).collect(Collectors.toList());
+    }
 }
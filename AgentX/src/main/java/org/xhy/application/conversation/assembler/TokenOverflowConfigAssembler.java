@@ -0,0 +1,27 @@
+package org.xhy.application.conversation.assembler;
+
+import org.xhy.domain.agent.model.LLMModelConfig;
+import org.xhy.domain.token.model.config.TokenOverflowConfig;
+
+/**
+ * Token溢出策略配置组装器
+ * 把Agent的模型配置转换为每轮对话传给策略的配置
+ */
+public class TokenOverflowConfigAssembler {
+
+    /**
+     * 按模型配置构造策略配置，当前消息、Agent和服务商信息由调用方补充
+     *
+     * @param llmModelConfig Agent的模型配置
+     * @return 策略配置
+     */
+    public static TokenOverflowConfig toTokenOverflowConfig(LLMModelConfig llmModelConfig) {
+        TokenOverflowConfig config = new TokenOverflowConfig();
+        config.setStrategyType(llmModelConfig.getStrategyType());
+        config.setCustomStrategyName(llmModelConfig.getCustomStrategyName());
+        config.setMaxTokens(llmModelConfig.getMaxTokens());
+        config.setSummaryThreshold(llmModelConfig.getSummaryThreshold());
+        config.setReserveRatio(llmModelConfig.getReserveRatio());
+        return config;
+    }
+}
@@ -2,6 +2,7 @@ package org.xhy.application.conversation.dto;
 
 
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
 
 /**
  * 聊天请求DTO
@@ -20,6 +21,12 @@ public class ChatRequest {
     @NotBlank(message = "会话id不可为空")
     private String sessionId;
 
+    /**
+     * 幂等键，可选；网络重试时携带相同的幂等键，接入进行中的生成或回放已完成的回复，不会重复调用模型
+     */
+    @Size(max = 128, message = "幂等键长度不能超过128")
+    private String idempotencyKey;
+
     public String getMessage() {
         return message;
     }
@@ -35,4 +42,12 @@ public class ChatRequest {
     public void setSessionId(String sessionId) {
         this.sessionId = sessionId;
     }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
 }
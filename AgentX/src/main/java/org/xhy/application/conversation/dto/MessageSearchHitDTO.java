@@ -0,0 +1,89 @@
+package org.xhy.application.conversation.dto;
+
+import org.xhy.domain.conversation.constant.Role;
+
+import java.time.LocalDateTime;
+
+/**
+ * 消息搜索命中DTO
+ */
+public class MessageSearchHitDTO {
+
+    /**
+     * 消息ID
+     */
+    private String messageId;
+
+    /**
+     * 所属会话ID
+     */
+    private String sessionId;
+
+    /**
+     * 会话标题
+     */
+    private String sessionTitle;
+
+    /**
+     * 消息角色
+     */
+    private Role role;
+
+    /**
+     * 命中片段
+     */
+    private String snippet;
+
+    /**
+     * 消息创建时间
+     */
+    private LocalDateTime createdAt;
+
+    public String getMessageId() {
+        return messageId;
+    }
+
+    public void setMessageId(String messageId) {
+        this.messageId = messageId;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public String getSessionTitle() {
+        return sessionTitle;
+    }
+
+    public void setSessionTitle(String sessionTitle) {
+        this.sessionTitle = sessionTitle;
+    }
+
+    public Role getRole() {
+        return role;
+    }
+
+    public void setRole(Role role) {
+        this.role = role;
+    }
+
+    public String getSnippet() {
+        return snippet;
+    }
+
+    public void setSnippet(String snippet) {
+        this.snippet = snippet;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,61 @@
+package org.xhy.application.conversation.dto;
+
+import java.util.List;
+
+/**
+ * 消息搜索结果DTO
+ */
+public class MessageSearchResultDTO {
+
+    /**
+     * 结果总数，最多为配置的候选上限
+     */
+    private int total;
+
+    /**
+     * 页码
+     */
+    private int page;
+
+    /**
+     * 每页条数
+     */
+    private int pageSize;
+
+    /**
+     * 当前页的命中结果
+     */
+    private List<MessageSearchHitDTO> records;
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public List<MessageSearchHitDTO> getRecords() {
+        return records;
+    }
+
+    public void setRecords(List<MessageSearchHitDTO> records) {
+        this.records = records;
+    }
+}
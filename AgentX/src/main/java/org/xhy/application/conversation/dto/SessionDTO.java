@@ -1,5 +1,7 @@
 package org.xhy.application.conversation.dto;
 
+import org.xhy.domain.conversation.constant.Role;
+
 import java.time.LocalDateTime;
 
 /**
@@ -34,6 +36,22 @@ public class SessionDTO {
      * 代理ID
      */
     private String agentId;
+    /**
+     * 消息数
+     */
+    private Long messageCount;
+    /**
+     * 最后一条消息的预览
+     */
+    private String lastMessagePreview;
+    /**
+     * 最后一条消息的角色
+     */
+    private Role lastMessageRole;
+    /**
+     * 最后活跃时间
+     */
+    private LocalDateTime lastActivityAt;
 
     /**
      * 无参构造函数
@@ -113,5 +131,37 @@ public class SessionDTO {
         this.agentId = agentVersionId;
     }
 
+    public Long getMessageCount() {
+        return messageCount;
+    }
+
+    public void setMessageCount(Long messageCount) {
+        this.messageCount = messageCount;
+    }
+
+    public String getLastMessagePreview() {
+        return lastMessagePreview;
+    }
+
+    public void setLastMessagePreview(String lastMessagePreview) {
+        this.lastMessagePreview = lastMessagePreview;
+    }
+
+    public Role getLastMessageRole() {
+        return lastMessageRole;
+    }
+
+    public void setLastMessageRole(Role lastMessageRole) {
+        this.lastMessageRole = lastMessageRole;
+    }
+
+    public LocalDateTime getLastActivityAt() {
+        return lastActivityAt;
+    }
+
+    public void setLastActivityAt(LocalDateTime lastActivityAt) {
+        this.lastActivityAt = lastActivityAt;
+    }
+
 
 }
\ No newline at end of file
@@ -9,12 +9,15 @@ import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
 import dev.langchain4j.model.openai.OpenAiChatRequestParameters;
 import dev.langchain4j.model.openai.internal.chat.AssistantMessage;
 import dev.langchain4j.model.output.TokenUsage;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.stereotype.Service;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.xhy.application.conversation.assembler.MessageAssembler;
+import org.xhy.application.conversation.assembler.TokenOverflowConfigAssembler;
 import org.xhy.application.conversation.dto.ChatRequest;
 import org.xhy.application.conversation.dto.StreamChatResponse;
 import org.xhy.application.conversation.dto.MessageDTO;
+import org.xhy.application.conversation.dto.MessageSearchResultDTO;
 import org.xhy.domain.agent.model.AgentEntity;
 import org.xhy.domain.agent.model.AgentWorkspaceEntity;
 import org.xhy.domain.agent.model.LLMModelConfig;
@@ -24,33 +27,53 @@ import org.xhy.domain.conversation.constant.Role;
 import org.xhy.domain.conversation.handler.ChatEnvironment;
 import org.xhy.domain.conversation.handler.MessageHandler;
 import org.xhy.domain.conversation.handler.MessageHandlerFactory;
+import org.xhy.domain.conversation.handler.StandardMessageHandler;
 import org.xhy.domain.conversation.model.ContextEntity;
 import org.xhy.domain.conversation.model.MessageEntity;
 import org.xhy.domain.conversation.model.SessionEntity;
 import org.xhy.domain.conversation.service.ContextDomainService;
 import org.xhy.domain.conversation.service.ConversationDomainService;
 import org.xhy.domain.conversation.service.MessageDomainService;
+import org.xhy.domain.conversation.service.MessageSearchService;
 import org.xhy.domain.conversation.service.SessionDomainService;
 import org.xhy.domain.llm.model.ModelEntity;
 import org.xhy.domain.llm.model.ProviderEntity;
 import org.xhy.domain.llm.service.LlmDomainService;
+import org.xhy.domain.memory.model.AgentMemoryEntity;
+import org.xhy.domain.memory.service.AgentMemoryDomainService;
 import org.xhy.domain.shared.enums.TokenOverflowStrategyEnum;
+import org.xhy.domain.token.model.ContextBudgetPlan;
 import org.xhy.domain.token.model.TokenMessage;
 import org.xhy.domain.token.model.TokenProcessResult;
+import org.xhy.domain.token.model.config.ContextBudgetPolicy;
+import org.xhy.domain.usage.service.UsageQuotaService;
+import org.xhy.domain.knowledge.model.KnowledgeRetrievalResult;
+import org.xhy.domain.knowledge.model.RetrievedChunk;
+import org.xhy.domain.knowledge.service.KnowledgeRetrievalService;
+import org.xhy.infrastructure.config.KnowledgeProperties;
 import org.xhy.domain.token.model.config.TokenOverflowConfig;
+import org.xhy.domain.token.service.ContextBudgetPlanner;
 import org.xhy.domain.token.service.TokenDomainService;
+import org.xhy.infrastructure.config.ChatProperties;
 import org.xhy.infrastructure.exception.BusinessException;
+import org.xhy.infrastructure.lifecycle.ChatDrainManager;
 import org.xhy.infrastructure.llm.LLMProviderService;
 import org.xhy.infrastructure.llm.LLMServiceFactory;
 import org.xhy.infrastructure.llm.config.ProviderConfig;
+import org.xhy.infrastructure.metrics.ChatMetrics;
+import org.xhy.infrastructure.transport.ChatReplayStore;
 import org.xhy.infrastructure.transport.MessageTransport;
 import org.xhy.infrastructure.transport.MessageTransportFactory;
+import org.xhy.infrastructure.transport.ReplayableMessageTransport;
+import org.xhy.interfaces.dto.conversation.SearchMessagesRequest;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -71,7 +94,16 @@ public class ConversationAppService {
     // 新增依赖
     private final MessageHandlerFactory messageHandlerFactory;
     private final MessageTransportFactory transportFactory;
-
+    private final ChatDrainManager chatDrainManager;
+    private final ContextBudgetPlanner contextBudgetPlanner;
+    private final ChatProperties chatProperties;
+    private final KnowledgeRetrievalService knowledgeRetrievalService;
+    private final KnowledgeProperties knowledgeProperties;
+    private final AgentMemoryDomainService agentMemoryDomainService;
+    private final MessageSearchService messageSearchService;
+    private final UsageQuotaService usageQuotaService;
+    private final ChatReplayStore chatReplayStore;
+    private final ChatMetrics chatMetrics;
 
     public ConversationAppService(
             ConversationDomainService conversationDomainService,
@@ -84,7 +116,17 @@ public class ConversationAppService {
             MessageDomainService messageDomainService,
             MessageHandlerFactory messageHandlerFactory,
             MessageTransportFactory transportFactory,
-            LLMServiceFactory llmServiceFactory) {
+            LLMServiceFactory llmServiceFactory,
+            ChatDrainManager chatDrainManager,
+            ContextBudgetPlanner contextBudgetPlanner,
+            ChatProperties chatProperties,
+            KnowledgeRetrievalService knowledgeRetrievalService,
+            KnowledgeProperties knowledgeProperties,
+            AgentMemoryDomainService agentMemoryDomainService,
+            MessageSearchService messageSearchService,
+            UsageQuotaService usageQuotaService,
+            ChatReplayStore chatReplayStore,
+            ChatMetrics chatMetrics) {
         this.conversationDomainService = conversationDomainService;
         this.sessionDomainService = sessionDomainService;
         this.agentDomainService = agentDomainService;
@@ -95,6 +137,16 @@ public class ConversationAppService {
         this.messageDomainService = messageDomainService;
         this.messageHandlerFactory = messageHandlerFactory;
         this.transportFactory = transportFactory;
+        this.chatDrainManager = chatDrainManager;
+        this.contextBudgetPlanner = contextBudgetPlanner;
+        this.chatProperties = chatProperties;
+        this.knowledgeRetrievalService = knowledgeRetrievalService;
+        this.knowledgeProperties = knowledgeProperties;
+        this.agentMemoryDomainService = agentMemoryDomainService;
+        this.messageSearchService = messageSearchService;
+        this.usageQuotaService = usageQuotaService;
+        this.chatReplayStore = chatReplayStore;
+        this.chatMetrics = chatMetrics;
     }
 
     /**
@@ -116,6 +168,19 @@ public class ConversationAppService {
         return MessageAssembler.toDTOs(conversationMessages);
     }
 
+    /**
+     * 在用户全部会话中搜索消息
+     *
+     * @param request 搜索条件和分页参数
+     * @param userId  用户id
+     * @return 当前页的命中结果
+     */
+    public MessageSearchResultDTO searchMessages(SearchMessagesRequest request, String userId) {
+        return MessageAssembler.toSearchResultDTO(
+                messageSearchService.search(userId, request.getQuery(), request.getPage(), request.getPageSize()),
+                request.getPage(), request.getPageSize());
+    }
+
     /**
      * 对话方法 - 统一入口
      *
@@ -124,17 +189,53 @@ public class ConversationAppService {
      * @return SSE发射器
      */
     public SseEmitter chat(ChatRequest chatRequest, String userId) {
-        // 1. 准备对话环境
-        ChatEnvironment environment = prepareEnvironment(chatRequest, userId);
+        // 0. 停机排空中不再接受新对话
+        chatDrainManager.checkAccepting();
 
-        // 2. 获取传输方式 (当前仅支持SSE，将来支持WebSocket)
+        // 0.1 获取传输方式 (当前仅支持SSE，将来支持WebSocket)
         MessageTransport<SseEmitter> transport = transportFactory.getTransport(MessageTransportFactory.TRANSPORT_TYPE_SSE);
 
-        // 3. 获取适合的消息处理器 (根据agent类型)
-        MessageHandler handler = messageHandlerFactory.getHandler(environment.getAgent());
+        // 0.2 携带幂等键的重试接入已有的输出，不重新调用模型，也不计入请求频率
+        String idempotencyKey = StringUtils.isNotBlank(chatRequest.getIdempotencyKey()) && chatReplayStore.isEnabled()
+                ? userId + ":" + chatRequest.getSessionId() + ":" + chatRequest.getIdempotencyKey() : null;
+        ReplayableMessageTransport<SseEmitter> replayable = null;
+        if (idempotencyKey != null) {
+            replayable = new ReplayableMessageTransport<>(transport, chatRequest.getMessage());
+            ReplayableMessageTransport<SseEmitter> existing = chatReplayStore.register(idempotencyKey, replayable);
+            if (existing != null) {
+                return existing.attach(StandardMessageHandler.CONNECTION_TIMEOUT);
+            }
+            transport = replayable;
+        }
 
-        // 4. 处理对话
-        return handler.handleChat(environment, transport);
+        try {
+            Timer.Sample requestSample = chatMetrics.start();
+
+            // 0.3 用户配额和请求频率检查，只访问内存计数器，超限时在查询数据库之前拒绝
+            usageQuotaService.checkUser(userId);
+
+            // 1. 准备对话环境
+            Timer.Sample prepareSample = chatMetrics.start();
+            ChatEnvironment environment = prepareEnvironment(chatRequest, userId);
+            prepareSample.stop(chatMetrics.timer(ChatMetrics.PREPARE, environment.getMetricTags()));
+
+            // 2. 获取适合的消息处理器 (根据agent类型)
+            MessageHandler handler = messageHandlerFactory.getHandler(environment.getAgent());
+
+            // 3. 处理对话
+            SseEmitter emitter = handler.handleChat(environment, transport);
+            // 响应结束时（完成、超时或出错）停止计时，覆盖排队和模型生成
+            Timer requestTimer = chatMetrics.timer(ChatMetrics.CHAT_REQUEST, environment.getMetricTags());
+            emitter.onCompletion(() -> requestSample.stop(requestTimer));
+            return emitter;
+        } catch (RuntimeException e) {
+            // 对话未能开始，移除幂等键，重试时重新生成；已接入的重试请求收到同样的错误
+            if (replayable != null) {
+                chatReplayStore.remove(idempotencyKey, replayable);
+                replayable.handleError(null, e);
+            }
+            throw e;
+        }
     }
 
     /**
@@ -150,6 +251,9 @@ public class ConversationAppService {
         SessionEntity session = sessionDomainService.getSession(sessionId, userId);
         String agentId = session.getAgentId();
 
+        // 1.1 Agent配额和请求频率检查，在加载Agent、模型和上下文之前拒绝
+        usageQuotaService.checkAgent(agentId);
+
         // 2. 获取对应agent
         AgentEntity agent = agentDomainService.getAgentById(agentId);
         if (!agent.getUserId().equals(userId) && !agent.getEnabled()) {
@@ -177,7 +281,10 @@ public class ConversationAppService {
         environment.setProvider(provider);
         environment.setLlmModelConfig(llmModelConfig);
 
-        // 6. 设置上下文信息和消息历史
+        // 6. 召回长期记忆，需在规划上下文预算之前
+        environment.setMemories(recallMemories(environment));
+
+        // 7. 设置上下文信息和消息历史
         setupContextAndHistory(environment);
 
         return environment;
@@ -198,17 +305,111 @@ public class ConversationAppService {
         if (contextEntity != null) {
             // 获取活跃消息
             List<String> activeMessageIds = contextEntity.getActiveMessages();
-            messageEntities = messageDomainService.listByIds(activeMessageIds);
+            messageEntities = messageDomainService.listByIds(sessionId, activeMessageIds);
 
             // 应用Token溢出策略
-            applyTokenOverflowStrategy(environment, contextEntity, messageEntities);
+            List<String> retainedMessageIds = applyTokenOverflowStrategy(environment, contextEntity, messageEntities);
+            messageEntities = filterByIds(messageEntities, retainedMessageIds);
         } else {
             contextEntity = new ContextEntity();
             contextEntity.setSessionId(sessionId);
         }
 
+        // 发送前统一规划上下文预算，只发送预算内的摘要和历史消息
+        ContextBudgetPlan budgetPlan = planContextBudget(environment, contextEntity, messageEntities);
+        List<String> plannedIds = budgetPlan.getRetainedMessages().stream()
+                .map(TokenMessage::getId)
+                .collect(Collectors.toList());
+
         environment.setContextEntity(contextEntity);
-        environment.setMessageHistory(messageEntities);
+        environment.setMessageHistory(filterByIds(messageEntities, plannedIds));
+        environment.setBudgetPlan(budgetPlan);
+    }
+
+    /**
+     * 规划上下文预算
+     * 上下文窗口取按模型配置的窗口，未配置时使用默认窗口，窗口未知时不裁剪（模型配置的最大Token数是溢出策略的阈值，不是窗口）；
+     * agent关联了知识库时，检索结果一并参与预算；
+     * 召回的长期记忆总量已有上限，与系统提示词一起计入固定开销
+     *
+     * @param environment 对话环境
+     * @param contextEntity 上下文实体
+     * @param messageEntities 策略处理后的历史消息
+     * @return 预算规划结果
+     */
+    private ContextBudgetPlan planContextBudget(
+            ChatEnvironment environment,
+            ContextEntity contextEntity,
+            List<MessageEntity> messageEntities) {
+        ChatProperties.Budget budget = chatProperties.getBudget();
+        Integer contextWindow = budget.getContextWindows().get(environment.getModel().getModelId());
+
+        ContextBudgetPolicy policy = ContextBudgetPolicy.forWindow(
+                contextWindow != null ? contextWindow : budget.getDefaultContextWindow(),
+                budget.getReservedOutputTokens());
+        policy.setSummaryRatio(budget.getSummaryRatio());
+        policy.setReferenceRatio(knowledgeProperties.getReferenceRatio());
+
+        String systemPrompt = environment.getAgent().getSystemPrompt();
+        if (!environment.getMemories().isEmpty()) {
+            String memoryBlock = StandardMessageHandler.MEMORY_PREFIX + String.join("\n", environment.getMemories());
+            systemPrompt = StringUtils.isNotEmpty(systemPrompt) ? systemPrompt + "\n" + memoryBlock : memoryBlock;
+        }
+
+        return contextBudgetPlanner.plan(
+                systemPrompt,
+                StandardMessageHandler.SUMMARY_PREFIX,
+                contextEntity.getSummary(),
+                StandardMessageHandler.REFERENCE_PREFIX,
+                retrieveReferences(environment),
+                tokenizeMessage(messageEntities),
+                environment.getUserMessage(),
+                policy);
+    }
+
+    /**
+     * 召回当前用户在该agent下与当前消息相关的长期记忆
+     *
+     * @param environment 对话环境
+     * @return 记忆内容，按相关度从高到低排列
+     */
+    private List<String> recallMemories(ChatEnvironment environment) {
+        return agentMemoryDomainService.recall(environment.getUserId(), environment.getAgent().getId(),
+                        environment.getUserMessage()).stream()
+                .map(AgentMemoryEntity::getContent)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 检索agent关联知识库中与当前消息相关的文本块
+     *
+     * @param environment 对话环境
+     * @return 检索结果文本，按相关度从高到低排列
+     */
+    private List<String> retrieveReferences(ChatEnvironment environment) {
+        List<String> knowledgeBaseIds = environment.getAgent().getKnowledgeBaseIds();
+        if (knowledgeBaseIds == null || knowledgeBaseIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        KnowledgeRetrievalResult result = knowledgeRetrievalService.retrieve(knowledgeBaseIds,
+                environment.getAgent().getUserId(), environment.getUserMessage());
+        environment.setRetrievalResult(result);
+        return result.getChunks().stream()
+                .map(RetrievedChunk::getContent)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 按id列表筛选消息，保持原有顺序
+     */
+    private List<MessageEntity> filterByIds(List<MessageEntity> messageEntities, List<String> ids) {
+        if (ids == null) {
+            return new ArrayList<>();
+        }
+        Set<String> idSet = new HashSet<>(ids);
+        return messageEntities.stream()
+                .filter(message -> idSet.contains(message.getId()))
+                .collect(Collectors.toList());
     }
 
     /**
@@ -217,8 +418,9 @@ public class ConversationAppService {
      * @param environment 对话环境
      * @param contextEntity 上下文实体
      * @param messageEntities 消息实体列表
+     * @return 本轮对话保留的消息id
      */
-    private void applyTokenOverflowStrategy(
+    private List<String> applyTokenOverflowStrategy(
             ChatEnvironment environment,
             ContextEntity contextEntity,
             List<MessageEntity> messageEntities) {
@@ -226,17 +428,13 @@ public class ConversationAppService {
         LLMModelConfig llmModelConfig = environment.getLlmModelConfig();
         ProviderEntity provider = environment.getProvider();
 
-        // 处理Token溢出
-        TokenOverflowStrategyEnum strategyType = llmModelConfig.getStrategyType();
-
         // Token处理
         List<TokenMessage> tokenMessages = tokenizeMessage(messageEntities);
 
         // 构造Token配置
-        TokenOverflowConfig tokenOverflowConfig = new TokenOverflowConfig();
-        tokenOverflowConfig.setStrategyType(strategyType);
-        tokenOverflowConfig.setMaxTokens(llmModelConfig.getMaxTokens());
-        tokenOverflowConfig.setSummaryThreshold(llmModelConfig.getSummaryThreshold());
+        TokenOverflowConfig tokenOverflowConfig = TokenOverflowConfigAssembler.toTokenOverflowConfig(llmModelConfig);
+        tokenOverflowConfig.setCurrentMessage(environment.getUserMessage());
+        tokenOverflowConfig.setMetricTags(environment.getMetricTags());
 
         // 设置提供商配置
         org.xhy.domain.llm.model.config.ProviderConfig providerConfig = provider.getConfig();
@@ -247,7 +445,9 @@ public class ConversationAppService {
                 provider.getProtocol()));
 
         // 处理Token
+        Timer.Sample sample = chatMetrics.start();
         TokenProcessResult result = tokenDomainService.processMessages(tokenMessages, tokenOverflowConfig);
+        sample.stop(chatMetrics.timer(ChatMetrics.TOKEN_PROCESS, environment.getMetricTags()));
 
         // 更新上下文
         if (result.isProcessed()) {
@@ -256,14 +456,43 @@ public class ConversationAppService {
                     .map(TokenMessage::getId)
                     .collect(Collectors.toList());
 
-            if (strategyType == TokenOverflowStrategyEnum.SUMMARIZE) {
-                String newSummary = result.getSummary();
+            // 摘要策略和生成了摘要的插件策略，新摘要追加到已有摘要之后
+            String newSummary = result.getSummary();
+            if (StringUtils.isNotEmpty(newSummary)) {
                 String oldSummary = contextEntity.getSummary();
-                contextEntity.setSummary(oldSummary + newSummary);
+                contextEntity.setSummary(oldSummary != null ? oldSummary + newSummary : newSummary);
+            }
+
+            // 相关性保留每轮按当前问题重新挑选，上下文保留有上限的候选：本轮选中的消息加最近的消息
+            if (TokenOverflowStrategyEnum.RELEVANCE.name().equals(tokenOverflowConfig.getStrategyName())) {
+                contextEntity.setActiveMessages(capRelevanceCandidates(contextEntity.getActiveMessages(),
+                        retainedMessageIds));
+            } else {
+                contextEntity.setActiveMessages(retainedMessageIds);
             }
+            return retainedMessageIds;
+        }
+        return contextEntity.getActiveMessages();
+    }
 
-            contextEntity.setActiveMessages(retainedMessageIds);
+    /**
+     * 相关性保留策略下限制上下文中的候选消息数
+     * 超出上限时保留本轮选中的消息和最近的消息，保持原有顺序；更早且未被选中的消息不再参与后续挑选
+     *
+     * @param activeMessageIds 上下文中的候选消息id，按时间正序
+     * @param retainedMessageIds 本轮选中的消息id
+     * @return 限制后的候选消息id
+     */
+    private List<String> capRelevanceCandidates(List<String> activeMessageIds, List<String> retainedMessageIds) {
+        int limit = Math.max(1, chatProperties.getBudget().getRelevanceCandidateLimit());
+        if (activeMessageIds == null || activeMessageIds.size() <= limit) {
+            return activeMessageIds;
         }
+        Set<String> keep = new HashSet<>(retainedMessageIds);
+        keep.addAll(activeMessageIds.subList(activeMessageIds.size() - limit, activeMessageIds.size()));
+        return activeMessageIds.stream()
+                .filter(keep::contains)
+                .collect(Collectors.toList());
     }
 
     /**
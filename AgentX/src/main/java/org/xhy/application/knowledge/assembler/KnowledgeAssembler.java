@@ -0,0 +1,76 @@
+package org.xhy.application.knowledge.assembler;
+
+import org.springframework.beans.BeanUtils;
+import org.xhy.application.knowledge.dto.IngestionJobDTO;
+import org.xhy.application.knowledge.dto.KnowledgeBaseDTO;
+import org.xhy.application.knowledge.dto.KnowledgeDocumentDTO;
+import org.xhy.domain.knowledge.model.IngestionJob;
+import org.xhy.domain.knowledge.model.IngestionSource;
+import org.xhy.domain.knowledge.model.KnowledgeBaseEntity;
+import org.xhy.domain.knowledge.model.KnowledgeDocumentEntity;
+import org.xhy.interfaces.dto.knowledge.CreateKnowledgeBaseRequest;
+import org.xhy.interfaces.dto.knowledge.IngestDocumentRequest;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 知识库对象组装器
+ * 负责DTO、Entity和Request之间的转换
+ */
+public class KnowledgeAssembler {
+
+    public static KnowledgeBaseEntity toEntity(CreateKnowledgeBaseRequest request, String userId) {
+        KnowledgeBaseEntity entity = new KnowledgeBaseEntity();
+        entity.setName(request.getName());
+        entity.setDescription(request.getDescription());
+        entity.setUserId(userId);
+        return entity;
+    }
+
+    public static KnowledgeBaseDTO toDTO(KnowledgeBaseEntity entity) {
+        KnowledgeBaseDTO dto = new KnowledgeBaseDTO();
+        BeanUtils.copyProperties(entity, dto);
+        return dto;
+    }
+
+    public static List<KnowledgeBaseDTO> toDTOs(List<KnowledgeBaseEntity> entities) {
+        return entities.stream().map(KnowledgeAssembler::toDTO).collect(Collectors.toList());
+    }
+
+    public static KnowledgeDocumentDTO toDocumentDTO(KnowledgeDocumentEntity entity) {
+        KnowledgeDocumentDTO dto = new KnowledgeDocumentDTO();
+        BeanUtils.copyProperties(entity, dto);
+        return dto;
+    }
+
+    public static List<KnowledgeDocumentDTO> toDocumentDTOs(List<KnowledgeDocumentEntity> entities) {
+        return entities.stream().map(KnowledgeAssembler::toDocumentDTO).collect(Collectors.toList());
+    }
+
+    public static IngestionSource toSource(IngestDocumentRequest request) {
+        return new IngestionSource(request.getTitle(), request.getContent());
+    }
+
+    public static List<IngestionSource> toSources(List<IngestDocumentRequest> requests) {
+        return requests.stream().map(KnowledgeAssembler::toSource).collect(Collectors.toList());
+    }
+
+    public static IngestionJobDTO toJobDTO(IngestionJob job) {
+        IngestionJobDTO dto = new IngestionJobDTO();
+        dto.setId(job.getId());
+        dto.setKnowledgeBaseId(job.getKnowledgeBaseId());
+        dto.setStatus(job.getStatus());
+        dto.setTotalDocuments(job.getTotalDocuments());
+        dto.setCompletedDocuments(job.getCompletedDocuments());
+        dto.setFailedDocuments(job.getFailedDocuments());
+        dto.setTotalChunks(job.getTotalChunks());
+        dto.setReusedChunks(job.getReusedChunks());
+        dto.setEmbeddedChunks(job.getEmbeddedChunks());
+        dto.setIndexedChunks(job.getIndexedChunks());
+        dto.setDocuments(toDocumentDTOs(job.getDocuments()));
+        dto.setCreatedAt(job.getCreatedAt());
+        dto.setFinishedAt(job.getFinishedAt());
+        return dto;
+    }
+}
@@ -0,0 +1,181 @@
+package org.xhy.application.knowledge.dto;
+
+import org.xhy.domain.knowledge.constant.IngestionJobStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 文档导入任务DTO
+ */
+public class IngestionJobDTO {
+
+    /**
+     * 任务ID
+     */
+    private String id;
+
+    /**
+     * 知识库ID
+     */
+    private String knowledgeBaseId;
+
+    /**
+     * 任务状态
+     */
+    private IngestionJobStatus status;
+
+    /**
+     * 文档总数
+     */
+    private int totalDocuments;
+
+    /**
+     * 已完成文档数
+     */
+    private int completedDocuments;
+
+    /**
+     * 失败文档数
+     */
+    private int failedDocuments;
+
+    /**
+     * 已切分的文本块总数，随解析进度增长
+     */
+    private int totalChunks;
+
+    /**
+     * 内容未变、复用已有向量的文本块数
+     */
+    private int reusedChunks;
+
+    /**
+     * 重新向量化的文本块数
+     */
+    private int embeddedChunks;
+
+    /**
+     * 已入库的文本块数
+     */
+    private int indexedChunks;
+
+    /**
+     * 已创建的文档
+     */
+    private List<KnowledgeDocumentDTO> documents;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createdAt;
+
+    /**
+     * 结束时间
+     */
+    private LocalDateTime finishedAt;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getKnowledgeBaseId() {
+        return knowledgeBaseId;
+    }
+
+    public void setKnowledgeBaseId(String knowledgeBaseId) {
+        this.knowledgeBaseId = knowledgeBaseId;
+    }
+
+    public IngestionJobStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(IngestionJobStatus status) {
+        this.status = status;
+    }
+
+    public int getTotalDocuments() {
+        return totalDocuments;
+    }
+
+    public void setTotalDocuments(int totalDocuments) {
+        this.totalDocuments = totalDocuments;
+    }
+
+    public int getCompletedDocuments() {
+        return completedDocuments;
+    }
+
+    public void setCompletedDocuments(int completedDocuments) {
+        this.completedDocuments = completedDocuments;
+    }
+
+    public int getFailedDocuments() {
+        return failedDocuments;
+    }
+
+    public void setFailedDocuments(int failedDocuments) {
+        this.failedDocuments = failedDocuments;
+    }
+
+    public int getTotalChunks() {
+        return totalChunks;
+    }
+
+    public void setTotalChunks(int totalChunks) {
+        this.totalChunks = totalChunks;
+    }
+
+    public int getReusedChunks() {
+        return reusedChunks;
+    }
+
+    public void setReusedChunks(int reusedChunks) {
+        this.reusedChunks = reusedChunks;
+    }
+
+    public int getEmbeddedChunks() {
+        return embeddedChunks;
+    }
+
+    public void setEmbeddedChunks(int embeddedChunks) {
+        this.embeddedChunks = embeddedChunks;
+    }
+
+    public int getIndexedChunks() {
+        return indexedChunks;
+    }
+
+    public void setIndexedChunks(int indexedChunks) {
+        this.indexedChunks = indexedChunks;
+    }
+
+    public List<KnowledgeDocumentDTO> getDocuments() {
+        return documents;
+    }
+
+    public void setDocuments(List<KnowledgeDocumentDTO> documents) {
+        this.documents = documents;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+}
@@ -0,0 +1,113 @@
+package org.xhy.application.knowledge.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * 知识库文档DTO
+ */
+public class KnowledgeDocumentDTO {
+
+    /**
+     * 文档ID
+     */
+    private String id;
+
+    /**
+     * 所属知识库ID
+     */
+    private String knowledgeBaseId;
+
+    /**
+     * 文档标题
+     */
+    private String title;
+
+    /**
+     * 原文字符数
+     */
+    private Integer contentLength;
+
+    /**
+     * 文本块数量
+     */
+    private Integer chunkCount;
+
+    /**
+     * 文档状态：1-处理中, 2-已完成, 3-失败
+     */
+    private Integer status;
+
+    /**
+     * 处理失败原因
+     */
+    private String errorMessage;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createdAt;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getKnowledgeBaseId() {
+        return knowledgeBaseId;
+    }
+
+    public void setKnowledgeBaseId(String knowledgeBaseId) {
+        this.knowledgeBaseId = knowledgeBaseId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public Integer getContentLength() {
+        return contentLength;
+    }
+
+    public void setContentLength(Integer contentLength) {
+        this.contentLength = contentLength;
+    }
+
+    public Integer getChunkCount() {
+        return chunkCount;
+    }
+
+    public void setChunkCount(Integer chunkCount) {
+        this.chunkCount = chunkCount;
+    }
+
+    public Integer getStatus() {
+        return status;
+    }
+
+    public void setStatus(Integer status) {
+        this.status = status;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
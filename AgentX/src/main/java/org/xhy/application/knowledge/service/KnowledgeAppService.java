@@ -0,0 +1,125 @@
+package org.xhy.application.knowledge.service;
+
+import org.springframework.stereotype.Service;
+import org.xhy.application.knowledge.assembler.KnowledgeAssembler;
+import org.xhy.application.knowledge.dto.IngestionJobDTO;
+import org.xhy.application.knowledge.dto.KnowledgeBaseDTO;
+import org.xhy.application.knowledge.dto.KnowledgeDocumentDTO;
+import org.xhy.domain.knowledge.constant.DocumentStatus;
+import org.xhy.domain.knowledge.model.IngestionJob;
+import org.xhy.domain.knowledge.model.KnowledgeBaseEntity;
+import org.xhy.domain.knowledge.model.KnowledgeDocumentEntity;
+import org.xhy.domain.knowledge.service.KnowledgeBaseDomainService;
+import org.xhy.domain.knowledge.service.KnowledgeIngestionPipeline;
+import org.xhy.infrastructure.exception.BusinessException;
+import org.xhy.interfaces.dto.knowledge.CreateIngestionJobRequest;
+import org.xhy.interfaces.dto.knowledge.CreateKnowledgeBaseRequest;
+import org.xhy.interfaces.dto.knowledge.IngestDocumentRequest;
+
+import java.util.List;
+
+/**
+ * 知识库应用服务
+ */
+@Service
+public class KnowledgeAppService {
+
+    private final KnowledgeBaseDomainService knowledgeBaseDomainService;
+    private final KnowledgeIngestionPipeline ingestionPipeline;
+
+    public KnowledgeAppService(KnowledgeBaseDomainService knowledgeBaseDomainService,
+                               KnowledgeIngestionPipeline ingestionPipeline) {
+        this.knowledgeBaseDomainService = knowledgeBaseDomainService;
+        this.ingestionPipeline = ingestionPipeline;
+    }
+
+    /**
+     * 创建知识库
+     */
+    public KnowledgeBaseDTO createKnowledgeBase(CreateKnowledgeBaseRequest request, String userId) {
+        KnowledgeBaseEntity entity = KnowledgeAssembler.toEntity(request, userId);
+        return KnowledgeAssembler.toDTO(knowledgeBaseDomainService.createKnowledgeBase(entity));
+    }
+
+    /**
+     * 获取用户的知识库列表
+     */
+    public List<KnowledgeBaseDTO> getUserKnowledgeBases(String userId) {
+        return KnowledgeAssembler.toDTOs(knowledgeBaseDomainService.getUserKnowledgeBases(userId));
+    }
+
+    /**
+     * 删除知识库
+     */
+    public void deleteKnowledgeBase(String knowledgeBaseId, String userId) {
+        knowledgeBaseDomainService.deleteKnowledgeBase(knowledgeBaseId, userId);
+    }
+
+    /**
+     * 获取知识库下的文档列表
+     */
+    public List<KnowledgeDocumentDTO> getDocuments(String knowledgeBaseId, String userId) {
+        knowledgeBaseDomainService.getKnowledgeBase(knowledgeBaseId, userId);
+        return KnowledgeAssembler.toDocumentDTOs(knowledgeBaseDomainService.getDocuments(knowledgeBaseId));
+    }
+
+    /**
+     * 删除文档
+     */
+    public void deleteDocument(String knowledgeBaseId, String documentId, String userId) {
+        knowledgeBaseDomainService.getKnowledgeBase(knowledgeBaseId, userId);
+        knowledgeBaseDomainService.deleteDocument(knowledgeBaseId, documentId);
+    }
+
+    /**
+     * 上传单个文档：提交到导入流水线并等待处理完成
+     *
+     * @param knowledgeBaseId 知识库ID
+     * @param request         文档内容
+     * @param userId          用户ID
+     * @return 文档信息
+     */
+    public KnowledgeDocumentDTO ingestDocument(String knowledgeBaseId, IngestDocumentRequest request, String userId) {
+        knowledgeBaseDomainService.getKnowledgeBase(knowledgeBaseId, userId);
+
+        IngestionJob job = ingestionPipeline.submit(knowledgeBaseId, userId,
+                List.of(KnowledgeAssembler.toSource(request)));
+        job.getCompletion().join();
+        List<KnowledgeDocumentEntity> documents = job.getDocuments();
+        if (documents.isEmpty()) {
+            throw new BusinessException("文档处理失败");
+        }
+        KnowledgeDocumentEntity document = documents.get(0);
+        if (DocumentStatus.FAILED.getCode().equals(document.getStatus())) {
+            throw new BusinessException("文档处理失败: " + document.getErrorMessage());
+        }
+        return KnowledgeAssembler.toDocumentDTO(document);
+    }
+
+    /**
+     * 批量导入文档，立即返回任务，进度通过任务ID查询
+     *
+     * @param knowledgeBaseId 知识库ID
+     * @param request         文档列表
+     * @param userId          用户ID
+     * @return 导入任务
+     */
+    public IngestionJobDTO createIngestionJob(String knowledgeBaseId, CreateIngestionJobRequest request,
+                                              String userId) {
+        knowledgeBaseDomainService.getKnowledgeBase(knowledgeBaseId, userId);
+        IngestionJob job = ingestionPipeline.submit(knowledgeBaseId, userId,
+                KnowledgeAssembler.toSources(request.getDocuments()));
+        return KnowledgeAssembler.toJobDTO(job);
+    }
+
+    /**
+     * 查询导入任务进度
+     */
+    public IngestionJobDTO getIngestionJob(String knowledgeBaseId, String jobId, String userId) {
+        IngestionJob job = ingestionPipeline.getJob(jobId);
+        if (job == null || !job.getKnowledgeBaseId().equals(knowledgeBaseId) || !job.getUserId().equals(userId)) {
+            throw new BusinessException("导入任务不存在");
+        }
+        return KnowledgeAssembler.toJobDTO(job);
+    }
+}
@@ -0,0 +1,24 @@
+package org.xhy.application.memory.assembler;
+
+import org.springframework.beans.BeanUtils;
+import org.xhy.application.memory.dto.AgentMemoryDTO;
+import org.xhy.domain.memory.model.AgentMemoryEntity;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Agent长期记忆对象组装器
+ */
+public class AgentMemoryAssembler {
+
+    public static AgentMemoryDTO toDTO(AgentMemoryEntity entity) {
+        AgentMemoryDTO dto = new AgentMemoryDTO();
+        BeanUtils.copyProperties(entity, dto);
+        return dto;
+    }
+
+    public static List<AgentMemoryDTO> toDTOs(List<AgentMemoryEntity> entities) {
+        return entities.stream().map(AgentMemoryAssembler::toDTO).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,87 @@
+package org.xhy.application.memory.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Agent长期记忆DTO
+ */
+public class AgentMemoryDTO {
+
+    /**
+     * 记忆ID
+     */
+    private String id;
+
+    /**
+     * 事实内容
+     */
+    private String content;
+
+    /**
+     * 被重复提及的次数
+     */
+    private Integer mentionCount;
+
+    /**
+     * 最近一次被召回的时间
+     */
+    private LocalDateTime lastRecalledAt;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createdAt;
+
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updatedAt;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public Integer getMentionCount() {
+        return mentionCount;
+    }
+
+    public void setMentionCount(Integer mentionCount) {
+        this.mentionCount = mentionCount;
+    }
+
+    public LocalDateTime getLastRecalledAt() {
+        return lastRecalledAt;
+    }
+
+    public void setLastRecalledAt(LocalDateTime lastRecalledAt) {
+        this.lastRecalledAt = lastRecalledAt;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,43 @@
+package org.xhy.application.memory.service;
+
+import org.springframework.stereotype.Service;
+import org.xhy.application.memory.assembler.AgentMemoryAssembler;
+import org.xhy.application.memory.dto.AgentMemoryDTO;
+import org.xhy.domain.memory.service.AgentMemoryDomainService;
+
+import java.util.List;
+
+/**
+ * Agent长期记忆应用服务
+ * 用户可以查看Agent记住了哪些关于自己的事实，并删除不准确或不希望保留的记忆
+ */
+@Service
+public class AgentMemoryAppService {
+
+    private final AgentMemoryDomainService agentMemoryDomainService;
+
+    public AgentMemoryAppService(AgentMemoryDomainService agentMemoryDomainService) {
+        this.agentMemoryDomainService = agentMemoryDomainService;
+    }
+
+    /**
+     * 获取用户在Agent下的记忆列表
+     */
+    public List<AgentMemoryDTO> getMemories(String agentId, String userId) {
+        return AgentMemoryAssembler.toDTOs(agentMemoryDomainService.getMemories(userId, agentId));
+    }
+
+    /**
+     * 删除单条记忆
+     */
+    public void deleteMemory(String memoryId, String userId) {
+        agentMemoryDomainService.deleteMemory(memoryId, userId);
+    }
+
+    /**
+     * 清空用户在Agent下的全部记忆
+     */
+    public void clearMemories(String agentId, String userId) {
+        agentMemoryDomainService.clearMemories(userId, agentId);
+    }
+}
@@ -0,0 +1,24 @@
+package org.xhy.application.usage.assembler;
+
+import org.springframework.beans.BeanUtils;
+import org.xhy.application.usage.dto.UsageDTO;
+import org.xhy.domain.usage.model.UsageCounter;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 用量对象组装器
+ */
+public class UsageAssembler {
+
+    public static UsageDTO toDTO(UsageCounter counter) {
+        UsageDTO dto = new UsageDTO();
+        BeanUtils.copyProperties(counter, dto);
+        return dto;
+    }
+
+    public static List<UsageDTO> toDTOs(List<? extends UsageCounter> counters) {
+        return counters.stream().map(UsageAssembler::toDTO).collect(Collectors.toList());
+    }
+}
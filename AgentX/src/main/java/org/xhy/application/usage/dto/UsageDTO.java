@@ -0,0 +1,127 @@
+package org.xhy.application.usage.dto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 用量DTO
+ */
+public class UsageDTO {
+
+    /**
+     * 会话ID，按会话统计时返回
+     */
+    private String sessionId;
+
+    /**
+     * 日期，按天统计时返回
+     */
+    private LocalDate usageDate;
+
+    /**
+     * Agent ID，按Agent版本统计时返回
+     */
+    private String agentId;
+
+    /**
+     * 版本ID，按Agent版本统计时返回，未发布时为空字符串
+     */
+    private String versionId;
+
+    /**
+     * 消息数
+     */
+    private long messageCount;
+
+    /**
+     * 输入token数
+     */
+    private long inputTokens;
+
+    /**
+     * 输出token数
+     */
+    private long outputTokens;
+
+    /**
+     * 总token数
+     */
+    private long totalTokens;
+
+    /**
+     * 最后刷写时间，尚未刷写时为空
+     */
+    private LocalDateTime updatedAt;
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public LocalDate getUsageDate() {
+        return usageDate;
+    }
+
+    public void setUsageDate(LocalDate usageDate) {
+        this.usageDate = usageDate;
+    }
+
+    public String getAgentId() {
+        return agentId;
+    }
+
+    public void setAgentId(String agentId) {
+        this.agentId = agentId;
+    }
+
+    public String getVersionId() {
+        return versionId;
+    }
+
+    public void setVersionId(String versionId) {
+        this.versionId = versionId;
+    }
+
+    public long getMessageCount() {
+        return messageCount;
+    }
+
+    public void setMessageCount(long messageCount) {
+        this.messageCount = messageCount;
+    }
+
+    public long getInputTokens() {
+        return inputTokens;
+    }
+
+    public void setInputTokens(long inputTokens) {
+        this.inputTokens = inputTokens;
+    }
+
+    public long getOutputTokens() {
+        return outputTokens;
+    }
+
+    public void setOutputTokens(long outputTokens) {
+        this.outputTokens = outputTokens;
+    }
+
+    public long getTotalTokens() {
+        return totalTokens;
+    }
+
+    public void setTotalTokens(long totalTokens) {
+        this.totalTokens = totalTokens;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,63 @@
+package org.xhy.application.usage.service;
+
+import org.springframework.stereotype.Service;
+import org.xhy.application.usage.assembler.UsageAssembler;
+import org.xhy.application.usage.dto.UsageDTO;
+import org.xhy.domain.agent.service.AgentDomainService;
+import org.xhy.domain.conversation.service.SessionDomainService;
+import org.xhy.domain.usage.service.UsageDomainService;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 用量统计应用服务
+ * 用户可以查看自己每个会话和每天的用量，Agent创建者可以查看Agent各版本的用量
+ */
+@Service
+public class UsageAppService {
+
+    /**
+     * 按天查询的最大天数
+     */
+    private static final int MAX_DAYS = 90;
+
+    private final UsageDomainService usageDomainService;
+    private final SessionDomainService sessionDomainService;
+    private final AgentDomainService agentDomainService;
+
+    public UsageAppService(UsageDomainService usageDomainService, SessionDomainService sessionDomainService,
+                           AgentDomainService agentDomainService) {
+        this.usageDomainService = usageDomainService;
+        this.sessionDomainService = sessionDomainService;
+        this.agentDomainService = agentDomainService;
+    }
+
+    /**
+     * 获取会话用量
+     */
+    public UsageDTO getSessionUsage(String sessionId, String userId) {
+        sessionDomainService.getSession(sessionId, userId);
+        return UsageAssembler.toDTO(usageDomainService.getSessionUsage(sessionId));
+    }
+
+    /**
+     * 获取用户最近若干天的每日用量，包含今天
+     *
+     * @param days   天数，最多90天
+     * @param userId 用户ID
+     */
+    public List<UsageDTO> getDailyUsage(int days, String userId) {
+        LocalDate today = LocalDate.now();
+        LocalDate from = today.minusDays(Math.max(1, Math.min(days, MAX_DAYS)) - 1L);
+        return UsageAssembler.toDTOs(usageDomainService.getUserDailyUsage(userId, from, today));
+    }
+
+    /**
+     * 获取Agent各版本的用量，只有创建者可以查看
+     */
+    public List<UsageDTO> getAgentUsage(String agentId, String userId) {
+        agentDomainService.getAgent(agentId, userId);
+        return UsageAssembler.toDTOs(usageDomainService.getAgentUsage(agentId));
+    }
+}
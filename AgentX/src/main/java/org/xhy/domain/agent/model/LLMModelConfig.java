@@ -35,6 +35,10 @@ public class LLMModelConfig {
      * 策略类型 @link TokenOverflowStrategyEnum
      */
     private TokenOverflowStrategyEnum strategyType;
+    /**
+     * 自定义策略名称，选择通过插件注册的策略，设置后优先于策略类型
+     */
+    private String customStrategyName;
     /**
      * 预留缓冲比例，适用于滑动窗口策略
      * 范围0-1之间的小数，表示预留的空间比例
@@ -100,6 +104,14 @@ public class LLMModelConfig {
         this.strategyType = strategyType;
     }
 
+    public String getCustomStrategyName() {
+        return customStrategyName;
+    }
+
+    public void setCustomStrategyName(String customStrategyName) {
+        this.customStrategyName = customStrategyName;
+    }
+
     public Double getReserveRatio() {
         return reserveRatio;
     }
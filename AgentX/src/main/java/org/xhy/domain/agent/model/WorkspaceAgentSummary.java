@@ -0,0 +1,180 @@
+package org.xhy.domain.agent.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * 工作区Agent读模型
+ * 只投影列表展示需要的Agent字段，不加载系统提示词和工具配置；附带当前用户在该Agent下的会话数、
+ * 最近活跃会话及其最后一条消息预览
+ */
+public class WorkspaceAgentSummary {
+
+    /**
+     * Agent ID
+     */
+    private String id;
+
+    /**
+     * Agent名称
+     */
+    private String name;
+
+    /**
+     * Agent头像URL
+     */
+    private String avatar;
+
+    /**
+     * Agent描述
+     */
+    private String description;
+
+    /**
+     * Agent类型
+     */
+    private Integer agentType;
+
+    /**
+     * 当前发布的版本ID
+     */
+    private String publishedVersion;
+
+    /**
+     * 是否启用
+     */
+    private Boolean enabled;
+
+    /**
+     * 创建者用户ID
+     */
+    private String userId;
+
+    /**
+     * 当前用户在该Agent下的会话数
+     */
+    private Long sessionCount;
+
+    /**
+     * 最近活跃的会话ID
+     */
+    private String lastSessionId;
+
+    /**
+     * 最近活跃会话中最后一条消息的预览
+     */
+    private String lastMessagePreview;
+
+    /**
+     * 最后一条消息压缩存储时解压后的完整内容，用于生成预览
+     */
+    private String lastMessageContent;
+
+    /**
+     * 最后活跃时间，没有会话时为空
+     */
+    private LocalDateTime lastActivityAt;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getAvatar() {
+        return avatar;
+    }
+
+    public void setAvatar(String avatar) {
+        this.avatar = avatar;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public Integer getAgentType() {
+        return agentType;
+    }
+
+    public void setAgentType(Integer agentType) {
+        this.agentType = agentType;
+    }
+
+    public String getPublishedVersion() {
+        return publishedVersion;
+    }
+
+    public void setPublishedVersion(String publishedVersion) {
+        this.publishedVersion = publishedVersion;
+    }
+
+    public Boolean getEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(Boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public Long getSessionCount() {
+        return sessionCount;
+    }
+
+    public void setSessionCount(Long sessionCount) {
+        this.sessionCount = sessionCount;
+    }
+
+    public String getLastSessionId() {
+        return lastSessionId;
+    }
+
+    public void setLastSessionId(String lastSessionId) {
+        this.lastSessionId = lastSessionId;
+    }
+
+    public String getLastMessagePreview() {
+        return lastMessagePreview;
+    }
+
+    public void setLastMessagePreview(String lastMessagePreview) {
+        this.lastMessagePreview = lastMessagePreview;
+    }
+
+    public String getLastMessageContent() {
+        return lastMessageContent;
+    }
+
+    public void setLastMessageContent(String lastMessageContent) {
+        this.lastMessageContent = lastMessageContent;
+    }
+
+    public LocalDateTime getLastActivityAt() {
+        return lastActivityAt;
+    }
+
+    public void setLastActivityAt(LocalDateTime lastActivityAt) {
+        this.lastActivityAt = lastActivityAt;
+    }
+}
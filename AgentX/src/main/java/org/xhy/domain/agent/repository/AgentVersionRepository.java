@@ -1,7 +1,10 @@
 package org.xhy.domain.agent.repository;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 import org.xhy.domain.agent.model.AgentVersionEntity;
 import org.xhy.infrastructure.repository.MyBatisPlusExtRepository;
@@ -15,63 +18,75 @@ import java.util.List;
 public interface AgentVersionRepository extends MyBatisPlusExtRepository<AgentVersionEntity> {
 
         /**
-         * 查询每个agentId的最新版本（按publishStatus过滤）
+         * 查询每个agentId的最新版本ID（按publishStatus过滤）
+         * 从目录表读取，耗时只与Agent数量有关，与版本数量无关；版本内容由快照缓存提供
          * 
          * @param publishStatus 发布状态，为null时查询所有状态
-         * @return 每个agentId的最新版本列表
+         * @return 每个agentId的最新版本ID列表
          */
         @Select("<script>" +
-                        "SELECT a.* FROM agent_versions a " +
-                        "INNER JOIN (SELECT agent_id, MAX(published_at) as max_published_at " +
-                        "FROM agent_versions " +
-                        "<if test='publishStatus != null'> WHERE publish_status = #{publishStatus} </if>" +
-                        "GROUP BY agent_id) b " +
-                        "ON a.agent_id = b.agent_id AND a.published_at = b.max_published_at " +
-                        "<if test='publishStatus != null'> WHERE a.publish_status = #{publishStatus} </if>" +
+                        "SELECT c.version_id FROM agent_version_catalog c " +
+                        "<if test='publishStatus != null'> WHERE c.publish_status = #{publishStatus} </if>" +
+                        "<if test='publishStatus == null'> WHERE NOT EXISTS (SELECT 1 FROM agent_version_catalog n " +
+                        "WHERE n.agent_id = c.agent_id AND n.published_at &gt; c.published_at) </if>" +
                         "</script>")
-        List<AgentVersionEntity> selectLatestVersionsByStatus(Integer publishStatus);
+        List<String> selectLatestVersionIdsByStatus(@Param("publishStatus") Integer publishStatus);
 
         /**
-         * 按名称搜索每个agentId的最新版本
-         * 
-         * @param name 搜索的名称，模糊匹配
-         * @return 符合条件的每个agentId的最新版本列表
-         */
-        @Select("<script>" +
-                        "SELECT a.* FROM agent_versions a " +
-                        "INNER JOIN (SELECT agent_id, MAX(published_at) as max_published_at " +
-                        "FROM agent_versions " +
-                        "<if test='name != null and name != \"\"'> WHERE name LIKE CONCAT('%', #{name}, '%') </if>" +
-                        "GROUP BY agent_id) b " +
-                        "ON a.agent_id = b.agent_id AND a.published_at = b.max_published_at " +
-                        "<if test='name != null and name != \"\"'> WHERE a.name LIKE CONCAT('%', #{name}, '%') </if>" +
-                        "</script>")
-        List<AgentVersionEntity> selectLatestVersionsByName(String name);
-
-        /**
-         * 根据名称和发布状态查询所有助理的最新版本
-         * 同时支持只按状态查询（当name为空时）
+         * 根据名称和发布状态查询所有助理的最新版本ID
+         * 同时支持只按状态查询（当name为空时）；名称模糊匹配走目录表上的三元组索引
          */
         @Select({
                         "<script>",
-                        "SELECT v.* FROM agent_versions v ",
-                        "INNER JOIN (",
-                        "    SELECT agent_id, MAX(published_at) as latest_date ",
-                        "    FROM agent_versions ",
-                        "    WHERE deleted_at IS NULL ",
-                        "    <if test='status != null'>",
-                        "        AND publish_status = #{status} ",
-                        "    </if>",
-                        "    GROUP BY agent_id",
-                        ") latest ON v.agent_id = latest.agent_id AND v.published_at = latest.latest_date ",
-                        "WHERE v.deleted_at IS NULL ",
+                        "SELECT c.version_id FROM agent_version_catalog c ",
+                        "WHERE 1 = 1 ",
                         "<if test='name != null and name != \"\"'>",
-                        "    AND v.name LIKE CONCAT('%', #{name}, '%') ",
+                        "    AND c.name LIKE CONCAT('%', #{name}, '%') ",
                         "</if>",
                         "<if test='status != null'>",
-                        "    AND v.publish_status = #{status} ",
+                        "    AND c.publish_status = #{status} ",
                         "</if>",
                         "</script>"
         })
-        List<AgentVersionEntity> selectLatestVersionsByNameAndStatus(String name, Integer status);
-}
\ No newline at end of file
+        List<String> selectLatestVersionIdsByNameAndStatus(@Param("name") String name,
+                                                           @Param("status") Integer status);
+
+        /**
+         * 重新计算Agent在目录表中的记录：每个发布状态保留发布时间最新的版本
+         * 版本的插入、状态变更和删除后调用，只扫描该Agent自己的版本
+         *
+         * @param agentId Agent ID
+         * @return 写入行数
+         */
+        @Insert("INSERT INTO agent_version_catalog (agent_id, publish_status, version_id, name, published_at) " +
+                        "SELECT DISTINCT ON (publish_status) agent_id, publish_status, id, name, published_at " +
+                        "FROM agent_versions WHERE agent_id = #{agentId} AND publish_status IS NOT NULL AND deleted_at IS NULL " +
+                        "ORDER BY publish_status, published_at DESC " +
+                        "ON CONFLICT (agent_id, publish_status) DO UPDATE SET version_id = EXCLUDED.version_id, " +
+                        "name = EXCLUDED.name, published_at = EXCLUDED.published_at")
+        int refreshCatalog(@Param("agentId") String agentId);
+
+        /**
+         * 删除Agent在目录表中已没有对应版本的状态记录
+         *
+         * @param agentId Agent ID
+         * @return 删除行数
+         */
+        @Delete("DELETE FROM agent_version_catalog c WHERE c.agent_id = #{agentId} " +
+                        "AND NOT EXISTS (SELECT 1 FROM agent_versions v WHERE v.agent_id = c.agent_id " +
+                        "AND v.publish_status = c.publish_status AND v.deleted_at IS NULL)")
+        int pruneCatalog(@Param("agentId") String agentId);
+
+        /**
+         * 按工作区添加次数查询最常用的已发布版本ID，用于启动时预热版本缓存
+         *
+         * @param limit 返回数量
+         * @return 版本ID列表
+         */
+        @Select("SELECT a.published_version FROM agents a " +
+                        "LEFT JOIN (SELECT agent_id, COUNT(*) AS installs FROM agent_workspace GROUP BY agent_id) w " +
+                        "ON w.agent_id = a.id " +
+                        "WHERE a.published_version IS NOT NULL AND a.published_version <> '' AND a.deleted_at IS NULL " +
+                        "ORDER BY COALESCE(w.installs, 0) DESC LIMIT #{limit}")
+        List<String> selectMostUsedPublishedVersionIds(@Param("limit") int limit);
+}
@@ -1,12 +1,16 @@
 package org.xhy.domain.agent.repository;
 
-import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Result;
+import org.apache.ibatis.annotations.Results;
 import org.apache.ibatis.annotations.Select;
-import org.xhy.application.agent.service.AgentWorkspaceAppService;
 import org.xhy.domain.agent.model.AgentWorkspaceEntity;
+import org.xhy.domain.agent.model.WorkspaceAgentSummary;
 import org.xhy.infrastructure.repository.MyBatisPlusExtRepository;
+import org.xhy.infrastructure.typehandler.PackedContentTypeHandler;
+
+import java.util.List;
 
 /**
  * Agent工作区仓库接口
@@ -16,4 +20,39 @@ public interface AgentWorkspaceRepository extends MyBatisPlusExtRepository<Agent
 
     @Select("SELECT EXISTS(SELECT 1 FROM agent_workspace WHERE agent_id = #{agentId} AND user_id = #{userId})")
     boolean exist(@Param("agentId") String agentId, @Param("userId") String userId);
+
+    /**
+     * 查询用户工作区中的Agent列表，只投影列表字段
+     * 同一条查询中带出用户在每个Agent下的会话数，以及最近活跃会话的最后一条消息；
+     * 压缩存储的消息返回完整的content_packed，由类型处理器解压后交给调用方截取
+     *
+     * @param userId       用户ID
+     * @param previewChars 明文内容截取的字符数
+     * @return Agent列表，按最后活跃时间倒序，没有会话的排在最后
+     */
+    @Select("SELECT a.id, a.name, a.avatar, a.description, a.agent_type, a.published_version, a.enabled, a.user_id, " +
+            "COALESCE(sc.session_count, 0) AS session_count, ls.last_session_id, " +
+            "ls.last_message_preview, ls.last_message_packed, ls.last_activity_at " +
+            "FROM agent_workspace w " +
+            "JOIN agents a ON a.id = w.agent_id AND a.deleted_at IS NULL " +
+            "LEFT JOIN LATERAL (SELECT COUNT(*) AS session_count FROM sessions s " +
+            "WHERE s.agent_id = a.id AND s.user_id = w.user_id AND s.deleted_at IS NULL) sc ON TRUE " +
+            "LEFT JOIN LATERAL (SELECT s.id AS last_session_id, lm.preview AS last_message_preview, " +
+            "lm.content_packed AS last_message_packed, " +
+            "COALESCE(GREATEST(lm.created_at, ar.last_message_at), s.updated_at) AS last_activity_at " +
+            "FROM sessions s " +
+            "LEFT JOIN LATERAL (SELECT left(m.content, #{previewChars}) AS preview, m.content_packed, m.created_at " +
+            "FROM messages m " +
+            "WHERE m.session_id = s.id AND m.deleted_at IS NULL ORDER BY m.created_at DESC LIMIT 1) lm ON TRUE " +
+            "LEFT JOIN message_archives ar ON ar.session_id = s.id " +
+            "WHERE s.agent_id = a.id AND s.user_id = w.user_id AND s.deleted_at IS NULL " +
+            "ORDER BY last_activity_at DESC LIMIT 1) ls ON TRUE " +
+            "WHERE w.user_id = #{userId} AND w.deleted_at IS NULL " +
+            "ORDER BY ls.last_activity_at DESC NULLS LAST, w.created_at DESC")
+    @Results({
+            @Result(column = "last_message_packed", property = "lastMessageContent",
+                    typeHandler = PackedContentTypeHandler.class)
+    })
+    List<WorkspaceAgentSummary> selectSummaries(@Param("userId") String userId,
+                                                @Param("previewChars") int previewChars);
 }
@@ -30,11 +30,14 @@ public class AgentDomainService {
     private final AgentRepository agentRepository;
     private final AgentVersionRepository agentVersionRepository;
     private final AgentWorkspaceRepository agentWorkspaceRepository;
+    private final AgentVersionSnapshotCache versionCache;
 
-    public AgentDomainService(AgentRepository agentRepository, AgentVersionRepository agentVersionRepository, AgentWorkspaceRepository agentWorkspaceRepository) {
+    public AgentDomainService(AgentRepository agentRepository, AgentVersionRepository agentVersionRepository, AgentWorkspaceRepository agentWorkspaceRepository,
+                              AgentVersionSnapshotCache versionCache) {
         this.agentRepository = agentRepository;
         this.agentVersionRepository = agentVersionRepository;
         this.agentWorkspaceRepository = agentWorkspaceRepository;
+        this.versionCache = versionCache;
     }
 
     /**
@@ -84,9 +87,9 @@ public class AgentDomainService {
      */
     public List<AgentVersionEntity> getPublishedAgentsByName(AgentEntity agent) {
         // 使用带名称和状态条件的查询
-        List<AgentVersionEntity> latestVersions = agentVersionRepository.selectLatestVersionsByNameAndStatus(
+        List<AgentVersionEntity> latestVersions = versionCache.getAll(agentVersionRepository.selectLatestVersionIdsByNameAndStatus(
                 agent.getName(),
-                PublishStatus.PUBLISHED.getCode());
+                PublishStatus.PUBLISHED.getCode()));
 
         // 组合助理和版本信息
         return combineAgentsWithVersions(latestVersions);
@@ -142,6 +145,8 @@ public class AgentDomainService {
         agentVersionRepository.checkedDelete(Wrappers.<AgentVersionEntity>lambdaQuery()
                 .eq(AgentVersionEntity::getAgentId, agentId)
                 .eq(AgentVersionEntity::getUserId, userId));
+        refreshCatalog(agentId);
+        versionCache.removeAgent(agentId);
     }
 
     /**
@@ -187,6 +192,7 @@ public class AgentDomainService {
 
         // 保存版本
         agentVersionRepository.insert(versionEntity);
+        refreshCatalog(agentId);
 
         return versionEntity;
     }
@@ -206,6 +212,8 @@ public class AgentDomainService {
         // 更新版本状态
         version.updatePublishStatus(status);
         agentVersionRepository.updateById(version);
+        refreshCatalog(version.getAgentId());
+        versionCache.remove(versionId);
 
         // 如果状态更新为已发布，则绑定为Agent的publishedVersion
         if (status == PublishStatus.PUBLISHED) {
@@ -232,6 +240,8 @@ public class AgentDomainService {
         // 拒绝版本发布
         version.reject(reason);
         agentVersionRepository.checkedUpdateById(version);
+        refreshCatalog(version.getAgentId());
+        versionCache.remove(versionId);
 
         return version;
     }
@@ -257,11 +267,13 @@ public class AgentDomainService {
      * 获取Agent的特定版本
      */
     public AgentVersionEntity getAgentVersion(String agentId, String versionNumber) {
-        // 使用agentId和versionNumber查询版本
+        // 使用agentId和versionNumber查询版本ID，版本内容从缓存读取
         LambdaQueryWrapper<AgentVersionEntity> wrapper = Wrappers.<AgentVersionEntity>lambdaQuery()
+                .select(AgentVersionEntity::getId)
                 .eq(AgentVersionEntity::getAgentId, agentId)
                 .eq(AgentVersionEntity::getVersionNumber, versionNumber);
-        AgentVersionEntity version = agentVersionRepository.selectOne(wrapper);
+        AgentVersionEntity found = agentVersionRepository.selectOne(wrapper);
+        AgentVersionEntity version = found != null ? versionCache.get(found.getId()) : null;
         if (version == null) {
             throw new BusinessException("Agent版本不存在: " + versionNumber);
         }
@@ -273,15 +285,16 @@ public class AgentDomainService {
      */
     public AgentVersionEntity getLatestAgentVersion(String agentId) {
         LambdaQueryWrapper<AgentVersionEntity> queryWrapper = Wrappers.<AgentVersionEntity>lambdaQuery()
+                .select(AgentVersionEntity::getId)
                 .eq(AgentVersionEntity::getAgentId, agentId)
                 .orderByDesc(AgentVersionEntity::getPublishedAt)
                 .last("LIMIT 1");
 
-        AgentVersionEntity version = agentVersionRepository.selectOne(queryWrapper);
-        if (version == null) {
+        AgentVersionEntity latest = agentVersionRepository.selectOne(queryWrapper);
+        if (latest == null) {
             return null; // 第一次发布时没有版本，返回null而不是抛出异常
         }
-        return version;
+        return versionCache.get(latest.getId());
     }
 
     /**
@@ -291,8 +304,8 @@ public class AgentDomainService {
     public List<AgentVersionEntity> getVersionsByStatus(PublishStatus status) {
 
         // 直接通过SQL查询每个agentId的最新版本
-        return agentVersionRepository
-                .selectLatestVersionsByStatus(status == null ? null : status.getCode());
+        return versionCache.getAll(agentVersionRepository
+                .selectLatestVersionIdsByStatus(status == null ? null : status.getCode()));
     }
 
     /**
@@ -342,7 +355,16 @@ public class AgentDomainService {
     }
 
     public AgentVersionEntity getAgentVersionById(String versionId){
-        return agentVersionRepository.selectById(versionId);
+        return versionCache.get(versionId);
+    }
+
+    /**
+     * 维护已发布Agent目录：每个Agent每个发布状态只保留最新版本，供市场和审核列表直接读取
+     * 与版本变更在同一事务中执行
+     */
+    private void refreshCatalog(String agentId) {
+        agentVersionRepository.refreshCatalog(agentId);
+        agentVersionRepository.pruneCatalog(agentId);
     }
 
     /**
@@ -0,0 +1,209 @@
+package org.xhy.domain.agent.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.xhy.domain.agent.model.AgentVersionEntity;
+import org.xhy.domain.agent.repository.AgentVersionRepository;
+import org.xhy.infrastructure.config.AgentProperties;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Agent版本快照缓存
+ * 版本发布后内容不再变化，按版本id缓存解析后的版本，读取时返回副本，调用方修改不影响缓存；
+ * 按提示词等文本的字符数计算权重，总权重超出上限时淘汰最久未使用的版本。
+ * 只有审核状态会变化，状态变更时移除对应条目，下次读取时重新加载
+ */
+@Component
+public class AgentVersionSnapshotCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(AgentVersionSnapshotCache.class);
+
+    /**
+     * 每个版本的固定权重，覆盖ID、时间等短字段
+     */
+    private static final int BASE_WEIGHT = 256;
+
+    /**
+     * 每个工具的估算权重
+     */
+    private static final int TOOL_WEIGHT = 200;
+
+    private final AgentVersionRepository agentVersionRepository;
+    private final AgentProperties.VersionCache properties;
+    private final LinkedHashMap<String, Snapshot> snapshots = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalWeight;
+
+    public AgentVersionSnapshotCache(AgentVersionRepository agentVersionRepository, AgentProperties agentProperties) {
+        this.agentVersionRepository = agentVersionRepository;
+        this.properties = agentProperties.getVersionCache();
+    }
+
+    /**
+     * 获取版本，未缓存时从数据库加载
+     *
+     * @param versionId 版本ID
+     * @return 版本副本，不存在时返回null
+     */
+    public AgentVersionEntity get(String versionId) {
+        if (versionId == null) {
+            return null;
+        }
+        Snapshot snapshot = lookup(versionId);
+        if (snapshot == null) {
+            AgentVersionEntity loaded = agentVersionRepository.selectById(versionId);
+            if (loaded == null) {
+                return null;
+            }
+            snapshot = store(loaded);
+        }
+        return copy(snapshot.version);
+    }
+
+    /**
+     * 批量获取版本，未缓存的一次查询加载
+     *
+     * @param versionIds 版本ID
+     * @return 版本副本，顺序与参数一致，不存在的版本跳过
+     */
+    public List<AgentVersionEntity> getAll(List<String> versionIds) {
+        Map<String, AgentVersionEntity> found = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String versionId : versionIds) {
+            Snapshot snapshot = lookup(versionId);
+            if (snapshot != null) {
+                found.put(versionId, snapshot.version);
+            } else {
+                missing.add(versionId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (AgentVersionEntity loaded : agentVersionRepository.selectByIds(missing)) {
+                found.put(loaded.getId(), store(loaded).version);
+            }
+        }
+        return versionIds.stream()
+                .map(found::get)
+                .filter(version -> version != null)
+                .map(this::copy)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 移除版本，审核状态变更后调用
+     *
+     * @param versionId 版本ID
+     */
+    public synchronized void remove(String versionId) {
+        Snapshot removed = snapshots.remove(versionId);
+        if (removed != null) {
+            totalWeight -= removed.weight;
+        }
+    }
+
+    /**
+     * 移除Agent的全部版本，删除Agent后调用
+     *
+     * @param agentId Agent ID
+     */
+    public synchronized void removeAgent(String agentId) {
+        Iterator<Snapshot> iterator = snapshots.values().iterator();
+        while (iterator.hasNext()) {
+            Snapshot snapshot = iterator.next();
+            if (agentId.equals(snapshot.version.getAgentId())) {
+                totalWeight -= snapshot.weight;
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 启动后在后台预热最常用的已发布版本，失败不影响启动
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (properties.getWarmupSize() <= 0) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                List<String> versionIds = agentVersionRepository.selectMostUsedPublishedVersionIds(
+                        properties.getWarmupSize());
+                if (!versionIds.isEmpty()) {
+                    getAll(versionIds);
+                }
+                logger.info("Agent版本缓存预热完成: {}个版本", versionIds.size());
+            } catch (Exception e) {
+                logger.warn("Agent版本缓存预热失败: {}", e.getMessage());
+            }
+        }, "agent-version-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private synchronized Snapshot lookup(String versionId) {
+        return snapshots.get(versionId);
+    }
+
+    private synchronized Snapshot store(AgentVersionEntity version) {
+        Snapshot snapshot = new Snapshot(version, weigh(version));
+        Snapshot previous = snapshots.put(version.getId(), snapshot);
+        if (previous != null) {
+            totalWeight -= previous.weight;
+        }
+        totalWeight += snapshot.weight;
+
+        Iterator<Snapshot> eldest = snapshots.values().iterator();
+        while (totalWeight > properties.getMaxWeight() && snapshots.size() > 1 && eldest.hasNext()) {
+            Snapshot evicted = eldest.next();
+            if (evicted == snapshot) {
+                continue;
+            }
+            totalWeight -= evicted.weight;
+            eldest.remove();
+        }
+        return snapshot;
+    }
+
+    private long weigh(AgentVersionEntity version) {
+        return BASE_WEIGHT + length(version.getSystemPrompt()) + length(version.getWelcomeMessage())
+                + length(version.getDescription()) + length(version.getChangeLog()) + length(version.getName())
+                + length(version.getAvatar()) + (long) version.getTools().size() * TOOL_WEIGHT
+                + version.getKnowledgeBaseIds().size() * 36L;
+    }
+
+    private int length(String text) {
+        return text == null ? 0 : text.length();
+    }
+
+    private AgentVersionEntity copy(AgentVersionEntity version) {
+        AgentVersionEntity copy = new AgentVersionEntity();
+        BeanUtils.copyProperties(version, copy);
+        copy.setTools(new ArrayList<>(version.getTools()));
+        copy.setKnowledgeBaseIds(new ArrayList<>(version.getKnowledgeBaseIds()));
+        return copy;
+    }
+
+    /**
+     * 缓存的版本及其权重
+     */
+    private static class Snapshot {
+        private final AgentVersionEntity version;
+        private final long weight;
+
+        private Snapshot(AgentVersionEntity version, long weight) {
+            this.version = version;
+            this.weight = weight;
+        }
+    }
+}
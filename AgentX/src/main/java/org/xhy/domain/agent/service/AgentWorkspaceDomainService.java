@@ -1,17 +1,14 @@
 package org.xhy.domain.agent.service;
 
-import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import com.baomidou.mybatisplus.core.conditions.Wrapper;
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import org.springframework.stereotype.Service;
-import org.xhy.domain.agent.model.AgentEntity;
 import org.xhy.domain.agent.model.AgentWorkspaceEntity;
-import org.xhy.domain.agent.repository.AgentRepository;
+import org.xhy.domain.agent.model.WorkspaceAgentSummary;
 import org.xhy.domain.agent.repository.AgentWorkspaceRepository;
+import org.xhy.domain.conversation.service.MessagePreviews;
 
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import org.xhy.infrastructure.exception.BusinessException;
@@ -21,27 +18,26 @@ public class AgentWorkspaceDomainService {
 
     private final AgentWorkspaceRepository agentWorkspaceRepository;
 
-    private final AgentRepository agentRepository;
-
     public AgentWorkspaceDomainService(AgentWorkspaceRepository agentWorkspaceRepository,
-                                       AgentDomainService agentServiceDomainService, AgentRepository agentRepository) {
+                                       AgentDomainService agentServiceDomainService) {
         this.agentWorkspaceRepository = agentWorkspaceRepository;
-        this.agentRepository = agentRepository;
     }
 
-    public List<AgentEntity> getWorkspaceAgents(String userId) {
-
-        LambdaQueryWrapper<AgentWorkspaceEntity> wrapper = Wrappers.<AgentWorkspaceEntity>lambdaQuery()
-                .eq(AgentWorkspaceEntity::getUserId, userId).select(AgentWorkspaceEntity::getAgentId);
-
-        List<String> agentIds = agentWorkspaceRepository.selectList(wrapper).stream()
-                .map(AgentWorkspaceEntity::getAgentId).collect(Collectors.toList());
-
-        if (agentIds.isEmpty()) {
-            return Collections.emptyList();
+    /**
+     * 获取工作区Agent列表，附带会话数和最近活跃会话的最后一条消息，单条查询完成
+     *
+     * @param userId 用户id
+     * @return Agent列表，按最后活跃时间倒序
+     */
+    public List<WorkspaceAgentSummary> getWorkspaceAgentSummaries(String userId) {
+        List<WorkspaceAgentSummary> summaries = agentWorkspaceRepository.selectSummaries(userId,
+                MessagePreviews.PREVIEW_CHARS + 1);
+        for (WorkspaceAgentSummary summary : summaries) {
+            summary.setLastMessagePreview(MessagePreviews.of(summary.getLastMessagePreview(),
+                    summary.getLastMessageContent()));
+            summary.setLastMessageContent(null);
         }
-        return agentRepository.selectByIds(agentIds);
-
+        return summaries;
     }
 
     public boolean exist(String agentId, String userId) {
@@ -0,0 +1,58 @@
+package org.xhy.domain.conversation.constant;
+
+import org.xhy.infrastructure.exception.BusinessException;
+
+/**
+ * 消息状态枚举
+ * 用于标识流式生成中的消息是否已经完整落库
+ */
+public enum MessageStatus {
+
+    /**
+     * 生成中：消息已落库，内容仍在按检查点追加
+     */
+    STREAMING(1, "生成中"),
+
+    /**
+     * 已完成：大模型正常结束，内容为完整回复
+     */
+    COMPLETED(2, "已完成"),
+
+    /**
+     * 已中断：生成过程中出错或节点停机，内容为截至中断时的部分回复
+     */
+    INTERRUPTED(3, "已中断");
+
+    private final Integer code;
+    private final String description;
+
+    MessageStatus(Integer code, String description) {
+        this.code = code;
+        this.description = description;
+    }
+
+    public Integer getCode() {
+        return code;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * 根据状态码获取枚举值
+     */
+    public static MessageStatus fromCode(Integer code) {
+        if (code == null) {
+            return null;
+        }
+
+        for (MessageStatus status : MessageStatus.values()) {
+            if (status.getCode().equals(code)) {
+                return status;
+            }
+        }
+
+        throw new BusinessException("INVALID_STATUS_CODE", "无效的消息状态码: " + code);
+    }
+}
@@ -1,12 +1,17 @@
 package org.xhy.domain.conversation.handler;
 
+import io.micrometer.core.instrument.Tags;
 import org.xhy.domain.agent.model.AgentEntity;
 import org.xhy.domain.agent.model.LLMModelConfig;
 import org.xhy.domain.conversation.model.ContextEntity;
 import org.xhy.domain.conversation.model.MessageEntity;
+import org.xhy.domain.knowledge.model.KnowledgeRetrievalResult;
 import org.xhy.domain.llm.model.ModelEntity;
 import org.xhy.domain.llm.model.ProviderEntity;
+import org.xhy.domain.token.model.ContextBudgetPlan;
+import org.xhy.infrastructure.metrics.ChatMetrics;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -57,6 +62,21 @@ public class ChatEnvironment {
      * 历史消息列表
      */
     private List<MessageEntity> messageHistory;
+    
+    /**
+     * 上下文预算规划结果
+     */
+    private ContextBudgetPlan budgetPlan;
+
+    /**
+     * 知识库检索结果，agent未关联知识库时为null
+     */
+    private KnowledgeRetrievalResult retrievalResult;
+
+    /**
+     * 召回的长期记忆，按相关度从高到低排列
+     */
+    private List<String> memories = new ArrayList<>();
 
     public String getSessionId() {
         return sessionId;
@@ -129,4 +149,40 @@ public class ChatEnvironment {
     public void setMessageHistory(List<MessageEntity> messageHistory) {
         this.messageHistory = messageHistory;
     }
-} 
\ No newline at end of file
+
+    public ContextBudgetPlan getBudgetPlan() {
+        return budgetPlan;
+    }
+
+    public void setBudgetPlan(ContextBudgetPlan budgetPlan) {
+        this.budgetPlan = budgetPlan;
+    }
+
+    public KnowledgeRetrievalResult getRetrievalResult() {
+        return retrievalResult;
+    }
+
+    public void setRetrievalResult(KnowledgeRetrievalResult retrievalResult) {
+        this.retrievalResult = retrievalResult;
+    }
+
+    public List<String> getMemories() {
+        return memories;
+    }
+
+    public void setMemories(List<String> memories) {
+        this.memories = memories;
+    }
+
+    /**
+     * 对话链路指标的标签，需在设置服务商、模型、Agent和模型配置之后调用；未发布的Agent记为other
+     */
+    public Tags getMetricTags() {
+        return ChatMetrics.tags(
+                provider != null && provider.getProtocol() != null ? provider.getProtocol().name() : null,
+                model != null ? model.getModelId() : null,
+                agent == null ? null : agent.getPublishedVersion() != null ? agent.getId() : ChatMetrics.OTHER_AGENT,
+                llmModelConfig != null && llmModelConfig.getStrategyType() != null
+                        ? llmModelConfig.getStrategyType().name() : null);
+    }
+}
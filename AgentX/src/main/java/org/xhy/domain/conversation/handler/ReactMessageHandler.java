@@ -3,7 +3,15 @@ package org.xhy.domain.conversation.handler;
 import org.springframework.stereotype.Component;
 import org.xhy.domain.conversation.service.ContextDomainService;
 import org.xhy.domain.conversation.service.ConversationDomainService;
+import org.xhy.domain.conversation.service.MessageEmbeddingIndexer;
+import org.xhy.domain.memory.service.AgentMemoryDomainService;
+import org.xhy.domain.token.service.MessageVectorCache;
+import org.xhy.domain.usage.service.UsageDomainService;
+import org.xhy.infrastructure.config.ChatProperties;
+import org.xhy.infrastructure.lifecycle.ChatDrainManager;
+import org.xhy.infrastructure.llm.LLMCallScheduler;
 import org.xhy.infrastructure.llm.LLMServiceFactory;
+import org.xhy.infrastructure.metrics.ChatMetrics;
 import org.xhy.infrastructure.transport.MessageTransport;
 
 /**
@@ -17,8 +25,19 @@ public class ReactMessageHandler extends StandardMessageHandler {
     public ReactMessageHandler(
             ConversationDomainService conversationDomainService,
             ContextDomainService contextDomainService,
-            LLMServiceFactory llmServiceFactory) {
-        super(conversationDomainService, contextDomainService, llmServiceFactory);
+            LLMServiceFactory llmServiceFactory,
+            ChatProperties chatProperties,
+            ChatDrainManager chatDrainManager,
+            MessageVectorCache messageVectorCache,
+            AgentMemoryDomainService agentMemoryDomainService,
+            MessageEmbeddingIndexer messageEmbeddingIndexer,
+            UsageDomainService usageDomainService,
+            LLMCallScheduler llmCallScheduler,
+            ChatMetrics chatMetrics,
+            StreamingCheckpointWriter checkpointWriter) {
+        super(conversationDomainService, contextDomainService, llmServiceFactory, chatProperties, chatDrainManager,
+                messageVectorCache, agentMemoryDomainService, messageEmbeddingIndexer, usageDomainService,
+                llmCallScheduler, chatMetrics, checkpointWriter);
     }
     
     @Override
@@ -7,17 +7,39 @@ import dev.langchain4j.model.chat.response.ChatResponse;
 import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
 import dev.langchain4j.model.openai.OpenAiChatRequestParameters;
 import dev.langchain4j.model.output.TokenUsage;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 import org.xhy.domain.conversation.constant.Role;
 import org.xhy.domain.conversation.model.MessageEntity;
 import org.xhy.domain.conversation.service.ContextDomainService;
 import org.xhy.domain.conversation.service.ConversationDomainService;
+import org.xhy.domain.conversation.service.MessageEmbeddingIndexer;
+import org.xhy.domain.llm.model.ProviderEntity;
+import org.xhy.domain.memory.service.AgentMemoryDomainService;
+import org.xhy.domain.shared.enums.TokenOverflowStrategyEnum;
+import org.xhy.domain.token.model.ContextBudgetPlan;
+import org.xhy.domain.token.model.TokenMessage;
+import org.xhy.domain.token.service.MessageVectorCache;
+import org.xhy.domain.usage.service.UsageDomainService;
+import org.xhy.infrastructure.config.ChatProperties;
+import org.xhy.infrastructure.exception.ServiceUnavailableException;
+import org.xhy.infrastructure.lifecycle.ChatDrainManager;
+import org.xhy.infrastructure.llm.LLMCallScheduler;
 import org.xhy.infrastructure.llm.LLMServiceFactory;
+import org.xhy.infrastructure.llm.config.ProviderConfig;
+import org.xhy.infrastructure.metrics.ChatMetrics;
 import org.xhy.infrastructure.transport.MessageTransport;
+import org.xhy.infrastructure.util.JsonUtils;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 标准消息处理器
@@ -25,27 +47,71 @@ import java.util.List;
 @Component(value = "standardMessageHandler")
 public class StandardMessageHandler implements MessageHandler {
     
+    private static final Logger logger = LoggerFactory.getLogger(StandardMessageHandler.class);
+    
     /**
      * 连接超时时间（毫秒）: 5分钟
      */
-    private static final long CONNECTION_TIMEOUT = 300000L;
+    public static final long CONNECTION_TIMEOUT = 300000L;
+    
+    /**
+     * 停机中断提示信息
+     */
+    private static final String DRAIN_MESSAGE = "\n\n[系统提示：服务正在重启，已保存当前回复，请稍后继续]";
     
     /**
      * 摘要前缀信息
      */
-    private static final String SUMMARY_PREFIX = "以下是用户历史消息的摘要，请仅作为参考，用户没有提起则不要回答摘要中的内容：\\n";
+    public static final String SUMMARY_PREFIX = "以下是用户历史消息的摘要，请仅作为参考，用户没有提起则不要回答摘要中的内容：\\n";
+
+    /**
+     * 知识库检索结果前缀
+     */
+    public static final String REFERENCE_PREFIX = "以下是从知识库中检索到的参考资料，回答时优先依据这些资料，资料中没有的内容不要编造：\n";
+
+    /**
+     * 长期记忆前缀
+     */
+    public static final String MEMORY_PREFIX = "以下是在以往对话中了解到的关于用户的信息，与当前问题相关时再使用，不要主动复述：\n";
     
     private final ConversationDomainService conversationDomainService;
     private final ContextDomainService contextDomainService;
     private final LLMServiceFactory llmServiceFactory;
+    private final ChatProperties chatProperties;
+    private final ChatDrainManager chatDrainManager;
+    private final MessageVectorCache messageVectorCache;
+    private final AgentMemoryDomainService agentMemoryDomainService;
+    private final MessageEmbeddingIndexer messageEmbeddingIndexer;
+    private final UsageDomainService usageDomainService;
+    private final LLMCallScheduler llmCallScheduler;
+    private final ChatMetrics chatMetrics;
+    private final StreamingCheckpointWriter checkpointWriter;
     
     public StandardMessageHandler(
             ConversationDomainService conversationDomainService,
             ContextDomainService contextDomainService,
-            LLMServiceFactory llmServiceFactory) {
+            LLMServiceFactory llmServiceFactory,
+            ChatProperties chatProperties,
+            ChatDrainManager chatDrainManager,
+            MessageVectorCache messageVectorCache,
+            AgentMemoryDomainService agentMemoryDomainService,
+            MessageEmbeddingIndexer messageEmbeddingIndexer,
+            UsageDomainService usageDomainService,
+            LLMCallScheduler llmCallScheduler,
+            ChatMetrics chatMetrics,
+            StreamingCheckpointWriter checkpointWriter) {
         this.conversationDomainService = conversationDomainService;
         this.contextDomainService = contextDomainService;
         this.llmServiceFactory = llmServiceFactory;
+        this.chatProperties = chatProperties;
+        this.chatDrainManager = chatDrainManager;
+        this.messageVectorCache = messageVectorCache;
+        this.agentMemoryDomainService = agentMemoryDomainService;
+        this.messageEmbeddingIndexer = messageEmbeddingIndexer;
+        this.usageDomainService = usageDomainService;
+        this.llmCallScheduler = llmCallScheduler;
+        this.chatMetrics = chatMetrics;
+        this.checkpointWriter = checkpointWriter;
     }
     
     @Override
@@ -56,6 +122,9 @@ public class StandardMessageHandler implements MessageHandler {
         // 创建LLM消息实体
         MessageEntity llmMessageEntity = createLlmMessage(environment);
         
+        // 用户消息到达即落库，LLM消息以生成中状态占位，后续按检查点追加内容
+        StreamingMessageCheckpoint checkpoint = persistOnArrival(environment, userMessageEntity, llmMessageEntity);
+        
         // 创建连接
         T connection = transport.createConnection(CONNECTION_TIMEOUT);
         
@@ -66,9 +135,41 @@ public class StandardMessageHandler implements MessageHandler {
         StreamingChatLanguageModel llmClient = llmServiceFactory.getStreamingClient(
                 environment.getProvider(), environment.getModel());
         
-        // 处理对话
-        processChat(llmClient, llmRequest, connection, transport, environment, 
-                  userMessageEntity, llmMessageEntity);
+        // 登记进行中的对话，停机宽限期结束时保存部分回复并关闭连接
+        String streamId = llmMessageEntity.getId();
+        try {
+            chatDrainManager.register(streamId, () -> {
+                if (checkpoint.interrupt()) {
+                    transport.sendMessage(connection, DRAIN_MESSAGE, true,
+                            environment.getProvider().getName(), environment.getModel().getModelId());
+                    transport.completeConnection(connection);
+                }
+            });
+        } catch (ServiceUnavailableException e) {
+            // 通过准入检查后节点开始停机：占位的LLM消息以中断状态结束，请求按服务不可用返回
+            checkpoint.interrupt();
+            throw e;
+        }
+        
+        // 按服务商的并发上限排队，轮到时处理对话；开销按预估的提示词token数计算
+        ContextBudgetPlan budgetPlan = environment.getBudgetPlan();
+        int cost = budgetPlan != null ? budgetPlan.getPromptTokens() : 1;
+        llmCallScheduler.submit(environment.getProvider().getId(), environment.getUserId(), cost, ticket -> {
+            if (checkpoint.isFinished()) {
+                // 排队期间已被停机中断
+                ticket.release();
+                return;
+            }
+            chatMetrics.timer(ChatMetrics.QUEUE_WAIT, environment.getMetricTags())
+                    .record(ticket.getQueueWaitMillis(), TimeUnit.MILLISECONDS);
+            processChat(llmClient, llmRequest, connection, transport, environment,
+                    userMessageEntity, checkpoint, ticket);
+        }, error -> {
+            chatDrainManager.unregister(streamId);
+            if (checkpoint.interrupt()) {
+                transport.handleError(connection, error);
+            }
+        });
         
         return connection;
     }
@@ -93,13 +194,44 @@ public class StandardMessageHandler implements MessageHandler {
         messageEntity.setSessionId(environment.getSessionId());
         messageEntity.setModel(environment.getModel().getModelId());
         messageEntity.setProvider(environment.getProvider().getId());
+        
+        // 记录本次请求的上下文预算和知识库检索情况，便于排查上下文被裁剪、检索不准或耗时过长的原因
+        Map<String, Object> metadata = new LinkedHashMap<>();
+        if (environment.getBudgetPlan() != null) {
+            metadata.put("contextBudget", environment.getBudgetPlan());
+        }
+        if (environment.getRetrievalResult() != null) {
+            metadata.put("retrieval", environment.getRetrievalResult());
+        }
+        if (!metadata.isEmpty()) {
+            messageEntity.setMetadata(JsonUtils.toJsonString(metadata));
+        }
         return messageEntity;
     }
     
+    /**
+     * 落库用户消息和生成中的LLM消息，并立即更新上下文
+     * 节点在生成过程中宕机时，上下文仍能指向已落库的消息
+     */
+    private StreamingMessageCheckpoint persistOnArrival(
+            ChatEnvironment environment,
+            MessageEntity userMessageEntity,
+            MessageEntity llmMessageEntity) {
+        llmMessageEntity.markStreaming();
+        conversationDomainService.insertBathMessage(Arrays.asList(userMessageEntity, llmMessageEntity));
+        
+        contextDomainService.commitTurn(environment.getContextEntity(),
+                Arrays.asList(userMessageEntity.getId(), llmMessageEntity.getId()));
+        
+        ChatProperties.Checkpoint config = chatProperties.getCheckpoint();
+        return new StreamingMessageCheckpoint(llmMessageEntity, conversationDomainService, checkpointWriter,
+                config.getIntervalMs(), config.getTokenThreshold());
+    }
+    
     /**
      * 准备LLM请求
      */
-    private dev.langchain4j.model.chat.request.ChatRequest prepareLlmRequest(ChatEnvironment environment) {
+    dev.langchain4j.model.chat.request.ChatRequest prepareLlmRequest(ChatEnvironment environment) {
         // 构建聊天消息列表
         List<ChatMessage> chatMessages = new ArrayList<>();
         dev.langchain4j.model.chat.request.ChatRequest.Builder chatRequestBuilder = 
@@ -110,17 +242,32 @@ public class StandardMessageHandler implements MessageHandler {
             chatMessages.add(new SystemMessage(environment.getAgent().getSystemPrompt()));
         }
         
-        // 2. 有条件地添加摘要信息(作为AI消息，但有明确的前缀标识)
-        if (StringUtils.isNotEmpty(environment.getContextEntity().getSummary()) && 
-            isComplexOrRelatedQuery(environment.getUserMessage())) {
+        // 2. 添加召回的长期记忆
+        if (!environment.getMemories().isEmpty()) {
+            chatMessages.add(new SystemMessage(MEMORY_PREFIX + String.join("\n", environment.getMemories())));
+        }
+
+        // 3. 添加预算内的知识库检索结果
+        ContextBudgetPlan budgetPlan = environment.getBudgetPlan();
+        if (budgetPlan != null && !budgetPlan.getReferences().isEmpty()) {
+            chatMessages.add(new SystemMessage(REFERENCE_PREFIX + String.join("\n\n", budgetPlan.getReferences())));
+        }
+
+        // 4. 有条件地添加摘要信息(作为AI消息，但有明确的前缀标识)，使用预算规划裁剪后的摘要
+        String summary = budgetPlan != null ? budgetPlan.getSummary() : environment.getContextEntity().getSummary();
+        if (StringUtils.isNotEmpty(summary) && isComplexOrRelatedQuery(environment.getUserMessage())) {
             // 添加为AI消息，但明确标识这是摘要
-            chatMessages.add(new AiMessage(SUMMARY_PREFIX + environment.getContextEntity().getSummary()));
+            chatMessages.add(new AiMessage(SUMMARY_PREFIX + summary));
         }
         
-        // 3. 添加对话历史
+        // 5. 添加对话历史
         for (MessageEntity messageEntity : environment.getMessageHistory()) {
             Role role = messageEntity.getRole();
             String content = messageEntity.getContent();
+            if (StringUtils.isEmpty(content)) {
+                // 跳过中断时尚未生成任何内容的消息
+                continue;
+            }
             if (role == Role.USER) {
                 chatMessages.add(new UserMessage(content));
             } else if (role == Role.SYSTEM) {
@@ -129,7 +276,7 @@ public class StandardMessageHandler implements MessageHandler {
             }
         }
         
-        // 4. 添加当前用户消息
+        // 6. 添加当前用户消息
         chatMessages.add(new UserMessage(environment.getUserMessage()));
         
         // 构建请求参数
@@ -178,6 +325,57 @@ public class StandardMessageHandler implements MessageHandler {
         return false;
     }
     
+    /**
+     * 相关性保留策略下在后台计算本轮消息的向量，下一轮对话直接命中缓存
+     */
+    private void prefetchVectors(ChatEnvironment environment, MessageEntity... messages) {
+        if (environment.getLlmModelConfig().getStrategyType() != TokenOverflowStrategyEnum.RELEVANCE) {
+            return;
+        }
+        List<TokenMessage> tokenMessages = new ArrayList<>();
+        for (MessageEntity message : messages) {
+            tokenMessages.add(new TokenMessage(message.getId(), message.getContent(),
+                    message.getRole().name(), message.getTokenCount()));
+        }
+        messageVectorCache.prefetch(tokenMessages);
+    }
+    
+    /**
+     * 提交本轮对话的长期记忆提取，使用本轮对话的服务商
+     */
+    private void extractMemories(ChatEnvironment environment, String reply) {
+        ProviderEntity provider = environment.getProvider();
+        org.xhy.domain.llm.model.config.ProviderConfig config = provider.getConfig();
+        ProviderConfig providerConfig = new ProviderConfig(config.getApiKey(), config.getBaseUrl(),
+                environment.getModel().getModelId(), provider.getProtocol());
+        agentMemoryDomainService.extractAsync(environment.getUserId(), environment.getAgent().getId(),
+                environment.getSessionId(), environment.getUserMessage(), reply, providerConfig);
+    }
+    
+    /**
+     * 累加本轮对话的用量：用户消息和助手消息各一条，用量记在Agent当前发布的版本下
+     */
+    private void recordUsage(ChatEnvironment environment, Integer inputTokens, Integer outputTokens) {
+        usageDomainService.record(environment.getSessionId(), environment.getUserId(),
+                environment.getAgent().getId(), environment.getAgent().getPublishedVersion(), 2,
+                inputTokens != null ? inputTokens : 0, outputTokens != null ? outputTokens : 0);
+    }
+    
+    /**
+     * 记录本轮调用的耗时，排队等待与模型首token耗时分开统计
+     */
+    private void recordLatency(StreamingMessageCheckpoint checkpoint, LLMCallScheduler.Ticket ticket,
+                               long firstTokenAt, Tags tags) {
+        long now = System.currentTimeMillis();
+        chatMetrics.timer(ChatMetrics.GENERATION, tags).record(now - ticket.getStartedAt(), TimeUnit.MILLISECONDS);
+        if (logger.isDebugEnabled()) {
+            logger.debug("模型调用耗时，消息ID: {}, 排队: {}ms, 首token: {}ms, 调用: {}ms",
+                    checkpoint.getMessage().getId(), ticket.getQueueWaitMillis(),
+                    firstTokenAt > 0 ? firstTokenAt - ticket.getStartedAt() : -1,
+                    now - ticket.getStartedAt());
+        }
+    }
+    
     /**
      * 处理对话
      */
@@ -188,11 +386,32 @@ public class StandardMessageHandler implements MessageHandler {
             MessageTransport<T> transport,
             ChatEnvironment environment,
             MessageEntity userMessageEntity,
-            MessageEntity llmMessageEntity) {
+            StreamingMessageCheckpoint checkpoint,
+            LLMCallScheduler.Ticket ticket) {
         
+        Tags tags = environment.getMetricTags();
+        Timer interTokenTimer = chatMetrics.timer(ChatMetrics.INTER_TOKEN, tags);
         llmClient.doChat(llmRequest, new StreamingChatResponseHandler() {
+            private long firstTokenAt;
+            private long lastTokenNanos;
+            
             @Override
             public void onPartialResponse(String partialResponse) {
+                long nanos = System.nanoTime();
+                if (firstTokenAt == 0) {
+                    firstTokenAt = System.currentTimeMillis();
+                    chatMetrics.timer(ChatMetrics.FIRST_TOKEN, tags)
+                            .record(firstTokenAt - ticket.getStartedAt(), TimeUnit.MILLISECONDS);
+                } else {
+                    interTokenTimer.record(nanos - lastTokenNanos, TimeUnit.NANOSECONDS);
+                }
+                lastTokenNanos = nanos;
+                // 先进入检查点，客户端断开时已生成的内容也能落库
+                checkpoint.append(partialResponse);
+                if (checkpoint.isFinished()) {
+                    // 停机时已被中断，连接已关闭
+                    return;
+                }
                 transport.sendMessage(
                         connection,
                         partialResponse,
@@ -204,6 +423,13 @@ public class StandardMessageHandler implements MessageHandler {
             
             @Override
             public void onCompleteResponse(ChatResponse completeResponse) {
+                ticket.release();
+                recordLatency(checkpoint, ticket, firstTokenAt, tags);
+                chatDrainManager.unregister(checkpoint.getMessage().getId());
+                if (checkpoint.isFinished()) {
+                    return;
+                }
+                
                 // 设置token使用情况
                 TokenUsage tokenUsage = completeResponse.metadata().tokenUsage();
                 
@@ -211,11 +437,6 @@ public class StandardMessageHandler implements MessageHandler {
                 Integer inputTokenCount = tokenUsage.inputTokenCount();
                 userMessageEntity.setTokenCount(inputTokenCount);
                 
-                // 设置LLM消息内容和token数
-                Integer outputTokenCount = tokenUsage.outputTokenCount();
-                llmMessageEntity.setTokenCount(outputTokenCount);
-                llmMessageEntity.setContent(completeResponse.aiMessage().text());
-                
                 // 发送完成消息
                 transport.sendMessage(
                         connection,
@@ -226,19 +447,37 @@ public class StandardMessageHandler implements MessageHandler {
                 );
                 transport.completeConnection(connection);
                 
-                // 保存消息
-                conversationDomainService.insertBathMessage(Arrays.asList(userMessageEntity, llmMessageEntity));
+                // 写入LLM消息最终内容、token数和完成状态
+                Timer.Sample persistSample = chatMetrics.start();
+                checkpoint.complete(completeResponse.aiMessage().text(), tokenUsage.outputTokenCount());
+                
+                // 回写用户消息token数
+                conversationDomainService.updateMessageTokenCount(userMessageEntity);
+                
+                // 累加本轮用量
+                recordUsage(environment, inputTokenCount, tokenUsage.outputTokenCount());
+                persistSample.stop(chatMetrics.timer(ChatMetrics.PERSIST, tags));
                 
-                // 更新上下文
-                List<String> activeMessages = environment.getContextEntity().getActiveMessages();
-                activeMessages.add(userMessageEntity.getId());
-                activeMessages.add(llmMessageEntity.getId());
-                contextDomainService.insertOrUpdate(environment.getContextEntity());
+                // 相关性保留策略下，在后台预先计算本轮消息的向量
+                prefetchVectors(environment, userMessageEntity, checkpoint.getMessage());
+                
+                // 在后台生成本轮消息的搜索向量
+                messageEmbeddingIndexer.enqueue(environment.getUserId(), userMessageEntity, checkpoint.getMessage());
+                
+                // 在后台从本轮对话中提取长期记忆
+                extractMemories(environment, completeResponse.aiMessage().text());
             }
             
             @Override
             public void onError(Throwable error) {
-                transport.handleError(connection, error);
+                ticket.release();
+                chatDrainManager.unregister(checkpoint.getMessage().getId());
+                // 保留已生成的部分内容
+                if (checkpoint.interrupt()) {
+                    // 输入token数只在完整响应中返回，中断时只累加已生成部分的估算输出
+                    recordUsage(environment, null, checkpoint.getMessage().getTokenCount());
+                    transport.handleError(connection, error);
+                }
             }
         });
     }
@@ -0,0 +1,56 @@
+package org.xhy.domain.conversation.handler;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.xhy.infrastructure.config.ChatProperties;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 流式消息检查点的落库线程
+ * 检查点的追加写入都在这里执行，不占用大模型的流式回调线程；
+ * 每个检查点按时间间隔定时落库，流式输出停顿时已生成的内容也能按时写入
+ */
+@Component
+public class StreamingCheckpointWriter implements DisposableBean {
+
+    private final ScheduledExecutorService executor;
+
+    public StreamingCheckpointWriter(ChatProperties chatProperties) {
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newScheduledThreadPool(
+                Math.max(1, chatProperties.getCheckpoint().getWriterThreads()), r -> {
+                    Thread thread = new Thread(r, "checkpoint-writer-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * 按固定间隔执行落库任务
+     *
+     * @param task       落库任务
+     * @param intervalMs 间隔（毫秒）
+     * @return 任务句柄，检查点结束时取消
+     */
+    public ScheduledFuture<?> schedule(Runnable task, long intervalMs) {
+        long interval = Math.max(1L, intervalMs);
+        return executor.scheduleWithFixedDelay(task, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 立即在落库线程中执行一次任务
+     */
+    public void submit(Runnable task) {
+        executor.execute(task);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,177 @@
+package org.xhy.domain.conversation.handler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xhy.domain.conversation.constant.MessageStatus;
+import org.xhy.domain.conversation.model.MessageEntity;
+import org.xhy.domain.conversation.service.ConversationDomainService;
+
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * 流式消息检查点
+ * 在大模型流式输出过程中缓存增量内容，按时间间隔或token数周期性追加落库，
+ * 结束时写入最终内容和状态，保证节点宕机或发布时已生成的内容不会丢失
+ *
+ * 追加落库在 {@link StreamingCheckpointWriter} 的线程中执行，数据库延迟不会拖慢token的推送；
+ * 时间间隔由定时任务触发，流式输出停顿时已生成的内容也会按时写入
+ */
+public class StreamingMessageCheckpoint {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamingMessageCheckpoint.class);
+
+    private final MessageEntity message;
+    private final ConversationDomainService conversationDomainService;
+    private final StreamingCheckpointWriter writer;
+    private final int tokenThreshold;
+
+    /**
+     * 已收到的完整内容
+     */
+    private final StringBuilder content = new StringBuilder();
+
+    /**
+     * 尚未落库的增量内容
+     */
+    private final StringBuilder pending = new StringBuilder();
+
+    /**
+     * 尚未落库的token数，流式输出每个片段约为一个token
+     */
+    private int pendingTokens;
+
+    /**
+     * 已收到的token数
+     */
+    private int receivedTokens;
+
+    /**
+     * 是否有落库正在执行，同一检查点的追加按顺序写入
+     */
+    private boolean flushing;
+
+    private boolean finished;
+
+    private final ScheduledFuture<?> periodicFlush;
+
+    public StreamingMessageCheckpoint(MessageEntity message, ConversationDomainService conversationDomainService,
+                                      StreamingCheckpointWriter writer, long intervalMs, int tokenThreshold) {
+        this.message = message;
+        this.conversationDomainService = conversationDomainService;
+        this.writer = writer;
+        this.tokenThreshold = tokenThreshold;
+        this.periodicFlush = writer.schedule(this::flush, intervalMs);
+    }
+
+    /**
+     * 追加流式片段，累计的token数达到阈值时提交落库，不在当前线程写数据库
+     *
+     * @param partial 流式片段
+     */
+    public synchronized void append(String partial) {
+        if (finished || partial == null || partial.isEmpty()) {
+            return;
+        }
+        content.append(partial);
+        pending.append(partial);
+        pendingTokens++;
+        receivedTokens++;
+
+        if (pendingTokens >= tokenThreshold && !flushing) {
+            writer.submit(this::flush);
+        }
+    }
+
+    /**
+     * 把未落库的增量内容追加到数据库，数据库写入期间不持有锁，流式片段可以继续追加
+     * 落库失败只记录日志，增量放回待落库内容，下一个检查点重试，不影响流式输出
+     */
+    public void flush() {
+        String delta;
+        int tokens;
+        synchronized (this) {
+            if (finished || flushing || pending.length() == 0) {
+                return;
+            }
+            delta = pending.toString();
+            tokens = pendingTokens;
+            pending.setLength(0);
+            pendingTokens = 0;
+            flushing = true;
+        }
+        try {
+            conversationDomainService.appendMessageContent(message, delta, tokens);
+        } catch (Exception e) {
+            logger.warn("消息检查点落库失败，消息ID: {}", message.getId(), e);
+            synchronized (this) {
+                pending.insert(0, delta);
+                pendingTokens += tokens;
+            }
+        } finally {
+            synchronized (this) {
+                flushing = false;
+            }
+        }
+    }
+
+    /**
+     * 正常结束，写入完整内容和输出token数
+     *
+     * @param finalContent 大模型返回的完整内容，为空时使用已收到的内容
+     * @param tokenCount   输出token数
+     * @return 是否由本次调用结束（已结束的检查点返回false）
+     */
+    public synchronized boolean complete(String finalContent, Integer tokenCount) {
+        if (finished) {
+            return false;
+        }
+        String text = finalContent != null ? finalContent : content.toString();
+        finish(text, tokenCount, MessageStatus.COMPLETED);
+        return true;
+    }
+
+    /**
+     * 中断结束，保留截至当前已生成的部分内容
+     *
+     * @return 是否由本次调用结束（已结束的检查点返回false）
+     */
+    public synchronized boolean interrupt() {
+        if (finished) {
+            return false;
+        }
+        finish(content.toString(), receivedTokens, MessageStatus.INTERRUPTED);
+        return true;
+    }
+
+    /**
+     * 是否已结束
+     */
+    public synchronized boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * 获取已收到的完整内容
+     */
+    public synchronized String getContent() {
+        return content.toString();
+    }
+
+    public MessageEntity getMessage() {
+        return message;
+    }
+
+    /**
+     * 写入最终内容；仍在执行的追加只更新生成中的消息，晚于最终写入时不会覆盖最终内容
+     */
+    private void finish(String text, Integer tokenCount, MessageStatus status) {
+        finished = true;
+        periodicFlush.cancel(false);
+        message.setContent(text);
+        message.setStatus(status.getCode());
+        if (tokenCount != null) {
+            message.setTokenCount(tokenCount);
+        }
+        conversationDomainService.finishStreamingMessage(message, text, tokenCount, status);
+    }
+}
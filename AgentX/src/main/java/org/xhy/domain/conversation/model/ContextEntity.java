@@ -42,6 +42,12 @@ public class ContextEntity extends BaseEntity {
     @TableField("summary")
     private String summary;
 
+    /**
+     * 版本号，每次提交加1，用于检出同一会话的并发提交
+     */
+    @TableField("version")
+    private Integer version;
+
     /**
      * 无参构造函数
      */
@@ -80,4 +86,12 @@ public class ContextEntity extends BaseEntity {
         this.summary = summary;
     }
 
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
 }
\ No newline at end of file
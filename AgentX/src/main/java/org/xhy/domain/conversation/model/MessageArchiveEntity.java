@@ -0,0 +1,114 @@
+package org.xhy.domain.conversation.model;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+
+import java.time.LocalDateTime;
+
+/**
+ * 消息归档实体类
+ * 一个会话一行，保存该会话全部已归档消息压缩后的数据；行本身即会话消息已归档的标记
+ */
+@TableName("message_archives")
+public class MessageArchiveEntity {
+
+    /**
+     * 会话ID
+     */
+    @TableId(value = "session_id", type = IdType.INPUT)
+    private String sessionId;
+
+    /**
+     * 归档的消息条数
+     */
+    @TableField("message_count")
+    private Integer messageCount;
+
+    /**
+     * 压缩前的字节数
+     */
+    @TableField("raw_bytes")
+    private Integer rawBytes;
+
+    /**
+     * zstd压缩后的消息数据
+     */
+    @TableField("payload")
+    private byte[] payload;
+
+    /**
+     * 最早一条消息的创建时间
+     */
+    @TableField("first_message_at")
+    private LocalDateTime firstMessageAt;
+
+    /**
+     * 最后一条消息的创建时间
+     */
+    @TableField("last_message_at")
+    private LocalDateTime lastMessageAt;
+
+    /**
+     * 归档时间
+     */
+    @TableField("archived_at")
+    private LocalDateTime archivedAt;
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public Integer getMessageCount() {
+        return messageCount;
+    }
+
+    public void setMessageCount(Integer messageCount) {
+        this.messageCount = messageCount;
+    }
+
+    public Integer getRawBytes() {
+        return rawBytes;
+    }
+
+    public void setRawBytes(Integer rawBytes) {
+        this.rawBytes = rawBytes;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public void setPayload(byte[] payload) {
+        this.payload = payload;
+    }
+
+    public LocalDateTime getFirstMessageAt() {
+        return firstMessageAt;
+    }
+
+    public void setFirstMessageAt(LocalDateTime firstMessageAt) {
+        this.firstMessageAt = firstMessageAt;
+    }
+
+    public LocalDateTime getLastMessageAt() {
+        return lastMessageAt;
+    }
+
+    public void setLastMessageAt(LocalDateTime lastMessageAt) {
+        this.lastMessageAt = lastMessageAt;
+    }
+
+    public LocalDateTime getArchivedAt() {
+        return archivedAt;
+    }
+
+    public void setArchivedAt(LocalDateTime archivedAt) {
+        this.archivedAt = archivedAt;
+    }
+}
@@ -0,0 +1,71 @@
+package org.xhy.domain.conversation.model;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import org.xhy.infrastructure.typehandler.Int8VectorTypeHandler;
+
+/**
+ * 消息向量实体类
+ * 与消息一一对应，单独成表，避免读取消息列表时带出向量
+ */
+@TableName(value = "message_embeddings", autoResultMap = true)
+public class MessageEmbeddingEntity {
+
+    /**
+     * 消息ID
+     */
+    @TableId(value = "message_id", type = IdType.INPUT)
+    private String messageId;
+
+    /**
+     * 消息所属会话的用户ID
+     */
+    @TableField("user_id")
+    private String userId;
+
+    /**
+     * 所属会话ID
+     */
+    @TableField("session_id")
+    private String sessionId;
+
+    /**
+     * int8量化后的归一化向量
+     */
+    @TableField(value = "embedding", typeHandler = Int8VectorTypeHandler.class)
+    private float[] embedding;
+
+    public String getMessageId() {
+        return messageId;
+    }
+
+    public void setMessageId(String messageId) {
+        this.messageId = messageId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public float[] getEmbedding() {
+        return embedding;
+    }
+
+    public void setEmbedding(float[] embedding) {
+        this.embedding = embedding;
+    }
+}
@@ -1,16 +1,20 @@
 package org.xhy.domain.conversation.model;
 
 import com.baomidou.mybatisplus.annotation.*;
+import org.apache.ibatis.type.JdbcType;
+import org.xhy.domain.conversation.constant.MessageStatus;
 import org.xhy.domain.conversation.constant.Role;
 import org.xhy.infrastructure.converter.RoleConverter;
 import org.xhy.infrastructure.entity.BaseEntity;
+import org.xhy.infrastructure.typehandler.JsonStringTypeHandler;
+import org.xhy.infrastructure.typehandler.PackedContentTypeHandler;
 
 import java.time.LocalDateTime;
 
 /**
  * 消息实体类，代表对话中的一条消息
  */
-@TableName("messages")
+@TableName(value = "messages", autoResultMap = true)
 public class MessageEntity extends BaseEntity {
 
     /**
@@ -32,11 +36,18 @@ public class MessageEntity extends BaseEntity {
     private Role role;
 
     /**
-     * 消息内容
+     * 消息内容，压缩存储的消息在库中为NULL，读取时由content_packed列还原
      */
     @TableField("content")
     private String content;
 
+    /**
+     * content_packed列的映射，与content共用同一份原文
+     * 写入时由 PackedContentTypeHandler 按阈值压缩，触发器在压缩时清空content列；读取时解压回content
+     */
+    @TableField(value = "content_packed", typeHandler = PackedContentTypeHandler.class, jdbcType = JdbcType.BINARY)
+    private String contentPacked;
+
     /**
      * 创建时间
      */
@@ -64,9 +75,15 @@ public class MessageEntity extends BaseEntity {
     /**
      * 消息元数据
      */
-    @TableField("metadata")
+    @TableField(value = "metadata", typeHandler = JsonStringTypeHandler.class)
     private String metadata;
 
+    /**
+     * 消息状态：1-生成中, 2-已完成, 3-已中断
+     */
+    @TableField("status")
+    private Integer status = MessageStatus.COMPLETED.getCode();
+
     /**
      * 无参构造函数
      */
@@ -106,6 +123,16 @@ public class MessageEntity extends BaseEntity {
         this.content = content;
     }
 
+    public String getContentPacked() {
+        return content;
+    }
+
+    public void setContentPacked(String contentPacked) {
+        if (contentPacked != null) {
+            this.content = contentPacked;
+        }
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -145,4 +172,36 @@ public class MessageEntity extends BaseEntity {
     public void setMetadata(String metadata) {
         this.metadata = metadata;
     }
-}
\ No newline at end of file
+
+    public Integer getStatus() {
+        return status;
+    }
+
+    public void setStatus(Integer status) {
+        this.status = status;
+    }
+
+    /**
+     * 获取消息状态枚举
+     */
+    public MessageStatus getStatusEnum() {
+        return MessageStatus.fromCode(this.status);
+    }
+
+    /**
+     * 标记为生成中，内容先以空串落库，后续按检查点追加
+     */
+    public void markStreaming() {
+        this.status = MessageStatus.STREAMING.getCode();
+        if (this.content == null) {
+            this.content = "";
+        }
+    }
+
+    /**
+     * 是否仍在生成中
+     */
+    public boolean isStreaming() {
+        return MessageStatus.STREAMING.getCode().equals(this.status);
+    }
+}
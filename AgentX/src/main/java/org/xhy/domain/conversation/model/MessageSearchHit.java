@@ -0,0 +1,102 @@
+package org.xhy.domain.conversation.model;
+
+import org.xhy.domain.conversation.constant.Role;
+
+import java.time.LocalDateTime;
+
+/**
+ * 消息搜索命中结果
+ */
+public class MessageSearchHit {
+
+    /**
+     * 消息ID
+     */
+    private String messageId;
+
+    /**
+     * 所属会话ID
+     */
+    private String sessionId;
+
+    /**
+     * 会话标题
+     */
+    private String sessionTitle;
+
+    /**
+     * 消息角色
+     */
+    private Role role;
+
+    /**
+     * 命中片段
+     */
+    private String snippet;
+
+    /**
+     * 消息创建时间
+     */
+    private LocalDateTime createdAt;
+
+    /**
+     * 融合后的相关度
+     */
+    private float score;
+
+    public String getMessageId() {
+        return messageId;
+    }
+
+    public void setMessageId(String messageId) {
+        this.messageId = messageId;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public String getSessionTitle() {
+        return sessionTitle;
+    }
+
+    public void setSessionTitle(String sessionTitle) {
+        this.sessionTitle = sessionTitle;
+    }
+
+    public Role getRole() {
+        return role;
+    }
+
+    public void setRole(Role role) {
+        this.role = role;
+    }
+
+    public String getSnippet() {
+        return snippet;
+    }
+
+    public void setSnippet(String snippet) {
+        this.snippet = snippet;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public float getScore() {
+        return score;
+    }
+
+    public void setScore(float score) {
+        this.score = score;
+    }
+}
@@ -0,0 +1,37 @@
+package org.xhy.domain.conversation.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 消息搜索结果，一页命中和候选总数
+ */
+public class MessageSearchResult {
+
+    /**
+     * 参与排序的候选总数，最多为配置的候选上限
+     */
+    private final int total;
+
+    /**
+     * 当前页的命中结果
+     */
+    private final List<MessageSearchHit> hits;
+
+    public MessageSearchResult(int total, List<MessageSearchHit> hits) {
+        this.total = total;
+        this.hits = hits;
+    }
+
+    public static MessageSearchResult empty() {
+        return new MessageSearchResult(0, new ArrayList<>());
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public List<MessageSearchHit> getHits() {
+        return hits;
+    }
+}
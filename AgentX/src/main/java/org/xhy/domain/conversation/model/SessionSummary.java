@@ -0,0 +1,168 @@
+package org.xhy.domain.conversation.model;
+
+import org.xhy.domain.conversation.constant.Role;
+
+import java.time.LocalDateTime;
+
+/**
+ * 会话列表读模型
+ * 会话字段之外附带消息数、最后一条消息预览和最后活跃时间，由单条查询投影得到，不加载会话元数据和完整消息内容
+ */
+public class SessionSummary {
+
+    /**
+     * 会话ID
+     */
+    private String id;
+
+    /**
+     * 会话标题
+     */
+    private String title;
+
+    /**
+     * 会话描述
+     */
+    private String description;
+
+    /**
+     * 关联的Agent ID
+     */
+    private String agentId;
+
+    /**
+     * 是否归档
+     */
+    private boolean archived;
+
+    /**
+     * 消息数，包含已转入冷存储的消息
+     */
+    private Long messageCount;
+
+    /**
+     * 最后一条消息的预览
+     */
+    private String lastMessagePreview;
+
+    /**
+     * 最后一条消息压缩存储时解压后的完整内容，用于生成预览
+     */
+    private String lastMessageContent;
+
+    /**
+     * 最后一条消息的角色
+     */
+    private Role lastMessageRole;
+
+    /**
+     * 最后活跃时间，没有消息时为会话更新时间
+     */
+    private LocalDateTime lastActivityAt;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createdAt;
+
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updatedAt;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public String getAgentId() {
+        return agentId;
+    }
+
+    public void setAgentId(String agentId) {
+        this.agentId = agentId;
+    }
+
+    public boolean isArchived() {
+        return archived;
+    }
+
+    public void setArchived(boolean archived) {
+        this.archived = archived;
+    }
+
+    public Long getMessageCount() {
+        return messageCount;
+    }
+
+    public void setMessageCount(Long messageCount) {
+        this.messageCount = messageCount;
+    }
+
+    public String getLastMessagePreview() {
+        return lastMessagePreview;
+    }
+
+    public void setLastMessagePreview(String lastMessagePreview) {
+        this.lastMessagePreview = lastMessagePreview;
+    }
+
+    public String getLastMessageContent() {
+        return lastMessageContent;
+    }
+
+    public void setLastMessageContent(String lastMessageContent) {
+        this.lastMessageContent = lastMessageContent;
+    }
+
+    public Role getLastMessageRole() {
+        return lastMessageRole;
+    }
+
+    public void setLastMessageRole(Role lastMessageRole) {
+        this.lastMessageRole = lastMessageRole;
+    }
+
+    public LocalDateTime getLastActivityAt() {
+        return lastActivityAt;
+    }
+
+    public void setLastActivityAt(LocalDateTime lastActivityAt) {
+        this.lastActivityAt = lastActivityAt;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -1,6 +1,7 @@
 package org.xhy.domain.conversation.repository;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.xhy.domain.conversation.model.ContextEntity;
 import org.xhy.infrastructure.repository.MyBatisPlusExtRepository;
@@ -10,4 +11,19 @@ import org.xhy.infrastructure.repository.MyBatisPlusExtRepository;
  */
 @Mapper
 public interface ContextRepository extends MyBatisPlusExtRepository<ContextEntity> {
-}
\ No newline at end of file
+
+    /**
+     * 插入会话的上下文，会话已有上下文时不插入
+     * 依赖session_id上的唯一索引，并发创建同一会话的上下文时只有一方成功，其余返回0而不是抛出异常，
+     * 不会中断调用方所在的事务
+     *
+     * @param context 上下文，需已设置id和更新时间
+     * @return 插入行数，0表示会话已有上下文
+     */
+    @Insert("INSERT INTO context (id, session_id, active_messages, summary, version, updated_at) " +
+            "VALUES (#{id}, #{sessionId}, " +
+            "#{activeMessages,typeHandler=org.xhy.infrastructure.converter.ListConverter}, " +
+            "#{summary}, #{version}, #{updatedAt}) " +
+            "ON CONFLICT (session_id) DO NOTHING")
+    int insertIfAbsent(ContextEntity context);
+}
@@ -0,0 +1,48 @@
+package org.xhy.domain.conversation.repository;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.xhy.domain.conversation.model.MessageArchiveEntity;
+import org.xhy.infrastructure.repository.MyBatisPlusExtRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 消息归档仓库接口
+ */
+@Mapper
+public interface MessageArchiveRepository extends MyBatisPlusExtRepository<MessageArchiveEntity> {
+
+    /**
+     * 取出并删除会话的归档
+     * 删除和读取在同一条语句中完成，并发恢复同一会话时只有一个调用方能取到数据
+     *
+     * @param sessionId 会话ID
+     * @return 归档，不存在时返回null
+     */
+    @Select("DELETE FROM message_archives WHERE session_id = #{sessionId} RETURNING *")
+    MessageArchiveEntity take(@Param("sessionId") String sessionId);
+
+    /**
+     * 查询可归档的会话：最后一条消息早于截止时间，没有生成中的消息，且会话在截止时间后没有更新（含恢复归档）
+     * 从消息表按会话分组一次聚合得到最后消息时间和生成中的消息数，不再对每个会话执行相关子查询；
+     * 最近更新过的会话在分组前按会话表过滤，凑够数量即返回
+     *
+     * @param cutoff        截止时间
+     * @param streamingCode 生成中的状态码
+     * @param limit         返回数量
+     * @return 会话ID列表
+     */
+    @Select("SELECT m.session_id FROM messages m " +
+            "JOIN sessions s ON s.id = m.session_id AND s.deleted_at IS NULL AND s.updated_at < #{cutoff} " +
+            "WHERE m.deleted_at IS NULL " +
+            "GROUP BY m.session_id " +
+            "HAVING MAX(m.created_at) < #{cutoff} " +
+            "AND COUNT(*) FILTER (WHERE m.status = #{streamingCode}) = 0 " +
+            "LIMIT #{limit}")
+    List<String> selectArchivableSessions(@Param("cutoff") LocalDateTime cutoff,
+                                          @Param("streamingCode") Integer streamingCode,
+                                          @Param("limit") int limit);
+}
@@ -0,0 +1,45 @@
+package org.xhy.domain.conversation.repository;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Result;
+import org.apache.ibatis.annotations.Results;
+import org.apache.ibatis.annotations.Select;
+import org.xhy.domain.conversation.model.MessageDictionaryEntity;
+import org.xhy.domain.conversation.model.MessageEntity;
+import org.xhy.infrastructure.repository.MyBatisPlusExtRepository;
+import org.xhy.infrastructure.typehandler.PackedContentTypeHandler;
+
+import java.util.List;
+
+/**
+ * 消息压缩字典仓库接口
+ */
+@Mapper
+public interface MessageDictionaryRepository extends MyBatisPlusExtRepository<MessageDictionaryEntity> {
+
+    /**
+     * 查询最新的字典
+     *
+     * @return 字典，不存在时返回null
+     */
+    @Select("SELECT * FROM message_dictionaries ORDER BY id DESC LIMIT 1")
+    MessageDictionaryEntity selectLatest();
+
+    /**
+     * 抽取最近的大消息作为训练样本，只返回content和content_packed，压缩的内容由类型处理器解压
+     * 已压缩的内容长度约为原文的几分之一，按较低的长度过滤，再由调用方按原文大小筛选
+     *
+     * @param minLength 存储长度下限（明文按字符数，压缩内容按字节数）
+     * @param limit     样本数
+     * @return 消息列表
+     */
+    @Select("SELECT content, content_packed FROM messages " +
+            "WHERE (length(content) >= #{minLength} OR length(content_packed) >= #{minLength}) AND deleted_at IS NULL " +
+            "ORDER BY created_at DESC LIMIT #{limit}")
+    @Results({
+            @Result(column = "content", property = "content"),
+            @Result(column = "content_packed", property = "contentPacked", typeHandler = PackedContentTypeHandler.class)
+    })
+    List<MessageEntity> selectSamples(@Param("minLength") int minLength, @Param("limit") int limit);
+}
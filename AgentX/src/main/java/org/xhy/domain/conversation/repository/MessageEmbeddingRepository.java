@@ -0,0 +1,60 @@
+package org.xhy.domain.conversation.repository;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Result;
+import org.apache.ibatis.annotations.Results;
+import org.apache.ibatis.annotations.Select;
+import org.xhy.domain.conversation.model.MessageEmbeddingEntity;
+import org.xhy.domain.conversation.model.MessageEntity;
+import org.xhy.infrastructure.repository.MyBatisPlusExtRepository;
+import org.xhy.infrastructure.typehandler.PackedContentTypeHandler;
+
+import java.util.List;
+
+/**
+ * 消息向量仓库接口
+ */
+@Mapper
+public interface MessageEmbeddingRepository extends MyBatisPlusExtRepository<MessageEmbeddingEntity> {
+
+    /**
+     * 批量写入消息向量，已存在的消息跳过
+     *
+     * @param embeddings 消息向量
+     * @return 写入行数
+     */
+    @Insert("<script>" +
+            "INSERT INTO message_embeddings (message_id, user_id, session_id, embedding) VALUES " +
+            "<foreach collection='embeddings' item='e' separator=','>" +
+            "(#{e.messageId}, #{e.userId}, #{e.sessionId}, " +
+            "#{e.embedding,typeHandler=org.xhy.infrastructure.typehandler.Int8VectorTypeHandler})" +
+            "</foreach> ON CONFLICT (message_id) DO NOTHING" +
+            "</script>")
+    int insertIgnore(@Param("embeddings") List<MessageEmbeddingEntity> embeddings);
+
+    /**
+     * 查询用户尚未生成向量的消息，只返回id、会话id和内容，压缩的内容由类型处理器解压
+     * 生成中的消息内容不完整，不参与补齐
+     *
+     * @param userId        用户ID
+     * @param streamingCode 生成中的状态码
+     * @param limit         返回数量
+     * @return 消息列表
+     */
+    @Select("SELECT m.id, m.session_id, m.content, m.content_packed FROM messages m " +
+            "JOIN sessions s ON s.id = m.session_id " +
+            "LEFT JOIN message_embeddings e ON e.message_id = m.id " +
+            "WHERE s.user_id = #{userId} AND e.message_id IS NULL AND m.status <> #{streamingCode} " +
+            "AND (m.content <> '' OR m.content_packed IS NOT NULL) AND m.deleted_at IS NULL AND s.deleted_at IS NULL " +
+            "LIMIT #{limit}")
+    @Results({
+            @Result(column = "id", property = "id"),
+            @Result(column = "session_id", property = "sessionId"),
+            @Result(column = "content", property = "content"),
+            @Result(column = "content_packed", property = "contentPacked", typeHandler = PackedContentTypeHandler.class)
+    })
+    List<MessageEntity> selectMissing(@Param("userId") String userId, @Param("streamingCode") Integer streamingCode,
+                                      @Param("limit") int limit);
+}
@@ -1,13 +1,76 @@
 package org.xhy.domain.conversation.repository;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 import org.xhy.domain.conversation.model.MessageEntity;
+import org.xhy.domain.conversation.model.MessageSearchHit;
 import org.xhy.infrastructure.repository.MyBatisPlusExtRepository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 /**
  * 消息仓库接口
  */
 @Mapper
 public interface MessageRepository extends MyBatisPlusExtRepository<MessageEntity> {
-}
\ No newline at end of file
+
+    /**
+     * 追加生成中消息的内容
+     * 只在数据库侧拼接增量，避免每个检查点都回写整段内容；带上会话ID和创建时间区间，分区表只访问消息所在的分区
+     *
+     * @param id          消息id
+     * @param sessionId   会话id
+     * @param createdFrom 创建时间区间起点，为null时不限定
+     * @param createdTo   创建时间区间终点
+     * @param delta       本次追加的内容
+     * @param tokenDelta  本次追加的token数
+     * @param status      生成中的状态码，已结束的消息不再追加
+     * @return 影响行数
+     */
+    @Update("<script>" +
+            "UPDATE messages SET content = content || #{delta}, " +
+            "token_count = COALESCE(token_count, 0) + #{tokenDelta} " +
+            "WHERE id = #{id} AND session_id = #{sessionId} AND status = #{status}" +
+            "<if test='createdFrom != null'> AND created_at BETWEEN #{createdFrom} AND #{createdTo}</if>" +
+            "</script>")
+    int appendContent(@Param("id") String id, @Param("sessionId") String sessionId,
+                      @Param("createdFrom") LocalDateTime createdFrom, @Param("createdTo") LocalDateTime createdTo,
+                      @Param("delta") String delta, @Param("tokenDelta") int tokenDelta,
+                      @Param("status") Integer status);
+
+    /**
+     * 在用户全部会话中全文检索消息
+     * 查询词之间按“或”匹配，按ts_rank排序
+     *
+     * @param userId 用户ID
+     * @param query  查询文本
+     * @param limit  返回数量
+     * @return 按相关度从高到低排列的消息id和会话id
+     */
+    @Select("SELECT m.id AS message_id, m.session_id, ts_rank(m.content_tsv, q) AS score " +
+            "FROM messages m JOIN sessions s ON s.id = m.session_id, " +
+            "to_tsquery('simple', replace(plainto_tsquery('simple', #{query})::text, '&', '|')) AS q " +
+            "WHERE s.user_id = #{userId} AND m.content_tsv @@ q " +
+            "AND m.deleted_at IS NULL AND s.deleted_at IS NULL " +
+            "ORDER BY score DESC LIMIT #{limit}")
+    List<MessageSearchHit> searchFullText(@Param("userId") String userId, @Param("query") String query,
+                                          @Param("limit") int limit);
+
+    /**
+     * 物理删除会话内的指定消息，用于归档后释放热表空间，不经过逻辑删除
+     *
+     * @param sessionId 会话ID
+     * @param ids       消息ID
+     * @return 删除行数
+     */
+    @Delete("<script>" +
+            "DELETE FROM messages WHERE session_id = #{sessionId} AND id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int purge(@Param("sessionId") String sessionId, @Param("ids") List<String> ids);
+}
@@ -1,13 +1,63 @@
 package org.xhy.domain.conversation.repository;
 
-import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Result;
+import org.apache.ibatis.annotations.Results;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 import org.xhy.domain.conversation.model.SessionEntity;
+import org.xhy.domain.conversation.model.SessionSummary;
 import org.xhy.infrastructure.repository.MyBatisPlusExtRepository;
+import org.xhy.infrastructure.typehandler.PackedContentTypeHandler;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * 会话仓库接口
  */
 @Mapper
 public interface SessionRepository extends MyBatisPlusExtRepository<SessionEntity> {
-}
\ No newline at end of file
+
+    /**
+     * 查询用户在Agent下的会话列表及每个会话的消息数、最后一条消息
+     * 每个会话的最后一条消息和消息数都走 messages(session_id, created_at) 索引；
+     * 已转入冷存储的会话从归档表取消息数和最后消息时间，不返回预览。
+     * 压缩存储的消息返回完整的content_packed，由类型处理器解压后交给调用方截取
+     *
+     * @param userId       用户ID
+     * @param agentId      Agent ID
+     * @param previewChars 明文内容截取的字符数
+     * @return 会话列表，按创建时间倒序
+     */
+    @Select("SELECT s.id, s.title, s.description, s.agent_id, s.is_archived AS archived, s.created_at, s.updated_at, " +
+            "COALESCE(mc.message_count, 0) + COALESCE(ar.message_count, 0) AS message_count, " +
+            "lm.preview AS last_message_preview, lm.content_packed AS last_message_packed, lm.role AS last_message_role, " +
+            "COALESCE(GREATEST(lm.created_at, ar.last_message_at), s.updated_at) AS last_activity_at " +
+            "FROM sessions s " +
+            "LEFT JOIN LATERAL (SELECT COUNT(*) AS message_count FROM messages m " +
+            "WHERE m.session_id = s.id AND m.deleted_at IS NULL) mc ON TRUE " +
+            "LEFT JOIN LATERAL (SELECT left(m.content, #{previewChars}) AS preview, m.content_packed, " +
+            "m.role, m.created_at FROM messages m " +
+            "WHERE m.session_id = s.id AND m.deleted_at IS NULL ORDER BY m.created_at DESC LIMIT 1) lm ON TRUE " +
+            "LEFT JOIN message_archives ar ON ar.session_id = s.id " +
+            "WHERE s.user_id = #{userId} AND s.agent_id = #{agentId} AND s.deleted_at IS NULL " +
+            "ORDER BY s.created_at DESC")
+    @Results({
+            @Result(column = "last_message_packed", property = "lastMessageContent",
+                    typeHandler = PackedContentTypeHandler.class)
+    })
+    List<SessionSummary> selectSummaries(@Param("userId") String userId, @Param("agentId") String agentId,
+                                         @Param("previewChars") int previewChars);
+
+    /**
+     * 更新会话的最后更新时间，不经过自动填充
+     *
+     * @param sessionId 会话ID
+     * @param updatedAt 更新时间
+     * @return 更新的行数
+     */
+    @Update("UPDATE sessions SET updated_at = #{updatedAt} WHERE id = #{sessionId}")
+    int touch(@Param("sessionId") String sessionId, @Param("updatedAt") LocalDateTime updatedAt);
+}
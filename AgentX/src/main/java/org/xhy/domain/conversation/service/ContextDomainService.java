@@ -2,18 +2,61 @@ package org.xhy.domain.conversation.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.baomidou.mybatisplus.core.incrementer.IdentifierGenerator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.xhy.domain.conversation.model.ContextEntity;
 import org.xhy.domain.conversation.repository.ContextRepository;
 import org.xhy.infrastructure.exception.BusinessException;
+import org.xhy.infrastructure.metrics.ChatMetrics;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 上下文领域服务
+ * 同一会话的多轮对话可能并发提交，提交时以版本号做比较并交换，冲突时读取最新上下文后把本轮消息追加上去重试，
+ * 不会丢失任何一轮。正确性只依赖版本号：分段锁只在本节点内生效，且在调用方的事务提交前就已释放，
+ * 它只是让本节点同一会话的提交排队，减少必然失败的重试；跨节点或事务未提交期间的冲突仍由版本号检出
+ */
 @Service
 public class ContextDomainService {
 
+    private static final Logger logger = LoggerFactory.getLogger(ContextDomainService.class);
+
+    /**
+     * 提交锁分段数
+     */
+    private static final int LOCK_STRIPES = 64;
+
+    /**
+     * 版本冲突的最大重试次数
+     */
+    private static final int MAX_RETRIES = 5;
+
     private final ContextRepository contextRepository;
+    private final IdentifierGenerator identifierGenerator;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final Timer lockWaitTimer;
+    private final Counter conflictCounter;
+    private final Counter failureCounter;
 
-    public ContextDomainService(ContextRepository contextRepository) {
+    public ContextDomainService(ContextRepository contextRepository, IdentifierGenerator identifierGenerator,
+                                ChatMetrics chatMetrics) {
         this.contextRepository = contextRepository;
+        this.identifierGenerator = identifierGenerator;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        this.lockWaitTimer = chatMetrics.timer(ChatMetrics.CONTEXT_LOCK_WAIT, Tags.empty());
+        this.conflictCounter = chatMetrics.counter(ChatMetrics.CONTEXT_CONFLICTS, Tags.empty());
+        this.failureCounter = chatMetrics.counter(ChatMetrics.CONTEXT_FAILURES, Tags.empty());
     }
 
     // 获取历史消息id
@@ -34,13 +77,96 @@ public class ContextDomainService {
         return contextRepository.selectOne(wrapper);
     }
 
+    /**
+     * 提交一轮对话的上下文
+     * 上下文为本轮读取时的版本，包含本轮溢出策略对活跃消息和摘要的修改；
+     * 期间有其他轮次先提交时，以最新上下文为准追加本轮消息，本轮的裁剪由下一轮重新计算。
+     * 在调用方的事务中执行时，其他轮次要等该事务提交后才能读到本轮的版本，期间的提交按版本冲突重试
+     *
+     * @param contextEntity 本轮读取并修改后的上下文
+     * @param messageIds    本轮新增的消息id
+     * @return 已提交的上下文
+     */
+    public ContextEntity commitTurn(ContextEntity contextEntity, List<String> messageIds) {
+        String sessionId = contextEntity.getSessionId();
+        long waitStart = System.nanoTime();
+        synchronized (lockFor(sessionId)) {
+            lockWaitTimer.record(System.nanoTime() - waitStart, TimeUnit.NANOSECONDS);
 
-    public ContextEntity insertOrUpdate(ContextEntity contextEntity) {
-        try {
-            contextRepository.insertOrUpdate(contextEntity);
-        }catch (Exception e){
-            System.out.println(e);
+            ContextEntity current = contextEntity;
+            appendMessages(current, messageIds);
+            for (int attempt = 0; attempt <= MAX_RETRIES; attempt++) {
+                if (tryCommit(current)) {
+                    if (current != contextEntity) {
+                        contextEntity.setId(current.getId());
+                        contextEntity.setActiveMessages(current.getActiveMessages());
+                        contextEntity.setSummary(current.getSummary());
+                        contextEntity.setVersion(current.getVersion());
+                    }
+                    return contextEntity;
+                }
+                conflictCounter.increment();
+                ContextEntity latest = findBySessionId(sessionId);
+                if (latest == null) {
+                    // 并发插入的一方已被删除，按本轮的上下文重新插入
+                    current.setId(null);
+                    current.setVersion(null);
+                    continue;
+                }
+                appendMessages(latest, messageIds);
+                current = latest;
+            }
+            failureCounter.increment();
+            logger.error("提交上下文失败，版本冲突重试次数已用完，会话: {}", sessionId);
+            throw new BusinessException("会话上下文更新冲突，请稍后重试");
         }
-        return contextEntity;
+    }
+
+    /**
+     * 插入新上下文或按版本号更新已有上下文
+     * 插入以影响行数判断冲突，不依赖唯一键异常：PostgreSQL中语句出错会使所在事务整体失效，之后的重试无法执行
+     *
+     * @return 是否提交成功，false表示其他轮次已先提交
+     */
+    private boolean tryCommit(ContextEntity contextEntity) {
+        if (contextEntity.getId() == null) {
+            contextEntity.setId(identifierGenerator.nextUUID(contextEntity));
+            contextEntity.setVersion(0);
+            contextEntity.setUpdatedAt(LocalDateTime.now());
+            if (contextRepository.insertIfAbsent(contextEntity) == 1) {
+                return true;
+            }
+            contextEntity.setId(null);
+            return false;
+        }
+        int version = contextEntity.getVersion() != null ? contextEntity.getVersion() : 0;
+        int updated = contextRepository.update(null, Wrappers.<ContextEntity>lambdaUpdate()
+                .set(ContextEntity::getActiveMessages, new ArrayList<>(contextEntity.getActiveMessages()),
+                        "typeHandler=org.xhy.infrastructure.converter.ListConverter")
+                .set(ContextEntity::getSummary, contextEntity.getSummary())
+                .set(ContextEntity::getVersion, version + 1)
+                .set(ContextEntity::getUpdatedAt, LocalDateTime.now())
+                .eq(ContextEntity::getId, contextEntity.getId())
+                .eq(ContextEntity::getVersion, version));
+        if (updated == 1) {
+            contextEntity.setVersion(version + 1);
+            return true;
+        }
+        return false;
+    }
+
+    private void appendMessages(ContextEntity contextEntity, List<String> messageIds) {
+        List<String> activeMessages = contextEntity.getActiveMessages() != null
+                ? new ArrayList<>(contextEntity.getActiveMessages()) : new ArrayList<>();
+        for (String messageId : messageIds) {
+            if (!activeMessages.contains(messageId)) {
+                activeMessages.add(messageId);
+            }
+        }
+        contextEntity.setActiveMessages(activeMessages);
+    }
+
+    private Object lockFor(String sessionId) {
+        return locks[Math.floorMod(sessionId.hashCode(), LOCK_STRIPES)];
     }
 }
@@ -57,7 +57,7 @@ public class ContextProcessor {
         if (contextEntity != null) {
             // 根据消息上下文获取消息列表
             List<String> activeMessagesIds = contextEntity.getActiveMessages();
-            messageEntities = messageDomainService.listByIds(activeMessagesIds);
+            messageEntities = messageDomainService.listByIds(sessionId, activeMessagesIds);
 
             // 尝试触发 token 策略
             List<TokenMessage> tokenMessages = tokenizeMessage(messageEntities);
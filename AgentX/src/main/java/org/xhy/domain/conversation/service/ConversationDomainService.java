@@ -11,10 +11,13 @@ import org.xhy.application.conversation.dto.ChatRequest;
 import org.xhy.application.conversation.dto.ChatResponse;
 import org.xhy.application.conversation.dto.StreamChatRequest;
 import org.xhy.application.conversation.dto.StreamChatResponse;
+import org.xhy.domain.conversation.constant.MessageStatus;
 import org.xhy.domain.conversation.model.ContextEntity;
 import org.xhy.domain.conversation.model.MessageEntity;
 import org.xhy.domain.conversation.repository.ContextRepository;
 import org.xhy.domain.conversation.repository.MessageRepository;
+import org.xhy.infrastructure.exception.BusinessException;
+import org.xhy.infrastructure.typehandler.PackedContentTypeHandler;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -27,26 +30,36 @@ import java.util.function.BiConsumer;
 @Service
 public class ConversationDomainService {
 
+    /**
+     * 条件更新中写入content_packed列时指定的类型处理器，与实体字段上的映射一致
+     */
+    private static final String PACKED_CONTENT_MAPPING =
+            "typeHandler=" + PackedContentTypeHandler.class.getName() + ",jdbcType=BINARY";
+
     private final Logger logger = LoggerFactory.getLogger(ConversationDomainService.class);
     private final MessageRepository messageRepository;
+    private final MessageArchiveService messageArchiveService;
 
 
 
-    public ConversationDomainService(MessageRepository messageRepository) {
+    public ConversationDomainService(MessageRepository messageRepository, MessageArchiveService messageArchiveService) {
         this.messageRepository = messageRepository;
+        this.messageArchiveService = messageArchiveService;
     }
 
 
 
     /**
-     * 获取会话中的消息列表
+     * 获取会话中的消息列表，会话消息已归档时先恢复
      *
      * @param sessionId 会话id
      * @return 消息列表
      */
     public List<MessageEntity> getConversationMessages(String sessionId) {
-        return messageRepository.selectList(
-                Wrappers.<MessageEntity>lambdaQuery().eq(MessageEntity::getSessionId, sessionId).orderByAsc(MessageEntity::getCreatedAt));
+        messageArchiveService.restoreIfArchived(sessionId);
+        return messageRepository.selectList(MessagePartitionKeys
+                .scopeToSession(Wrappers.<MessageEntity>lambdaQuery(), sessionId)
+                .orderByAsc(MessageEntity::getCreatedAt));
     }
 
 
@@ -60,16 +73,61 @@ public class ConversationDomainService {
    }
 
     /**
-     * 删除会话下的消息
+     * 检查点：追加生成中消息的增量内容
+     *
+     * @param message    生成中的消息
+     * @param delta      增量内容
+     * @param tokenDelta 增量token数
+     */
+    public void appendMessageContent(MessageEntity message, String delta, int tokenDelta) {
+        LocalDateTime createdFrom = MessagePartitionKeys.createdFrom(message);
+        messageRepository.appendContent(message.getId(), message.getSessionId(), createdFrom,
+                createdFrom != null ? createdFrom.plusSeconds(1) : null,
+                delta, tokenDelta, MessageStatus.STREAMING.getCode());
+    }
+
+    /**
+     * 结束生成中的消息，写入最终内容、token数和状态
+     * 生成过程中内容以明文追加，结束时content_packed列由类型处理器按阈值压缩，触发器按原文写入全文检索向量后清空content列
+     *
+     * @param message    生成中的消息
+     * @param content    最终内容
+     * @param tokenCount token数
+     * @param status     最终状态
+     */
+    public void finishStreamingMessage(MessageEntity message, String content, Integer tokenCount, MessageStatus status) {
+        messageRepository.update(null, MessagePartitionKeys.scopeToMessage(Wrappers.<MessageEntity>lambdaUpdate(), message)
+                .set(MessageEntity::getContent, content)
+                .set(MessageEntity::getContentPacked, content, PACKED_CONTENT_MAPPING)
+                .set(tokenCount != null, MessageEntity::getTokenCount, tokenCount)
+                .set(MessageEntity::getStatus, status.getCode())
+                .eq(MessageEntity::getStatus, MessageStatus.STREAMING.getCode()));
+    }
+
+    /**
+     * 删除会话下的消息，包括已归档的消息
      * 
      * @param sessionId 会话id
      */
     public void deleteConversationMessages(String sessionId) {
-        messageRepository.checkedDelete(Wrappers.<MessageEntity>lambdaQuery().eq(MessageEntity::getSessionId, sessionId));
+        int archived = messageArchiveService.deleteArchives(List.of(sessionId));
+        int deleted = messageRepository.delete(MessagePartitionKeys.scopeToSession(Wrappers.<MessageEntity>lambdaQuery(), sessionId));
+        if (deleted == 0 && archived == 0) {
+            throw new BusinessException("数据更新失败");
+        }
     }
 
+    /**
+     * 批量删除会话下的消息，包括已归档的消息
+     *
+     * @param sessionIds 会话id列表
+     */
     public void deleteConversationMessages(List<String> sessionIds) {
-        messageRepository.checkedDelete(Wrappers.<MessageEntity>lambdaQuery().in(MessageEntity::getSessionId, sessionIds));
+        int archived = messageArchiveService.deleteArchives(sessionIds);
+        int deleted = messageRepository.delete(MessagePartitionKeys.scopeToSessions(Wrappers.<MessageEntity>lambdaQuery(), sessionIds));
+        if (deleted == 0 && archived == 0) {
+            throw new BusinessException("数据更新失败");
+        }
     }
 
     /**
@@ -80,6 +138,7 @@ public class ConversationDomainService {
     @Transactional
     public void updateMessageTokenCount(MessageEntity message) {
         logger.info("更新消息token数量，消息ID: {}, token数量: {}", message.getId(), message.getTokenCount());
-        messageRepository.checkedUpdateById(message);
+        messageRepository.checkedUpdate(MessagePartitionKeys.scopeToMessage(Wrappers.<MessageEntity>lambdaUpdate(), message)
+                .set(MessageEntity::getTokenCount, message.getTokenCount()));
     }
 }
\ No newline at end of file
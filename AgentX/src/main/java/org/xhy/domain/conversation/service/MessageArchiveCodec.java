@@ -0,0 +1,141 @@
+package org.xhy.domain.conversation.service;
+
+import com.github.luben.zstd.Zstd;
+import org.xhy.domain.conversation.constant.Role;
+import org.xhy.domain.conversation.model.MessageEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 归档消息的编解码
+ * 消息按顺序写成紧凑的二进制记录后整体用zstd压缩；同一会话的消息内容相近，整体压缩比逐条压缩的压缩率高
+ */
+public final class MessageArchiveCodec {
+
+    /**
+     * 格式版本，格式变更时递增并保留旧版本的解码
+     */
+    private static final int VERSION = 1;
+
+    private MessageArchiveCodec() {
+    }
+
+    /**
+     * 编码消息列表
+     *
+     * @param messages 同一会话的消息
+     * @return 未压缩的字节
+     */
+    public static byte[] encode(List<MessageEntity> messages) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(buffer)) {
+            out.writeByte(VERSION);
+            out.writeInt(messages.size());
+            for (MessageEntity message : messages) {
+                writeString(out, message.getId());
+                writeString(out, message.getRole() != null ? message.getRole().name() : null);
+                writeString(out, message.getContent());
+                LocalDateTime createdAt = message.getCreatedAt();
+                out.writeLong(createdAt.toEpochSecond(ZoneOffset.UTC));
+                out.writeInt(createdAt.getNano());
+                out.writeInt(message.getTokenCount() != null ? message.getTokenCount() : -1);
+                writeString(out, message.getProvider());
+                writeString(out, message.getModel());
+                writeString(out, message.getMetadata());
+                out.writeInt(message.getStatus() != null ? message.getStatus() : -1);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * 解码消息列表
+     *
+     * @param raw       未压缩的字节
+     * @param sessionId 消息所属会话ID
+     * @return 消息列表，顺序与编码时一致
+     */
+    public static List<MessageEntity> decode(byte[] raw, String sessionId) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw))) {
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IllegalStateException("不支持的消息归档格式版本: " + version);
+            }
+            int count = in.readInt();
+            List<MessageEntity> messages = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                MessageEntity message = new MessageEntity();
+                message.setSessionId(sessionId);
+                message.setId(readString(in));
+                String role = readString(in);
+                message.setRole(role != null ? Role.fromCode(role) : null);
+                message.setContent(readString(in));
+                long seconds = in.readLong();
+                int nanos = in.readInt();
+                message.setCreatedAt(LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC));
+                int tokenCount = in.readInt();
+                message.setTokenCount(tokenCount >= 0 ? tokenCount : null);
+                message.setProvider(readString(in));
+                message.setModel(readString(in));
+                message.setMetadata(readString(in));
+                int status = in.readInt();
+                if (status >= 0) {
+                    message.setStatus(status);
+                }
+                messages.add(message);
+            }
+            return messages;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * zstd压缩
+     */
+    public static byte[] compress(byte[] raw, int level) {
+        return Zstd.compress(raw, level);
+    }
+
+    /**
+     * zstd解压
+     *
+     * @param payload  压缩后的字节
+     * @param rawBytes 压缩前的字节数
+     */
+    public static byte[] decompress(byte[] payload, int rawBytes) {
+        return Zstd.decompress(payload, rawBytes);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
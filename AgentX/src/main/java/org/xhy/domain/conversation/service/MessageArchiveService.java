@@ -0,0 +1,156 @@
+package org.xhy.domain.conversation.service;
+
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.xhy.domain.conversation.constant.MessageStatus;
+import org.xhy.domain.conversation.model.MessageArchiveEntity;
+import org.xhy.domain.conversation.model.MessageEntity;
+import org.xhy.domain.conversation.model.SessionEntity;
+import org.xhy.domain.conversation.repository.MessageArchiveRepository;
+import org.xhy.domain.conversation.repository.MessageRepository;
+import org.xhy.domain.conversation.repository.SessionRepository;
+import org.xhy.infrastructure.config.ChatProperties;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 消息冷存储服务
+ * 长期不活跃会话的消息整体压缩后移入归档表，并从消息表中物理删除；归档表中的行即会话已归档的标记。
+ * 再次打开会话时，读取消息和加载上下文的入口按需恢复归档，调用方无需感知；
+ * 恢复时更新会话的最后更新时间，恢复后的会话要再经过一个不活跃周期才会重新归档
+ */
+@Service
+public class MessageArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageArchiveService.class);
+
+    private final MessageRepository messageRepository;
+    private final MessageArchiveRepository archiveRepository;
+    private final SessionRepository sessionRepository;
+    private final ChatProperties.Archive properties;
+
+    public MessageArchiveService(MessageRepository messageRepository, MessageArchiveRepository archiveRepository,
+                                 SessionRepository sessionRepository, ChatProperties chatProperties) {
+        this.messageRepository = messageRepository;
+        this.archiveRepository = archiveRepository;
+        this.sessionRepository = sessionRepository;
+        this.properties = chatProperties.getArchive();
+    }
+
+    /**
+     * 会话有归档时恢复到消息表
+     * 按主键判断是否存在归档，未归档的会话只多一次索引查询；
+     * 内部调用 {@link #restore} 不经过代理，事务在这里开启，保证归档的取出和消息的写回一起提交或回滚
+     *
+     * @param sessionId 会话ID
+     * @return 是否恢复了归档
+     */
+    @Transactional
+    public boolean restoreIfArchived(String sessionId) {
+        if (!archiveRepository.exists(Wrappers.<MessageArchiveEntity>lambdaQuery()
+                .eq(MessageArchiveEntity::getSessionId, sessionId))) {
+            return false;
+        }
+        return restore(sessionId);
+    }
+
+    /**
+     * 恢复会话的归档消息
+     * 归档的取出和消息的写回在同一事务中；并发恢复时后到的调用方取不到归档，等待前者提交后直接读消息表即可
+     *
+     * @param sessionId 会话ID
+     * @return 是否恢复了归档
+     */
+    @Transactional
+    public boolean restore(String sessionId) {
+        MessageArchiveEntity archive = archiveRepository.take(sessionId);
+        if (archive == null) {
+            return false;
+        }
+        List<MessageEntity> messages = unpack(archive);
+        if (!messages.isEmpty()) {
+            messageRepository.insert(messages);
+        }
+        // 恢复的消息保留原创建时间，以会话的更新时间记录本次活跃，避免下一轮扫描立即重新归档
+        sessionRepository.touch(sessionId, LocalDateTime.now());
+        logger.info("恢复会话归档: sessionId={}, messages={}", sessionId, messages.size());
+        return true;
+    }
+
+    /**
+     * 归档会话的消息
+     * 在事务内重新确认会话仍不活跃（包括截止时间后没有恢复过归档）；会话已有归档时（归档后又写入过消息）与之合并后重新归档。
+     * 只删除本次写入归档的消息，归档过程中新写入的消息留在消息表，下次读取时会先恢复归档
+     *
+     * @param sessionId 会话ID
+     * @param cutoff    最后一条消息早于该时间才归档
+     * @return 是否归档
+     */
+    @Transactional
+    public boolean archive(String sessionId, LocalDateTime cutoff) {
+        SessionEntity session = sessionRepository.selectById(sessionId);
+        if (session == null || !session.getUpdatedAt().isBefore(cutoff)) {
+            return false;
+        }
+        List<MessageEntity> hot = messageRepository.selectList(MessagePartitionKeys
+                .scopeToSession(Wrappers.<MessageEntity>lambdaQuery(), sessionId)
+                .orderByAsc(MessageEntity::getCreatedAt));
+        if (hot.isEmpty()) {
+            return false;
+        }
+        MessageEntity last = hot.get(hot.size() - 1);
+        boolean streaming = hot.stream().anyMatch(m -> MessageStatus.STREAMING.getCode().equals(m.getStatus()));
+        if (streaming || !last.getCreatedAt().isBefore(cutoff)) {
+            return false;
+        }
+
+        List<MessageEntity> messages = new ArrayList<>(hot);
+        MessageArchiveEntity previous = archiveRepository.take(sessionId);
+        if (previous != null) {
+            messages.addAll(unpack(previous));
+            messages.sort(Comparator.comparing(MessageEntity::getCreatedAt));
+        }
+
+        byte[] raw = MessageArchiveCodec.encode(messages);
+        MessageArchiveEntity archive = new MessageArchiveEntity();
+        archive.setSessionId(sessionId);
+        archive.setMessageCount(messages.size());
+        archive.setRawBytes(raw.length);
+        archive.setPayload(MessageArchiveCodec.compress(raw, properties.getCompressionLevel()));
+        archive.setFirstMessageAt(messages.get(0).getCreatedAt());
+        archive.setLastMessageAt(messages.get(messages.size() - 1).getCreatedAt());
+        archive.setArchivedAt(LocalDateTime.now());
+        archiveRepository.insert(archive);
+
+        messageRepository.purge(sessionId, hot.stream().map(MessageEntity::getId).collect(Collectors.toList()));
+        logger.debug("归档会话消息: sessionId={}, messages={}, bytes={}->{}", sessionId, messages.size(),
+                raw.length, archive.getPayload().length);
+        return true;
+    }
+
+    /**
+     * 删除会话的归档
+     *
+     * @param sessionIds 会话ID
+     * @return 删除的归档数
+     */
+    public int deleteArchives(List<String> sessionIds) {
+        if (sessionIds.isEmpty()) {
+            return 0;
+        }
+        return archiveRepository.delete(Wrappers.<MessageArchiveEntity>lambdaQuery()
+                .in(MessageArchiveEntity::getSessionId, sessionIds));
+    }
+
+    private List<MessageEntity> unpack(MessageArchiveEntity archive) {
+        byte[] raw = MessageArchiveCodec.decompress(archive.getPayload(), archive.getRawBytes());
+        return MessageArchiveCodec.decode(raw, archive.getSessionId());
+    }
+}
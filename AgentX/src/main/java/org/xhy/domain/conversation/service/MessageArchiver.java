@@ -0,0 +1,84 @@
+package org.xhy.domain.conversation.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.xhy.domain.conversation.constant.MessageStatus;
+import org.xhy.domain.conversation.repository.MessageArchiveRepository;
+import org.xhy.infrastructure.config.ChatProperties;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 消息归档后台任务
+ * 按固定间隔扫描长期不活跃的会话，分批归档，每个会话单独提交事务；首次扫描在一个间隔之后执行
+ */
+@Component
+public class MessageArchiver implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageArchiver.class);
+
+    private final MessageArchiveRepository archiveRepository;
+    private final MessageArchiveService archiveService;
+    private final ChatProperties.Archive properties;
+    private final ScheduledExecutorService scheduler;
+
+    public MessageArchiver(MessageArchiveRepository archiveRepository, MessageArchiveService archiveService,
+                           ChatProperties chatProperties) {
+        this.archiveRepository = archiveRepository;
+        this.archiveService = archiveService;
+        this.properties = chatProperties.getArchive();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "message-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (properties.isEnabled()) {
+            long interval = properties.getScanInterval().toMillis();
+            scheduler.scheduleWithFixedDelay(this::archiveInactiveSessions, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 归档一轮不活跃的会话，每批查询一次候选，直到没有候选或线程被中断
+     */
+    private void archiveInactiveSessions() {
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minus(properties.getInactiveAfter());
+            int archived = 0;
+            while (!Thread.currentThread().isInterrupted()) {
+                List<String> sessionIds = archiveRepository.selectArchivableSessions(cutoff,
+                        MessageStatus.STREAMING.getCode(), Math.max(1, properties.getBatchSize()));
+                int batchArchived = 0;
+                for (String sessionId : sessionIds) {
+                    try {
+                        if (archiveService.archive(sessionId, cutoff)) {
+                            batchArchived++;
+                        }
+                    } catch (Exception e) {
+                        logger.warn("归档会话消息失败: sessionId={}", sessionId, e);
+                    }
+                }
+                archived += batchArchived;
+                if (sessionIds.size() < properties.getBatchSize() || batchArchived == 0) {
+                    break;
+                }
+            }
+            if (archived > 0) {
+                logger.info("本轮归档会话数: {}", archived);
+            }
+        } catch (Exception e) {
+            logger.warn("扫描待归档会话失败", e);
+        }
+    }
+}
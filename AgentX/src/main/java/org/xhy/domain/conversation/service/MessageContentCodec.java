@@ -0,0 +1,119 @@
+package org.xhy.domain.conversation.service;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import org.springframework.stereotype.Component;
+import org.xhy.domain.conversation.model.MessageDictionaryEntity;
+import org.xhy.domain.conversation.repository.MessageDictionaryRepository;
+import org.xhy.infrastructure.config.ChatProperties;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 消息内容压缩编码
+ * 超过阈值的内容用zstd（有训练好的字典时带字典）压缩，以 [4字节字典ID][zstd帧] 的形式存入content_packed列，
+ * 此时content列为NULL；小消息和压缩后不小于原文的内容保持明文。关闭压缩后仍能读取已压缩的内容。
+ * 读写由 PackedContentTypeHandler 在映射层完成，业务代码只接触原文
+ */
+@Component
+public class MessageContentCodec {
+
+    private static final int HEADER_BYTES = Integer.BYTES;
+
+    private final MessageDictionaryRepository dictionaryRepository;
+    private final boolean enabled;
+    private final int minBytes;
+    private final int level;
+    private final Map<Integer, ZstdDictDecompress> decompressors = new ConcurrentHashMap<>();
+    private volatile ActiveDictionary activeDictionary;
+
+    public MessageContentCodec(ChatProperties chatProperties, MessageDictionaryRepository dictionaryRepository) {
+        ChatProperties.Compression properties = chatProperties.getCompression();
+        this.dictionaryRepository = dictionaryRepository;
+        this.enabled = properties.isEnabled();
+        this.minBytes = properties.getMinBytes();
+        this.level = properties.getLevel();
+    }
+
+    /**
+     * 启用字典，之后写入的内容使用该字典压缩
+     *
+     * @param id         字典ID，写入压缩内容的头部
+     * @param dictionary 字典内容
+     */
+    public void activateDictionary(int id, byte[] dictionary) {
+        decompressors.computeIfAbsent(id, key -> new ZstdDictDecompress(dictionary));
+        activeDictionary = new ActiveDictionary(id, new ZstdDictCompress(dictionary, level));
+    }
+
+    /**
+     * 当前使用的字典ID，没有字典时返回0
+     */
+    public int activeDictionaryId() {
+        ActiveDictionary dictionary = activeDictionary;
+        return dictionary != null ? dictionary.id : 0;
+    }
+
+    /**
+     * 压缩内容
+     *
+     * @param text 原文
+     * @return 压缩形式，未开启压缩、未达到阈值或压缩后不更小时返回null
+     */
+    public byte[] compress(String text) {
+        if (!enabled || text == null) {
+            return null;
+        }
+        byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+        if (raw.length < minBytes) {
+            return null;
+        }
+        ActiveDictionary dictionary = activeDictionary;
+        byte[] compressed = dictionary != null ? Zstd.compress(raw, dictionary.compress) : Zstd.compress(raw, level);
+        if (compressed.length + HEADER_BYTES >= raw.length) {
+            return null;
+        }
+        return ByteBuffer.allocate(HEADER_BYTES + compressed.length)
+                .putInt(dictionary != null ? dictionary.id : 0)
+                .put(compressed)
+                .array();
+    }
+
+    /**
+     * 解压 {@link #compress} 的结果
+     */
+    public String decompress(byte[] packed) {
+        ByteBuffer buffer = ByteBuffer.wrap(packed);
+        int dictionaryId = buffer.getInt();
+        byte[] compressed = new byte[buffer.remaining()];
+        buffer.get(compressed);
+        int size = (int) Zstd.decompressedSize(compressed);
+        byte[] raw = dictionaryId == 0 ? Zstd.decompress(compressed, size)
+                : Zstd.decompress(compressed, decompressor(dictionaryId), size);
+        return new String(raw, StandardCharsets.UTF_8);
+    }
+
+    private ZstdDictDecompress decompressor(int id) {
+        return decompressors.computeIfAbsent(id, key -> {
+            MessageDictionaryEntity dictionary = dictionaryRepository.selectById(key);
+            if (dictionary == null) {
+                throw new IllegalStateException("消息压缩字典不存在: " + key);
+            }
+            return new ZstdDictDecompress(dictionary.getDictionary());
+        });
+    }
+
+    private static class ActiveDictionary {
+        private final int id;
+        private final ZstdDictCompress compress;
+
+        private ActiveDictionary(int id, ZstdDictCompress compress) {
+            this.id = id;
+            this.compress = compress;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package org.xhy.domain.conversation.service;
+
+import com.github.luben.zstd.ZstdDictTrainer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.xhy.domain.conversation.model.MessageDictionaryEntity;
+import org.xhy.domain.conversation.model.MessageEntity;
+import org.xhy.domain.conversation.repository.MessageDictionaryRepository;
+import org.xhy.infrastructure.config.ChatProperties;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 消息压缩字典管理
+ * 启用压缩时定期检查字典（启动时不访问数据库），
+ * 没有字典或字典已超过重训间隔时，从最近的大消息中抽样训练新字典并切换，旧字典保留用于解压历史内容
+ */
+@Component
+public class MessageDictionaryManager implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageDictionaryManager.class);
+
+    /**
+     * 首次检查字典的延迟（秒）
+     */
+    private static final long INITIAL_DELAY_SECONDS = 60L;
+
+    private final MessageDictionaryRepository dictionaryRepository;
+    private final MessageContentCodec contentCodec;
+    private final ChatProperties.Compression properties;
+    private final ScheduledExecutorService scheduler;
+
+    public MessageDictionaryManager(MessageDictionaryRepository dictionaryRepository, MessageContentCodec contentCodec,
+                                    ChatProperties chatProperties) {
+        this.dictionaryRepository = dictionaryRepository;
+        this.contentCodec = contentCodec;
+        this.properties = chatProperties.getCompression();
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "message-dictionary");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (properties.isEnabled()) {
+            scheduler.scheduleWithFixedDelay(this::refresh, INITIAL_DELAY_SECONDS,
+                    properties.getCheckInterval().toSeconds(), TimeUnit.SECONDS);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 启用最新字典，需要时重新训练
+     */
+    private void refresh() {
+        try {
+            MessageDictionaryEntity latest = dictionaryRepository.selectLatest();
+            if (latest != null && latest.getCreatedAt().isAfter(LocalDateTime.now().minus(properties.getRetrainInterval()))) {
+                if (contentCodec.activeDictionaryId() != latest.getId()) {
+                    contentCodec.activateDictionary(latest.getId(), latest.getDictionary());
+                    logger.info("启用消息压缩字典: id={}", latest.getId());
+                }
+                return;
+            }
+            MessageDictionaryEntity trained = train();
+            if (trained != null) {
+                contentCodec.activateDictionary(trained.getId(), trained.getDictionary());
+                logger.info("训练并启用消息压缩字典: id={}, samples={}, size={}", trained.getId(),
+                        trained.getSampleCount(), trained.getDictionary().length);
+            } else if (latest != null && contentCodec.activeDictionaryId() != latest.getId()) {
+                contentCodec.activateDictionary(latest.getId(), latest.getDictionary());
+            }
+        } catch (Exception e) {
+            logger.warn("刷新消息压缩字典失败", e);
+        }
+    }
+
+    /**
+     * 抽样训练字典，样本不足时返回null
+     */
+    private MessageDictionaryEntity train() {
+        int dictionarySize = properties.getDictionarySize();
+        List<MessageEntity> stored = dictionaryRepository.selectSamples(
+                Math.max(1, properties.getMinBytes() / 4), properties.getSampleCount());
+        // 样本总量按字典大小的100倍截断，这是zstd推荐的训练数据量
+        ZstdDictTrainer trainer = new ZstdDictTrainer(dictionarySize * 100, dictionarySize);
+        int samples = 0;
+        for (MessageEntity sample : stored) {
+            byte[] raw = sample.getContent().getBytes(StandardCharsets.UTF_8);
+            if (raw.length >= properties.getMinBytes() && trainer.addSample(raw)) {
+                samples++;
+            }
+        }
+        if (samples < properties.getMinSamples()) {
+            logger.debug("消息压缩字典样本不足: {}", samples);
+            return null;
+        }
+
+        MessageDictionaryEntity dictionary = new MessageDictionaryEntity();
+        dictionary.setDictionary(trainer.trainSamples());
+        dictionary.setSampleCount(samples);
+        dictionary.setCreatedAt(LocalDateTime.now());
+        dictionaryRepository.insert(dictionary);
+        return dictionary;
+    }
+}
@@ -1,10 +1,12 @@
 package org.xhy.domain.conversation.service;
 
 
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import org.springframework.stereotype.Service;
 import org.xhy.domain.conversation.model.MessageEntity;
 import org.xhy.domain.conversation.repository.MessageRepository;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
@@ -12,13 +14,36 @@ public class MessageDomainService {
 
 
     private final MessageRepository messageRepository;
+    private final MessageArchiveService messageArchiveService;
 
-    public MessageDomainService(MessageRepository messageRepository) {
+    public MessageDomainService(MessageRepository messageRepository, MessageArchiveService messageArchiveService) {
         this.messageRepository = messageRepository;
+        this.messageArchiveService = messageArchiveService;
     }
 
 
-    public List<MessageEntity> listByIds(List<String> ids){
-        return messageRepository.selectByIds(ids);
+    /**
+     * 按id读取会话内的消息，带上会话条件以便分区表只访问会话所在的分区
+     * 有消息未读到时尝试恢复会话归档后重读，消息齐全时不检查归档
+     *
+     * @param sessionId 会话id
+     * @param ids       消息id
+     * @return 消息列表
+     */
+    public List<MessageEntity> listByIds(String sessionId, List<String> ids){
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<MessageEntity> messages = selectByIds(sessionId, ids);
+        if (messages.size() < ids.size() && messageArchiveService.restore(sessionId)) {
+            messages = selectByIds(sessionId, ids);
+        }
+        return messages;
+    }
+
+    private List<MessageEntity> selectByIds(String sessionId, List<String> ids) {
+        return messageRepository.selectList(MessagePartitionKeys
+                .scopeToSession(Wrappers.<MessageEntity>lambdaQuery(), sessionId)
+                .in(MessageEntity::getId, ids));
     }
 }
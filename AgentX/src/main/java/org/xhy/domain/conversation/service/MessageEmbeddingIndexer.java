@@ -0,0 +1,185 @@
+package org.xhy.domain.conversation.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.xhy.domain.conversation.constant.MessageStatus;
+import org.xhy.domain.conversation.model.MessageEmbeddingEntity;
+import org.xhy.domain.conversation.model.MessageEntity;
+import org.xhy.domain.conversation.repository.MessageEmbeddingRepository;
+import org.xhy.infrastructure.config.ChatProperties;
+import org.xhy.infrastructure.embedding.LocalEmbeddingService;
+import org.xhy.infrastructure.embedding.VectorMath;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 消息向量后台生成任务
+ * 对话完成后消息进入有界队列，由专用线程分批向量化并写入消息向量表，同时追加到已打开的用户索引；
+ * 队列空闲时为搜索过的用户补齐历史消息和队列满时被丢弃的消息。
+ * 推理在本线程内直接执行，不经过对话请求使用的攒批队列
+ */
+@Component
+public class MessageEmbeddingIndexer implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageEmbeddingIndexer.class);
+
+    /**
+     * 队列为空时等待新消息的时间，超时后执行一次补齐
+     */
+    private static final long IDLE_WAIT_MILLIS = 1000L;
+
+    private final MessageEmbeddingRepository embeddingRepository;
+    private final MessageIndexManager indexManager;
+    private final LocalEmbeddingService embeddingService;
+    private final ChatProperties.Search properties;
+    private final BlockingQueue<PendingMessage> queue;
+    private final Set<String> backfillUsers = ConcurrentHashMap.newKeySet();
+    private final Set<String> backfilledUsers = ConcurrentHashMap.newKeySet();
+    private final Thread worker;
+
+    public MessageEmbeddingIndexer(MessageEmbeddingRepository embeddingRepository, MessageIndexManager indexManager, LocalEmbeddingService embeddingService,
+                                   ChatProperties chatProperties) {
+        this.embeddingRepository = embeddingRepository;
+        this.indexManager = indexManager;
+        this.embeddingService = embeddingService;
+        this.properties = chatProperties.getSearch();
+        this.queue = new LinkedBlockingQueue<>(Math.max(1, properties.getIndexQueueCapacity()));
+
+        this.worker = new Thread(this::run, "message-embedding-indexer");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * 提交新写入的消息，立即返回；队列已满时丢弃，由补齐任务处理
+     *
+     * @param userId   消息所属会话的用户ID
+     * @param messages 已完成的消息
+     */
+    public void enqueue(String userId, MessageEntity... messages) {
+        for (MessageEntity message : messages) {
+            if (message.getContent() == null || message.getContent().isBlank()) {
+                continue;
+            }
+            if (!queue.offer(new PendingMessage(userId, message.getSessionId(), message.getId(),
+                    message.getContent()))) {
+                logger.debug("消息向量队列已满，丢弃消息: {}", message.getId());
+            }
+        }
+    }
+
+    /**
+     * 请求补齐用户尚未生成向量的消息，每个用户在补齐完成前只登记一次
+     *
+     * @param userId 用户ID
+     */
+    public void requestBackfill(String userId) {
+        if (!backfilledUsers.contains(userId)) {
+            backfillUsers.add(userId);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        worker.interrupt();
+    }
+
+    private void run() {
+        int batchSize = Math.max(1, properties.getIndexBatchSize());
+        List<PendingMessage> batch = new ArrayList<>(batchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                PendingMessage first = queue.poll(IDLE_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    backfillOne(batchSize);
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                index(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                logger.warn("生成消息向量失败，批大小: {}", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 为一个用户补齐一页缺少向量的消息，仍有剩余时重新登记
+     */
+    private void backfillOne(int batchSize) {
+        Iterator<String> iterator = backfillUsers.iterator();
+        if (!iterator.hasNext()) {
+            return;
+        }
+        String userId = iterator.next();
+        iterator.remove();
+
+        int limit = batchSize * 8;
+        List<MessageEntity> missing = embeddingRepository.selectMissing(userId, MessageStatus.STREAMING.getCode(), limit);
+        List<PendingMessage> pending = new ArrayList<>(missing.size());
+        for (MessageEntity message : missing) {
+            pending.add(new PendingMessage(userId, message.getSessionId(), message.getId(), message.getContent()));
+        }
+        for (int from = 0; from < pending.size(); from += batchSize) {
+            index(pending.subList(from, Math.min(pending.size(), from + batchSize)));
+        }
+
+        if (missing.size() == limit) {
+            backfillUsers.add(userId);
+        } else {
+            backfilledUsers.add(userId);
+            logger.info("消息向量补齐完成: userId={}", userId);
+        }
+    }
+
+    private void index(List<PendingMessage> batch) {
+        List<MessageEmbeddingEntity> embeddings = new ArrayList<>(batch.size());
+        for (PendingMessage message : batch) {
+            MessageEmbeddingEntity embedding = new MessageEmbeddingEntity();
+            embedding.setMessageId(message.messageId);
+            embedding.setUserId(message.userId);
+            embedding.setSessionId(message.sessionId);
+            embedding.setEmbedding(VectorMath.normalize(embeddingService.embedInCallerThread(message.content)));
+            embeddings.add(embedding);
+        }
+        embeddingRepository.insertIgnore(embeddings);
+
+        Map<String, List<MessageEmbeddingEntity>> byUser = new LinkedHashMap<>();
+        for (MessageEmbeddingEntity embedding : embeddings) {
+            byUser.computeIfAbsent(embedding.getUserId(), k -> new ArrayList<>()).add(embedding);
+        }
+        byUser.forEach(indexManager::addIfOpen);
+    }
+
+    /**
+     * 等待生成向量的消息
+     */
+    private static class PendingMessage {
+        private final String userId;
+        private final String sessionId;
+        private final String messageId;
+        private final String content;
+
+        private PendingMessage(String userId, String sessionId, String messageId, String content) {
+            this.userId = userId;
+            this.sessionId = sessionId;
+            this.messageId = messageId;
+            this.content = content;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package org.xhy.domain.conversation.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.xhy.domain.conversation.model.MessageEmbeddingEntity;
+import org.xhy.domain.conversation.repository.MessageEmbeddingRepository;
+import org.xhy.infrastructure.embedding.LocalEmbeddingService;
+import org.xhy.infrastructure.vector.VectorIndex;
+import org.xhy.infrastructure.vector.VectorIndexRegistry;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 消息向量索引管理
+ * 每个用户对应一个HNSW索引，首次搜索时打开本地索引文件；索引条数与消息向量表不一致时从数据库分页重建，
+ * 之后由后台生成向量的任务同步追加
+ */
+@Component
+public class MessageIndexManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageIndexManager.class);
+
+    /**
+     * 加载索引时每页读取的向量数
+     */
+    private static final int LOAD_PAGE_SIZE = 2000;
+
+    /**
+     * HNSW每层最大连接数
+     */
+    private static final int HNSW_M = 16;
+
+    /**
+     * HNSW构建时的候选集大小，消息搜索对召回率的要求低于知识库检索，取较小值加快重建
+     */
+    private static final int EF_CONSTRUCTION = 100;
+
+    private static final String INDEX_NAME_PREFIX = "messages/";
+
+    private final MessageEmbeddingRepository embeddingRepository;
+    private final VectorIndexRegistry indexRegistry;
+    private final Map<String, VectorIndex> indexes = new ConcurrentHashMap<>();
+
+    public MessageIndexManager(MessageEmbeddingRepository embeddingRepository, VectorIndexRegistry indexRegistry) {
+        this.embeddingRepository = embeddingRepository;
+        this.indexRegistry = indexRegistry;
+    }
+
+    /**
+     * 获取用户的消息索引，未加载时从数据库构建
+     *
+     * @param userId 用户ID
+     * @return 索引
+     */
+    public VectorIndex getIndex(String userId) {
+        return indexes.computeIfAbsent(userId, this::load);
+    }
+
+    /**
+     * 把新生成的消息向量加入索引，索引尚未打开时跳过，打开时会因条数不一致而重建
+     *
+     * @param userId     用户ID
+     * @param embeddings 消息向量，需已归一化
+     */
+    public void addIfOpen(String userId, List<MessageEmbeddingEntity> embeddings) {
+        indexes.computeIfPresent(userId, (id, index) -> {
+            for (MessageEmbeddingEntity embedding : embeddings) {
+                index.add(embedding.getMessageId(), embedding.getEmbedding());
+            }
+            return index;
+        });
+    }
+
+    private VectorIndex load(String userId) {
+        long start = System.currentTimeMillis();
+        String name = INDEX_NAME_PREFIX + userId;
+        VectorIndex index = open(name);
+        long expected = embeddingRepository.selectCount(Wrappers.<MessageEmbeddingEntity>lambdaQuery()
+                .eq(MessageEmbeddingEntity::getUserId, userId));
+        if (index.size() == expected) {
+            logger.info("消息索引已打开: userId={}, size={}, cost={}ms",
+                    userId, index.size(), System.currentTimeMillis() - start);
+            return index;
+        }
+        if (index.size() > 0) {
+            logger.warn("消息索引与数据库不一致，重建: userId={}, index={}, db={}", userId, index.size(), expected);
+            indexRegistry.drop(name);
+            index = open(name);
+        }
+
+        // 按消息id做键集分页
+        String lastId = null;
+        while (true) {
+            LambdaQueryWrapper<MessageEmbeddingEntity> wrapper = Wrappers.<MessageEmbeddingEntity>lambdaQuery()
+                    .select(MessageEmbeddingEntity::getMessageId, MessageEmbeddingEntity::getEmbedding)
+                    .eq(MessageEmbeddingEntity::getUserId, userId)
+                    .gt(lastId != null, MessageEmbeddingEntity::getMessageId, lastId)
+                    .orderByAsc(MessageEmbeddingEntity::getMessageId)
+                    .last("LIMIT " + LOAD_PAGE_SIZE);
+            List<MessageEmbeddingEntity> page = embeddingRepository.selectList(wrapper);
+            for (MessageEmbeddingEntity embedding : page) {
+                index.add(embedding.getMessageId(), embedding.getEmbedding());
+            }
+            if (page.size() < LOAD_PAGE_SIZE) {
+                break;
+            }
+            lastId = page.get(page.size() - 1).getMessageId();
+        }
+
+        logger.info("消息索引重建完成: userId={}, size={}, cost={}ms",
+                userId, index.size(), System.currentTimeMillis() - start);
+        return index;
+    }
+
+    private VectorIndex open(String name) {
+        return indexRegistry.open(name, LocalEmbeddingService.DIMENSION, HNSW_M, EF_CONSTRUCTION);
+    }
+}
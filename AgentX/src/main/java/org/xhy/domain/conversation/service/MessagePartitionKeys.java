@@ -0,0 +1,98 @@
+package org.xhy.domain.conversation.service;
+
+import com.baomidou.mybatisplus.core.conditions.AbstractLambdaWrapper;
+import org.xhy.domain.conversation.model.MessageEntity;
+import org.xhy.infrastructure.id.UuidV7IdentifierGenerator;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+
+/**
+ * 消息分区裁剪条件
+ * 消息表可按会话ID哈希或按创建时间范围分区（见 migration_messages_partition_*.sql）。
+ * 按会话查询时同时带上会话ID和创建时间下界：会话ID为UUIDv7时，会话创建时间可以直接从ID中解析，
+ * 会话内的消息都不早于该时间；按单条消息更新时带上会话ID和消息自身的创建时间。
+ * 两种分区方式都能据此只访问一个或少数几个分区，未分区时这些条件也只是索引上的附加过滤
+ */
+public final class MessagePartitionKeys {
+
+    /**
+     * 会话创建时间下界的余量：1小时容忍多节点之间的时钟偏差，14小时覆盖最大的时区偏移。
+     * 创建时间按写入节点的本地时区保存，下界统一按UTC计算再减去该余量，任何时区的节点得到的下界都相同且不会偏晚
+     */
+    private static final Duration SESSION_START_MARGIN = Duration.ofHours(1 + 14);
+
+    private MessagePartitionKeys() {
+    }
+
+    /**
+     * 限定到会话内的消息
+     */
+    public static <W extends AbstractLambdaWrapper<MessageEntity, W>> W scopeToSession(W wrapper, String sessionId) {
+        wrapper.eq(MessageEntity::getSessionId, sessionId);
+        LocalDateTime lowerBound = sessionLowerBound(sessionId);
+        if (lowerBound != null) {
+            wrapper.ge(MessageEntity::getCreatedAt, lowerBound);
+        }
+        return wrapper;
+    }
+
+    /**
+     * 限定到多个会话内的消息，下界取各会话中最早的；存在不是UUIDv7的会话ID时不限定创建时间
+     */
+    public static <W extends AbstractLambdaWrapper<MessageEntity, W>> W scopeToSessions(W wrapper,
+                                                                                      Collection<String> sessionIds) {
+        wrapper.in(MessageEntity::getSessionId, sessionIds);
+        LocalDateTime earliest = null;
+        for (String sessionId : sessionIds) {
+            LocalDateTime lowerBound = sessionLowerBound(sessionId);
+            if (lowerBound == null) {
+                return wrapper;
+            }
+            if (earliest == null || lowerBound.isBefore(earliest)) {
+                earliest = lowerBound;
+            }
+        }
+        if (earliest != null) {
+            wrapper.ge(MessageEntity::getCreatedAt, earliest);
+        }
+        return wrapper;
+    }
+
+    /**
+     * 限定到单条消息
+     * 数据库时间精度为微秒，按秒取包含创建时间的区间，避免精度差异导致匹配不到
+     */
+    public static <W extends AbstractLambdaWrapper<MessageEntity, W>> W scopeToMessage(W wrapper, MessageEntity message) {
+        wrapper.eq(MessageEntity::getId, message.getId())
+                .eq(MessageEntity::getSessionId, message.getSessionId());
+        if (message.getCreatedAt() != null) {
+            LocalDateTime from = createdFrom(message);
+            wrapper.between(MessageEntity::getCreatedAt, from, from.plusSeconds(1));
+        }
+        return wrapper;
+    }
+
+    /**
+     * 单条消息创建时间所在秒的起点，消息未带创建时间时返回null
+     */
+    public static LocalDateTime createdFrom(MessageEntity message) {
+        return message.getCreatedAt() != null ? message.getCreatedAt().truncatedTo(ChronoUnit.SECONDS) : null;
+    }
+
+    /**
+     * 会话内消息创建时间的下界，会话ID不是UUIDv7时返回null
+     */
+    public static LocalDateTime sessionLowerBound(String sessionId) {
+        long millis = UuidV7IdentifierGenerator.timestampOf(sessionId);
+        if (millis < 0) {
+            return null;
+        }
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC)
+                .minus(SESSION_START_MARGIN);
+    }
+}
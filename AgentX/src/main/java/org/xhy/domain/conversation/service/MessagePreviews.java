@@ -0,0 +1,33 @@
+package org.xhy.domain.conversation.service;
+
+/**
+ * 列表中的消息预览
+ * 列表查询只截取内容开头的 {@link #PREVIEW_CHARS} 个字符；压缩存储的内容无法在SQL中截取，
+ * 由查询返回完整的压缩内容，经类型处理器解压后在这里截取
+ */
+public final class MessagePreviews {
+
+    /**
+     * 预览的最大字符数，同时作为列表查询中截取的长度
+     */
+    public static final int PREVIEW_CHARS = 100;
+
+    private MessagePreviews() {
+    }
+
+    /**
+     * 由列表查询返回的内容生成预览，空白字符合并为一个空格
+     *
+     * @param preview 截取后的明文
+     * @param content 压缩存储的消息解压后的完整内容，未压缩时为null
+     * @return 预览文本，内容为空时返回null
+     */
+    public static String of(String preview, String content) {
+        String text = content != null ? content : preview;
+        if (text == null) {
+            return null;
+        }
+        text = text.replaceAll("\\s+", " ").trim();
+        return text.length() <= PREVIEW_CHARS ? text : text.substring(0, PREVIEW_CHARS) + "...";
+    }
+}
@@ -0,0 +1,233 @@
+package org.xhy.domain.conversation.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Service;
+import org.xhy.domain.conversation.model.MessageEntity;
+import org.xhy.domain.conversation.model.MessageSearchHit;
+import org.xhy.domain.conversation.model.MessageSearchResult;
+import org.xhy.domain.conversation.model.SessionEntity;
+import org.xhy.domain.conversation.repository.MessageRepository;
+import org.xhy.domain.conversation.repository.SessionRepository;
+import org.xhy.infrastructure.config.ChatProperties;
+import org.xhy.infrastructure.embedding.LocalEmbeddingService;
+import org.xhy.infrastructure.embedding.VectorMath;
+import org.xhy.infrastructure.vector.VectorSearchHit;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 跨会话消息搜索服务
+ * 全文检索在独立线程中与向量检索并行执行，两路候选按倒数排名融合后分页，只读取当前页的消息内容；
+ * 消息向量由后台任务生成，尚未生成向量的消息仍可通过全文检索命中
+ */
+@Service
+public class MessageSearchService implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageSearchService.class);
+
+    /**
+     * 全文检索线程数
+     */
+    private static final int FULL_TEXT_THREADS = 2;
+
+    /**
+     * HNSW查询时的最小候选集大小
+     */
+    private static final int MIN_EF_SEARCH = 64;
+
+    private final MessageRepository messageRepository;
+    private final SessionRepository sessionRepository;
+    private final MessageIndexManager indexManager;
+    private final MessageEmbeddingIndexer embeddingIndexer;
+    private final LocalEmbeddingService embeddingService;
+    private final ChatProperties.Search properties;
+    private final ExecutorService fullTextExecutor;
+
+    public MessageSearchService(MessageRepository messageRepository, SessionRepository sessionRepository, MessageIndexManager indexManager,
+                                MessageEmbeddingIndexer embeddingIndexer, LocalEmbeddingService embeddingService,
+                                ChatProperties chatProperties) {
+        this.messageRepository = messageRepository;
+        this.sessionRepository = sessionRepository;
+        this.indexManager = indexManager;
+        this.embeddingIndexer = embeddingIndexer;
+        this.embeddingService = embeddingService;
+        this.properties = chatProperties.getSearch();
+        this.fullTextExecutor = Executors.newFixedThreadPool(FULL_TEXT_THREADS, r -> {
+            Thread thread = new Thread(r, "message-fulltext");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 在用户全部会话中搜索消息
+     *
+     * @param userId   用户ID
+     * @param query    查询文本
+     * @param page     页码，从1开始
+     * @param pageSize 每页条数
+     * @return 当前页的命中结果，按相关度从高到低排列
+     */
+    public MessageSearchResult search(String userId, String query, int page, int pageSize) {
+        if (query == null || query.isBlank()) {
+            return MessageSearchResult.empty();
+        }
+        long start = System.nanoTime();
+        int limit = Math.max(1, properties.getCandidateLimit());
+        int size = Math.max(1, Math.min(pageSize, properties.getMaxPageSize()));
+        int offset = (Math.max(1, page) - 1) * size;
+
+        // 1. 全文检索提交到独立线程，当前线程继续向量检索
+        Future<List<MessageSearchHit>> fullTextFuture = fullTextExecutor.submit(() ->
+                messageRepository.searchFullText(userId, query, limit));
+
+        // 2. 向量检索
+        List<VectorSearchHit> vectorHits = searchVector(userId, query, limit);
+
+        // 3. 合并两路结果并分页
+        LinkedHashMap<String, Float> ranked = fuse(vectorHits, awaitFullText(fullTextFuture, start));
+        if (offset >= ranked.size()) {
+            return new MessageSearchResult(ranked.size(), new ArrayList<>());
+        }
+        List<String> rankedIds = new ArrayList<>(ranked.keySet());
+        List<String> pageIds = rankedIds.subList(offset, Math.min(rankedIds.size(), offset + size));
+
+        // 4. 只读取当前页的消息和会话
+        List<MessageSearchHit> hits = hydrate(userId, query, pageIds, ranked);
+        logger.debug("消息搜索: userId={}, vector={}, total={}, cost={}ms", userId, vectorHits.size(),
+                ranked.size(), (System.nanoTime() - start) / 1_000_000);
+        return new MessageSearchResult(ranked.size(), hits);
+    }
+
+    @Override
+    public void destroy() {
+        fullTextExecutor.shutdownNow();
+    }
+
+    /**
+     * 向量检索，返回相似度不低于阈值的候选
+     * 打开用户索引的同时登记补齐，历史消息的向量在后台逐步生成
+     */
+    private List<VectorSearchHit> searchVector(String userId, String query, int limit) {
+        float[] queryVector;
+        try {
+            queryVector = VectorMath.normalize(embeddingService.embedAll(List.of(query)).get(0));
+        } catch (TimeoutException | RuntimeException e) {
+            logger.warn("查询向量化失败，跳过向量检索: {}", e.getMessage());
+            return Collections.emptyList();
+        }
+        List<VectorSearchHit> hits = indexManager.getIndex(userId)
+                .search(queryVector, limit, Math.max(MIN_EF_SEARCH, limit));
+        embeddingIndexer.requestBackfill(userId);
+        return hits.stream()
+                .filter(hit -> hit.getScore() >= properties.getMinScore())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 等待全文检索结果，超时或失败时返回空列表
+     */
+    private List<MessageSearchHit> awaitFullText(Future<List<MessageSearchHit>> future, long start) {
+        long remaining = properties.getFullTextTimeout().toNanos() - (System.nanoTime() - start);
+        try {
+            return future.get(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            logger.warn("消息全文检索超时，仅使用向量检索结果");
+        } catch (ExecutionException e) {
+            logger.warn("消息全文检索失败，仅使用向量检索结果: {}", e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * 倒数排名融合：每路中排名为r的候选得分 1/(rrfK + r)，同一消息在两路的得分相加
+     *
+     * @return 按融合得分从高到低排列的消息id和得分
+     */
+    private LinkedHashMap<String, Float> fuse(List<VectorSearchHit> vectorHits, List<MessageSearchHit> fullTextHits) {
+        int rrfK = properties.getRrfK();
+        Map<String, Float> scores = new HashMap<>();
+        for (int i = 0; i < vectorHits.size(); i++) {
+            scores.merge(vectorHits.get(i).getId(), 1f / (rrfK + i + 1), Float::sum);
+        }
+        for (int i = 0; i < fullTextHits.size(); i++) {
+            scores.merge(fullTextHits.get(i).getMessageId(), 1f / (rrfK + i + 1), Float::sum);
+        }
+        LinkedHashMap<String, Float> ranked = new LinkedHashMap<>();
+        scores.entrySet().stream()
+                .sorted(Map.Entry.<String, Float>comparingByValue().reversed())
+                .forEach(entry -> ranked.put(entry.getKey(), entry.getValue()));
+        return ranked;
+    }
+
+    /**
+     * 读取当前页的消息内容和会话标题，已删除的消息和会话跳过
+     */
+    private List<MessageSearchHit> hydrate(String userId, String query, List<String> messageIds,
+                                           Map<String, Float> scores) {
+        Map<String, MessageEntity> messages = messageRepository.selectByIds(messageIds).stream()
+                .collect(Collectors.toMap(MessageEntity::getId, Function.identity()));
+        Set<String> sessionIds = messages.values().stream()
+                .map(MessageEntity::getSessionId)
+                .collect(Collectors.toSet());
+        Map<String, SessionEntity> sessions = sessionIds.isEmpty() ? Collections.emptyMap()
+                : sessionRepository.selectByIds(sessionIds).stream()
+                .filter(session -> userId.equals(session.getUserId()))
+                .collect(Collectors.toMap(SessionEntity::getId, Function.identity()));
+
+        List<String> terms = Arrays.stream(query.toLowerCase().split("[\\s\\p{Punct}，。？！、；：]+"))
+                .filter(term -> !term.isEmpty())
+                .collect(Collectors.toList());
+        List<MessageSearchHit> hits = new ArrayList<>(messageIds.size());
+        for (String messageId : messageIds) {
+            MessageEntity message = messages.get(messageId);
+            SessionEntity session = message != null ? sessions.get(message.getSessionId()) : null;
+            if (session == null) {
+                continue;
+            }
+            MessageSearchHit hit = new MessageSearchHit();
+            hit.setMessageId(message.getId());
+            hit.setSessionId(session.getId());
+            hit.setSessionTitle(session.getTitle());
+            hit.setRole(message.getRole());
+            hit.setCreatedAt(message.getCreatedAt());
+            hit.setSnippet(snippet(message.getContent(), terms));
+            hit.setScore(scores.get(messageId));
+            hits.add(hit);
+        }
+        return hits;
+    }
+
+    /**
+     * 截取命中片段：以第一个出现的查询词为中心截取，没有字面命中（纯语义命中）时取开头
+     */
+    private String snippet(String content, List<String> terms) {
+        if (content == null) {
+            return "";
+        }
+        String text = content.replaceAll("\\s+", " ").trim();
+        int length = Math.max(1, properties.getSnippetChars());
+        if (text.length() <= length) {
+            return text;
+        }
+        String lower = text.toLowerCase();
+        int position = -1;
+        for (String term : terms) {
+            int index = lower.indexOf(term);
+            if (index >= 0 && (position < 0 || index < position)) {
+                position = index;
+            }
+        }
+        int from = position < 0 ? 0 : Math.max(0, Math.min(position - length / 3, text.length() - length));
+        int to = Math.min(text.length(), from + length);
+        return (from > 0 ? "..." : "") + text.substring(from, to) + (to < text.length() ? "..." : "");
+    }
+}
@@ -2,6 +2,7 @@ package org.xhy.domain.conversation.service;
 
 import org.springframework.stereotype.Service;
 import org.xhy.domain.conversation.model.SessionEntity;
+import org.xhy.domain.conversation.model.SessionSummary;
 import org.xhy.domain.conversation.repository.SessionRepository;
 import org.xhy.infrastructure.exception.BusinessException;
 
@@ -28,6 +29,24 @@ public class SessionDomainService {
                 .eq(SessionEntity::getAgentId, agentId).orderByDesc(SessionEntity::getCreatedAt));
     }
 
+    /**
+     * 获取用户在Agent下的会话列表，附带消息数、最后一条消息预览和最后活跃时间
+     *
+     * @param userId  用户id
+     * @param agentId 助理id
+     * @return 会话列表，按创建时间倒序
+     */
+    public List<SessionSummary> getSessionSummaries(String userId, String agentId) {
+        List<SessionSummary> summaries = sessionRepository.selectSummaries(userId, agentId,
+                MessagePreviews.PREVIEW_CHARS + 1);
+        for (SessionSummary summary : summaries) {
+            summary.setLastMessagePreview(MessagePreviews.of(summary.getLastMessagePreview(),
+                    summary.getLastMessageContent()));
+            summary.setLastMessageContent(null);
+        }
+        return summaries;
+    }
+
     /**
      * 删除会话
      * 
@@ -10,7 +10,6 @@ import org.xhy.domain.conversation.service.ConversationDomainService;
 import org.xhy.infrastructure.exception.BusinessException;
 
 import java.util.Arrays;
-import java.util.List;
 
 /**
  * 聊天完成处理器实现
@@ -60,10 +59,8 @@ public class ChatCompletionHandlerImpl implements ChatCompletionHandler {
             
             // 更新上下文
             if (contextEntity != null) {
-                List<String> activeMessages = contextEntity.getActiveMessages();
-                activeMessages.add(userMessage.getId());
-                activeMessages.add(llmMessage.getId());
-                contextDomainService.insertOrUpdate(contextEntity);
+                contextDomainService.commitTurn(contextEntity,
+                        Arrays.asList(userMessage.getId(), llmMessage.getId()));
             }
         } catch (Exception e) {
             // 记录详细错误信息
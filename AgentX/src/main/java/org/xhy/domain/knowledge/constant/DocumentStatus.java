@@ -0,0 +1,57 @@
+package org.xhy.domain.knowledge.constant;
+
+import org.xhy.infrastructure.exception.BusinessException;
+
+/**
+ * 知识库文档状态枚举
+ */
+public enum DocumentStatus {
+
+    /**
+     * 处理中：正在切分和向量化
+     */
+    PROCESSING(1, "处理中"),
+
+    /**
+     * 已完成：文本块已入库并加入索引
+     */
+    COMPLETED(2, "已完成"),
+
+    /**
+     * 失败：处理过程中出错，见错误信息
+     */
+    FAILED(3, "失败");
+
+    private final Integer code;
+    private final String description;
+
+    DocumentStatus(Integer code, String description) {
+        this.code = code;
+        this.description = description;
+    }
+
+    public Integer getCode() {
+        return code;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * 根据状态码获取枚举值
+     */
+    public static DocumentStatus fromCode(Integer code) {
+        if (code == null) {
+            return null;
+        }
+
+        for (DocumentStatus status : DocumentStatus.values()) {
+            if (status.getCode().equals(code)) {
+                return status;
+            }
+        }
+
+        throw new BusinessException("INVALID_STATUS_CODE", "无效的文档状态码: " + code);
+    }
+}
@@ -0,0 +1,22 @@
+package org.xhy.domain.knowledge.constant;
+
+/**
+ * 文档导入任务状态
+ */
+public enum IngestionJobStatus {
+
+    /**
+     * 导入中
+     */
+    RUNNING,
+
+    /**
+     * 已结束，至少有一个文档导入成功
+     */
+    COMPLETED,
+
+    /**
+     * 已结束，全部文档导入失败
+     */
+    FAILED
+}
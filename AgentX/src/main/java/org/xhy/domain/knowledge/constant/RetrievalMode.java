@@ -0,0 +1,17 @@
+package org.xhy.domain.knowledge.constant;
+
+/**
+ * 知识库检索方式
+ */
+public enum RetrievalMode {
+
+    /**
+     * 仅向量检索
+     */
+    VECTOR,
+
+    /**
+     * 向量检索与全文检索并行执行，按倒数排名融合（RRF）合并结果
+     */
+    HYBRID
+}
@@ -0,0 +1,33 @@
+package org.xhy.domain.knowledge.model;
+
+/**
+ * 全文检索命中的文本块
+ */
+public class FullTextHit {
+
+    /**
+     * 文本块ID
+     */
+    private String id;
+
+    /**
+     * ts_rank相关度
+     */
+    private float score;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public float getScore() {
+        return score;
+    }
+
+    public void setScore(float score) {
+        this.score = score;
+    }
+}
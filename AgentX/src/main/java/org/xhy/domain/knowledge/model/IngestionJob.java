@@ -0,0 +1,164 @@
+package org.xhy.domain.knowledge.model;
+
+import org.xhy.domain.knowledge.constant.IngestionJobStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 文档导入任务
+ * 保存在内存中，各流水线阶段并发更新进度计数；文档本身的状态以数据库为准，服务重启后任务进度不保留
+ */
+public class IngestionJob {
+
+    private final String id = UUID.randomUUID().toString();
+    private final String knowledgeBaseId;
+    private final String userId;
+    private final int totalDocuments;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+    private final CompletableFuture<IngestionJob> completion = new CompletableFuture<>();
+    private final List<KnowledgeDocumentEntity> documents = new ArrayList<>();
+
+    private final AtomicInteger completedDocuments = new AtomicInteger();
+    private final AtomicInteger failedDocuments = new AtomicInteger();
+    private final AtomicInteger totalChunks = new AtomicInteger();
+    private final AtomicInteger reusedChunks = new AtomicInteger();
+    private final AtomicInteger embeddedChunks = new AtomicInteger();
+    private final AtomicInteger indexedChunks = new AtomicInteger();
+
+    private volatile IngestionJobStatus status = IngestionJobStatus.RUNNING;
+    private volatile LocalDateTime finishedAt;
+
+    public IngestionJob(String knowledgeBaseId, String userId, int totalDocuments) {
+        this.knowledgeBaseId = knowledgeBaseId;
+        this.userId = userId;
+        this.totalDocuments = totalDocuments;
+        if (totalDocuments == 0) {
+            finish();
+        }
+    }
+
+    public synchronized void addDocument(KnowledgeDocumentEntity document) {
+        documents.add(document);
+    }
+
+    public void addChunks(int count) {
+        totalChunks.addAndGet(count);
+    }
+
+    public void addReused(int count) {
+        reusedChunks.addAndGet(count);
+    }
+
+    public void addEmbedded(int count) {
+        embeddedChunks.addAndGet(count);
+    }
+
+    public void addIndexed(int count) {
+        indexedChunks.addAndGet(count);
+    }
+
+    /**
+     * 文档导入成功
+     */
+    public void documentCompleted() {
+        completedDocuments.incrementAndGet();
+        checkFinished();
+    }
+
+    /**
+     * 文档导入失败
+     */
+    public void documentFailed() {
+        failedDocuments.incrementAndGet();
+        checkFinished();
+    }
+
+    private void checkFinished() {
+        if (completedDocuments.get() + failedDocuments.get() == totalDocuments) {
+            finish();
+        }
+    }
+
+    private void finish() {
+        status = completedDocuments.get() == 0 && totalDocuments > 0
+                ? IngestionJobStatus.FAILED
+                : IngestionJobStatus.COMPLETED;
+        finishedAt = LocalDateTime.now();
+        completion.complete(this);
+    }
+
+    public boolean isFinished() {
+        return status != IngestionJobStatus.RUNNING;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getKnowledgeBaseId() {
+        return knowledgeBaseId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public IngestionJobStatus getStatus() {
+        return status;
+    }
+
+    public int getTotalDocuments() {
+        return totalDocuments;
+    }
+
+    public int getCompletedDocuments() {
+        return completedDocuments.get();
+    }
+
+    public int getFailedDocuments() {
+        return failedDocuments.get();
+    }
+
+    public int getTotalChunks() {
+        return totalChunks.get();
+    }
+
+    public int getReusedChunks() {
+        return reusedChunks.get();
+    }
+
+    public int getEmbeddedChunks() {
+        return embeddedChunks.get();
+    }
+
+    public int getIndexedChunks() {
+        return indexedChunks.get();
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    /**
+     * 已创建的文档记录
+     */
+    public synchronized List<KnowledgeDocumentEntity> getDocuments() {
+        return new ArrayList<>(documents);
+    }
+
+    /**
+     * 全部文档处理结束时完成
+     */
+    public CompletableFuture<IngestionJob> getCompletion() {
+        return completion;
+    }
+}
@@ -0,0 +1,30 @@
+package org.xhy.domain.knowledge.model;
+
+/**
+ * 待导入的文档原文
+ */
+public class IngestionSource {
+
+    /**
+     * 文档标题，同一知识库中同名文档重新导入时替换旧文档
+     */
+    private final String title;
+
+    /**
+     * 文档原文
+     */
+    private final String content;
+
+    public IngestionSource(String title, String content) {
+        this.title = title;
+        this.content = content;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getContent() {
+        return content;
+    }
+}
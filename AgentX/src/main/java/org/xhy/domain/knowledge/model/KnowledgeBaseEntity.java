@@ -0,0 +1,70 @@
+package org.xhy.domain.knowledge.model;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import org.xhy.infrastructure.entity.BaseEntity;
+
+/**
+ * 知识库实体类
+ */
+@TableName("knowledge_bases")
+public class KnowledgeBaseEntity extends BaseEntity {
+
+    /**
+     * 知识库唯一ID
+     */
+    @TableId(value = "id", type = IdType.ASSIGN_UUID)
+    private String id;
+
+    /**
+     * 知识库名称
+     */
+    @TableField("name")
+    private String name;
+
+    /**
+     * 知识库描述
+     */
+    @TableField("description")
+    private String description;
+
+    /**
+     * 创建者用户ID
+     */
+    @TableField("user_id")
+    private String userId;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+}
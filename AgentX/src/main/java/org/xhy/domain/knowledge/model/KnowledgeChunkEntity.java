@@ -0,0 +1,127 @@
+package org.xhy.domain.knowledge.model;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import org.xhy.infrastructure.entity.BaseEntity;
+import org.xhy.infrastructure.typehandler.FloatArrayTypeHandler;
+
+/**
+ * 知识库文本块实体类
+ */
+@TableName(value = "knowledge_chunks", autoResultMap = true)
+public class KnowledgeChunkEntity extends BaseEntity {
+
+    /**
+     * 文本块唯一ID
+     */
+    @TableId(value = "id", type = IdType.ASSIGN_UUID)
+    private String id;
+
+    /**
+     * 所属知识库ID
+     */
+    @TableField("knowledge_base_id")
+    private String knowledgeBaseId;
+
+    /**
+     * 所属文档ID
+     */
+    @TableField("document_id")
+    private String documentId;
+
+    /**
+     * 文本块在文档中的序号
+     */
+    @TableField("chunk_index")
+    private Integer chunkIndex;
+
+    /**
+     * 文本块内容
+     */
+    @TableField("content")
+    private String content;
+
+    /**
+     * 文本块token数
+     */
+    @TableField("token_count")
+    private Integer tokenCount = 0;
+
+    /**
+     * 文本块内容的SHA-256
+     */
+    @TableField("content_hash")
+    private String contentHash;
+
+    /**
+     * 归一化向量
+     */
+    @TableField(value = "embedding", typeHandler = FloatArrayTypeHandler.class)
+    private float[] embedding;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getKnowledgeBaseId() {
+        return knowledgeBaseId;
+    }
+
+    public void setKnowledgeBaseId(String knowledgeBaseId) {
+        this.knowledgeBaseId = knowledgeBaseId;
+    }
+
+    public String getDocumentId() {
+        return documentId;
+    }
+
+    public void setDocumentId(String documentId) {
+        this.documentId = documentId;
+    }
+
+    public Integer getChunkIndex() {
+        return chunkIndex;
+    }
+
+    public void setChunkIndex(Integer chunkIndex) {
+        this.chunkIndex = chunkIndex;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public Integer getTokenCount() {
+        return tokenCount;
+    }
+
+    public void setTokenCount(Integer tokenCount) {
+        this.tokenCount = tokenCount;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public float[] getEmbedding() {
+        return embedding;
+    }
+
+    public void setEmbedding(float[] embedding) {
+        this.embedding = embedding;
+    }
+}
@@ -0,0 +1,134 @@
+package org.xhy.domain.knowledge.model;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import org.xhy.domain.knowledge.constant.DocumentStatus;
+import org.xhy.infrastructure.entity.BaseEntity;
+
+/**
+ * 知识库文档实体类
+ */
+@TableName("knowledge_documents")
+public class KnowledgeDocumentEntity extends BaseEntity {
+
+    /**
+     * 文档唯一ID
+     */
+    @TableId(value = "id", type = IdType.ASSIGN_UUID)
+    private String id;
+
+    /**
+     * 所属知识库ID
+     */
+    @TableField("knowledge_base_id")
+    private String knowledgeBaseId;
+
+    /**
+     * 文档标题
+     */
+    @TableField("title")
+    private String title;
+
+    /**
+     * 原文字符数
+     */
+    @TableField("content_length")
+    private Integer contentLength = 0;
+
+    /**
+     * 切分后的文本块数量
+     */
+    @TableField("chunk_count")
+    private Integer chunkCount = 0;
+
+    /**
+     * 文档状态
+     */
+    @TableField("status")
+    private Integer status = DocumentStatus.PROCESSING.getCode();
+
+    /**
+     * 处理失败原因
+     */
+    @TableField("error_message")
+    private String errorMessage;
+
+    /**
+     * 上传者用户ID
+     */
+    @TableField("user_id")
+    private String userId;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getKnowledgeBaseId() {
+        return knowledgeBaseId;
+    }
+
+    public void setKnowledgeBaseId(String knowledgeBaseId) {
+        this.knowledgeBaseId = knowledgeBaseId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public Integer getContentLength() {
+        return contentLength;
+    }
+
+    public void setContentLength(Integer contentLength) {
+        this.contentLength = contentLength;
+    }
+
+    public Integer getChunkCount() {
+        return chunkCount;
+    }
+
+    public void setChunkCount(Integer chunkCount) {
+        this.chunkCount = chunkCount;
+    }
+
+    public Integer getStatus() {
+        return status;
+    }
+
+    public void setStatus(Integer status) {
+        this.status = status;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    /**
+     * 获取状态枚举
+     */
+    public DocumentStatus getStatusEnum() {
+        return DocumentStatus.fromCode(this.status);
+    }
+}
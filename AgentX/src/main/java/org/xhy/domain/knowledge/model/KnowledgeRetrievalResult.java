@@ -0,0 +1,85 @@
+package org.xhy.domain.knowledge.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.xhy.domain.knowledge.constant.RetrievalMode;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 知识库检索结果
+ * 除命中的文本块外记录各检索路径的命中数和耗时，随LLM消息的元数据保存，便于排查检索质量和延迟
+ */
+public class KnowledgeRetrievalResult {
+
+    /**
+     * 检索方式
+     */
+    private RetrievalMode mode;
+
+    /**
+     * 命中的文本块，按相关度从高到低排列
+     */
+    private List<RetrievedChunk> chunks = new ArrayList<>();
+
+    /**
+     * 各检索路径的候选数，如 vector、fulltext
+     */
+    private Map<String, Integer> legHits = new LinkedHashMap<>();
+
+    /**
+     * 各阶段耗时（毫秒），如 embed、vector、fulltext、fetch、total
+     */
+    private Map<String, Long> latencyMillis = new LinkedHashMap<>();
+
+    public KnowledgeRetrievalResult() {
+    }
+
+    public KnowledgeRetrievalResult(RetrievalMode mode) {
+        this.mode = mode;
+    }
+
+    public static KnowledgeRetrievalResult empty() {
+        return new KnowledgeRetrievalResult();
+    }
+
+    public void recordLeg(String leg, int hits, long millis) {
+        legHits.put(leg, hits);
+        latencyMillis.put(leg, millis);
+    }
+
+    public void recordLatency(String stage, long millis) {
+        latencyMillis.put(stage, millis);
+    }
+
+    public RetrievalMode getMode() {
+        return mode;
+    }
+
+    public void setMode(RetrievalMode mode) {
+        this.mode = mode;
+    }
+
+    @JsonIgnore
+    public List<RetrievedChunk> getChunks() {
+        return chunks;
+    }
+
+    public void setChunks(List<RetrievedChunk> chunks) {
+        this.chunks = chunks;
+    }
+
+    public int getHitCount() {
+        return chunks.size();
+    }
+
+    public Map<String, Integer> getLegHits() {
+        return legHits;
+    }
+
+    public Map<String, Long> getLatencyMillis() {
+        return latencyMillis;
+    }
+}
@@ -0,0 +1,97 @@
+package org.xhy.domain.knowledge.model;
+
+/**
+ * 检索命中的文本块
+ */
+public class RetrievedChunk {
+
+    /**
+     * 文本块ID
+     */
+    private String id;
+
+    /**
+     * 所属知识库ID
+     */
+    private String knowledgeBaseId;
+
+    /**
+     * 所属文档ID
+     */
+    private String documentId;
+
+    /**
+     * 文本块内容
+     */
+    private String content;
+
+    /**
+     * 文本块token数
+     */
+    private int tokenCount;
+
+    /**
+     * 与查询的相关度：向量检索为余弦相似度，混合检索为RRF融合得分
+     */
+    private float score;
+
+    public RetrievedChunk() {
+    }
+
+    public RetrievedChunk(KnowledgeChunkEntity chunk, float score) {
+        this.id = chunk.getId();
+        this.knowledgeBaseId = chunk.getKnowledgeBaseId();
+        this.documentId = chunk.getDocumentId();
+        this.content = chunk.getContent();
+        this.tokenCount = chunk.getTokenCount() == null ? 0 : chunk.getTokenCount();
+        this.score = score;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getKnowledgeBaseId() {
+        return knowledgeBaseId;
+    }
+
+    public void setKnowledgeBaseId(String knowledgeBaseId) {
+        this.knowledgeBaseId = knowledgeBaseId;
+    }
+
+    public String getDocumentId() {
+        return documentId;
+    }
+
+    public void setDocumentId(String documentId) {
+        this.documentId = documentId;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public int getTokenCount() {
+        return tokenCount;
+    }
+
+    public void setTokenCount(int tokenCount) {
+        this.tokenCount = tokenCount;
+    }
+
+    public float getScore() {
+        return score;
+    }
+
+    public void setScore(float score) {
+        this.score = score;
+    }
+}
@@ -0,0 +1,12 @@
+package org.xhy.domain.knowledge.repository;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.xhy.domain.knowledge.model.KnowledgeBaseEntity;
+import org.xhy.infrastructure.repository.MyBatisPlusExtRepository;
+
+/**
+ * 知识库仓库接口
+ */
+@Mapper
+public interface KnowledgeBaseRepository extends MyBatisPlusExtRepository<KnowledgeBaseEntity> {
+}
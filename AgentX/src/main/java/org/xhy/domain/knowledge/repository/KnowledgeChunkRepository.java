@@ -0,0 +1,37 @@
+package org.xhy.domain.knowledge.repository;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.xhy.domain.knowledge.model.FullTextHit;
+import org.xhy.domain.knowledge.model.KnowledgeChunkEntity;
+import org.xhy.infrastructure.repository.MyBatisPlusExtRepository;
+
+import java.util.List;
+
+/**
+ * 知识库文本块仓库接口
+ */
+@Mapper
+public interface KnowledgeChunkRepository extends MyBatisPlusExtRepository<KnowledgeChunkEntity> {
+
+    /**
+     * 全文检索文本块
+     * 查询词之间按“或”匹配，按ts_rank排序；用户消息通常是一句话，按“与”匹配几乎不会命中
+     *
+     * @param knowledgeBaseIds 知识库ID列表
+     * @param query            查询文本
+     * @param limit            返回数量
+     * @return 按相关度从高到低排列的结果
+     */
+    @Select("<script>" +
+            "SELECT c.id, ts_rank(c.content_tsv, q) AS score " +
+            "FROM knowledge_chunks c, " +
+            "to_tsquery('simple', replace(plainto_tsquery('simple', #{query})::text, '&amp;', '|')) AS q " +
+            "WHERE c.content_tsv @@ q AND c.deleted_at IS NULL AND c.knowledge_base_id IN " +
+            "<foreach collection='knowledgeBaseIds' item='id' open='(' separator=',' close=')'>#{id}</foreach> " +
+            "ORDER BY score DESC LIMIT #{limit}" +
+            "</script>")
+    List<FullTextHit> searchFullText(@Param("knowledgeBaseIds") List<String> knowledgeBaseIds,
+                                     @Param("query") String query, @Param("limit") int limit);
+}
@@ -0,0 +1,12 @@
+package org.xhy.domain.knowledge.repository;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.xhy.domain.knowledge.model.KnowledgeDocumentEntity;
+import org.xhy.infrastructure.repository.MyBatisPlusExtRepository;
+
+/**
+ * 知识库文档仓库接口
+ */
+@Mapper
+public interface KnowledgeDocumentRepository extends MyBatisPlusExtRepository<KnowledgeDocumentEntity> {
+}
@@ -0,0 +1,35 @@
+package org.xhy.domain.knowledge.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.regex.Pattern;
+
+/**
+ * 文档解析器
+ * 目前只接收纯文本和Markdown：统一换行符，去掉不可见控制字符，压缩行内空白和多余空行，
+ * 保证切分和内容哈希不受排版差异影响
+ */
+@Component
+public class DocumentParser {
+
+    private static final Pattern CONTROL_CHARS = Pattern.compile("[\\p{Cc}&&[^\\n\\t]]");
+    private static final Pattern INLINE_SPACES = Pattern.compile("[ \\t\\u00A0\\u3000]+");
+    private static final Pattern BLANK_LINES = Pattern.compile("\\n\\s*\\n(\\s*\\n)+");
+
+    /**
+     * 解析文档正文
+     *
+     * @param content 原文
+     * @return 规整后的文本
+     */
+    public String parse(String content) {
+        if (content == null) {
+            return "";
+        }
+        String text = content.replace("\r\n", "\n").replace('\r', '\n');
+        text = CONTROL_CHARS.matcher(text).replaceAll("");
+        text = INLINE_SPACES.matcher(text).replaceAll(" ");
+        text = BLANK_LINES.matcher(text).replaceAll("\n\n");
+        return text.strip();
+    }
+}
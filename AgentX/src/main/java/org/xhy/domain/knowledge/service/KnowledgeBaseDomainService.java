@@ -0,0 +1,262 @@
+package org.xhy.domain.knowledge.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.xhy.domain.knowledge.constant.DocumentStatus;
+import org.xhy.domain.knowledge.model.FullTextHit;
+import org.xhy.domain.knowledge.model.KnowledgeBaseEntity;
+import org.xhy.domain.knowledge.model.KnowledgeChunkEntity;
+import org.xhy.domain.knowledge.model.KnowledgeDocumentEntity;
+import org.xhy.domain.knowledge.repository.KnowledgeBaseRepository;
+import org.xhy.domain.knowledge.repository.KnowledgeChunkRepository;
+import org.xhy.domain.knowledge.repository.KnowledgeDocumentRepository;
+import org.xhy.infrastructure.exception.BusinessException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 知识库领域服务
+ */
+@Service
+public class KnowledgeBaseDomainService {
+
+    private final KnowledgeBaseRepository knowledgeBaseRepository;
+    private final KnowledgeDocumentRepository documentRepository;
+    private final KnowledgeChunkRepository chunkRepository;
+    private final KnowledgeIndexManager indexManager;
+
+    public KnowledgeBaseDomainService(KnowledgeBaseRepository knowledgeBaseRepository,
+                                      KnowledgeDocumentRepository documentRepository,
+                                      KnowledgeChunkRepository chunkRepository,
+                                      KnowledgeIndexManager indexManager) {
+        this.knowledgeBaseRepository = knowledgeBaseRepository;
+        this.documentRepository = documentRepository;
+        this.chunkRepository = chunkRepository;
+        this.indexManager = indexManager;
+    }
+
+    /**
+     * 创建知识库
+     */
+    public KnowledgeBaseEntity createKnowledgeBase(KnowledgeBaseEntity knowledgeBase) {
+        knowledgeBaseRepository.checkInsert(knowledgeBase);
+        return knowledgeBase;
+    }
+
+    /**
+     * 获取用户的知识库列表
+     */
+    public List<KnowledgeBaseEntity> getUserKnowledgeBases(String userId) {
+        LambdaQueryWrapper<KnowledgeBaseEntity> wrapper = Wrappers.<KnowledgeBaseEntity>lambdaQuery()
+                .eq(KnowledgeBaseEntity::getUserId, userId)
+                .orderByDesc(KnowledgeBaseEntity::getUpdatedAt);
+        return knowledgeBaseRepository.selectList(wrapper);
+    }
+
+    /**
+     * 获取用户的知识库，不存在时抛出异常
+     */
+    public KnowledgeBaseEntity getKnowledgeBase(String knowledgeBaseId, String userId) {
+        KnowledgeBaseEntity knowledgeBase = knowledgeBaseRepository.selectOne(Wrappers.<KnowledgeBaseEntity>lambdaQuery()
+                .eq(KnowledgeBaseEntity::getId, knowledgeBaseId)
+                .eq(KnowledgeBaseEntity::getUserId, userId));
+        if (knowledgeBase == null) {
+            throw new BusinessException("知识库不存在");
+        }
+        return knowledgeBase;
+    }
+
+    /**
+     * 筛选出属于用户的知识库ID，保持原有顺序
+     *
+     * @param knowledgeBaseIds 知识库ID列表
+     * @param userId           用户ID
+     * @return 属于该用户的知识库ID
+     */
+    public List<String> filterOwnedIds(Collection<String> knowledgeBaseIds, String userId) {
+        if (knowledgeBaseIds == null || knowledgeBaseIds.isEmpty() || userId == null) {
+            return new ArrayList<>();
+        }
+        Set<String> owned = knowledgeBaseRepository.selectList(Wrappers.<KnowledgeBaseEntity>lambdaQuery()
+                        .select(KnowledgeBaseEntity::getId)
+                        .in(KnowledgeBaseEntity::getId, knowledgeBaseIds)
+                        .eq(KnowledgeBaseEntity::getUserId, userId))
+                .stream().map(KnowledgeBaseEntity::getId).collect(Collectors.toSet());
+        return knowledgeBaseIds.stream().filter(owned::contains).distinct().collect(Collectors.toList());
+    }
+
+    /**
+     * 校验知识库都属于用户，存在其他用户的或不存在的知识库时抛出异常
+     *
+     * @param knowledgeBaseIds 知识库ID列表
+     * @param userId           用户ID
+     */
+    public void checkOwnership(Collection<String> knowledgeBaseIds, String userId) {
+        if (knowledgeBaseIds == null || knowledgeBaseIds.isEmpty()) {
+            return;
+        }
+        List<String> owned = filterOwnedIds(knowledgeBaseIds, userId);
+        if (owned.size() < new HashSet<>(knowledgeBaseIds).size()) {
+            throw new BusinessException("知识库不存在");
+        }
+    }
+
+    /**
+     * 删除知识库及其文档和文本块
+     */
+    @Transactional
+    public void deleteKnowledgeBase(String knowledgeBaseId, String userId) {
+        getKnowledgeBase(knowledgeBaseId, userId);
+        knowledgeBaseRepository.deleteById(knowledgeBaseId);
+        documentRepository.delete(Wrappers.<KnowledgeDocumentEntity>lambdaQuery()
+                .eq(KnowledgeDocumentEntity::getKnowledgeBaseId, knowledgeBaseId));
+        chunkRepository.delete(Wrappers.<KnowledgeChunkEntity>lambdaQuery()
+                .eq(KnowledgeChunkEntity::getKnowledgeBaseId, knowledgeBaseId));
+        indexManager.drop(knowledgeBaseId);
+    }
+
+    /**
+     * 创建处理中的文档记录
+     */
+    public KnowledgeDocumentEntity createDocument(KnowledgeDocumentEntity document) {
+        document.setStatus(DocumentStatus.PROCESSING.getCode());
+        documentRepository.checkInsert(document);
+        return document;
+    }
+
+    /**
+     * 保存文档的文本块并加入索引，文档状态置为已完成
+     *
+     * @param document 文档
+     * @param chunks   文本块，向量需已归一化
+     */
+    @Transactional
+    public void saveChunks(KnowledgeDocumentEntity document, List<KnowledgeChunkEntity> chunks) {
+        // 写库前打开索引，打开时按数据库条数校验，写库后再打开会误判为不一致而重建
+        indexManager.getIndex(document.getKnowledgeBaseId());
+        if (!chunks.isEmpty()) {
+            chunkRepository.insert(chunks);
+        }
+        document.setChunkCount(chunks.size());
+        document.setStatus(DocumentStatus.COMPLETED.getCode());
+        documentRepository.checkedUpdateById(document);
+        indexManager.addChunks(document.getKnowledgeBaseId(), chunks);
+    }
+
+    /**
+     * 保存文档的文本块，并删除同一知识库中同名的旧文档，用于重新上传修改后的文档
+     *
+     * @param document 文档
+     * @param chunks   文本块，向量需已归一化
+     */
+    @Transactional
+    public void saveChunksReplacing(KnowledgeDocumentEntity document, List<KnowledgeChunkEntity> chunks) {
+        saveChunks(document, chunks);
+        List<KnowledgeDocumentEntity> previous = documentRepository.selectList(
+                Wrappers.<KnowledgeDocumentEntity>lambdaQuery()
+                        .select(KnowledgeDocumentEntity::getId)
+                        .eq(KnowledgeDocumentEntity::getKnowledgeBaseId, document.getKnowledgeBaseId())
+                        .eq(KnowledgeDocumentEntity::getTitle, document.getTitle())
+                        .ne(KnowledgeDocumentEntity::getId, document.getId()));
+        for (KnowledgeDocumentEntity old : previous) {
+            deleteDocument(document.getKnowledgeBaseId(), old.getId());
+        }
+    }
+
+    /**
+     * 按内容哈希查找知识库中已有文本块的向量
+     *
+     * @param knowledgeBaseId 知识库ID
+     * @param contentHashes   内容哈希
+     * @return 哈希到向量的映射，未命中的哈希不在其中
+     */
+    public Map<String, float[]> findEmbeddingsByHash(String knowledgeBaseId, Collection<String> contentHashes) {
+        Map<String, float[]> embeddings = new HashMap<>();
+        if (contentHashes.isEmpty()) {
+            return embeddings;
+        }
+        List<KnowledgeChunkEntity> chunks = chunkRepository.selectList(Wrappers.<KnowledgeChunkEntity>lambdaQuery()
+                .select(KnowledgeChunkEntity::getContentHash, KnowledgeChunkEntity::getEmbedding)
+                .eq(KnowledgeChunkEntity::getKnowledgeBaseId, knowledgeBaseId)
+                .in(KnowledgeChunkEntity::getContentHash, contentHashes));
+        for (KnowledgeChunkEntity chunk : chunks) {
+            if (chunk.getEmbedding() != null) {
+                embeddings.putIfAbsent(chunk.getContentHash(), chunk.getEmbedding());
+            }
+        }
+        return embeddings;
+    }
+
+    /**
+     * 文档处理失败
+     */
+    public void markDocumentFailed(KnowledgeDocumentEntity document, String errorMessage) {
+        document.setStatus(DocumentStatus.FAILED.getCode());
+        document.setErrorMessage(errorMessage);
+        documentRepository.updateById(document);
+    }
+
+    /**
+     * 获取知识库下的文档列表
+     */
+    public List<KnowledgeDocumentEntity> getDocuments(String knowledgeBaseId) {
+        return documentRepository.selectList(Wrappers.<KnowledgeDocumentEntity>lambdaQuery()
+                .eq(KnowledgeDocumentEntity::getKnowledgeBaseId, knowledgeBaseId)
+                .orderByDesc(KnowledgeDocumentEntity::getCreatedAt));
+    }
+
+    /**
+     * 删除文档及其文本块
+     */
+    @Transactional
+    public void deleteDocument(String knowledgeBaseId, String documentId) {
+        indexManager.getIndex(knowledgeBaseId);
+        int affected = documentRepository.delete(Wrappers.<KnowledgeDocumentEntity>lambdaQuery()
+                .eq(KnowledgeDocumentEntity::getId, documentId)
+                .eq(KnowledgeDocumentEntity::getKnowledgeBaseId, knowledgeBaseId));
+        if (affected == 0) {
+            throw new BusinessException("文档不存在");
+        }
+        List<String> chunkIds = chunkRepository.selectList(Wrappers.<KnowledgeChunkEntity>lambdaQuery()
+                        .select(KnowledgeChunkEntity::getId)
+                        .eq(KnowledgeChunkEntity::getDocumentId, documentId))
+                .stream().map(KnowledgeChunkEntity::getId).collect(Collectors.toList());
+        if (chunkIds.isEmpty()) {
+            return;
+        }
+        chunkRepository.deleteByIds(chunkIds);
+        indexManager.removeChunks(knowledgeBaseId, chunkIds);
+    }
+
+    /**
+     * 按ID批量获取文本块内容，不读取向量
+     */
+    public List<KnowledgeChunkEntity> getChunkContents(List<String> chunkIds) {
+        return chunkRepository.selectList(Wrappers.<KnowledgeChunkEntity>lambdaQuery()
+                .select(KnowledgeChunkEntity::getId, KnowledgeChunkEntity::getKnowledgeBaseId,
+                        KnowledgeChunkEntity::getDocumentId, KnowledgeChunkEntity::getContent,
+                        KnowledgeChunkEntity::getTokenCount)
+                .in(KnowledgeChunkEntity::getId, chunkIds));
+    }
+
+    /**
+     * 在指定知识库中全文检索文本块
+     *
+     * @param knowledgeBaseIds 知识库ID列表
+     * @param query            查询文本
+     * @param limit            返回数量
+     * @return 按相关度从高到低排列的文本块ID
+     */
+    public List<FullTextHit> searchFullText(List<String> knowledgeBaseIds, String query, int limit) {
+        return chunkRepository.searchFullText(knowledgeBaseIds, query, limit);
+    }
+}
@@ -0,0 +1,215 @@
+package org.xhy.domain.knowledge.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.xhy.domain.knowledge.model.KnowledgeChunkEntity;
+import org.xhy.domain.knowledge.repository.KnowledgeChunkRepository;
+import org.xhy.infrastructure.config.KnowledgeProperties;
+import org.xhy.infrastructure.embedding.LocalEmbeddingService;
+import org.xhy.infrastructure.vector.VectorIndex;
+import org.xhy.infrastructure.vector.VectorIndexRegistry;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 知识库向量索引管理
+ * 每个知识库对应一个HNSW索引，首次使用时在后台线程打开本地索引文件；索引条数与数据库不一致（首次使用或异常退出）时
+ * 从数据库分页重建，之后随文本块的增删同步维护。对话检索不等待加载，索引就绪前只返回全文检索的结果
+ */
+@Component
+public class KnowledgeIndexManager implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(KnowledgeIndexManager.class);
+
+    /**
+     * 加载索引时每页读取的文本块数
+     */
+    private static final int LOAD_PAGE_SIZE = 2000;
+
+    /**
+     * 加载索引的线程数
+     */
+    private static final int LOADER_THREADS = 2;
+
+    private static final String INDEX_NAME_PREFIX = "knowledge/";
+
+    private final KnowledgeChunkRepository chunkRepository;
+    private final KnowledgeProperties properties;
+    private final VectorIndexRegistry indexRegistry;
+    private final Map<String, CompletableFuture<VectorIndex>> indexes = new ConcurrentHashMap<>();
+    private final ExecutorService loader;
+
+    public KnowledgeIndexManager(KnowledgeChunkRepository chunkRepository, KnowledgeProperties properties,
+                                 VectorIndexRegistry indexRegistry) {
+        this.chunkRepository = chunkRepository;
+        this.properties = properties;
+        this.indexRegistry = indexRegistry;
+        this.loader = Executors.newFixedThreadPool(LOADER_THREADS, r -> {
+            Thread thread = new Thread(r, "knowledge-index-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 获取知识库索引，未加载时等待后台加载完成；用于入库等不在对话链路上的调用
+     *
+     * @param knowledgeBaseId 知识库ID
+     * @return 索引
+     */
+    public VectorIndex getIndex(String knowledgeBaseId) {
+        try {
+            return loading(knowledgeBaseId).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    /**
+     * 获取已加载完成的知识库索引，未加载时在后台开始加载并返回null，调用方不等待
+     *
+     * @param knowledgeBaseId 知识库ID
+     * @return 索引，尚未就绪时为null
+     */
+    public VectorIndex getIndexIfReady(String knowledgeBaseId) {
+        CompletableFuture<VectorIndex> future = loading(knowledgeBaseId);
+        return future.isDone() && !future.isCompletedExceptionally() ? future.join() : null;
+    }
+
+    /**
+     * 把新入库的文本块加入索引，索引尚未打开时跳过，打开时会因条数不一致而重建；
+     * 索引正在加载时等加载完成后再加入，id已存在时覆盖，与加载读到的同一文本块不会重复；
+     * 调用方应在写库前先打开索引，避免触发重建
+     *
+     * @param knowledgeBaseId 知识库ID
+     * @param chunks          文本块，向量需已归一化
+     */
+    public void addChunks(String knowledgeBaseId, List<KnowledgeChunkEntity> chunks) {
+        CompletableFuture<VectorIndex> future = indexes.get(knowledgeBaseId);
+        if (future == null) {
+            return;
+        }
+        future.thenAccept(index -> {
+            for (KnowledgeChunkEntity chunk : chunks) {
+                index.add(chunk.getId(), chunk.getEmbedding());
+            }
+        });
+    }
+
+    /**
+     * 从索引中删除文本块
+     *
+     * @param knowledgeBaseId 知识库ID
+     * @param chunkIds        文本块ID
+     */
+    public void removeChunks(String knowledgeBaseId, List<String> chunkIds) {
+        CompletableFuture<VectorIndex> future = indexes.get(knowledgeBaseId);
+        if (future == null) {
+            return;
+        }
+        future.thenAccept(index -> chunkIds.forEach(index::remove));
+    }
+
+    /**
+     * 删除知识库索引
+     *
+     * @param knowledgeBaseId 知识库ID
+     */
+    public void drop(String knowledgeBaseId) {
+        CompletableFuture<VectorIndex> future = indexes.remove(knowledgeBaseId);
+        if (future != null) {
+            // 等待进行中的加载结束，避免加载线程在删除后又写出索引文件
+            future.exceptionally(e -> null).join();
+        }
+        indexRegistry.drop(INDEX_NAME_PREFIX + knowledgeBaseId);
+    }
+
+    @Override
+    public void destroy() {
+        loader.shutdownNow();
+    }
+
+    /**
+     * 获取或开始加载索引，加载在CHM的compute之外的后台线程中进行；加载失败时移除，下次使用时重试
+     */
+    private CompletableFuture<VectorIndex> loading(String knowledgeBaseId) {
+        CompletableFuture<VectorIndex> future = indexes.get(knowledgeBaseId);
+        if (future != null) {
+            return future;
+        }
+        CompletableFuture<VectorIndex> created = new CompletableFuture<>();
+        future = indexes.putIfAbsent(knowledgeBaseId, created);
+        if (future != null) {
+            return future;
+        }
+        loader.execute(() -> {
+            try {
+                created.complete(load(knowledgeBaseId));
+            } catch (Throwable e) {
+                logger.error("知识库索引加载失败: knowledgeBaseId={}", knowledgeBaseId, e);
+                indexes.remove(knowledgeBaseId, created);
+                created.completeExceptionally(e);
+            }
+        });
+        return created;
+    }
+
+    private VectorIndex load(String knowledgeBaseId) {
+        long start = System.currentTimeMillis();
+        String name = INDEX_NAME_PREFIX + knowledgeBaseId;
+        VectorIndex index = open(name);
+        long expected = chunkRepository.selectCount(Wrappers.<KnowledgeChunkEntity>lambdaQuery()
+                .eq(KnowledgeChunkEntity::getKnowledgeBaseId, knowledgeBaseId));
+        if (index.size() == expected) {
+            logger.info("知识库索引已打开: knowledgeBaseId={}, size={}, cost={}ms",
+                    knowledgeBaseId, index.size(), System.currentTimeMillis() - start);
+            return index;
+        }
+        if (index.size() > 0) {
+            logger.warn("知识库索引与数据库不一致，重建: knowledgeBaseId={}, index={}, db={}",
+                    knowledgeBaseId, index.size(), expected);
+            indexRegistry.drop(name);
+            index = open(name);
+        }
+
+        // 按id做键集分页，只读取id和向量，避免一次性加载全部文本内容
+        String lastId = null;
+        while (true) {
+            LambdaQueryWrapper<KnowledgeChunkEntity> wrapper = Wrappers.<KnowledgeChunkEntity>lambdaQuery()
+                    .select(KnowledgeChunkEntity::getId, KnowledgeChunkEntity::getEmbedding)
+                    .eq(KnowledgeChunkEntity::getKnowledgeBaseId, knowledgeBaseId)
+                    .gt(lastId != null, KnowledgeChunkEntity::getId, lastId)
+                    .orderByAsc(KnowledgeChunkEntity::getId)
+                    .last("LIMIT " + LOAD_PAGE_SIZE);
+            List<KnowledgeChunkEntity> page = chunkRepository.selectList(wrapper);
+            for (KnowledgeChunkEntity chunk : page) {
+                if (chunk.getEmbedding() != null) {
+                    index.add(chunk.getId(), chunk.getEmbedding());
+                }
+            }
+            if (page.size() < LOAD_PAGE_SIZE) {
+                break;
+            }
+            lastId = page.get(page.size() - 1).getId();
+        }
+
+        logger.info("知识库索引重建完成: knowledgeBaseId={}, size={}, cost={}ms",
+                knowledgeBaseId, index.size(), System.currentTimeMillis() - start);
+        return index;
+    }
+
+    private VectorIndex open(String name) {
+        return indexRegistry.open(name, LocalEmbeddingService.DIMENSION, properties.getHnswM(),
+                properties.getEfConstruction());
+    }
+}
@@ -0,0 +1,367 @@
+package org.xhy.domain.knowledge.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Service;
+import org.xhy.domain.knowledge.model.IngestionJob;
+import org.xhy.domain.knowledge.model.IngestionSource;
+import org.xhy.domain.knowledge.model.KnowledgeChunkEntity;
+import org.xhy.domain.knowledge.model.KnowledgeDocumentEntity;
+import org.xhy.domain.token.service.TokenEstimator;
+import org.xhy.infrastructure.config.KnowledgeProperties;
+import org.xhy.infrastructure.embedding.LocalEmbeddingService;
+import org.xhy.infrastructure.embedding.VectorMath;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 知识库文档导入流水线
+ * 解析切分 → 内容哈希查重 → 向量化 → 入库索引，四个阶段之间用有界队列连接：
+ * 下游处理不过来时上游阻塞，内存中积压的文本块数量有上限，大批量导入不会耗尽内存。
+ * 向量化阶段把每批文本块用fork-join拆分到全部CPU核上并行推理；知识库中已有相同内容的文本块直接复用向量，
+ * 重新上传修改过的文档时只有变化的部分需要重新向量化
+ */
+@Service
+public class KnowledgeIngestionPipeline implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(KnowledgeIngestionPipeline.class);
+
+    private final KnowledgeBaseDomainService knowledgeBaseDomainService;
+    private final DocumentParser documentParser;
+    private final TextChunker textChunker;
+    private final TokenEstimator tokenEstimator;
+    private final LocalEmbeddingService embeddingService;
+    private final KnowledgeProperties properties;
+    private final KnowledgeProperties.Ingestion config;
+
+    private final ExecutorService parseExecutor;
+    private final BlockingQueue<ChunkBatch> hashQueue;
+    private final BlockingQueue<ChunkBatch> embedQueue;
+    private final BlockingQueue<ChunkBatch> indexQueue;
+    private final ForkJoinPool embedPool;
+    private final List<Thread> stageThreads = new ArrayList<>();
+    private final Map<String, IngestionJob> jobs = new ConcurrentHashMap<>();
+
+    public KnowledgeIngestionPipeline(KnowledgeBaseDomainService knowledgeBaseDomainService,
+                                      DocumentParser documentParser, TextChunker textChunker,
+                                      TokenEstimator tokenEstimator, LocalEmbeddingService embeddingService,
+                                      KnowledgeProperties properties) {
+        this.knowledgeBaseDomainService = knowledgeBaseDomainService;
+        this.documentParser = documentParser;
+        this.textChunker = textChunker;
+        this.tokenEstimator = tokenEstimator;
+        this.embeddingService = embeddingService;
+        this.properties = properties;
+        this.config = properties.getIngestion();
+
+        int capacity = Math.max(1, config.getQueueCapacity());
+        this.hashQueue = new ArrayBlockingQueue<>(capacity);
+        this.embedQueue = new ArrayBlockingQueue<>(capacity);
+        this.indexQueue = new ArrayBlockingQueue<>(capacity);
+
+        AtomicInteger counter = new AtomicInteger();
+        this.parseExecutor = Executors.newFixedThreadPool(Math.max(1, config.getParseThreads()), r -> {
+            Thread thread = new Thread(r, "knowledge-ingest-parse-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.embedPool = new ForkJoinPool(Math.max(1, config.getEmbedParallelism()));
+
+        startStage("knowledge-ingest-hash", hashQueue, this::hashStage);
+        startStage("knowledge-ingest-embed", embedQueue, this::embedStage);
+        startStage("knowledge-ingest-index", indexQueue, this::indexStage);
+    }
+
+    /**
+     * 提交导入任务，立即返回，进度通过任务对象查询
+     *
+     * @param knowledgeBaseId 知识库ID
+     * @param userId          用户ID
+     * @param sources         文档原文
+     * @return 导入任务
+     */
+    public IngestionJob submit(String knowledgeBaseId, String userId, List<IngestionSource> sources) {
+        evictExpiredJobs();
+        IngestionJob job = new IngestionJob(knowledgeBaseId, userId, sources.size());
+        jobs.put(job.getId(), job);
+        for (IngestionSource source : sources) {
+            parseExecutor.execute(() -> parse(job, source));
+        }
+        return job;
+    }
+
+    /**
+     * 获取导入任务，不存在或已过期时返回null
+     */
+    public IngestionJob getJob(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    /**
+     * 阶段一：创建文档记录，解析并切分，按批送入哈希队列
+     * 队列满时阻塞，解析速度受下游向量化速度约束
+     */
+    private void parse(IngestionJob job, IngestionSource source) {
+        DocumentWork work = null;
+        try {
+            KnowledgeDocumentEntity document = new KnowledgeDocumentEntity();
+            document.setKnowledgeBaseId(job.getKnowledgeBaseId());
+            document.setTitle(source.getTitle());
+            document.setContentLength(source.getContent() == null ? 0 : source.getContent().length());
+            document.setUserId(job.getUserId());
+            knowledgeBaseDomainService.createDocument(document);
+            job.addDocument(document);
+
+            String text = documentParser.parse(source.getContent());
+            List<String> texts = textChunker.chunk(text, properties.getChunkTokens(), properties.getChunkOverlap());
+            work = new DocumentWork(job, document, texts.size());
+            job.addChunks(texts.size());
+
+            if (texts.isEmpty()) {
+                indexQueue.put(new ChunkBatch(work, 0, Collections.emptyList()));
+                return;
+            }
+            int batchSize = Math.max(1, config.getBatchSize());
+            for (int start = 0; start < texts.size() && !work.failed; start += batchSize) {
+                List<String> batchTexts = new ArrayList<>(texts.subList(start, Math.min(texts.size(), start + batchSize)));
+                hashQueue.put(new ChunkBatch(work, start, batchTexts));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            if (work != null) {
+                fail(work, e);
+            } else {
+                logger.error("创建导入文档失败: title={}", source.getTitle(), e);
+                job.documentFailed();
+            }
+        }
+    }
+
+    /**
+     * 阶段二：计算内容哈希，知识库中已有相同内容的文本块直接复用向量
+     */
+    private void hashStage(ChunkBatch batch) throws InterruptedException {
+        int size = batch.texts.size();
+        for (int i = 0; i < size; i++) {
+            batch.hashes[i] = sha256(batch.texts.get(i));
+        }
+        Map<String, float[]> cached = knowledgeBaseDomainService.findEmbeddingsByHash(
+                batch.work.job.getKnowledgeBaseId(), new HashSet<>(Arrays.asList(batch.hashes)));
+        int reused = 0;
+        for (int i = 0; i < size; i++) {
+            float[] vector = cached.get(batch.hashes[i]);
+            if (vector != null) {
+                batch.vectors[i] = vector;
+                reused++;
+            }
+        }
+        batch.work.job.addReused(reused);
+        embedQueue.put(batch);
+    }
+
+    /**
+     * 阶段三：未命中缓存的文本块按内容去重后，拆分到fork-join线程池并行推理
+     */
+    private void embedStage(ChunkBatch batch) throws InterruptedException {
+        Map<String, List<Integer>> pending = new LinkedHashMap<>();
+        for (int i = 0; i < batch.texts.size(); i++) {
+            if (batch.vectors[i] == null) {
+                pending.computeIfAbsent(batch.hashes[i], key -> new ArrayList<>()).add(i);
+            }
+        }
+        if (!pending.isEmpty()) {
+            List<String> texts = new ArrayList<>(pending.size());
+            for (List<Integer> indexes : pending.values()) {
+                texts.add(batch.texts.get(indexes.get(0)));
+            }
+            float[][] vectors = new float[texts.size()][];
+            embedPool.invoke(new EmbedTask(texts, vectors, 0, texts.size()));
+
+            int next = 0;
+            int embedded = 0;
+            for (List<Integer> indexes : pending.values()) {
+                for (int index : indexes) {
+                    batch.vectors[index] = vectors[next];
+                    embedded++;
+                }
+                next++;
+            }
+            batch.work.job.addEmbedded(embedded);
+        }
+        indexQueue.put(batch);
+    }
+
+    /**
+     * 阶段四：收齐一个文档的全部文本块后入库并加入索引，同名旧文档随后删除
+     */
+    private void indexStage(ChunkBatch batch) {
+        DocumentWork work = batch.work;
+        for (int i = 0; i < batch.texts.size(); i++) {
+            KnowledgeChunkEntity chunk = new KnowledgeChunkEntity();
+            chunk.setKnowledgeBaseId(work.document.getKnowledgeBaseId());
+            chunk.setDocumentId(work.document.getId());
+            chunk.setChunkIndex(batch.start + i);
+            chunk.setContent(batch.texts.get(i));
+            chunk.setContentHash(batch.hashes[i]);
+            chunk.setTokenCount(tokenEstimator.estimate(batch.texts.get(i)));
+            chunk.setEmbedding(batch.vectors[i]);
+            work.chunks.add(chunk);
+        }
+        if (work.chunks.size() < work.totalChunks) {
+            return;
+        }
+        knowledgeBaseDomainService.saveChunksReplacing(work.document, work.chunks);
+        work.job.addIndexed(work.chunks.size());
+        work.chunks = null;
+        work.job.documentCompleted();
+        logger.info("文档导入完成: documentId={}, chunks={}", work.document.getId(), work.totalChunks);
+    }
+
+    /**
+     * 启动阶段线程，单批处理失败时只让该批所属文档失败，不影响其他文档
+     */
+    private void startStage(String name, BlockingQueue<ChunkBatch> queue, StageHandler handler) {
+        Thread thread = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                ChunkBatch batch;
+                try {
+                    batch = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                if (batch.work.failed) {
+                    continue;
+                }
+                try {
+                    handler.handle(batch);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (RuntimeException e) {
+                    fail(batch.work, e);
+                }
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+        stageThreads.add(thread);
+    }
+
+    private void fail(DocumentWork work, RuntimeException e) {
+        synchronized (work) {
+            if (work.failed) {
+                return;
+            }
+            work.failed = true;
+        }
+        logger.error("文档导入失败: documentId={}", work.document.getId(), e);
+        try {
+            knowledgeBaseDomainService.markDocumentFailed(work.document, e.getMessage());
+        } catch (RuntimeException ex) {
+            logger.error("更新文档状态失败: documentId={}", work.document.getId(), ex);
+        }
+        work.job.documentFailed();
+    }
+
+    private void evictExpiredJobs() {
+        LocalDateTime threshold = LocalDateTime.now().minus(config.getJobRetention());
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(threshold));
+    }
+
+    private static String sha256(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        parseExecutor.shutdownNow();
+        stageThreads.forEach(Thread::interrupt);
+        embedPool.shutdownNow();
+    }
+
+    @FunctionalInterface
+    private interface StageHandler {
+        void handle(ChunkBatch batch) throws InterruptedException;
+    }
+
+    /**
+     * 向量化任务：文本块数超过阈值时对半拆分，叶子任务在fork-join工作线程中直接推理
+     */
+    private class EmbedTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> texts;
+        private final float[][] vectors;
+        private final int from;
+        private final int to;
+
+        private EmbedTask(List<String> texts, float[][] vectors, int from, int to) {
+            this.texts = texts;
+            this.vectors = vectors;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= Math.max(1, config.getForkThreshold())) {
+                for (int i = from; i < to; i++) {
+                    vectors[i] = VectorMath.normalize(embeddingService.embedInCallerThread(texts.get(i)));
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new EmbedTask(texts, vectors, from, mid), new EmbedTask(texts, vectors, mid, to));
+        }
+    }
+
+    /**
+     * 一个文档在流水线中的处理状态，只由入库阶段线程累积文本块
+     */
+    private static class DocumentWork {
+        private final IngestionJob job;
+        private final KnowledgeDocumentEntity document;
+        private final int totalChunks;
+        private List<KnowledgeChunkEntity> chunks;
+        private volatile boolean failed;
+
+        private DocumentWork(IngestionJob job, KnowledgeDocumentEntity document, int totalChunks) {
+            this.job = job;
+            this.document = document;
+            this.totalChunks = totalChunks;
+            this.chunks = new ArrayList<>(totalChunks);
+        }
+    }
+
+    /**
+     * 阶段之间传递的一批文本块
+     */
+    private static class ChunkBatch {
+        private final DocumentWork work;
+        private final int start;
+        private final List<String> texts;
+        private final String[] hashes;
+        private final float[][] vectors;
+
+        private ChunkBatch(DocumentWork work, int start, List<String> texts) {
+            this.work = work;
+            this.start = start;
+            this.texts = texts;
+            this.hashes = new String[texts.size()];
+            this.vectors = new float[texts.size()][];
+        }
+    }
+}
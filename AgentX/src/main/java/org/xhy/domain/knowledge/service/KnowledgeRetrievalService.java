@@ -0,0 +1,217 @@
+package org.xhy.domain.knowledge.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Service;
+import org.xhy.domain.knowledge.constant.RetrievalMode;
+import org.xhy.domain.knowledge.model.FullTextHit;
+import org.xhy.domain.knowledge.model.KnowledgeChunkEntity;
+import org.xhy.domain.knowledge.model.KnowledgeRetrievalResult;
+import org.xhy.domain.knowledge.model.RetrievedChunk;
+import org.xhy.infrastructure.config.KnowledgeProperties;
+import org.xhy.infrastructure.embedding.LocalEmbeddingService;
+import org.xhy.infrastructure.embedding.VectorMath;
+import org.xhy.infrastructure.vector.VectorIndex;
+import org.xhy.infrastructure.vector.VectorSearchHit;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 知识库检索服务
+ * 向量检索：查询文本向量化后在各知识库的HNSW索引中检索。
+ * 混合检索：全文检索在独立线程中与向量检索并行执行，两路结果按倒数排名融合（RRF），
+ * 弥补向量检索对错误码、SKU等精确标识符不敏感的问题；任一路失败时退化为另一路的结果
+ */
+@Service
+public class KnowledgeRetrievalService implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(KnowledgeRetrievalService.class);
+
+    /**
+     * 全文检索线程数
+     */
+    private static final int FULL_TEXT_THREADS = 4;
+
+    private final LocalEmbeddingService embeddingService;
+    private final KnowledgeIndexManager indexManager;
+    private final KnowledgeBaseDomainService knowledgeBaseDomainService;
+    private final KnowledgeProperties properties;
+    private final ExecutorService fullTextExecutor;
+
+    public KnowledgeRetrievalService(LocalEmbeddingService embeddingService, KnowledgeIndexManager indexManager,
+                                     KnowledgeBaseDomainService knowledgeBaseDomainService,
+                                     KnowledgeProperties properties) {
+        this.embeddingService = embeddingService;
+        this.indexManager = indexManager;
+        this.knowledgeBaseDomainService = knowledgeBaseDomainService;
+        this.properties = properties;
+        this.fullTextExecutor = Executors.newFixedThreadPool(FULL_TEXT_THREADS, r -> {
+            Thread thread = new Thread(r, "knowledge-fulltext");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 检索与查询相关的文本块
+     * 向量化超时或失败时向量检索结果为空，对话按无知识库继续；
+     * 只检索属于ownerUserId的知识库，其他用户的知识库ID被忽略
+     *
+     * @param knowledgeBaseIds 知识库ID列表
+     * @param ownerUserId      知识库所属用户，即agent的创建者
+     * @param query            查询文本
+     * @return 检索结果，文本块按相关度从高到低排列
+     */
+    public KnowledgeRetrievalResult retrieve(List<String> knowledgeBaseIds, String ownerUserId, String query) {
+        if (knowledgeBaseIds == null || knowledgeBaseIds.isEmpty() || query == null || query.isBlank()) {
+            return KnowledgeRetrievalResult.empty();
+        }
+
+        long start = System.nanoTime();
+        List<String> ids = knowledgeBaseDomainService.filterOwnedIds(knowledgeBaseIds, ownerUserId);
+        if (ids.isEmpty()) {
+            logger.warn("知识库不属于agent的创建者，跳过检索: {}", knowledgeBaseIds);
+            return KnowledgeRetrievalResult.empty();
+        }
+        RetrievalMode mode = properties.getRetrievalMode();
+        KnowledgeRetrievalResult result = new KnowledgeRetrievalResult(mode);
+        int topK = properties.getTopK();
+        int candidates = mode == RetrievalMode.HYBRID ? topK * Math.max(1, properties.getCandidateMultiplier()) : topK;
+
+        // 1. 全文检索提交到独立线程，当前线程继续向量化和向量检索
+        Future<List<FullTextHit>> fullTextFuture = null;
+        if (mode == RetrievalMode.HYBRID) {
+            fullTextFuture = fullTextExecutor.submit(() ->
+                    knowledgeBaseDomainService.searchFullText(ids, query, candidates));
+        }
+
+        // 2. 向量检索
+        List<VectorSearchHit> vectorHits = searchVector(ids, query, candidates, result);
+
+        // 3. 合并两路结果
+        LinkedHashMap<String, Float> ranked;
+        if (fullTextFuture == null) {
+            ranked = new LinkedHashMap<>();
+            vectorHits.stream().limit(topK).forEach(hit -> ranked.put(hit.getId(), hit.getScore()));
+        } else {
+            List<FullTextHit> fullTextHits = awaitFullText(fullTextFuture, start, result);
+            ranked = fuse(vectorHits, fullTextHits, topK);
+        }
+
+        // 4. 读取文本块内容
+        long fetchStart = System.nanoTime();
+        List<RetrievedChunk> chunks = new ArrayList<>(ranked.size());
+        if (!ranked.isEmpty()) {
+            Map<String, KnowledgeChunkEntity> contents = knowledgeBaseDomainService
+                    .getChunkContents(new ArrayList<>(ranked.keySet()))
+                    .stream().collect(Collectors.toMap(KnowledgeChunkEntity::getId, Function.identity()));
+            for (Map.Entry<String, Float> entry : ranked.entrySet()) {
+                KnowledgeChunkEntity chunk = contents.get(entry.getKey());
+                if (chunk != null) {
+                    chunks.add(new RetrievedChunk(chunk, entry.getValue()));
+                }
+            }
+        }
+        result.setChunks(chunks);
+        result.recordLatency("fetch", millisSince(fetchStart));
+        result.recordLatency("total", millisSince(start));
+
+        logger.debug("知识库检索: mode={}, hits={}, legs={}, latency={}ms", mode, chunks.size(),
+                result.getLegHits(), result.getLatencyMillis());
+        return result;
+    }
+
+    /**
+     * 向量检索，返回相似度不低于阈值的候选，按相似度从高到低排列
+     */
+    private List<VectorSearchHit> searchVector(List<String> knowledgeBaseIds, String query, int limit,
+                                               KnowledgeRetrievalResult result) {
+        long start = System.nanoTime();
+        float[] queryVector;
+        try {
+            queryVector = VectorMath.normalize(embeddingService.embedAll(List.of(query)).get(0));
+        } catch (TimeoutException | RuntimeException e) {
+            logger.warn("查询向量化失败，跳过向量检索: {}", e.getMessage());
+            result.recordLeg("vector", 0, millisSince(start));
+            return Collections.emptyList();
+        }
+        long embedded = System.nanoTime();
+        result.recordLatency("embed", (embedded - start) / 1_000_000);
+
+        List<VectorSearchHit> hits = new ArrayList<>();
+        for (String knowledgeBaseId : knowledgeBaseIds) {
+            // 索引尚在后台加载时不等待，该知识库只有全文检索的结果
+            VectorIndex index = indexManager.getIndexIfReady(knowledgeBaseId);
+            if (index == null) {
+                logger.debug("知识库索引加载中，跳过向量检索: knowledgeBaseId={}", knowledgeBaseId);
+                continue;
+            }
+            hits.addAll(index.search(queryVector, limit, properties.getEfSearch()));
+        }
+        List<VectorSearchHit> top = hits.stream()
+                .filter(hit -> hit.getScore() >= properties.getMinScore())
+                .sorted(Comparator.comparing(VectorSearchHit::getScore).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+        result.recordLeg("vector", top.size(), millisSince(embedded));
+        return top;
+    }
+
+    /**
+     * 等待全文检索结果，超时或失败时返回空列表
+     * 记录的耗时从检索开始计算，与向量检索并行的部分不重复计入总耗时
+     */
+    private List<FullTextHit> awaitFullText(Future<List<FullTextHit>> future, long start,
+                                            KnowledgeRetrievalResult result) {
+        long remaining = properties.getFullTextTimeout().toNanos() - (System.nanoTime() - start);
+        try {
+            List<FullTextHit> hits = future.get(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+            result.recordLeg("fulltext", hits.size(), millisSince(start));
+            return hits;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            logger.warn("全文检索超时，仅使用向量检索结果");
+        } catch (ExecutionException e) {
+            logger.warn("全文检索失败，仅使用向量检索结果: {}", e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        result.recordLeg("fulltext", 0, millisSince(start));
+        return Collections.emptyList();
+    }
+
+    /**
+     * 倒数排名融合：每路中排名为r的候选得分 1/(rrfK + r)，同一文本块在两路的得分相加
+     * 只依赖排名，无需统一余弦相似度和ts_rank的量纲
+     */
+    private LinkedHashMap<String, Float> fuse(List<VectorSearchHit> vectorHits, List<FullTextHit> fullTextHits,
+                                              int topK) {
+        int rrfK = properties.getRrfK();
+        Map<String, Float> scores = new HashMap<>();
+        for (int i = 0; i < vectorHits.size(); i++) {
+            scores.merge(vectorHits.get(i).getId(), 1f / (rrfK + i + 1), Float::sum);
+        }
+        for (int i = 0; i < fullTextHits.size(); i++) {
+            scores.merge(fullTextHits.get(i).getId(), 1f / (rrfK + i + 1), Float::sum);
+        }
+        LinkedHashMap<String, Float> ranked = new LinkedHashMap<>();
+        scores.entrySet().stream()
+                .sorted(Map.Entry.<String, Float>comparingByValue().reversed())
+                .limit(topK)
+                .forEach(entry -> ranked.put(entry.getKey(), entry.getValue()));
+        return ranked;
+    }
+
+    private long millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    @Override
+    public void destroy() {
+        fullTextExecutor.shutdownNow();
+    }
+}
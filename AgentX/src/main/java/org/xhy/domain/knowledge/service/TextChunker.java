@@ -0,0 +1,110 @@
+package org.xhy.domain.knowledge.service;
+
+import org.springframework.stereotype.Component;
+import org.xhy.domain.token.service.TokenEstimator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 文本切分器
+ * 先按句子和换行切成最小片段，再按token数打包成文本块，相邻文本块之间保留若干完整句子作为重叠；
+ * 单个句子超过上限时按token硬切
+ */
+@Component
+public class TextChunker {
+
+    private static final String SENTENCE_ENDINGS = "。！？!?；;\n";
+
+    private final TokenEstimator tokenEstimator;
+
+    public TextChunker(TokenEstimator tokenEstimator) {
+        this.tokenEstimator = tokenEstimator;
+    }
+
+    /**
+     * 切分文本
+     *
+     * @param text          原文
+     * @param maxTokens     单个文本块的最大token数
+     * @param overlapTokens 相邻文本块重叠的最大token数
+     * @return 文本块，按原文顺序
+     */
+    public List<String> chunk(String text, int maxTokens, int overlapTokens) {
+        List<String> chunks = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return chunks;
+        }
+
+        List<String> pieces = new ArrayList<>();
+        List<Integer> pieceTokens = new ArrayList<>();
+        for (String sentence : splitSentences(text)) {
+            int tokens = tokenEstimator.estimate(sentence);
+            if (tokens <= maxTokens) {
+                pieces.add(sentence);
+                pieceTokens.add(tokens);
+                continue;
+            }
+            for (String part : tokenEstimator.splitByTokens(sentence, maxTokens)) {
+                pieces.add(part);
+                pieceTokens.add(tokenEstimator.estimate(part));
+            }
+        }
+
+        int start = 0;
+        while (start < pieces.size()) {
+            int end = start;
+            int tokens = 0;
+            while (end < pieces.size() && (end == start || tokens + pieceTokens.get(end) <= maxTokens)) {
+                tokens += pieceTokens.get(end);
+                end++;
+            }
+            String chunk = String.join("", pieces.subList(start, end)).trim();
+            if (!chunk.isEmpty()) {
+                chunks.add(chunk);
+            }
+            if (end >= pieces.size()) {
+                break;
+            }
+
+            // 下一块从末尾若干句子开始，重叠部分不超过overlapTokens，且至少前进一个片段
+            int next = end;
+            int overlap = 0;
+            while (next - 1 > start && overlap + pieceTokens.get(next - 1) <= overlapTokens) {
+                next--;
+                overlap += pieceTokens.get(next);
+            }
+            start = next;
+        }
+        return chunks;
+    }
+
+    /**
+     * 按句末标点和换行切分，分隔符和其后的空白保留在前一句末尾，拼接后可还原原文
+     */
+    private List<String> splitSentences(String text) {
+        List<String> sentences = new ArrayList<>();
+        int start = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            boolean boundary = SENTENCE_ENDINGS.indexOf(c) >= 0
+                    // 英文句号后需跟空白，避免切开小数和缩写
+                    || (c == '.' && (i + 1 == length || Character.isWhitespace(text.charAt(i + 1))));
+            if (!boundary) {
+                continue;
+            }
+            int end = i + 1;
+            while (end < length && Character.isWhitespace(text.charAt(end))) {
+                end++;
+            }
+            sentences.add(text.substring(start, end));
+            start = end;
+            i = end - 1;
+        }
+        if (start < length) {
+            sentences.add(text.substring(start));
+        }
+        return sentences;
+    }
+}
@@ -0,0 +1,144 @@
+package org.xhy.domain.memory.model;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import org.xhy.infrastructure.entity.BaseEntity;
+import org.xhy.infrastructure.typehandler.Int8VectorTypeHandler;
+
+import java.time.LocalDateTime;
+
+/**
+ * Agent长期记忆实体类
+ * 每条记录是从对话中提取的一条关于用户的长期事实，按用户和Agent隔离
+ */
+@TableName(value = "agent_memories", autoResultMap = true)
+public class AgentMemoryEntity extends BaseEntity {
+
+    /**
+     * 记忆唯一ID
+     */
+    @TableId(value = "id", type = IdType.ASSIGN_UUID)
+    private String id;
+
+    /**
+     * 用户ID
+     */
+    @TableField("user_id")
+    private String userId;
+
+    /**
+     * Agent ID
+     */
+    @TableField("agent_id")
+    private String agentId;
+
+    /**
+     * 事实内容
+     */
+    @TableField("content")
+    private String content;
+
+    /**
+     * int8量化后的归一化向量
+     */
+    @TableField(value = "embedding", typeHandler = Int8VectorTypeHandler.class)
+    private float[] embedding;
+
+    /**
+     * 事实内容的token数
+     */
+    @TableField("token_count")
+    private Integer tokenCount = 0;
+
+    /**
+     * 被重复提及的次数
+     */
+    @TableField("mention_count")
+    private Integer mentionCount = 1;
+
+    /**
+     * 最近一次提取该事实的会话ID
+     */
+    @TableField("source_session_id")
+    private String sourceSessionId;
+
+    /**
+     * 最近一次被召回的时间
+     */
+    @TableField("last_recalled_at")
+    private LocalDateTime lastRecalledAt;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getAgentId() {
+        return agentId;
+    }
+
+    public void setAgentId(String agentId) {
+        this.agentId = agentId;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public float[] getEmbedding() {
+        return embedding;
+    }
+
+    public void setEmbedding(float[] embedding) {
+        this.embedding = embedding;
+    }
+
+    public Integer getTokenCount() {
+        return tokenCount;
+    }
+
+    public void setTokenCount(Integer tokenCount) {
+        this.tokenCount = tokenCount;
+    }
+
+    public Integer getMentionCount() {
+        return mentionCount;
+    }
+
+    public void setMentionCount(Integer mentionCount) {
+        this.mentionCount = mentionCount;
+    }
+
+    public String getSourceSessionId() {
+        return sourceSessionId;
+    }
+
+    public void setSourceSessionId(String sourceSessionId) {
+        this.sourceSessionId = sourceSessionId;
+    }
+
+    public LocalDateTime getLastRecalledAt() {
+        return lastRecalledAt;
+    }
+
+    public void setLastRecalledAt(LocalDateTime lastRecalledAt) {
+        this.lastRecalledAt = lastRecalledAt;
+    }
+}
@@ -0,0 +1,28 @@
+package org.xhy.domain.memory.repository;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Update;
+import org.xhy.domain.memory.model.AgentMemoryEntity;
+import org.xhy.infrastructure.repository.MyBatisPlusExtRepository;
+
+import java.util.List;
+
+/**
+ * Agent长期记忆仓库接口
+ */
+@Mapper
+public interface AgentMemoryRepository extends MyBatisPlusExtRepository<AgentMemoryEntity> {
+
+    /**
+     * 批量记录召回时间
+     *
+     * @param ids 被召回的记忆ID
+     * @return 更新行数
+     */
+    @Update("<script>" +
+            "UPDATE agent_memories SET last_recalled_at = NOW() WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int markRecalled(@Param("ids") List<String> ids);
+}
@@ -0,0 +1,300 @@
+package org.xhy.domain.memory.service;
+
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Service;
+import org.xhy.domain.memory.model.AgentMemoryEntity;
+import org.xhy.domain.memory.repository.AgentMemoryRepository;
+import org.xhy.domain.token.service.TokenEstimator;
+import org.xhy.infrastructure.config.MemoryProperties;
+import org.xhy.infrastructure.embedding.LocalEmbeddingService;
+import org.xhy.infrastructure.embedding.VectorMath;
+import org.xhy.infrastructure.exception.BusinessException;
+import org.xhy.infrastructure.llm.config.ProviderConfig;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Agent长期记忆领域服务
+ * 提取：对话完成后在独立线程池中调用大模型提取事实，与已有记忆按向量相似度合并，不占用对话线程；
+ * 召回：对话开始时按当前消息的相似度挑选记忆，条数和token数都有上限
+ */
+@Service
+public class AgentMemoryDomainService implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(AgentMemoryDomainService.class);
+
+    /**
+     * 合并锁分段数，同一用户和Agent的提取串行执行，避免并发插入相同的事实
+     */
+    private static final int LOCK_STRIPES = 64;
+
+    private final AgentMemoryRepository memoryRepository;
+    private final MemoryExtractor memoryExtractor;
+    private final LocalEmbeddingService embeddingService;
+    private final TokenEstimator tokenEstimator;
+    private final MemoryProperties properties;
+    private final ThreadPoolExecutor extractionExecutor;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public AgentMemoryDomainService(AgentMemoryRepository memoryRepository, MemoryExtractor memoryExtractor,
+                                    LocalEmbeddingService embeddingService, TokenEstimator tokenEstimator,
+                                    MemoryProperties properties) {
+        this.memoryRepository = memoryRepository;
+        this.memoryExtractor = memoryExtractor;
+        this.embeddingService = embeddingService;
+        this.tokenEstimator = tokenEstimator;
+        this.properties = properties;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+
+        int threads = Math.max(1, properties.getExtractionThreads());
+        AtomicInteger counter = new AtomicInteger();
+        this.extractionExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity())), r -> {
+                    Thread thread = new Thread(r, "memory-extractor-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 提交一轮对话的记忆提取，立即返回
+     * 队列已满时丢弃本轮，记忆是尽力而为的，不能反压对话
+     *
+     * @param userId         用户ID
+     * @param agentId        Agent ID
+     * @param sessionId      会话ID
+     * @param userMessage    用户消息
+     * @param assistantReply 助手回复
+     * @param providerConfig 本轮对话使用的服务商配置
+     */
+    public void extractAsync(String userId, String agentId, String sessionId, String userMessage,
+                             String assistantReply, ProviderConfig providerConfig) {
+        if (!properties.isEnabled() || userMessage == null || assistantReply == null
+                || userMessage.trim().length() < properties.getMinMessageChars()) {
+            return;
+        }
+        try {
+            extractionExecutor.execute(() -> {
+                try {
+                    List<String> facts = memoryExtractor.extract(userMessage, assistantReply, providerConfig);
+                    if (!facts.isEmpty()) {
+                        merge(userId, agentId, sessionId, facts);
+                    }
+                } catch (Exception e) {
+                    logger.warn("提取长期记忆失败，会话: {}", sessionId, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("长期记忆提取队列已满，跳过会话: {}", sessionId);
+        }
+    }
+
+    /**
+     * 召回与查询相关的记忆
+     * 向量化超时或失败时返回空列表，对话按无记忆继续
+     *
+     * @param userId  用户ID
+     * @param agentId Agent ID
+     * @param query   查询文本，一般为当前用户消息
+     * @return 记忆列表，按相关度从高到低排列
+     */
+    public List<AgentMemoryEntity> recall(String userId, String agentId, String query) {
+        if (!properties.isEnabled() || query == null || query.isBlank()) {
+            return new ArrayList<>();
+        }
+        List<AgentMemoryEntity> memories = listOwned(userId, agentId);
+        if (memories.isEmpty()) {
+            return memories;
+        }
+
+        float[] queryVector;
+        try {
+            queryVector = VectorMath.normalize(embeddingService.embedAll(List.of(query)).get(0));
+        } catch (TimeoutException | RuntimeException e) {
+            logger.warn("召回长期记忆时向量化失败，跳过记忆: {}", e.getMessage());
+            return new ArrayList<>();
+        }
+
+        List<ScoredMemory> scored = new ArrayList<>(memories.size());
+        for (AgentMemoryEntity memory : memories) {
+            float score = VectorMath.dot(queryVector, memory.getEmbedding());
+            if (score >= properties.getMinScore()) {
+                scored.add(new ScoredMemory(memory, score));
+            }
+        }
+        scored.sort(Comparator.comparingDouble((ScoredMemory s) -> s.score).reversed());
+
+        // 按相关度依次选入，单条超出剩余预算时跳过，继续尝试更短的记忆
+        List<AgentMemoryEntity> recalled = new ArrayList<>();
+        int remaining = properties.getTokenCap();
+        for (ScoredMemory candidate : scored) {
+            if (recalled.size() >= properties.getTopK()) {
+                break;
+            }
+            int tokens = candidate.memory.getTokenCount() != null ? candidate.memory.getTokenCount() : 0;
+            if (tokens > remaining) {
+                continue;
+            }
+            remaining -= tokens;
+            recalled.add(candidate.memory);
+        }
+
+        if (!recalled.isEmpty()) {
+            memoryRepository.markRecalled(recalled.stream().map(AgentMemoryEntity::getId).collect(Collectors.toList()));
+        }
+        return recalled;
+    }
+
+    /**
+     * 获取用户在Agent下的记忆列表，不加载向量
+     *
+     * @param userId  用户ID
+     * @param agentId Agent ID
+     * @return 记忆列表，按更新时间倒序
+     */
+    public List<AgentMemoryEntity> getMemories(String userId, String agentId) {
+        return memoryRepository.selectList(Wrappers.<AgentMemoryEntity>lambdaQuery()
+                .select(AgentMemoryEntity.class, field -> !"embedding".equals(field.getColumn()))
+                .eq(AgentMemoryEntity::getUserId, userId)
+                .eq(AgentMemoryEntity::getAgentId, agentId)
+                .orderByDesc(AgentMemoryEntity::getUpdatedAt));
+    }
+
+    /**
+     * 删除单条记忆
+     *
+     * @param memoryId 记忆ID
+     * @param userId   用户ID
+     */
+    public void deleteMemory(String memoryId, String userId) {
+        int deleted = memoryRepository.delete(Wrappers.<AgentMemoryEntity>lambdaQuery()
+                .eq(AgentMemoryEntity::getId, memoryId)
+                .eq(AgentMemoryEntity::getUserId, userId));
+        if (deleted == 0) {
+            throw new BusinessException("记忆不存在");
+        }
+    }
+
+    /**
+     * 清空用户在Agent下的全部记忆
+     *
+     * @param userId  用户ID
+     * @param agentId Agent ID
+     */
+    public void clearMemories(String userId, String agentId) {
+        memoryRepository.delete(Wrappers.<AgentMemoryEntity>lambdaQuery()
+                .eq(AgentMemoryEntity::getUserId, userId)
+                .eq(AgentMemoryEntity::getAgentId, agentId));
+    }
+
+    @Override
+    public void destroy() {
+        extractionExecutor.shutdownNow();
+    }
+
+    /**
+     * 将新事实合并到已有记忆
+     * 与某条已有记忆（含本批刚写入的）相似度达到阈值时视为同一事实：内容更新为新的表述并累加提及次数；
+     * 否则新增。合并后超出上限时淘汰提及次数少且最久未更新的记忆
+     */
+    private void merge(String userId, String agentId, String sessionId, List<String> facts) {
+        List<float[]> vectors = new ArrayList<>(facts.size());
+        for (String fact : facts) {
+            vectors.add(VectorMath.normalize(embeddingService.embedInCallerThread(fact)));
+        }
+
+        synchronized (lockFor(userId, agentId)) {
+            List<AgentMemoryEntity> memories = listOwned(userId, agentId);
+            for (int i = 0; i < facts.size(); i++) {
+                String fact = facts.get(i);
+                float[] vector = vectors.get(i);
+
+                AgentMemoryEntity best = null;
+                float bestScore = -1f;
+                for (AgentMemoryEntity memory : memories) {
+                    float score = VectorMath.dot(vector, memory.getEmbedding());
+                    if (score > bestScore) {
+                        bestScore = score;
+                        best = memory;
+                    }
+                }
+
+                if (best != null && bestScore >= properties.getDedupThreshold()) {
+                    best.setContent(fact);
+                    best.setEmbedding(vector);
+                    best.setTokenCount(tokenEstimator.estimate(fact));
+                    best.setMentionCount(best.getMentionCount() + 1);
+                    best.setSourceSessionId(sessionId);
+                    memoryRepository.updateById(best);
+                } else {
+                    AgentMemoryEntity memory = new AgentMemoryEntity();
+                    memory.setUserId(userId);
+                    memory.setAgentId(agentId);
+                    memory.setContent(fact);
+                    memory.setEmbedding(vector);
+                    memory.setTokenCount(tokenEstimator.estimate(fact));
+                    memory.setSourceSessionId(sessionId);
+                    memoryRepository.insert(memory);
+                    memories.add(memory);
+                }
+            }
+            evictOverflow(memories);
+        }
+    }
+
+    /**
+     * 淘汰超出上限的记忆
+     */
+    private void evictOverflow(List<AgentMemoryEntity> memories) {
+        int overflow = memories.size() - Math.max(1, properties.getMaxMemories());
+        if (overflow <= 0) {
+            return;
+        }
+        List<String> evicted = memories.stream()
+                .sorted(Comparator.comparing(AgentMemoryEntity::getMentionCount)
+                        .thenComparing(AgentMemoryEntity::getUpdatedAt,
+                                Comparator.nullsLast(Comparator.naturalOrder())))
+                .limit(overflow)
+                .map(AgentMemoryEntity::getId)
+                .collect(Collectors.toList());
+        memoryRepository.deleteByIds(evicted);
+    }
+
+    private List<AgentMemoryEntity> listOwned(String userId, String agentId) {
+        return memoryRepository.selectList(Wrappers.<AgentMemoryEntity>lambdaQuery()
+                .eq(AgentMemoryEntity::getUserId, userId)
+                .eq(AgentMemoryEntity::getAgentId, agentId));
+    }
+
+    private Object lockFor(String userId, String agentId) {
+        int hash = (userId + ":" + agentId).hashCode();
+        return locks[Math.floorMod(hash, LOCK_STRIPES)];
+    }
+
+    /**
+     * 带相似度的记忆
+     */
+    private static class ScoredMemory {
+        private final AgentMemoryEntity memory;
+        private final float score;
+
+        private ScoredMemory(AgentMemoryEntity memory, float score) {
+            this.memory = memory;
+            this.score = score;
+        }
+    }
+}
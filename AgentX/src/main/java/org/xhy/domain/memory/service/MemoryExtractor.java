@@ -0,0 +1,22 @@
+package org.xhy.domain.memory.service;
+
+import org.xhy.infrastructure.llm.config.ProviderConfig;
+
+import java.util.List;
+
+/**
+ * 长期记忆提取器
+ * 从一轮对话中提取值得跨会话保留的用户事实，便于替换实现或在测试中隔离大模型调用
+ */
+public interface MemoryExtractor {
+
+    /**
+     * 从一轮对话中提取事实
+     *
+     * @param userMessage    用户消息
+     * @param assistantReply 助手回复
+     * @param providerConfig 本轮对话使用的服务商配置
+     * @return 事实列表，没有可提取的内容时返回空列表
+     */
+    List<String> extract(String userMessage, String assistantReply, ProviderConfig providerConfig);
+}
@@ -0,0 +1,68 @@
+package org.xhy.domain.memory.service.impl;
+
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import org.springframework.stereotype.Component;
+import org.xhy.domain.memory.service.MemoryExtractor;
+import org.xhy.infrastructure.llm.LLMProviderService;
+import org.xhy.infrastructure.llm.config.ProviderConfig;
+import org.xhy.infrastructure.util.JsonUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 基于大模型的长期记忆提取器
+ * 使用当前对话的服务商配置，要求模型只输出JSON字符串数组
+ */
+@Component
+public class LlmMemoryExtractor implements MemoryExtractor {
+
+    /**
+     * 助手回复只截取开头部分，事实主要来自用户消息，回复仅用于确认上下文
+     */
+    private static final int MAX_REPLY_CHARS = 2000;
+
+    private static final String EXTRACT_PROMPT = "你是一个长期记忆提取器，请严格按照以下要求工作：\n" +
+            "1. 从对话中提取关于用户本人的、长期有效的事实，例如身份、偏好、习惯、长期目标、正在进行的项目及其约束\n" +
+            "2. 只提取用户明确表达或确认过的信息，不得推测\n" +
+            "3. 忽略一次性的提问、寒暄，以及助手给出的通用知识\n" +
+            "4. 每条事实使用一句简洁的第三人称陈述句，不超过50个字\n" +
+            "5. 最多输出5条\n" +
+            "6. 只输出JSON字符串数组，例如 [\"用户是后端工程师，主要使用Java\"]；没有可提取的内容时输出 []";
+
+    @Override
+    public List<String> extract(String userMessage, String assistantReply, ProviderConfig providerConfig) {
+        ChatLanguageModel chatLanguageModel = LLMProviderService.getNormal(providerConfig.getProtocol(), providerConfig);
+        String reply = assistantReply.length() > MAX_REPLY_CHARS
+                ? assistantReply.substring(0, MAX_REPLY_CHARS)
+                : assistantReply;
+        UserMessage conversation = new UserMessage("[用户] " + userMessage + "\n[助手] " + reply);
+        ChatResponse chatResponse = chatLanguageModel.chat(Arrays.asList(new SystemMessage(EXTRACT_PROMPT), conversation));
+        return parseFacts(chatResponse.aiMessage().text());
+    }
+
+    /**
+     * 解析模型输出，兼容模型在数组外包裹代码块或说明文字的情况
+     */
+    private List<String> parseFacts(String text) {
+        if (text == null) {
+            return new ArrayList<>();
+        }
+        int start = text.indexOf('[');
+        int end = text.lastIndexOf(']');
+        if (start < 0 || end <= start) {
+            return new ArrayList<>();
+        }
+        List<String> facts = new ArrayList<>();
+        for (String fact : JsonUtils.parseArray(text.substring(start, end + 1), String.class)) {
+            if (fact != null && !fact.isBlank()) {
+                facts.add(fact.trim());
+            }
+        }
+        return facts;
+    }
+}
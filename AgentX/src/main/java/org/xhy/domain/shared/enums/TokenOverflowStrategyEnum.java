@@ -17,7 +17,12 @@ public enum TokenOverflowStrategyEnum {
     /**
      * 摘要策略 - 将旧消息转换为摘要，保留关键信息
      */
-    SUMMARIZE;
+    SUMMARIZE,
+    
+    /**
+     * 相关性保留 - 保留最近消息，并按与当前问题的语义相似度保留较早的相关消息
+     */
+    RELEVANCE;
     
     /**
      * 判断给定字符串是否为有效的枚举值
@@ -0,0 +1,271 @@
+package org.xhy.domain.token.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 上下文预算规划结果
+ * 记录发送前各部分（系统提示词、摘要、历史消息、当前用户消息、预留输出）的预算与实际占用，
+ * 序列化后写入消息元数据，便于排查上下文被裁剪的原因
+ */
+public class ContextBudgetPlan {
+
+    /**
+     * 上下文窗口大小，窗口未知、不裁剪时为Integer.MAX_VALUE
+     */
+    private int contextWindow;
+
+    /**
+     * 预留输出token数
+     */
+    private int reservedOutputTokens;
+
+    /**
+     * 系统提示词token数
+     */
+    private int systemTokens;
+
+    /**
+     * 当前用户消息token数
+     */
+    private int userTokens;
+
+    /**
+     * 摘要预算
+     */
+    private int summaryBudget;
+
+    /**
+     * 摘要实际占用token数
+     */
+    private int summaryTokens;
+
+    /**
+     * 摘要是否被裁剪
+     */
+    private boolean summaryTrimmed;
+
+    /**
+     * 知识库检索结果预算
+     */
+    private int referenceBudget;
+
+    /**
+     * 知识库检索结果实际占用token数
+     */
+    private int referenceTokens;
+
+    /**
+     * 放入上下文的检索结果数
+     */
+    private int referenceCount;
+
+    /**
+     * 因超出预算未放入的检索结果数
+     */
+    private int droppedReferenceCount;
+
+    /**
+     * 历史消息预算
+     */
+    private int historyBudget;
+
+    /**
+     * 历史消息实际占用token数
+     */
+    private int historyTokens;
+
+    /**
+     * 保留的历史消息数
+     */
+    private int retainedMessageCount;
+
+    /**
+     * 因超出预算未发送的历史消息数
+     */
+    private int droppedMessageCount;
+
+    /**
+     * 规划后的输入总token数
+     */
+    private int promptTokens;
+
+    /**
+     * 规划后保留的历史消息，按时间正序
+     */
+    @JsonIgnore
+    private List<TokenMessage> retainedMessages = new ArrayList<>();
+
+    /**
+     * 规划后的摘要内容（可能已裁剪）
+     */
+    @JsonIgnore
+    private String summary;
+
+    /**
+     * 规划后放入上下文的检索结果，按相关度从高到低
+     */
+    @JsonIgnore
+    private List<String> references = new ArrayList<>();
+
+    /**
+     * 输入与预留输出之和是否在上下文窗口内
+     */
+    public boolean isWithinWindow() {
+        return promptTokens + reservedOutputTokens <= contextWindow;
+    }
+
+    public int getContextWindow() {
+        return contextWindow;
+    }
+
+    public void setContextWindow(int contextWindow) {
+        this.contextWindow = contextWindow;
+    }
+
+    public int getReservedOutputTokens() {
+        return reservedOutputTokens;
+    }
+
+    public void setReservedOutputTokens(int reservedOutputTokens) {
+        this.reservedOutputTokens = reservedOutputTokens;
+    }
+
+    public int getSystemTokens() {
+        return systemTokens;
+    }
+
+    public void setSystemTokens(int systemTokens) {
+        this.systemTokens = systemTokens;
+    }
+
+    public int getUserTokens() {
+        return userTokens;
+    }
+
+    public void setUserTokens(int userTokens) {
+        this.userTokens = userTokens;
+    }
+
+    public int getSummaryBudget() {
+        return summaryBudget;
+    }
+
+    public void setSummaryBudget(int summaryBudget) {
+        this.summaryBudget = summaryBudget;
+    }
+
+    public int getSummaryTokens() {
+        return summaryTokens;
+    }
+
+    public void setSummaryTokens(int summaryTokens) {
+        this.summaryTokens = summaryTokens;
+    }
+
+    public boolean isSummaryTrimmed() {
+        return summaryTrimmed;
+    }
+
+    public void setSummaryTrimmed(boolean summaryTrimmed) {
+        this.summaryTrimmed = summaryTrimmed;
+    }
+
+    public int getHistoryBudget() {
+        return historyBudget;
+    }
+
+    public void setHistoryBudget(int historyBudget) {
+        this.historyBudget = historyBudget;
+    }
+
+    public int getHistoryTokens() {
+        return historyTokens;
+    }
+
+    public void setHistoryTokens(int historyTokens) {
+        this.historyTokens = historyTokens;
+    }
+
+    public int getRetainedMessageCount() {
+        return retainedMessageCount;
+    }
+
+    public void setRetainedMessageCount(int retainedMessageCount) {
+        this.retainedMessageCount = retainedMessageCount;
+    }
+
+    public int getDroppedMessageCount() {
+        return droppedMessageCount;
+    }
+
+    public void setDroppedMessageCount(int droppedMessageCount) {
+        this.droppedMessageCount = droppedMessageCount;
+    }
+
+    public int getPromptTokens() {
+        return promptTokens;
+    }
+
+    public void setPromptTokens(int promptTokens) {
+        this.promptTokens = promptTokens;
+    }
+
+    public List<TokenMessage> getRetainedMessages() {
+        return retainedMessages;
+    }
+
+    public void setRetainedMessages(List<TokenMessage> retainedMessages) {
+        this.retainedMessages = retainedMessages != null ? retainedMessages : new ArrayList<>();
+    }
+
+    public String getSummary() {
+        return summary;
+    }
+
+    public void setSummary(String summary) {
+        this.summary = summary;
+    }
+
+    public int getReferenceBudget() {
+        return referenceBudget;
+    }
+
+    public void setReferenceBudget(int referenceBudget) {
+        this.referenceBudget = referenceBudget;
+    }
+
+    public int getReferenceTokens() {
+        return referenceTokens;
+    }
+
+    public void setReferenceTokens(int referenceTokens) {
+        this.referenceTokens = referenceTokens;
+    }
+
+    public int getReferenceCount() {
+        return referenceCount;
+    }
+
+    public void setReferenceCount(int referenceCount) {
+        this.referenceCount = referenceCount;
+    }
+
+    public int getDroppedReferenceCount() {
+        return droppedReferenceCount;
+    }
+
+    public void setDroppedReferenceCount(int droppedReferenceCount) {
+        this.droppedReferenceCount = droppedReferenceCount;
+    }
+
+    public List<String> getReferences() {
+        return references;
+    }
+
+    public void setReferences(List<String> references) {
+        this.references = references;
+    }
+}
@@ -0,0 +1,102 @@
+package org.xhy.domain.token.model.config;
+
+/**
+ * 上下文预算策略
+ * 描述一次请求的上下文窗口大小以及各部分的分配规则
+ */
+public class ContextBudgetPolicy {
+
+    /**
+     * 上下文窗口大小（token数），包含输入和预留输出
+     */
+    private int contextWindow = 8192;
+
+    /**
+     * 为模型输出预留的token数
+     */
+    private int reservedOutputTokens = 1024;
+
+    /**
+     * 摘要最多占用剩余可用空间的比例，范围0-1
+     */
+    private double summaryRatio = 0.25;
+
+    /**
+     * 知识库检索结果最多占用剩余可用空间（扣除摘要后）的比例，范围0-1
+     */
+    private double referenceRatio = 0.3;
+
+    /**
+     * 每条消息的额外开销（角色标记、分隔符等）
+     */
+    private int messageOverheadTokens = 4;
+
+    public ContextBudgetPolicy() {
+    }
+
+    public ContextBudgetPolicy(int contextWindow, int reservedOutputTokens) {
+        this.contextWindow = contextWindow;
+        this.reservedOutputTokens = reservedOutputTokens;
+    }
+
+    /**
+     * 按上下文窗口创建预算策略
+     *
+     * @param contextWindow        模型的上下文窗口，为空或不大于0表示未知
+     * @param reservedOutputTokens 窗口中为输出预留的token数
+     * @return 窗口已知时按窗口裁剪的策略，未知时不裁剪的策略
+     */
+    public static ContextBudgetPolicy forWindow(Integer contextWindow, int reservedOutputTokens) {
+        if (contextWindow == null || contextWindow <= 0) {
+            return unbounded();
+        }
+        return new ContextBudgetPolicy(contextWindow, reservedOutputTokens);
+    }
+
+    /**
+     * 不裁剪的策略，用于上下文窗口未知的模型：窗口视为无限，不预留输出，仍然估算各部分的token数
+     */
+    public static ContextBudgetPolicy unbounded() {
+        return new ContextBudgetPolicy(Integer.MAX_VALUE, 0);
+    }
+
+    public int getContextWindow() {
+        return contextWindow;
+    }
+
+    public void setContextWindow(int contextWindow) {
+        this.contextWindow = contextWindow;
+    }
+
+    public int getReservedOutputTokens() {
+        return reservedOutputTokens;
+    }
+
+    public void setReservedOutputTokens(int reservedOutputTokens) {
+        this.reservedOutputTokens = reservedOutputTokens;
+    }
+
+    public double getSummaryRatio() {
+        return summaryRatio;
+    }
+
+    public void setSummaryRatio(double summaryRatio) {
+        this.summaryRatio = summaryRatio;
+    }
+
+    public double getReferenceRatio() {
+        return referenceRatio;
+    }
+
+    public void setReferenceRatio(double referenceRatio) {
+        this.referenceRatio = referenceRatio;
+    }
+
+    public int getMessageOverheadTokens() {
+        return messageOverheadTokens;
+    }
+
+    public void setMessageOverheadTokens(int messageOverheadTokens) {
+        this.messageOverheadTokens = messageOverheadTokens;
+    }
+}
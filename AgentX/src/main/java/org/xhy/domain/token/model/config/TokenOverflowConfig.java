@@ -1,14 +1,14 @@
 package org.xhy.domain.token.model.config;
 
-import org.springframework.stereotype.Service;
+import io.micrometer.core.instrument.Tags;
 import org.xhy.domain.shared.enums.TokenOverflowStrategyEnum;
 import org.xhy.infrastructure.llm.config.ProviderConfig;
 import org.xhy.infrastructure.llm.protocol.enums.ProviderProtocol;
 
 /**
  * Token超限处理配置基础类
+ * 每次对话构造一份，随调用传入无状态的策略单例
  */
-@Service
 public class TokenOverflowConfig {
     
     /**
@@ -16,6 +16,11 @@ public class TokenOverflowConfig {
      */
     private TokenOverflowStrategyEnum strategyType;
     
+    /**
+     * 自定义策略名称，用于选择通过插件注册的策略，设置后优先于策略类型
+     */
+    private String customStrategyName;
+    
     /**
      * 最大Token数，适用于滑动窗口和摘要策略
      */
@@ -34,6 +39,21 @@ public class TokenOverflowConfig {
 
     private ProviderConfig providerConfig;
 
+    /**
+     * 当前用户消息，适用于相关性保留策略
+     */
+    private String currentMessage;
+
+    /**
+     * 无条件保留的最近消息数，适用于相关性保留策略
+     */
+    private Integer recentTailSize;
+
+    /**
+     * 对话链路指标的标签，用于统计摘要耗时；agent标签已按是否发布映射，未设置时不区分Agent
+     */
+    private Tags metricTags;
+
     /**
      * 默认构造函数
      */
@@ -68,6 +88,26 @@ public class TokenOverflowConfig {
         this.strategyType = strategyType;
     }
     
+    public String getCustomStrategyName() {
+        return customStrategyName;
+    }
+    
+    public void setCustomStrategyName(String customStrategyName) {
+        this.customStrategyName = customStrategyName;
+    }
+    
+    /**
+     * 获取用于查找策略的名称
+     * 
+     * @return 自定义策略名称，未设置时为策略类型名称
+     */
+    public String getStrategyName() {
+        if (customStrategyName != null && !customStrategyName.isEmpty()) {
+            return customStrategyName;
+        }
+        return strategyType != null ? strategyType.name() : TokenOverflowStrategyEnum.NONE.name();
+    }
+    
     public Integer getMaxTokens() {
         return maxTokens;
     }
@@ -136,4 +176,28 @@ public class TokenOverflowConfig {
     public void setProviderConfig(ProviderConfig providerConfig) {
         this.providerConfig = providerConfig;
     }
-}
\ No newline at end of file
+
+    public String getCurrentMessage() {
+        return currentMessage;
+    }
+
+    public void setCurrentMessage(String currentMessage) {
+        this.currentMessage = currentMessage;
+    }
+
+    public Integer getRecentTailSize() {
+        return recentTailSize;
+    }
+
+    public void setRecentTailSize(Integer recentTailSize) {
+        this.recentTailSize = recentTailSize;
+    }
+
+    public Tags getMetricTags() {
+        return metricTags;
+    }
+
+    public void setMetricTags(Tags metricTags) {
+        this.metricTags = metricTags;
+    }
+}
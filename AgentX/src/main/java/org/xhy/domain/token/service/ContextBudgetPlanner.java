@@ -0,0 +1,169 @@
+package org.xhy.domain.token.service;
+
+import org.springframework.stereotype.Service;
+import org.xhy.domain.token.model.ContextBudgetPlan;
+import org.xhy.domain.token.model.TokenMessage;
+import org.xhy.domain.token.model.config.ContextBudgetPolicy;
+import org.xhy.infrastructure.exception.BusinessException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 上下文预算规划器
+ * 在请求发送前把系统提示词、摘要、历史消息、当前用户消息和预留输出放在一起计算，
+ * 按策略为各部分分配token，只裁剪必要的部分，避免超限请求到服务商后才失败
+ *
+ * 分配顺序：
+ * 1. 系统提示词、当前用户消息和预留输出必须完整保留，放不下时直接拒绝
+ * 2. 摘要最多占用剩余空间的summaryRatio，超出时保留末尾（最近的）内容
+ * 3. 知识库检索结果最多占用剩余空间的referenceRatio，按相关度从高到低放入
+ * 4. 剩余空间从最新的历史消息开始向前填充，放不下的更早消息不再发送
+ */
+@Service
+public class ContextBudgetPlanner {
+
+    private final TokenEstimator tokenEstimator;
+
+    public ContextBudgetPlanner(TokenEstimator tokenEstimator) {
+        this.tokenEstimator = tokenEstimator;
+    }
+
+    /**
+     * 规划上下文预算
+     *
+     * @param systemPrompt  系统提示词
+     * @param summaryPrefix 摘要前缀，随摘要一起计入预算，裁剪时保持完整
+     * @param summary       摘要内容
+     * @param history       历史消息，按时间正序
+     * @param userMessage   当前用户消息
+     * @param policy        预算策略
+     * @return 规划结果
+     */
+    public ContextBudgetPlan plan(String systemPrompt, String summaryPrefix, String summary,
+                                  List<TokenMessage> history, String userMessage, ContextBudgetPolicy policy) {
+        return plan(systemPrompt, summaryPrefix, summary, null, Collections.emptyList(), history, userMessage, policy);
+    }
+
+    /**
+     * 规划上下文预算（含知识库检索结果）
+     *
+     * @param systemPrompt    系统提示词
+     * @param summaryPrefix   摘要前缀，随摘要一起计入预算，裁剪时保持完整
+     * @param summary         摘要内容
+     * @param referencePrefix 检索结果前缀，有检索结果放入时计入一次
+     * @param references      知识库检索结果，按相关度从高到低排列
+     * @param history         历史消息，按时间正序
+     * @param userMessage     当前用户消息
+     * @param policy          预算策略
+     * @return 规划结果
+     */
+    public ContextBudgetPlan plan(String systemPrompt, String summaryPrefix, String summary, String referencePrefix,
+                                  List<String> references, List<TokenMessage> history, String userMessage,
+                                  ContextBudgetPolicy policy) {
+        int overhead = policy.getMessageOverheadTokens();
+        int window = policy.getContextWindow();
+        int reserved = policy.getReservedOutputTokens();
+
+        ContextBudgetPlan plan = new ContextBudgetPlan();
+        plan.setContextWindow(window);
+        plan.setReservedOutputTokens(reserved);
+
+        // 1. 必须完整保留的部分
+        int systemTokens = systemPrompt == null || systemPrompt.isEmpty() ? 0 : estimate(systemPrompt, overhead);
+        int userTokens = estimate(userMessage, overhead);
+        plan.setSystemTokens(systemTokens);
+        plan.setUserTokens(userTokens);
+
+        int available = window - reserved - systemTokens - userTokens;
+        if (available < 0) {
+            throw new BusinessException("CONTEXT_BUDGET_EXCEEDED", String.format(
+                    "消息过长：系统提示词(%d)、当前消息(%d)与预留输出(%d)合计超过上下文窗口(%d)",
+                    systemTokens, userTokens, reserved, window));
+        }
+
+        // 2. 摘要
+        String plannedSummary = null;
+        int summaryTokens = 0;
+        if (summary != null && !summary.isEmpty()) {
+            int summaryBudget = (int) (available * policy.getSummaryRatio());
+            plan.setSummaryBudget(summaryBudget);
+            int prefixTokens = tokenEstimator.estimate(summaryPrefix) + overhead;
+            summaryTokens = prefixTokens + tokenEstimator.estimate(summary);
+            plannedSummary = summary;
+            if (summaryTokens > summaryBudget) {
+                plannedSummary = tokenEstimator.keepTail(summary, summaryBudget - prefixTokens);
+                summaryTokens = plannedSummary.isEmpty() ? 0 : prefixTokens + tokenEstimator.estimate(plannedSummary);
+                plan.setSummaryTrimmed(true);
+            }
+        }
+        plan.setSummary(plannedSummary);
+        plan.setSummaryTokens(summaryTokens);
+
+        // 3. 知识库检索结果，单条放不下时跳过，继续尝试相关度更低但更短的结果
+        List<String> plannedReferences = new ArrayList<>();
+        int referenceTokens = 0;
+        if (references != null && !references.isEmpty()) {
+            int referenceBudget = (int) ((available - summaryTokens) * policy.getReferenceRatio());
+            plan.setReferenceBudget(referenceBudget);
+            int prefixTokens = tokenEstimator.estimate(referencePrefix);
+            referenceTokens = prefixTokens + overhead;
+            for (String reference : references) {
+                int tokens = estimate(reference, overhead);
+                if (referenceTokens + tokens <= referenceBudget) {
+                    referenceTokens += tokens;
+                    plannedReferences.add(reference);
+                }
+            }
+            if (plannedReferences.isEmpty()) {
+                referenceTokens = 0;
+            }
+            plan.setDroppedReferenceCount(references.size() - plannedReferences.size());
+        }
+        plan.setReferences(plannedReferences);
+        plan.setReferenceCount(plannedReferences.size());
+        plan.setReferenceTokens(referenceTokens);
+
+        // 4. 历史消息从最新开始填充
+        int historyBudget = available - summaryTokens - referenceTokens;
+        plan.setHistoryBudget(historyBudget);
+        List<TokenMessage> retained = new ArrayList<>();
+        int historyTokens = 0;
+        int total = history == null ? 0 : history.size();
+        for (int i = total - 1; i >= 0; i--) {
+            TokenMessage message = history.get(i);
+            if (message.getContent() == null || message.getContent().isEmpty()) {
+                continue;
+            }
+            int tokens = estimate(message.getContent(), overhead);
+            if (historyTokens + tokens > historyBudget) {
+                // 保持上下文连续，不跳过中间消息去填充更早的消息
+                break;
+            }
+            historyTokens += tokens;
+            retained.add(message);
+        }
+        Collections.reverse(retained);
+
+        plan.setRetainedMessages(retained);
+        plan.setRetainedMessageCount(retained.size());
+        plan.setDroppedMessageCount(countNonEmpty(history) - retained.size());
+        plan.setHistoryTokens(historyTokens);
+        plan.setPromptTokens(systemTokens + summaryTokens + referenceTokens + historyTokens + userTokens);
+        return plan;
+    }
+
+    private int estimate(String text, int overhead) {
+        return tokenEstimator.estimate(text) + overhead;
+    }
+
+    private int countNonEmpty(List<TokenMessage> messages) {
+        if (messages == null) {
+            return 0;
+        }
+        return (int) messages.stream()
+                .filter(message -> message.getContent() != null && !message.getContent().isEmpty())
+                .count();
+    }
+}
@@ -0,0 +1,22 @@
+package org.xhy.domain.token.service;
+
+import org.xhy.domain.token.model.TokenMessage;
+import org.xhy.domain.token.model.config.TokenOverflowConfig;
+
+import java.util.List;
+
+/**
+ * 对话摘要生成器
+ * 摘要策略通过该接口生成摘要，便于替换实现或在测试中隔离大模型调用
+ */
+public interface ConversationSummarizer {
+
+    /**
+     * 为消息列表生成摘要
+     *
+     * @param messages 需要摘要的消息，按时间正序
+     * @param config   本次处理的配置，包含服务商信息
+     * @return 摘要内容
+     */
+    String summarize(List<TokenMessage> messages, TokenOverflowConfig config);
+}
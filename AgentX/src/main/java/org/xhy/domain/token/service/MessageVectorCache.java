@@ -0,0 +1,98 @@
+package org.xhy.domain.token.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.xhy.domain.token.model.TokenMessage;
+import org.xhy.infrastructure.config.EmbeddingProperties;
+import org.xhy.infrastructure.embedding.LocalEmbeddingService;
+import org.xhy.infrastructure.embedding.VectorMath;
+
+import java.util.*;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * 消息向量缓存
+ * 消息内容落库后不再变化，每条消息只向量化一次，按消息id缓存归一化后的向量，超出容量时淘汰最久未使用的条目
+ */
+@Component
+public class MessageVectorCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageVectorCache.class);
+
+    private final LocalEmbeddingService embeddingService;
+    private final Map<String, float[]> cache;
+
+    public MessageVectorCache(LocalEmbeddingService embeddingService, EmbeddingProperties properties) {
+        this.embeddingService = embeddingService;
+        int maxSize = properties.getCacheSize();
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<String, float[]>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, float[]> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    /**
+     * 获取消息向量，缺失的向量连同额外文本一起攒批计算
+     *
+     * @param messages 消息列表
+     * @param query    需要一起向量化的查询文本
+     * @return 查询向量与各消息向量，key为消息id，查询向量的key为null
+     * @throws TimeoutException 等待超时
+     */
+    public Map<String, float[]> getVectors(List<TokenMessage> messages, String query) throws TimeoutException {
+        Map<String, float[]> result = new HashMap<>();
+        List<TokenMessage> missing = new ArrayList<>();
+        for (TokenMessage message : messages) {
+            float[] vector = cache.get(message.getId());
+            if (vector != null) {
+                result.put(message.getId(), vector);
+            } else {
+                missing.add(message);
+            }
+        }
+
+        List<String> texts = missing.stream().map(this::textOf).collect(Collectors.toList());
+        texts.add(query);
+        List<float[]> vectors = embeddingService.embedAll(texts);
+        for (int i = 0; i < missing.size(); i++) {
+            float[] vector = VectorMath.normalize(vectors.get(i));
+            cache.put(missing.get(i).getId(), vector);
+            result.put(missing.get(i).getId(), vector);
+        }
+        result.put(null, VectorMath.normalize(vectors.get(vectors.size() - 1)));
+        return result;
+    }
+
+    /**
+     * 在后台预先计算消息向量，不阻塞调用方
+     * 对话结束后调用，下一轮对话时即可直接命中缓存
+     *
+     * @param messages 消息列表
+     */
+    public void prefetch(List<TokenMessage> messages) {
+        List<TokenMessage> missing = messages.stream()
+                .filter(message -> message.getId() != null && !cache.containsKey(message.getId()))
+                .collect(Collectors.toList());
+        if (missing.isEmpty()) {
+            return;
+        }
+        embeddingService.embedAllAsync(missing.stream().map(this::textOf).collect(Collectors.toList()))
+                .whenComplete((vectors, error) -> {
+                    if (error != null) {
+                        logger.debug("消息向量预计算失败: {}", error.getMessage());
+                        return;
+                    }
+                    for (int i = 0; i < missing.size(); i++) {
+                        cache.put(missing.get(i).getId(), VectorMath.normalize(vectors.get(i)));
+                    }
+                });
+    }
+
+    private String textOf(TokenMessage message) {
+        return message.getContent() == null ? "" : message.getContent();
+    }
+}
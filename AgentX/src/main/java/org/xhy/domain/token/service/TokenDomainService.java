@@ -14,10 +14,10 @@ import java.util.List;
 @Service
 public class TokenDomainService {
 
-    private final TokenOverflowStrategyFactory strategyFactory;
+    private final TokenOverflowStrategyRegistry strategyRegistry;
     
-    public TokenDomainService(TokenOverflowStrategyFactory strategyFactory) {
-        this.strategyFactory = strategyFactory;
+    public TokenDomainService(TokenOverflowStrategyRegistry strategyRegistry) {
+        this.strategyRegistry = strategyRegistry;
     }
 
     /**
@@ -28,13 +28,22 @@ public class TokenDomainService {
      * @return 处理结果
      */
     public TokenProcessResult processMessages(List<TokenMessage> messages, TokenOverflowConfig config) {
-        // 创建策略
-        TokenOverflowStrategy strategy = strategyFactory.createStrategy(config);
+        // 获取策略单例
+        TokenOverflowStrategy strategy = strategyRegistry.getStrategy(config);
         
         // 执行处理
         return strategy.process(messages,config);
     }
     
+    /**
+     * 是否已注册该名称的策略，包括插件策略
+     *
+     * @param strategyName 策略名称
+     */
+    public boolean hasStrategy(String strategyName) {
+        return strategyRegistry.contains(strategyName);
+    }
+
     /**
      * 计算消息列表的总Token数
      *
@@ -0,0 +1,90 @@
+package org.xhy.domain.token.service;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingType;
+import com.knuddels.jtokkit.api.IntArrayList;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Token估算器
+ * 使用cl100k_base编码在本地估算文本的token数，用于发送前的预算规划
+ * 不同服务商的分词器存在差异，结果只作为近似值，规划时通过每条消息的额外开销留出余量
+ */
+@Component
+public class TokenEstimator {
+
+    private final Encoding encoding;
+
+    public TokenEstimator() {
+        this.encoding = Encodings.newLazyEncodingRegistry().getEncoding(EncodingType.CL100K_BASE);
+    }
+
+    /**
+     * 估算文本的token数
+     * 按普通文本编码，用户输入中出现的特殊标记不会导致异常
+     *
+     * @param text 文本
+     * @return token数，空文本返回0
+     */
+    public int estimate(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        return encoding.countTokensOrdinary(text);
+    }
+
+    /**
+     * 保留文本末尾不超过指定token数的部分
+     * 摘要按时间顺序追加，末尾是最近的内容，裁剪时优先保留
+     *
+     * @param text      文本
+     * @param maxTokens 最大token数
+     * @return 裁剪后的文本
+     */
+    public String keepTail(String text, int maxTokens) {
+        if (text == null || text.isEmpty() || maxTokens <= 0) {
+            return "";
+        }
+        IntArrayList tokens = encoding.encodeOrdinary(text);
+        if (tokens.size() <= maxTokens) {
+            return text;
+        }
+        IntArrayList tail = new IntArrayList(maxTokens);
+        for (int i = tokens.size() - maxTokens; i < tokens.size(); i++) {
+            tail.add(tokens.get(i));
+        }
+        // 截断处可能落在多字节字符中间，去掉解码产生的替换字符
+        return encoding.decode(tail).replace("\uFFFD", "");
+    }
+
+    /**
+     * 按token数把文本切成若干段，用于没有自然分隔点的超长文本
+     *
+     * @param text      文本
+     * @param maxTokens 每段最大token数
+     * @return 切分后的文本段
+     */
+    public List<String> splitByTokens(String text, int maxTokens) {
+        List<String> parts = new ArrayList<>();
+        if (text == null || text.isEmpty() || maxTokens <= 0) {
+            return parts;
+        }
+        IntArrayList tokens = encoding.encodeOrdinary(text);
+        for (int start = 0; start < tokens.size(); start += maxTokens) {
+            int end = Math.min(start + maxTokens, tokens.size());
+            IntArrayList part = new IntArrayList(end - start);
+            for (int i = start; i < end; i++) {
+                part.add(tokens.get(i));
+            }
+            String decoded = encoding.decode(part).replace("\uFFFD", "");
+            if (!decoded.isBlank()) {
+                parts.add(decoded);
+            }
+        }
+        return parts;
+    }
+}
@@ -8,18 +8,23 @@ import java.util.List;
 
 /**
  * Token溢出处理策略接口
+ * 实现类必须是无状态、线程安全的单例，所有配置通过参数传入，由{@link TokenOverflowStrategyRegistry}统一管理
+ *
+ * 自定义策略可以注册为Spring Bean，也可以通过
+ * META-INF/services/org.xhy.domain.token.service.TokenOverflowStrategy 以插件形式加载
  */
 public interface TokenOverflowStrategy {
     /**
      * 处理消息列表
      *
      * @param messages 待处理的消息列表
+     * @param tokenOverflowConfig 本次处理的配置
      * @return 处理结果，包含处理后的消息列表、摘要等信息
      */
     TokenProcessResult process(List<TokenMessage> messages, TokenOverflowConfig tokenOverflowConfig);
 
     /**
-     * 获取策略名称
+     * 获取策略名称，作为注册表中的唯一标识
      *
      * @return 策略名称
      */
@@ -29,7 +34,8 @@ public interface TokenOverflowStrategy {
      * 检查是否需要处理
      *
      * @param messages 待检查的消息列表
+     * @param tokenOverflowConfig 本次处理的配置
      * @return 是否需要处理
      */
-    boolean needsProcessing(List<TokenMessage> messages);
-} 
\ No newline at end of file
+    boolean needsProcessing(List<TokenMessage> messages, TokenOverflowConfig tokenOverflowConfig);
+} 
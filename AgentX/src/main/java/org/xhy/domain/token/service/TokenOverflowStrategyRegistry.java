@@ -0,0 +1,100 @@
+package org.xhy.domain.token.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.xhy.domain.shared.enums.TokenOverflowStrategyEnum;
+import org.xhy.domain.token.model.config.TokenOverflowConfig;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Token超限处理策略注册表
+ * 启动时收集容器中的策略Bean以及通过ServiceLoader发现的插件策略，按策略名称缓存单例，
+ * 每次对话按配置查找策略，不再为每轮对话创建新的策略实例
+ */
+@Service
+public class TokenOverflowStrategyRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenOverflowStrategyRegistry.class);
+
+    private final Map<String, TokenOverflowStrategy> strategies = new ConcurrentHashMap<>();
+
+    public TokenOverflowStrategyRegistry(List<TokenOverflowStrategy> strategyBeans) {
+        strategyBeans.forEach(this::register);
+
+        // 加载插件策略，同名时容器中的策略优先
+        for (TokenOverflowStrategy strategy : ServiceLoader.load(TokenOverflowStrategy.class)) {
+            if (strategies.putIfAbsent(strategy.getName(), strategy) != null) {
+                logger.warn("插件策略与已注册策略重名，已忽略: {} ({})",
+                        strategy.getName(), strategy.getClass().getName());
+            } else {
+                logger.info("加载插件Token策略: {} ({})", strategy.getName(), strategy.getClass().getName());
+            }
+        }
+    }
+
+    /**
+     * 注册策略，同名策略会被覆盖
+     *
+     * @param strategy 策略实例，必须无状态且线程安全
+     */
+    public void register(TokenOverflowStrategy strategy) {
+        TokenOverflowStrategy previous = strategies.put(strategy.getName(), strategy);
+        if (previous != null && previous != strategy) {
+            logger.warn("Token策略被覆盖: {} ({} -> {})", strategy.getName(),
+                    previous.getClass().getName(), strategy.getClass().getName());
+        }
+    }
+
+    /**
+     * 按名称获取策略，未注册时回退到无策略
+     *
+     * @param name 策略名称
+     * @return 策略实例
+     */
+    public TokenOverflowStrategy getStrategy(String name) {
+        if (name != null) {
+            TokenOverflowStrategy strategy = strategies.get(name);
+            if (strategy != null) {
+                return strategy;
+            }
+            logger.warn("未注册的Token策略: {}，使用无策略处理", name);
+        }
+        return strategies.get(TokenOverflowStrategyEnum.NONE.name());
+    }
+
+    /**
+     * 按配置获取策略
+     *
+     * @param config 策略配置
+     * @return 策略实例
+     */
+    public TokenOverflowStrategy getStrategy(TokenOverflowConfig config) {
+        if (config == null) {
+            return getStrategy(TokenOverflowStrategyEnum.NONE.name());
+        }
+        return getStrategy(config.getStrategyName());
+    }
+
+    /**
+     * 是否已注册该名称的策略
+     *
+     * @param name 策略名称
+     */
+    public boolean contains(String name) {
+        return name != null && strategies.containsKey(name);
+    }
+
+    /**
+     * 获取所有已注册的策略
+     */
+    public Collection<TokenOverflowStrategy> getStrategies() {
+        return Collections.unmodifiableCollection(strategies.values());
+    }
+}
@@ -0,0 +1,65 @@
+package org.xhy.domain.token.service.impl;
+
+import dev.langchain4j.data.message.*;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.xhy.domain.token.model.TokenMessage;
+import org.xhy.domain.token.model.config.TokenOverflowConfig;
+import org.xhy.domain.token.service.ConversationSummarizer;
+import org.xhy.infrastructure.exception.BusinessException;
+import org.xhy.infrastructure.llm.LLMProviderService;
+import org.xhy.infrastructure.llm.config.ProviderConfig;
+import org.xhy.infrastructure.metrics.ChatMetrics;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 基于大模型的对话摘要生成器
+ * 使用当前对话的服务商配置调用大模型生成摘要
+ */
+@Component
+public class LlmConversationSummarizer implements ConversationSummarizer {
+
+    private static final String SUMMARY_PROMPT = "你是一个专业的对话摘要生成器，请严格按照以下要求工作：\n" +
+            "1. 只基于提供的对话内容生成客观摘要，不得添加任何原对话中没有的信息\n" +
+            "2. 特别关注：用户问题、回答中的关键信息、重要事实\n" +
+            "3. 去除所有寒暄、表情符号和情感表达\n" +
+            "4. 使用简洁的第三人称陈述句\n" +
+            "5. 保持时间顺序和逻辑关系\n" +
+            "6. 示例格式：[用户]问... [AI]回答...\n" +
+            "禁止使用任何表情符号或拟人化表达";
+
+    private final ChatMetrics chatMetrics;
+
+    public LlmConversationSummarizer(ChatMetrics chatMetrics) {
+        this.chatMetrics = chatMetrics;
+    }
+
+    @Override
+    public String summarize(List<TokenMessage> messages, TokenOverflowConfig config) {
+        ProviderConfig providerConfig = config != null ? config.getProviderConfig() : null;
+        if (providerConfig == null) {
+            throw new BusinessException("生成摘要缺少服务商配置");
+        }
+
+        // 使用当前服务商调用大模型
+        ChatLanguageModel chatLanguageModel = LLMProviderService.getNormal(providerConfig.getProtocol(), providerConfig);
+        SystemMessage systemMessage = new SystemMessage(SUMMARY_PROMPT);
+        List<Content> contents = messages.stream()
+                .map(message -> new TextContent(message.getContent()))
+                .collect(Collectors.toList());
+        UserMessage userMessage = new UserMessage(contents);
+        Timer.Sample sample = chatMetrics.start();
+        ChatResponse chatResponse = chatLanguageModel.chat(Arrays.asList(systemMessage, userMessage));
+        Tags tags = config.getMetricTags() != null ? config.getMetricTags() : ChatMetrics.tags(
+                providerConfig.getProtocol() != null ? providerConfig.getProtocol().name() : null,
+                providerConfig.getModel(), null, config.getStrategyName());
+        sample.stop(chatMetrics.timer(ChatMetrics.SUMMARIZE, tags));
+        return chatResponse.aiMessage().text();
+    }
+}
@@ -0,0 +1,183 @@
+package org.xhy.domain.token.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.xhy.domain.shared.enums.TokenOverflowStrategyEnum;
+import org.xhy.domain.token.model.TokenMessage;
+import org.xhy.domain.token.model.TokenProcessResult;
+import org.xhy.domain.token.model.config.TokenOverflowConfig;
+import org.xhy.domain.token.service.MessageVectorCache;
+import org.xhy.domain.token.service.TokenOverflowStrategy;
+import org.xhy.infrastructure.embedding.VectorMath;
+
+import java.util.*;
+
+/**
+ * 相关性保留Token超限处理策略实现
+ * 先保留最近的若干条消息，剩余预算按与当前用户消息的语义相似度从高到低填充，
+ * 较早但与当前问题相关的消息不会因为时间久远被丢弃
+ *
+ * 向量由本地模型计算并按消息缓存；向量化超时或失败时退化为按时间保留最新消息
+ */
+@Service
+public class RelevanceTokenOverflowStrategy implements TokenOverflowStrategy {
+
+    private static final Logger logger = LoggerFactory.getLogger(RelevanceTokenOverflowStrategy.class);
+
+    /**
+     * 默认最大Token数
+     */
+    private static final int DEFAULT_MAX_TOKENS = 4096;
+
+    /**
+     * 默认预留缓冲比例
+     */
+    private static final double DEFAULT_RESERVE_RATIO = 0.1;
+
+    /**
+     * 默认无条件保留的最近消息数
+     */
+    private static final int DEFAULT_RECENT_TAIL_SIZE = 4;
+
+    private final MessageVectorCache messageVectorCache;
+
+    public RelevanceTokenOverflowStrategy(MessageVectorCache messageVectorCache) {
+        this.messageVectorCache = messageVectorCache;
+    }
+
+    @Override
+    public TokenProcessResult process(List<TokenMessage> messages, TokenOverflowConfig tokenOverflowConfig) {
+        if (!needsProcessing(messages, tokenOverflowConfig)) {
+            TokenProcessResult result = new TokenProcessResult();
+            result.setRetainedMessages(messages != null ? messages : new ArrayList<>());
+            result.setStrategyName(getName());
+            result.setProcessed(false);
+            result.setTotalTokens(calculateTotalTokens(messages));
+            return result;
+        }
+
+        // 按时间正序排序
+        List<TokenMessage> sortedMessages = new ArrayList<>(messages);
+        sortedMessages.sort(Comparator.comparing(TokenMessage::getCreatedAt));
+
+        int maxTokens = getMaxTokens(tokenOverflowConfig);
+        int availableTokens = maxTokens - (int) (maxTokens * getReserveRatio(tokenOverflowConfig));
+
+        // 1. 保留最近的消息
+        Set<TokenMessage> retained = new HashSet<>();
+        int totalTokens = 0;
+        int tailSize = getRecentTailSize(tokenOverflowConfig);
+        int tailStart = sortedMessages.size();
+        for (int i = sortedMessages.size() - 1; i >= 0 && sortedMessages.size() - i <= tailSize; i--) {
+            int tokens = tokensOf(sortedMessages.get(i));
+            if (totalTokens + tokens > availableTokens) {
+                break;
+            }
+            retained.add(sortedMessages.get(i));
+            totalTokens += tokens;
+            tailStart = i;
+        }
+
+        // 2. 剩余预算按相关性填充，无法计算相关性时按时间从新到旧填充
+        List<TokenMessage> candidates = new ArrayList<>(sortedMessages.subList(0, tailStart));
+        List<TokenMessage> ranked = rankByRelevance(candidates,
+                tokenOverflowConfig != null ? tokenOverflowConfig.getCurrentMessage() : null);
+        for (TokenMessage message : ranked) {
+            int tokens = tokensOf(message);
+            if (totalTokens + tokens <= availableTokens) {
+                retained.add(message);
+                totalTokens += tokens;
+            }
+        }
+
+        List<TokenMessage> retainedMessages = new ArrayList<>();
+        for (TokenMessage message : sortedMessages) {
+            if (retained.contains(message)) {
+                retainedMessages.add(message);
+            }
+        }
+
+        TokenProcessResult result = new TokenProcessResult();
+        result.setRetainedMessages(retainedMessages);
+        result.setStrategyName(getName());
+        result.setProcessed(true);
+        result.setTotalTokens(totalTokens);
+        return result;
+    }
+
+    @Override
+    public String getName() {
+        return TokenOverflowStrategyEnum.RELEVANCE.name();
+    }
+
+    @Override
+    public boolean needsProcessing(List<TokenMessage> messages, TokenOverflowConfig tokenOverflowConfig) {
+        if (messages == null || messages.isEmpty()) {
+            return false;
+        }
+        return calculateTotalTokens(messages) > getMaxTokens(tokenOverflowConfig);
+    }
+
+    /**
+     * 按与查询的相似度从高到低排序候选消息
+     * 向量不可用时按时间从新到旧排序
+     */
+    private List<TokenMessage> rankByRelevance(List<TokenMessage> candidates, String query) {
+        List<TokenMessage> byRecency = new ArrayList<>(candidates);
+        Collections.reverse(byRecency);
+        if (candidates.isEmpty() || query == null || query.isEmpty()) {
+            return byRecency;
+        }
+
+        Map<String, float[]> vectors;
+        try {
+            vectors = messageVectorCache.getVectors(candidates, query);
+        } catch (Exception e) {
+            logger.warn("计算消息相关性失败，按时间保留消息: {}", e.getMessage());
+            return byRecency;
+        }
+
+        float[] queryVector = vectors.get(null);
+        Map<TokenMessage, Float> scores = new IdentityHashMap<>();
+        for (TokenMessage message : candidates) {
+            float[] vector = vectors.get(message.getId());
+            scores.put(message, vector == null ? -1f : VectorMath.dot(queryVector, vector));
+        }
+        // 相似度相同时较新的消息优先
+        byRecency.sort(Comparator.comparing((TokenMessage message) -> scores.get(message)).reversed());
+        return byRecency;
+    }
+
+    private int tokensOf(TokenMessage message) {
+        return message.getTokenCount() != null ? message.getTokenCount() : 0;
+    }
+
+    private int calculateTotalTokens(List<TokenMessage> messages) {
+        if (messages == null) {
+            return 0;
+        }
+        return messages.stream().mapToInt(this::tokensOf).sum();
+    }
+
+    private int getMaxTokens(TokenOverflowConfig config) {
+        if (config == null || config.getMaxTokens() == null) {
+            return DEFAULT_MAX_TOKENS;
+        }
+        return config.getMaxTokens();
+    }
+
+    private double getReserveRatio(TokenOverflowConfig config) {
+        if (config == null || config.getReserveRatio() == null) {
+            return DEFAULT_RESERVE_RATIO;
+        }
+        return config.getReserveRatio();
+    }
+
+    private int getRecentTailSize(TokenOverflowConfig config) {
+        if (config == null || config.getRecentTailSize() == null) {
+            return DEFAULT_RECENT_TAIL_SIZE;
+        }
+        return config.getRecentTailSize();
+    }
+}
@@ -14,7 +14,7 @@ import java.util.List;
 
 /**
  * 滑动窗口Token超限处理策略实现
- * 根据Token数量保留最新消息，超出窗口的旧消息将被丢弃
+ * 根据Token数量保留最新消息，超出窗口的旧消息将被丢弃；无状态单例，配置随调用传入
  */
 @Service
 public class SlidingWindowTokenOverflowStrategy implements TokenOverflowStrategy {
@@ -29,29 +29,16 @@ public class SlidingWindowTokenOverflowStrategy implements TokenOverflowStrategy
      */
     private static final double DEFAULT_RESERVE_RATIO = 0.1;
     
-    /**
-     * 策略配置
-     */
-    private final TokenOverflowConfig config;
-    
-    /**
-     * 构造函数
-     * 
-     * @param config 策略配置
-     */
-    public SlidingWindowTokenOverflowStrategy(TokenOverflowConfig config) {
-        this.config = config;
-    }
-    
     /**
      * 处理消息列表，应用滑动窗口策略
      * 
      * @param messages 待处理的消息列表
+     * @param tokenOverflowConfig 处理配置
      * @return 处理后保留的消息列表
      */
     @Override
-    public TokenProcessResult process(List<TokenMessage> messages,TokenOverflowConfig tokenOverflowConfig) {
-        if (!needsProcessing(messages)) {
+    public TokenProcessResult process(List<TokenMessage> messages, TokenOverflowConfig tokenOverflowConfig) {
+        if (!needsProcessing(messages, tokenOverflowConfig)) {
             TokenProcessResult result = new TokenProcessResult();
             result.setRetainedMessages(messages);
             result.setStrategyName(getName());
@@ -65,8 +52,8 @@ public class SlidingWindowTokenOverflowStrategy implements TokenOverflowStrategy
         Collections.sort(sortedMessages, Comparator.comparing(TokenMessage::getCreatedAt).reversed());
 
         // 计算可用token数（考虑预留空间）
-        int maxTokens = config.getMaxTokens();
-        int reserveTokens = (int) (maxTokens * config.getReserveRatio());
+        int maxTokens = getMaxTokens(tokenOverflowConfig);
+        int reserveTokens = (int) (maxTokens * getReserveRatio(tokenOverflowConfig));
         int availableTokens = maxTokens - reserveTokens;
 
         // 保留最新的消息，直到达到token限制
@@ -107,17 +94,17 @@ public class SlidingWindowTokenOverflowStrategy implements TokenOverflowStrategy
      * 判断是否需要进行Token超限处理
      * 
      * @param messages 待处理的消息列表
+     * @param tokenOverflowConfig 处理配置
      * @return 是否需要处理
      */
     @Override
-    public boolean needsProcessing(List<TokenMessage> messages) {
+    public boolean needsProcessing(List<TokenMessage> messages, TokenOverflowConfig tokenOverflowConfig) {
         if (messages == null || messages.isEmpty()) {
             return false;
         }
         
         int totalTokens = calculateTotalTokens(messages);
-        int maxTokens = config.getMaxTokens();
-        return totalTokens > maxTokens;
+        return totalTokens > getMaxTokens(tokenOverflowConfig);
     }
     
 
@@ -125,6 +112,9 @@ public class SlidingWindowTokenOverflowStrategy implements TokenOverflowStrategy
      * 计算消息列表的总token数
      */
     private int calculateTotalTokens(List<TokenMessage> messages) {
+        if (messages == null) {
+            return 0;
+        }
         return messages.stream()
                 .mapToInt(m -> m.getTokenCount() != null ? m.getTokenCount() : 0)
                 .sum();
@@ -133,9 +123,10 @@ public class SlidingWindowTokenOverflowStrategy implements TokenOverflowStrategy
     /**
      * 获取配置的最大Token数，如果未配置则使用默认值
      * 
+     * @param config 处理配置
      * @return 最大Token数
      */
-    private int getMaxTokens() {
+    private int getMaxTokens(TokenOverflowConfig config) {
         if (config == null || config.getMaxTokens() == null) {
             return DEFAULT_MAX_TOKENS;
         }
@@ -145,9 +136,10 @@ public class SlidingWindowTokenOverflowStrategy implements TokenOverflowStrategy
     /**
      * 获取配置的预留比例，如果未配置则使用默认值
      * 
+     * @param config 处理配置
      * @return 预留比例
      */
-    private double getReserveRatio() {
+    private double getReserveRatio(TokenOverflowConfig config) {
         if (config == null || config.getReserveRatio() == null) {
             return DEFAULT_RESERVE_RATIO;
         }
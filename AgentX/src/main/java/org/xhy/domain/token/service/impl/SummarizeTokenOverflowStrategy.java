@@ -1,69 +1,61 @@
 package org.xhy.domain.token.service.impl;
 
-import dev.langchain4j.data.message.*;
-import dev.langchain4j.model.chat.ChatLanguageModel;
-import dev.langchain4j.model.chat.response.ChatResponse;
+import org.springframework.stereotype.Service;
 import org.xhy.domain.token.model.TokenMessage;
 import org.xhy.domain.token.model.TokenProcessResult;
 import org.xhy.domain.token.model.config.TokenOverflowConfig;
 import org.xhy.domain.shared.enums.TokenOverflowStrategyEnum;
+import org.xhy.domain.token.service.ConversationSummarizer;
 import org.xhy.domain.token.service.TokenOverflowStrategy;
-import org.xhy.infrastructure.llm.LLMProviderService;
-import org.xhy.infrastructure.llm.config.ProviderConfig;
 
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * 摘要策略Token超限处理实现
  * 将超出阈值的早期消息生成摘要，保留摘要和最新消息
+ * 无状态单例，配置随调用传入，待摘要消息和摘要结果只存在于单次调用中
  */
+@Service
 public class SummarizeTokenOverflowStrategy implements TokenOverflowStrategy {
 
     /**
      * 摘要消息的特殊角色标识
      */
     private static final String SUMMARY_ROLE = "summary";
-    
-    /**
-     * 策略配置
-     */
-    private final TokenOverflowConfig config;
-    
+
     /**
-     * 需要进行摘要的消息
+     * 默认摘要触发阈值
      */
-    private List<TokenMessage> messagesToSummarize;
-    
+    private static final int DEFAULT_SUMMARY_THRESHOLD = 20;
+
     /**
-     * 生成的摘要消息对象
+     * 摘要生成器
      */
-    private TokenMessage summaryMessage;
-    
+    private final ConversationSummarizer summarizer;
+
     /**
      * 构造函数
-     * 
-     * @param config 策略配置
+     *
+     * @param summarizer 摘要生成器
      */
-    public SummarizeTokenOverflowStrategy(TokenOverflowConfig config) {
-        this.config = config;
-        this.messagesToSummarize = new ArrayList<>();
-        this.summaryMessage = null;
+    public SummarizeTokenOverflowStrategy(ConversationSummarizer summarizer) {
+        this.summarizer = summarizer;
     }
-    
+
     /**
      * 处理消息列表，应用摘要策略
      * 将超过阈值的早期消息替换为一个摘要消息
-     * 
+     *
      * @param messages 待处理的消息列表
+     * @param tokenOverflowConfig 处理配置
      * @return 处理后的消息列表（包含摘要消息+保留的消息）
      */
     @Override
-    public TokenProcessResult  process(List<TokenMessage> messages,TokenOverflowConfig tokenOverflowConfig) {
-        if (!needsProcessing(messages)) {
+    public TokenProcessResult process(List<TokenMessage> messages, TokenOverflowConfig tokenOverflowConfig) {
+        if (!needsProcessing(messages, tokenOverflowConfig)) {
             TokenProcessResult result = new TokenProcessResult();
-            result.setRetainedMessages(messages);
+            result.setRetainedMessages(messages != null ? messages : new ArrayList<>());
             result.setStrategyName(getName());
             result.setProcessed(false);
             result.setTotalTokens(calculateTotalTokens(messages));
@@ -71,22 +63,23 @@ public class SummarizeTokenOverflowStrategy implements TokenOverflowStrategy {
         }
 
         // 按时间排序
-        List<TokenMessage> sortedMessages = new ArrayList<>(messages);
-        Collections.sort(sortedMessages, Comparator.comparing(TokenMessage::getCreatedAt));
+        List<TokenMessage> sortedMessages = sortByTime(messages);
 
         // 获取需要保留的消息数量
-        int threshold = config.getSummaryThreshold();
-        
+        int threshold = getSummaryThreshold(tokenOverflowConfig);
+
         // 分割消息：需要摘要的消息和保留的消息
-        messagesToSummarize = sortedMessages.subList(0, sortedMessages.size() - threshold);
+        List<TokenMessage> messagesToSummarize = new ArrayList<>(
+            sortedMessages.subList(0, sortedMessages.size() - threshold)
+        );
         List<TokenMessage> retainedMessages = new ArrayList<>(
             sortedMessages.subList(sortedMessages.size() - threshold, sortedMessages.size())
         );
 
         // 生成摘要消息
-        String summary = generateSummary(messagesToSummarize,tokenOverflowConfig);
-        summaryMessage = createSummaryMessage(summary);
-        
+        String summary = summarizer.summarize(messagesToSummarize, tokenOverflowConfig);
+        TokenMessage summaryMessage = createSummaryMessage(summary);
+
         // 将摘要消息添加到保留消息列表的开头
         retainedMessages.add(0, summaryMessage);
 
@@ -97,13 +90,13 @@ public class SummarizeTokenOverflowStrategy implements TokenOverflowStrategy {
         result.setStrategyName(getName());
         result.setProcessed(true);
         result.setTotalTokens(calculateTotalTokens(retainedMessages));
-        
+
         return result;
     }
-    
+
     /**
      * 创建表示摘要的TokenMessage对象
-     * 
+     *
      * @param summary 摘要内容
      * @return 摘要消息对象
      */
@@ -116,80 +109,79 @@ public class SummarizeTokenOverflowStrategy implements TokenOverflowStrategy {
         message.setCreatedAt(LocalDateTime.now());
         return message;
     }
-    
+
     /**
      * 获取策略名称
-     * 
+     *
      * @return 策略名称
      */
     @Override
     public String getName() {
         return TokenOverflowStrategyEnum.SUMMARIZE.name();
     }
-    
+
     /**
      * 判断是否需要进行Token超限处理
-     * 
+     *
      * @param messages 待处理的消息列表
+     * @param tokenOverflowConfig 处理配置
      * @return 是否需要处理
      */
     @Override
-    public boolean needsProcessing(List<TokenMessage> messages) {
+    public boolean needsProcessing(List<TokenMessage> messages, TokenOverflowConfig tokenOverflowConfig) {
         if (messages == null || messages.isEmpty()) {
             return false;
         }
-        
-        return messages.size() > config.getSummaryThreshold();
+
+        return messages.size() > getSummaryThreshold(tokenOverflowConfig);
     }
-    
+
     /**
      * 获取需要摘要的消息列表（按时间排序）
-     * 这是应用层应该使用的方法，用于获取需要进行摘要处理的消息对象
-     * 
-     * @return 需要摘要的消息列表（按时间从旧到新排序）
+     * 不调用大模型，可用于预估摘要范围
+     *
+     * @param messages 待处理的消息列表
+     * @param tokenOverflowConfig 处理配置
+     * @return 需要摘要的消息列表（按时间从旧到新排序），无需处理时返回空列表
      */
-    public List<TokenMessage> getMessagesToSummarize() {
-        return messagesToSummarize;
+    public List<TokenMessage> selectMessagesToSummarize(List<TokenMessage> messages,
+                                                        TokenOverflowConfig tokenOverflowConfig) {
+        if (!needsProcessing(messages, tokenOverflowConfig)) {
+            return new ArrayList<>();
+        }
+        List<TokenMessage> sortedMessages = sortByTime(messages);
+        int threshold = getSummaryThreshold(tokenOverflowConfig);
+        return new ArrayList<>(sortedMessages.subList(0, sortedMessages.size() - threshold));
     }
-    
+
     /**
-     * 生成摘要内容
+     * 按创建时间正序排序
      */
-    private String generateSummary(List<TokenMessage> messages,TokenOverflowConfig tokenOverflowConfig) {
-
-        ProviderConfig providerConfig = tokenOverflowConfig.getProviderConfig();
-
-        // 使用当前服务商调用大模型
-        ChatLanguageModel chatLanguageModel = LLMProviderService.getNormal(providerConfig.getProtocol(), providerConfig);
-        SystemMessage systemMessage = new SystemMessage(  "你是一个专业的对话摘要生成器，请严格按照以下要求工作：\n" +
-                "1. 只基于提供的对话内容生成客观摘要，不得添加任何原对话中没有的信息\n" +
-                "2. 特别关注：用户问题、回答中的关键信息、重要事实\n" +
-                "3. 去除所有寒暄、表情符号和情感表达\n" +
-                "4. 使用简洁的第三人称陈述句\n" +
-                "5. 保持时间顺序和逻辑关系\n" +
-                "6. 示例格式：[用户]问... [AI]回答...\n" +
-                "禁止使用任何表情符号或拟人化表达");
-        List<Content> contents = messages.stream().map(message -> new TextContent(message.getContent())).collect(Collectors.toList());
-        UserMessage userMessage = new UserMessage(contents);
-        ChatResponse chatResponse = chatLanguageModel.chat(Arrays.asList(systemMessage,userMessage));
-         return chatResponse.aiMessage().text();
+    private List<TokenMessage> sortByTime(List<TokenMessage> messages) {
+        List<TokenMessage> sortedMessages = new ArrayList<>(messages);
+        sortedMessages.sort(Comparator.comparing(TokenMessage::getCreatedAt));
+        return sortedMessages;
     }
-    
+
+    /**
+     * 获取配置的摘要阈值，如果未配置则使用默认值
+     */
+    private int getSummaryThreshold(TokenOverflowConfig config) {
+        if (config == null || config.getSummaryThreshold() == null) {
+            return DEFAULT_SUMMARY_THRESHOLD;
+        }
+        return config.getSummaryThreshold();
+    }
+
     /**
      * 计算消息列表的总token数
      */
     private int calculateTotalTokens(List<TokenMessage> messages) {
+        if (messages == null) {
+            return 0;
+        }
         return messages.stream()
                 .mapToInt(m -> m.getTokenCount() != null ? m.getTokenCount() : 0)
                 .sum();
     }
-    
-    /**
-     * 获取生成的摘要消息对象
-     * 
-     * @return 摘要消息对象
-     */
-    public TokenMessage getSummaryMessage() {
-        return summaryMessage;
-    }
-} 
\ No newline at end of file
+}
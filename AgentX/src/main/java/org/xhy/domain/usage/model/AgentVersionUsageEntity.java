@@ -0,0 +1,40 @@
+package org.xhy.domain.usage.model;
+
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableName;
+
+/**
+ * Agent版本用量实体类
+ * 每个Agent版本一行，对话时Agent尚未发布的用量记在空版本ID下
+ */
+@TableName("agent_version_usage")
+public class AgentVersionUsageEntity extends UsageCounter {
+
+    /**
+     * Agent ID
+     */
+    @TableField("agent_id")
+    private String agentId;
+
+    /**
+     * 版本ID，未发布时为空字符串
+     */
+    @TableField("version_id")
+    private String versionId;
+
+    public String getAgentId() {
+        return agentId;
+    }
+
+    public void setAgentId(String agentId) {
+        this.agentId = agentId;
+    }
+
+    public String getVersionId() {
+        return versionId;
+    }
+
+    public void setVersionId(String versionId) {
+        this.versionId = versionId;
+    }
+}
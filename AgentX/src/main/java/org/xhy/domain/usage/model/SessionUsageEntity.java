@@ -0,0 +1,56 @@
+package org.xhy.domain.usage.model;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+
+/**
+ * 会话用量实体类
+ * 一个会话一行，由用量累加器定期批量累加
+ */
+@TableName("session_usage")
+public class SessionUsageEntity extends UsageCounter {
+
+    /**
+     * 会话ID
+     */
+    @TableId(value = "session_id", type = IdType.INPUT)
+    private String sessionId;
+
+    /**
+     * 用户ID
+     */
+    @TableField("user_id")
+    private String userId;
+
+    /**
+     * Agent ID
+     */
+    @TableField("agent_id")
+    private String agentId;
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getAgentId() {
+        return agentId;
+    }
+
+    public void setAgentId(String agentId) {
+        this.agentId = agentId;
+    }
+}
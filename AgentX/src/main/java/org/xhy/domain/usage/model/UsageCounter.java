@@ -0,0 +1,93 @@
+package org.xhy.domain.usage.model;
+
+import com.baomidou.mybatisplus.annotation.TableField;
+
+import java.time.LocalDateTime;
+
+/**
+ * 用量计数
+ * 各维度用量表共有的消息数、输入token数和输出token数；内存中也用作待刷写的增量
+ */
+public abstract class UsageCounter {
+
+    /**
+     * 消息数
+     */
+    @TableField("message_count")
+    private long messageCount;
+
+    /**
+     * 输入token数
+     */
+    @TableField("input_tokens")
+    private long inputTokens;
+
+    /**
+     * 输出token数
+     */
+    @TableField("output_tokens")
+    private long outputTokens;
+
+    /**
+     * 最后更新时间
+     */
+    @TableField("updated_at")
+    private LocalDateTime updatedAt;
+
+    /**
+     * 累加另一份计数
+     */
+    public void add(long messages, long input, long output) {
+        this.messageCount += messages;
+        this.inputTokens += input;
+        this.outputTokens += output;
+    }
+
+    /**
+     * 累加另一份计数
+     */
+    public void add(UsageCounter other) {
+        if (other != null) {
+            add(other.messageCount, other.inputTokens, other.outputTokens);
+        }
+    }
+
+    /**
+     * 总token数
+     */
+    public long getTotalTokens() {
+        return inputTokens + outputTokens;
+    }
+
+    public long getMessageCount() {
+        return messageCount;
+    }
+
+    public void setMessageCount(long messageCount) {
+        this.messageCount = messageCount;
+    }
+
+    public long getInputTokens() {
+        return inputTokens;
+    }
+
+    public void setInputTokens(long inputTokens) {
+        this.inputTokens = inputTokens;
+    }
+
+    public long getOutputTokens() {
+        return outputTokens;
+    }
+
+    public void setOutputTokens(long outputTokens) {
+        this.outputTokens = outputTokens;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
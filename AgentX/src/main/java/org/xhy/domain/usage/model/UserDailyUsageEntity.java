@@ -0,0 +1,42 @@
+package org.xhy.domain.usage.model;
+
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableName;
+
+import java.time.LocalDate;
+
+/**
+ * 用户每日用量实体类
+ * 每个用户每天一行，日期按服务器本地时区划分
+ */
+@TableName("user_daily_usage")
+public class UserDailyUsageEntity extends UsageCounter {
+
+    /**
+     * 用户ID
+     */
+    @TableField("user_id")
+    private String userId;
+
+    /**
+     * 日期
+     */
+    @TableField("usage_date")
+    private LocalDate usageDate;
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public LocalDate getUsageDate() {
+        return usageDate;
+    }
+
+    public void setUsageDate(LocalDate usageDate) {
+        this.usageDate = usageDate;
+    }
+}
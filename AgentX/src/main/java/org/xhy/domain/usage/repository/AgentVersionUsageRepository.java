@@ -0,0 +1,45 @@
+package org.xhy.domain.usage.repository;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.xhy.domain.usage.model.AgentVersionUsageEntity;
+import org.xhy.infrastructure.repository.MyBatisPlusExtRepository;
+
+import java.util.List;
+
+/**
+ * Agent版本用量仓库接口
+ */
+@Mapper
+public interface AgentVersionUsageRepository extends MyBatisPlusExtRepository<AgentVersionUsageEntity> {
+
+    /**
+     * 批量累加Agent版本用量，行不存在时插入
+     *
+     * @param increments 各版本的增量，Agent ID和版本ID的组合不能重复
+     * @return 影响行数
+     */
+    @Insert("<script>" +
+            "INSERT INTO agent_version_usage (agent_id, version_id, message_count, input_tokens, output_tokens, updated_at) " +
+            "VALUES <foreach collection='increments' item='c' separator=','>" +
+            "(#{c.agentId}, #{c.versionId}, #{c.messageCount}, #{c.inputTokens}, #{c.outputTokens}, NOW())" +
+            "</foreach> " +
+            "ON CONFLICT (agent_id, version_id) DO UPDATE SET " +
+            "message_count = agent_version_usage.message_count + EXCLUDED.message_count, " +
+            "input_tokens = agent_version_usage.input_tokens + EXCLUDED.input_tokens, " +
+            "output_tokens = agent_version_usage.output_tokens + EXCLUDED.output_tokens, " +
+            "updated_at = EXCLUDED.updated_at" +
+            "</script>")
+    int upsertIncrements(@Param("increments") List<AgentVersionUsageEntity> increments);
+
+    /**
+     * 查询Agent各版本的用量
+     *
+     * @param agentId Agent ID
+     * @return 各版本用量，按消息数倒序
+     */
+    @Select("SELECT * FROM agent_version_usage WHERE agent_id = #{agentId} ORDER BY message_count DESC")
+    List<AgentVersionUsageEntity> selectByAgentId(@Param("agentId") String agentId);
+}
@@ -0,0 +1,35 @@
+package org.xhy.domain.usage.repository;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.xhy.domain.usage.model.SessionUsageEntity;
+import org.xhy.infrastructure.repository.MyBatisPlusExtRepository;
+
+import java.util.List;
+
+/**
+ * 会话用量仓库接口
+ */
+@Mapper
+public interface SessionUsageRepository extends MyBatisPlusExtRepository<SessionUsageEntity> {
+
+    /**
+     * 批量累加会话用量，行不存在时插入
+     *
+     * @param increments 各会话的增量，会话ID不能重复
+     * @return 影响行数
+     */
+    @Insert("<script>" +
+            "INSERT INTO session_usage (session_id, user_id, agent_id, message_count, input_tokens, output_tokens, updated_at) " +
+            "VALUES <foreach collection='increments' item='c' separator=','>" +
+            "(#{c.sessionId}, #{c.userId}, #{c.agentId}, #{c.messageCount}, #{c.inputTokens}, #{c.outputTokens}, NOW())" +
+            "</foreach> " +
+            "ON CONFLICT (session_id) DO UPDATE SET " +
+            "message_count = session_usage.message_count + EXCLUDED.message_count, " +
+            "input_tokens = session_usage.input_tokens + EXCLUDED.input_tokens, " +
+            "output_tokens = session_usage.output_tokens + EXCLUDED.output_tokens, " +
+            "updated_at = EXCLUDED.updated_at" +
+            "</script>")
+    int upsertIncrements(@Param("increments") List<SessionUsageEntity> increments);
+}
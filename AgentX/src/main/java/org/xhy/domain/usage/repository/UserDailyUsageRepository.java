@@ -0,0 +1,62 @@
+package org.xhy.domain.usage.repository;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.xhy.domain.usage.model.UserDailyUsageEntity;
+import org.xhy.infrastructure.repository.MyBatisPlusExtRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 用户每日用量仓库接口
+ */
+@Mapper
+public interface UserDailyUsageRepository extends MyBatisPlusExtRepository<UserDailyUsageEntity> {
+
+    /**
+     * 批量累加用户每日用量，行不存在时插入
+     *
+     * @param increments 各用户各日期的增量，用户ID和日期的组合不能重复
+     * @return 影响行数
+     */
+    @Insert("<script>" +
+            "INSERT INTO user_daily_usage (user_id, usage_date, message_count, input_tokens, output_tokens, updated_at) " +
+            "VALUES <foreach collection='increments' item='c' separator=','>" +
+            "(#{c.userId}, #{c.usageDate}, #{c.messageCount}, #{c.inputTokens}, #{c.outputTokens}, NOW())" +
+            "</foreach> " +
+            "ON CONFLICT (user_id, usage_date) DO UPDATE SET " +
+            "message_count = user_daily_usage.message_count + EXCLUDED.message_count, " +
+            "input_tokens = user_daily_usage.input_tokens + EXCLUDED.input_tokens, " +
+            "output_tokens = user_daily_usage.output_tokens + EXCLUDED.output_tokens, " +
+            "updated_at = EXCLUDED.updated_at" +
+            "</script>")
+    int upsertIncrements(@Param("increments") List<UserDailyUsageEntity> increments);
+
+    /**
+     * 查询用户在日期区间内的每日用量
+     *
+     * @param userId 用户ID
+     * @param from   起始日期（含）
+     * @param to     结束日期（含）
+     * @return 每日用量，按日期升序，没有用量的日期不返回
+     */
+    @Select("SELECT * FROM user_daily_usage WHERE user_id = #{userId} " +
+            "AND usage_date BETWEEN #{from} AND #{to} ORDER BY usage_date")
+    List<UserDailyUsageEntity> selectRange(@Param("userId") String userId, @Param("from") LocalDate from,
+                                           @Param("to") LocalDate to);
+
+    /**
+     * 批量查询多个用户某天的用量
+     *
+     * @param userIds 用户ID列表
+     * @param date    日期
+     * @return 有用量的用户的当天用量
+     */
+    @Select("<script>SELECT * FROM user_daily_usage WHERE usage_date = #{date} AND user_id IN " +
+            "<foreach collection='userIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<UserDailyUsageEntity> selectByUsers(@Param("userIds") List<String> userIds, @Param("date") LocalDate date);
+}
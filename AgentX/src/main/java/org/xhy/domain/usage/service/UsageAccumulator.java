@@ -0,0 +1,218 @@
+package org.xhy.domain.usage.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.xhy.domain.usage.model.AgentVersionUsageEntity;
+import org.xhy.domain.usage.model.SessionUsageEntity;
+import org.xhy.domain.usage.model.UsageCounter;
+import org.xhy.domain.usage.model.UserDailyUsageEntity;
+import org.xhy.domain.usage.repository.AgentVersionUsageRepository;
+import org.xhy.domain.usage.repository.SessionUsageRepository;
+import org.xhy.domain.usage.repository.UserDailyUsageRepository;
+import org.xhy.infrastructure.config.UsageProperties;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 用量累加器
+ * 对话结束时只在内存中按会话、用户日期、Agent版本三个维度累加增量，后台按固定间隔取走增量，
+ * 每个维度按批upsert到数据库；写入失败的增量放回内存，下一轮重试。
+ * 增量的修改、读取和取走都在ConcurrentHashMap的单键原子操作内完成，不会丢失并发写入的计数
+ */
+@Component
+public class UsageAccumulator implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(UsageAccumulator.class);
+
+    /**
+     * 复合键分隔符
+     */
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private final SessionUsageRepository sessionUsageRepository;
+    private final UserDailyUsageRepository userDailyUsageRepository;
+    private final AgentVersionUsageRepository agentVersionUsageRepository;
+    private final UsageProperties properties;
+    private final ScheduledExecutorService scheduler;
+
+    private final Map<String, SessionUsageEntity> sessions = new ConcurrentHashMap<>();
+    private final Map<String, UserDailyUsageEntity> userDays = new ConcurrentHashMap<>();
+    private final Map<String, AgentVersionUsageEntity> agentVersions = new ConcurrentHashMap<>();
+
+    public UsageAccumulator(SessionUsageRepository sessionUsageRepository,
+                            UserDailyUsageRepository userDailyUsageRepository,
+                            AgentVersionUsageRepository agentVersionUsageRepository,
+                            UsageProperties properties) {
+        this.sessionUsageRepository = sessionUsageRepository;
+        this.userDailyUsageRepository = userDailyUsageRepository;
+        this.agentVersionUsageRepository = agentVersionUsageRepository;
+        this.properties = properties;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "usage-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getFlushInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 累加一次用量
+     *
+     * @param sessionId 会话ID
+     * @param userId    用户ID
+     * @param agentId   Agent ID
+     * @param versionId Agent版本ID，未发布时为null
+     * @param messages  消息数
+     * @param input     输入token数
+     * @param output    输出token数
+     */
+    public void add(String sessionId, String userId, String agentId, String versionId,
+                    long messages, long input, long output) {
+        LocalDate today = LocalDate.now();
+        String version = versionId != null ? versionId : "";
+        sessions.compute(sessionId, (key, counter) -> {
+            if (counter == null) {
+                counter = new SessionUsageEntity();
+                counter.setSessionId(sessionId);
+                counter.setUserId(userId);
+                counter.setAgentId(agentId);
+            }
+            counter.add(messages, input, output);
+            return counter;
+        });
+        userDays.compute(userDayKey(userId, today), (key, counter) -> {
+            if (counter == null) {
+                counter = new UserDailyUsageEntity();
+                counter.setUserId(userId);
+                counter.setUsageDate(today);
+            }
+            counter.add(messages, input, output);
+            return counter;
+        });
+        agentVersions.compute(agentId + KEY_SEPARATOR + version, (key, counter) -> {
+            if (counter == null) {
+                counter = new AgentVersionUsageEntity();
+                counter.setAgentId(agentId);
+                counter.setVersionId(version);
+            }
+            counter.add(messages, input, output);
+            return counter;
+        });
+    }
+
+    /**
+     * 将会话尚未刷写的增量累加到目标计数上
+     */
+    public void addPendingSession(String sessionId, UsageCounter target) {
+        addPending(sessions, sessionId, target);
+    }
+
+    /**
+     * 将用户某天尚未刷写的增量累加到目标计数上
+     */
+    public void addPendingUserDay(String userId, LocalDate date, UsageCounter target) {
+        addPending(userDays, userDayKey(userId, date), target);
+    }
+
+    /**
+     * 将Agent某版本尚未刷写的增量累加到目标计数上
+     *
+     * @param versionId 版本ID，未发布时为空字符串
+     */
+    public void addPendingAgentVersion(String agentId, String versionId, UsageCounter target) {
+        addPending(agentVersions, agentId + KEY_SEPARATOR + versionId, target);
+    }
+
+    /**
+     * 获取Agent有尚未刷写增量的版本ID
+     */
+    public List<String> pendingVersionIds(String agentId) {
+        String prefix = agentId + KEY_SEPARATOR;
+        List<String> versionIds = new ArrayList<>();
+        for (String key : agentVersions.keySet()) {
+            if (key.startsWith(prefix)) {
+                versionIds.add(key.substring(prefix.length()));
+            }
+        }
+        return versionIds;
+    }
+
+    /**
+     * 将全部增量刷写到数据库
+     */
+    public void flush() {
+        drain(sessions, sessionUsageRepository::upsertIncrements, "会话");
+        drain(userDays, userDailyUsageRepository::upsertIncrements, "用户每日");
+        drain(agentVersions, agentVersionUsageRepository::upsertIncrements, "Agent版本");
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+        flush();
+    }
+
+    /**
+     * 取走一个维度的全部增量并按批写入
+     * 键排序后写入，多个实例同时刷写相同的行时按相同顺序加行锁，避免死锁
+     */
+    private <T extends UsageCounter> void drain(Map<String, T> pending, Function<List<T>, Integer> upsert,
+                                                String dimension) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<String> keys = new ArrayList<>(pending.keySet());
+        Collections.sort(keys);
+        int batchSize = Math.max(1, properties.getBatchSize());
+        for (int from = 0; from < keys.size(); from += batchSize) {
+            List<String> batchKeys = keys.subList(from, Math.min(keys.size(), from + batchSize));
+            List<String> takenKeys = new ArrayList<>(batchKeys.size());
+            List<T> batch = new ArrayList<>(batchKeys.size());
+            for (String key : batchKeys) {
+                T counter = pending.remove(key);
+                if (counter != null) {
+                    takenKeys.add(key);
+                    batch.add(counter);
+                }
+            }
+            if (batch.isEmpty()) {
+                continue;
+            }
+            try {
+                upsert.apply(batch);
+            } catch (Exception e) {
+                logger.warn("{}用量刷写失败，{}条增量留待下一轮: {}", dimension, batch.size(), e.getMessage());
+                for (int i = 0; i < batch.size(); i++) {
+                    pending.merge(takenKeys.get(i), batch.get(i), (current, failed) -> {
+                        current.add(failed);
+                        return current;
+                    });
+                }
+                return;
+            }
+        }
+    }
+
+    private static <T extends UsageCounter> void addPending(Map<String, T> pending, String key, UsageCounter target) {
+        pending.computeIfPresent(key, (k, counter) -> {
+            target.add(counter);
+            return counter;
+        });
+    }
+
+    private static String userDayKey(String userId, LocalDate date) {
+        return userId + KEY_SEPARATOR + date;
+    }
+}
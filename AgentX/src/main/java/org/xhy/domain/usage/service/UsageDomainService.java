@@ -0,0 +1,147 @@
+package org.xhy.domain.usage.service;
+
+import org.springframework.stereotype.Service;
+import org.xhy.domain.usage.model.AgentVersionUsageEntity;
+import org.xhy.domain.usage.model.SessionUsageEntity;
+import org.xhy.domain.usage.model.UserDailyUsageEntity;
+import org.xhy.domain.usage.repository.AgentVersionUsageRepository;
+import org.xhy.domain.usage.repository.SessionUsageRepository;
+import org.xhy.domain.usage.repository.UserDailyUsageRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 用量统计领域服务
+ * 用量按会话、用户日期、Agent版本三个维度增量维护，读取时只取对应的计数行，
+ * 再加上内存中尚未刷写的增量，不需要扫描消息表汇总token数
+ */
+@Service
+public class UsageDomainService {
+
+    private final UsageAccumulator accumulator;
+    private final UsageQuotaService quotaService;
+    private final SessionUsageRepository sessionUsageRepository;
+    private final UserDailyUsageRepository userDailyUsageRepository;
+    private final AgentVersionUsageRepository agentVersionUsageRepository;
+
+    public UsageDomainService(UsageAccumulator accumulator, UsageQuotaService quotaService,
+                              SessionUsageRepository sessionUsageRepository,
+                              UserDailyUsageRepository userDailyUsageRepository,
+                              AgentVersionUsageRepository agentVersionUsageRepository) {
+        this.accumulator = accumulator;
+        this.quotaService = quotaService;
+        this.sessionUsageRepository = sessionUsageRepository;
+        this.userDailyUsageRepository = userDailyUsageRepository;
+        this.agentVersionUsageRepository = agentVersionUsageRepository;
+    }
+
+    /**
+     * 记录一轮对话的用量，只在内存中累加，由后台定期刷写；同时计入配额
+     *
+     * @param sessionId 会话ID
+     * @param userId    用户ID
+     * @param agentId   Agent ID
+     * @param versionId Agent版本ID，未发布时为null
+     * @param messages  本轮新增的消息数
+     * @param input     输入token数
+     * @param output    输出token数
+     */
+    public void record(String sessionId, String userId, String agentId, String versionId,
+                       long messages, long input, long output) {
+        accumulator.add(sessionId, userId, agentId, versionId, messages, input, output);
+        quotaService.consume(userId, agentId, input + output);
+    }
+
+    /**
+     * 获取会话用量
+     *
+     * @param sessionId 会话ID
+     * @return 会话用量，没有用量时各项为0
+     */
+    public SessionUsageEntity getSessionUsage(String sessionId) {
+        SessionUsageEntity usage = sessionUsageRepository.selectById(sessionId);
+        if (usage == null) {
+            usage = new SessionUsageEntity();
+            usage.setSessionId(sessionId);
+        }
+        accumulator.addPendingSession(sessionId, usage);
+        return usage;
+    }
+
+    /**
+     * 获取用户某天的用量
+     *
+     * @param userId 用户ID
+     * @param date   日期
+     * @return 当天用量，没有用量时各项为0
+     */
+    public UserDailyUsageEntity getUserDailyUsage(String userId, LocalDate date) {
+        List<UserDailyUsageEntity> rows = userDailyUsageRepository.selectRange(userId, date, date);
+        UserDailyUsageEntity usage = rows.isEmpty() ? emptyDay(userId, date) : rows.get(0);
+        accumulator.addPendingUserDay(userId, date, usage);
+        return usage;
+    }
+
+    /**
+     * 获取用户在日期区间内的每日用量
+     *
+     * @param userId 用户ID
+     * @param from   起始日期（含）
+     * @param to     结束日期（含）
+     * @return 每日用量，按日期升序，没有用量的日期不返回
+     */
+    public List<UserDailyUsageEntity> getUserDailyUsage(String userId, LocalDate from, LocalDate to) {
+        TreeMap<LocalDate, UserDailyUsageEntity> days = new TreeMap<>();
+        for (UserDailyUsageEntity row : userDailyUsageRepository.selectRange(userId, from, to)) {
+            days.put(row.getUsageDate(), row);
+        }
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            UserDailyUsageEntity usage = days.containsKey(date) ? days.get(date) : emptyDay(userId, date);
+            accumulator.addPendingUserDay(userId, date, usage);
+            if (usage.getMessageCount() > 0 || usage.getTotalTokens() > 0) {
+                days.put(date, usage);
+            }
+        }
+        return new ArrayList<>(days.values());
+    }
+
+    /**
+     * 获取Agent各版本的用量
+     *
+     * @param agentId Agent ID
+     * @return 各版本用量，按消息数倒序；未发布时的用量版本ID为空字符串
+     */
+    public List<AgentVersionUsageEntity> getAgentUsage(String agentId) {
+        Map<String, AgentVersionUsageEntity> versions = new LinkedHashMap<>();
+        for (AgentVersionUsageEntity row : agentVersionUsageRepository.selectByAgentId(agentId)) {
+            versions.put(row.getVersionId(), row);
+        }
+        for (String versionId : accumulator.pendingVersionIds(agentId)) {
+            versions.computeIfAbsent(versionId, id -> {
+                AgentVersionUsageEntity usage = new AgentVersionUsageEntity();
+                usage.setAgentId(agentId);
+                usage.setVersionId(id);
+                return usage;
+            });
+        }
+        List<AgentVersionUsageEntity> result = new ArrayList<>(versions.values());
+        for (AgentVersionUsageEntity usage : result) {
+            accumulator.addPendingAgentVersion(agentId, usage.getVersionId(), usage);
+        }
+        result.sort(Comparator.comparingLong(AgentVersionUsageEntity::getMessageCount).reversed());
+        return result;
+    }
+
+    private UserDailyUsageEntity emptyDay(String userId, LocalDate date) {
+        UserDailyUsageEntity usage = new UserDailyUsageEntity();
+        usage.setUserId(userId);
+        usage.setUsageDate(date);
+        return usage;
+    }
+}
@@ -0,0 +1,291 @@
+package org.xhy.domain.usage.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Service;
+import org.xhy.domain.usage.model.UserDailyUsageEntity;
+import org.xhy.domain.usage.repository.UserDailyUsageRepository;
+import org.xhy.infrastructure.config.QuotaProperties;
+import org.xhy.infrastructure.exception.RateLimitExceededException;
+import org.xhy.infrastructure.ratelimit.SlidingWindowCounter;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 对话配额服务
+ * 准入检查只读写内存中的计数器，不访问数据库，超限时立即拒绝并给出重试等待时间：
+ * 请求频率按一分钟滑动窗口计数；Agent的token用量按一小时滑动窗口计数，只统计本节点；
+ * 用户当日token用量 = 最近一次对账的值 + 对账之后本节点的消耗，后台按固定间隔从用户每日用量表
+ * （加上尚未刷写的增量）对账，多节点部署时各节点的消耗在对账后互相可见
+ */
+@Service
+public class UsageQuotaService implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(UsageQuotaService.class);
+
+    private static final long MINUTE_MILLIS = Duration.ofMinutes(1).toMillis();
+    private static final long HOUR_MILLIS = Duration.ofHours(1).toMillis();
+    private static final int WINDOW_BUCKETS = 60;
+
+    /**
+     * 对账时每条查询包含的用户数
+     */
+    private static final int RECONCILE_BATCH = 500;
+
+    private final UserDailyUsageRepository userDailyUsageRepository;
+    private final UsageAccumulator accumulator;
+    private final QuotaProperties properties;
+    private final ScheduledExecutorService scheduler;
+
+    private final Map<String, UserQuota> users = new ConcurrentHashMap<>();
+    private final Map<String, AgentQuota> agents = new ConcurrentHashMap<>();
+
+    public UsageQuotaService(UserDailyUsageRepository userDailyUsageRepository, UsageAccumulator accumulator,
+                             QuotaProperties properties) {
+        this.userDailyUsageRepository = userDailyUsageRepository;
+        this.accumulator = accumulator;
+        this.properties = properties;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "quota-reconciler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (properties.isEnabled()) {
+            long interval = properties.getReconcileInterval().toMillis();
+            scheduler.scheduleWithFixedDelay(this::reconcile, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 用户准入检查：当日token用量和请求频率，通过时计入一次请求
+     *
+     * @param userId 用户ID
+     * @throws RateLimitExceededException 超出限制
+     */
+    public void checkUser(String userId) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        LocalDate today = LocalDate.now();
+        QuotaProperties.User limits = properties.getUser();
+        UserQuota quota = users.get(userId);
+        if (quota == null) {
+            UserQuota created = new UserQuota(today);
+            quota = users.putIfAbsent(userId, created);
+            if (quota == null) {
+                quota = created;
+                // 首次出现的用户先按本地消耗放行，同时在后台对账
+                if (limits.getDailyTokens() > 0) {
+                    submitReconcile(List.of(userId));
+                }
+            }
+        }
+        quota.lastAccess = now;
+
+        if (limits.getDailyTokens() > 0 && quota.tokens(today) >= limits.getDailyTokens()) {
+            throw new RateLimitExceededException("今日token用量已达上限，请明天再试", millisUntilTomorrow());
+        }
+        if (limits.getRequestsPerMinute() > 0) {
+            long wait = quota.requests.tryAdd(now, 1, limits.getRequestsPerMinute());
+            if (wait > 0) {
+                throw new RateLimitExceededException("请求过于频繁，请稍后再试", wait);
+            }
+        }
+    }
+
+    /**
+     * Agent准入检查：最近一小时token用量和请求频率，通过时计入一次请求
+     *
+     * @param agentId Agent ID
+     * @throws RateLimitExceededException 超出限制
+     */
+    public void checkAgent(String agentId) {
+        QuotaProperties.Agent limits = properties.getAgent();
+        if (!properties.isEnabled() || (limits.getRequestsPerMinute() <= 0 && limits.getHourlyTokens() <= 0)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        AgentQuota quota = agents.computeIfAbsent(agentId, id -> new AgentQuota());
+        quota.lastAccess = now;
+
+        if (limits.getHourlyTokens() > 0) {
+            long wait = quota.tokens.waitBelow(now, limits.getHourlyTokens());
+            if (wait > 0) {
+                throw new RateLimitExceededException("该助理的用量已达上限，请稍后再试", wait);
+            }
+        }
+        if (limits.getRequestsPerMinute() > 0) {
+            long wait = quota.requests.tryAdd(now, 1, limits.getRequestsPerMinute());
+            if (wait > 0) {
+                throw new RateLimitExceededException("该助理当前请求过多，请稍后再试", wait);
+            }
+        }
+    }
+
+    /**
+     * 计入一轮对话消耗的token
+     *
+     * @param userId  用户ID
+     * @param agentId Agent ID
+     * @param tokens  输入加输出token数
+     */
+    public void consume(String userId, String agentId, long tokens) {
+        if (!properties.isEnabled() || tokens <= 0) {
+            return;
+        }
+        UserQuota userQuota = users.get(userId);
+        if (userQuota != null) {
+            userQuota.consume(LocalDate.now(), tokens);
+        }
+        AgentQuota agentQuota = agents.get(agentId);
+        if (agentQuota != null) {
+            agentQuota.tokens.add(System.currentTimeMillis(), tokens);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 对账并回收空闲的计数器
+     */
+    private void reconcile() {
+        try {
+            long now = System.currentTimeMillis();
+            long idleBefore = now - properties.getIdleTimeout().toMillis();
+            users.entrySet().removeIf(entry -> entry.getValue().lastAccess < idleBefore
+                    && entry.getValue().requests.isIdle(now));
+            agents.entrySet().removeIf(entry -> entry.getValue().lastAccess < idleBefore
+                    && entry.getValue().requests.isIdle(now) && entry.getValue().tokens.isIdle(now));
+            if (properties.getUser().getDailyTokens() > 0) {
+                reconcileUsers(new ArrayList<>(users.keySet()));
+            }
+        } catch (Exception e) {
+            logger.warn("配额对账失败: {}", e.getMessage());
+        }
+    }
+
+    private void submitReconcile(List<String> userIds) {
+        try {
+            scheduler.execute(() -> {
+                try {
+                    reconcileUsers(userIds);
+                } catch (Exception e) {
+                    logger.warn("配额对账失败: {}", e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 停机中，不再对账
+        }
+    }
+
+    /**
+     * 从数据库和尚未刷写的增量重新计算用户当日用量
+     * 查询前记下本地消耗，查询结果已包含这部分，对账后从本地消耗中扣除
+     */
+    private void reconcileUsers(List<String> userIds) {
+        LocalDate today = LocalDate.now();
+        for (int from = 0; from < userIds.size(); from += RECONCILE_BATCH) {
+            List<String> batch = userIds.subList(from, Math.min(userIds.size(), from + RECONCILE_BATCH));
+            Map<String, Long> before = new HashMap<>();
+            for (String userId : batch) {
+                UserQuota quota = users.get(userId);
+                if (quota != null) {
+                    before.put(userId, quota.localSnapshot(today));
+                }
+            }
+            Map<String, UserDailyUsageEntity> rows = userDailyUsageRepository.selectByUsers(batch, today).stream()
+                    .collect(Collectors.toMap(UserDailyUsageEntity::getUserId, Function.identity()));
+            for (Map.Entry<String, Long> entry : before.entrySet()) {
+                UserQuota quota = users.get(entry.getKey());
+                if (quota == null) {
+                    continue;
+                }
+                UserDailyUsageEntity usage = rows.get(entry.getKey());
+                if (usage == null) {
+                    usage = new UserDailyUsageEntity();
+                }
+                accumulator.addPendingUserDay(entry.getKey(), today, usage);
+                quota.reconcile(today, usage.getTotalTokens(), entry.getValue());
+            }
+        }
+    }
+
+    private static long millisUntilTomorrow() {
+        LocalDateTime tomorrow = LocalDate.now().plusDays(1).atStartOfDay();
+        return tomorrow.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() - System.currentTimeMillis();
+    }
+
+    /**
+     * 用户计数器
+     */
+    private static class UserQuota {
+        private final SlidingWindowCounter requests = new SlidingWindowCounter(MINUTE_MILLIS, WINDOW_BUCKETS);
+        private LocalDate day;
+        private long reconciledTokens;
+        private long localTokens;
+        private volatile long lastAccess;
+
+        private UserQuota(LocalDate day) {
+            this.day = day;
+        }
+
+        private synchronized long tokens(LocalDate today) {
+            rollOver(today);
+            return reconciledTokens + localTokens;
+        }
+
+        private synchronized void consume(LocalDate today, long tokens) {
+            rollOver(today);
+            localTokens += tokens;
+        }
+
+        private synchronized long localSnapshot(LocalDate today) {
+            rollOver(today);
+            return localTokens;
+        }
+
+        private synchronized void reconcile(LocalDate today, long persistedTokens, long localBefore) {
+            if (!today.equals(day)) {
+                return;
+            }
+            reconciledTokens = persistedTokens;
+            localTokens -= localBefore;
+        }
+
+        private void rollOver(LocalDate today) {
+            if (!today.equals(day)) {
+                day = today;
+                reconciledTokens = 0;
+                localTokens = 0;
+            }
+        }
+    }
+
+    /**
+     * Agent计数器
+     */
+    private static class AgentQuota {
+        private final SlidingWindowCounter requests = new SlidingWindowCounter(MINUTE_MILLIS, WINDOW_BUCKETS);
+        private final SlidingWindowCounter tokens = new SlidingWindowCounter(HOUR_MILLIS, WINDOW_BUCKETS);
+        private volatile long lastAccess;
+    }
+}
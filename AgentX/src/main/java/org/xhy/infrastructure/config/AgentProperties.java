@@ -0,0 +1,59 @@
+package org.xhy.infrastructure.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Agent相关配置
+ * 对应配置前缀 agentx.agent
+ */
+@Component
+@ConfigurationProperties(prefix = "agentx.agent")
+public class AgentProperties {
+
+    /**
+     * Agent版本快照缓存配置
+     */
+    private VersionCache versionCache = new VersionCache();
+
+    public VersionCache getVersionCache() {
+        return versionCache;
+    }
+
+    public void setVersionCache(VersionCache versionCache) {
+        this.versionCache = versionCache;
+    }
+
+    /**
+     * Agent版本快照缓存配置
+     * 按版本的文本字符数计算权重，总权重超出上限时淘汰最久未使用的版本
+     */
+    public static class VersionCache {
+
+        /**
+         * 缓存总权重上限（字符数）
+         */
+        private long maxWeight = 16_000_000L;
+
+        /**
+         * 启动时预热的版本数，按工作区添加次数取最常用的已发布版本，为0时不预热
+         */
+        private int warmupSize = 500;
+
+        public long getMaxWeight() {
+            return maxWeight;
+        }
+
+        public void setMaxWeight(long maxWeight) {
+            this.maxWeight = maxWeight;
+        }
+
+        public int getWarmupSize() {
+            return warmupSize;
+        }
+
+        public void setWarmupSize(int warmupSize) {
+            this.warmupSize = warmupSize;
+        }
+    }
+}
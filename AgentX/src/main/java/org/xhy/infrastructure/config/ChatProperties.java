@@ -0,0 +1,731 @@
+package org.xhy.infrastructure.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 对话相关配置
+ * 对应配置前缀 agentx.chat
+ */
+@Component
+@ConfigurationProperties(prefix = "agentx.chat")
+public class ChatProperties {
+
+    /**
+     * 流式消息检查点配置
+     */
+    private Checkpoint checkpoint = new Checkpoint();
+
+    /**
+     * 停机排空配置
+     */
+    private Drain drain = new Drain();
+
+    /**
+     * 上下文预算配置
+     */
+    private Budget budget = new Budget();
+
+    /**
+     * 跨会话消息搜索配置
+     */
+    private Search search = new Search();
+
+    /**
+     * 消息冷存储配置
+     */
+    private Archive archive = new Archive();
+
+    /**
+     * 消息内容压缩配置
+     */
+    private Compression compression = new Compression();
+
+    /**
+     * 模型调用调度配置
+     */
+    private Scheduling scheduling = new Scheduling();
+
+    /**
+     * 对话请求幂等配置
+     */
+    private Idempotency idempotency = new Idempotency();
+
+    /**
+     * 对话链路指标配置
+     */
+    private Metrics metrics = new Metrics();
+
+    public Checkpoint getCheckpoint() {
+        return checkpoint;
+    }
+
+    public void setCheckpoint(Checkpoint checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    public Drain getDrain() {
+        return drain;
+    }
+
+    public void setDrain(Drain drain) {
+        this.drain = drain;
+    }
+
+    public Budget getBudget() {
+        return budget;
+    }
+
+    public void setBudget(Budget budget) {
+        this.budget = budget;
+    }
+
+    public Search getSearch() {
+        return search;
+    }
+
+    public void setSearch(Search search) {
+        this.search = search;
+    }
+
+    public Archive getArchive() {
+        return archive;
+    }
+
+    public void setArchive(Archive archive) {
+        this.archive = archive;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    public void setCompression(Compression compression) {
+        this.compression = compression;
+    }
+
+    public Scheduling getScheduling() {
+        return scheduling;
+    }
+
+    public void setScheduling(Scheduling scheduling) {
+        this.scheduling = scheduling;
+    }
+
+    public Idempotency getIdempotency() {
+        return idempotency;
+    }
+
+    public void setIdempotency(Idempotency idempotency) {
+        this.idempotency = idempotency;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * 流式消息检查点配置
+     * 满足时间间隔或token数任一条件即把增量内容追加落库
+     */
+    public static class Checkpoint {
+
+        /**
+         * 检查点时间间隔（毫秒）
+         */
+        private long intervalMs = 2000L;
+
+        /**
+         * 检查点token阈值，累计未落库的token数达到该值即落库
+         */
+        private int tokenThreshold = 64;
+
+        /**
+         * 检查点落库线程数，追加写入不占用大模型的流式回调线程
+         */
+        private int writerThreads = 4;
+
+        public long getIntervalMs() {
+            return intervalMs;
+        }
+
+        public void setIntervalMs(long intervalMs) {
+            this.intervalMs = intervalMs;
+        }
+
+        public int getTokenThreshold() {
+            return tokenThreshold;
+        }
+
+        public void setTokenThreshold(int tokenThreshold) {
+            this.tokenThreshold = tokenThreshold;
+        }
+
+        public int getWriterThreads() {
+            return writerThreads;
+        }
+
+        public void setWriterThreads(int writerThreads) {
+            this.writerThreads = writerThreads;
+        }
+    }
+
+    /**
+     * 停机排空配置
+     * 收到停机信号后拒绝新对话，等待进行中的对话在宽限期内结束
+     */
+    public static class Drain {
+
+        /**
+         * 宽限期，超时后仍未结束的对话会保存部分回复并中断
+         */
+        private Duration gracePeriod = Duration.ofSeconds(60);
+
+        /**
+         * 排空进度日志的输出间隔
+         */
+        private Duration progressInterval = Duration.ofSeconds(5);
+
+        public Duration getGracePeriod() {
+            return gracePeriod;
+        }
+
+        public void setGracePeriod(Duration gracePeriod) {
+            this.gracePeriod = gracePeriod;
+        }
+
+        public Duration getProgressInterval() {
+            return progressInterval;
+        }
+
+        public void setProgressInterval(Duration progressInterval) {
+            this.progressInterval = progressInterval;
+        }
+    }
+
+    /**
+     * 上下文预算配置
+     * 发送前按上下文窗口为系统提示词、摘要、历史消息、当前消息和输出分配token
+     */
+    public static class Budget {
+
+        /**
+         * 默认上下文窗口，未在contextWindows中配置的模型使用；为0时表示窗口未知，不做预算裁剪
+         */
+        private int defaultContextWindow = 0;
+
+        /**
+         * 按模型ID配置的上下文窗口（token数），只有已知窗口的模型才按预算裁剪历史和预留输出
+         */
+        private Map<String, Integer> contextWindows = new HashMap<>();
+
+        /**
+         * 在上下文窗口中为模型输出预留的token数，只从提示词预算中扣除，不限制模型的输出长度
+         */
+        private int reservedOutputTokens = 1024;
+
+        /**
+         * 摘要最多占用剩余可用空间的比例
+         */
+        private double summaryRatio = 0.25;
+
+        /**
+         * 相关性保留策略下上下文保存的候选消息数上限，超出时只保留本轮选中的消息和最近的消息
+         */
+        private int relevanceCandidateLimit = 200;
+
+        public int getDefaultContextWindow() {
+            return defaultContextWindow;
+        }
+
+        public void setDefaultContextWindow(int defaultContextWindow) {
+            this.defaultContextWindow = defaultContextWindow;
+        }
+
+        public Map<String, Integer> getContextWindows() {
+            return contextWindows;
+        }
+
+        public void setContextWindows(Map<String, Integer> contextWindows) {
+            this.contextWindows = contextWindows;
+        }
+
+        public int getReservedOutputTokens() {
+            return reservedOutputTokens;
+        }
+
+        public int getRelevanceCandidateLimit() {
+            return relevanceCandidateLimit;
+        }
+
+        public void setRelevanceCandidateLimit(int relevanceCandidateLimit) {
+            this.relevanceCandidateLimit = relevanceCandidateLimit;
+        }
+
+        public void setReservedOutputTokens(int reservedOutputTokens) {
+            this.reservedOutputTokens = reservedOutputTokens;
+        }
+
+        public double getSummaryRatio() {
+            return summaryRatio;
+        }
+
+        public void setSummaryRatio(double summaryRatio) {
+            this.summaryRatio = summaryRatio;
+        }
+    }
+
+    /**
+     * 跨会话消息搜索配置
+     * 全文检索与向量检索各取候选后按倒数排名融合，分页在融合结果上进行
+     */
+    public static class Search {
+
+        /**
+         * 每路检索的候选数，也是可翻页的结果上限
+         */
+        private int candidateLimit = 200;
+
+        /**
+         * 每页最大条数
+         */
+        private int maxPageSize = 50;
+
+        /**
+         * 向量检索的最低相似度
+         */
+        private double minScore = 0.3;
+
+        /**
+         * 倒数排名融合的平滑常数
+         */
+        private int rrfK = 60;
+
+        /**
+         * 全文检索超时时间，超时后只使用向量检索结果
+         */
+        private Duration fullTextTimeout = Duration.ofSeconds(2);
+
+        /**
+         * 命中片段的字符数
+         */
+        private int snippetChars = 120;
+
+        /**
+         * 后台生成消息向量的批大小
+         */
+        private int indexBatchSize = 32;
+
+        /**
+         * 等待生成向量的消息上限，队列满时丢弃，由空闲时的补齐任务处理
+         */
+        private int indexQueueCapacity = 10000;
+
+        public int getCandidateLimit() {
+            return candidateLimit;
+        }
+
+        public void setCandidateLimit(int candidateLimit) {
+            this.candidateLimit = candidateLimit;
+        }
+
+        public int getMaxPageSize() {
+            return maxPageSize;
+        }
+
+        public void setMaxPageSize(int maxPageSize) {
+            this.maxPageSize = maxPageSize;
+        }
+
+        public double getMinScore() {
+            return minScore;
+        }
+
+        public void setMinScore(double minScore) {
+            this.minScore = minScore;
+        }
+
+        public int getRrfK() {
+            return rrfK;
+        }
+
+        public void setRrfK(int rrfK) {
+            this.rrfK = rrfK;
+        }
+
+        public Duration getFullTextTimeout() {
+            return fullTextTimeout;
+        }
+
+        public void setFullTextTimeout(Duration fullTextTimeout) {
+            this.fullTextTimeout = fullTextTimeout;
+        }
+
+        public int getSnippetChars() {
+            return snippetChars;
+        }
+
+        public void setSnippetChars(int snippetChars) {
+            this.snippetChars = snippetChars;
+        }
+
+        public int getIndexBatchSize() {
+            return indexBatchSize;
+        }
+
+        public void setIndexBatchSize(int indexBatchSize) {
+            this.indexBatchSize = indexBatchSize;
+        }
+
+        public int getIndexQueueCapacity() {
+            return indexQueueCapacity;
+        }
+
+        public void setIndexQueueCapacity(int indexQueueCapacity) {
+            this.indexQueueCapacity = indexQueueCapacity;
+        }
+    }
+
+    /**
+     * 消息冷存储配置
+     * 最后一条消息早于不活跃时长的会话，其消息压缩后移入归档表，再次打开时按需恢复
+     */
+    public static class Archive {
+
+        /**
+         * 是否启用后台归档，关闭后已归档的会话仍会按需恢复
+         */
+        private boolean enabled = true;
+
+        /**
+         * 会话不活跃多久后归档
+         */
+        private Duration inactiveAfter = Duration.ofDays(7);
+
+        /**
+         * 扫描间隔
+         */
+        private Duration scanInterval = Duration.ofHours(1);
+
+        /**
+         * 每批扫描的会话数
+         */
+        private int batchSize = 100;
+
+        /**
+         * zstd压缩级别
+         */
+        private int compressionLevel = 6;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getInactiveAfter() {
+            return inactiveAfter;
+        }
+
+        public void setInactiveAfter(Duration inactiveAfter) {
+            this.inactiveAfter = inactiveAfter;
+        }
+
+        public Duration getScanInterval() {
+            return scanInterval;
+        }
+
+        public void setScanInterval(Duration scanInterval) {
+            this.scanInterval = scanInterval;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getCompressionLevel() {
+            return compressionLevel;
+        }
+
+        public void setCompressionLevel(int compressionLevel) {
+            this.compressionLevel = compressionLevel;
+        }
+    }
+
+    /**
+     * 消息内容压缩配置
+     * 大消息用zstd压缩后存入content_packed列，字典定期从最近的大消息中训练
+     */
+    public static class Compression {
+
+        /**
+         * 是否压缩新写入的大消息，关闭后已压缩的内容仍可读取
+         */
+        private boolean enabled = false;
+
+        /**
+         * 压缩阈值，UTF-8字节数达到该值才压缩
+         */
+        private int minBytes = 4096;
+
+        /**
+         * zstd压缩级别
+         */
+        private int level = 3;
+
+        /**
+         * 字典大小（字节）
+         */
+        private int dictionarySize = 112640;
+
+        /**
+         * 训练字典时抽取的最大样本数
+         */
+        private int sampleCount = 2000;
+
+        /**
+         * 训练字典所需的最少样本数，不足时不使用字典压缩
+         */
+        private int minSamples = 200;
+
+        /**
+         * 字典重新训练间隔
+         */
+        private Duration retrainInterval = Duration.ofDays(7);
+
+        /**
+         * 字典检查间隔
+         */
+        private Duration checkInterval = Duration.ofHours(1);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMinBytes() {
+            return minBytes;
+        }
+
+        public void setMinBytes(int minBytes) {
+            this.minBytes = minBytes;
+        }
+
+        public int getLevel() {
+            return level;
+        }
+
+        public void setLevel(int level) {
+            this.level = level;
+        }
+
+        public int getDictionarySize() {
+            return dictionarySize;
+        }
+
+        public void setDictionarySize(int dictionarySize) {
+            this.dictionarySize = dictionarySize;
+        }
+
+        public int getSampleCount() {
+            return sampleCount;
+        }
+
+        public void setSampleCount(int sampleCount) {
+            this.sampleCount = sampleCount;
+        }
+
+        public int getMinSamples() {
+            return minSamples;
+        }
+
+        public void setMinSamples(int minSamples) {
+            this.minSamples = minSamples;
+        }
+
+        public Duration getRetrainInterval() {
+            return retrainInterval;
+        }
+
+        public void setRetrainInterval(Duration retrainInterval) {
+            this.retrainInterval = retrainInterval;
+        }
+
+        public Duration getCheckInterval() {
+            return checkInterval;
+        }
+
+        public void setCheckInterval(Duration checkInterval) {
+            this.checkInterval = checkInterval;
+        }
+    }
+
+    /**
+     * 模型调用调度配置
+     * 每个服务商限制同时进行的调用数，超出的请求按用户排队，按权重以差额轮询（DRR）出队，
+     * 请求的开销按预估的提示词token数计算
+     */
+    public static class Scheduling {
+
+        /**
+         * 是否启用调度，关闭后直接调用
+         */
+        private boolean enabled = true;
+
+        /**
+         * 每个服务商同时进行的调用数上限
+         */
+        private int maxInFlightPerProvider = 64;
+
+        /**
+         * 每轮轮询时权重为1的用户获得的额度（token）
+         */
+        private int quantum = 2000;
+
+        /**
+         * 未单独配置的用户权重
+         */
+        private int defaultWeight = 1;
+
+        /**
+         * 按用户ID单独配置的权重，用于区分套餐或角色
+         */
+        private Map<String, Integer> userWeights = new HashMap<>();
+
+        /**
+         * 排队超过该时长的请求被拒绝
+         */
+        private Duration maxQueueWait = Duration.ofSeconds(60);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxInFlightPerProvider() {
+            return maxInFlightPerProvider;
+        }
+
+        public void setMaxInFlightPerProvider(int maxInFlightPerProvider) {
+            this.maxInFlightPerProvider = maxInFlightPerProvider;
+        }
+
+        public int getQuantum() {
+            return quantum;
+        }
+
+        public void setQuantum(int quantum) {
+            this.quantum = quantum;
+        }
+
+        public int getDefaultWeight() {
+            return defaultWeight;
+        }
+
+        public void setDefaultWeight(int defaultWeight) {
+            this.defaultWeight = defaultWeight;
+        }
+
+        public Map<String, Integer> getUserWeights() {
+            return userWeights;
+        }
+
+        public void setUserWeights(Map<String, Integer> userWeights) {
+            this.userWeights = userWeights;
+        }
+
+        public Duration getMaxQueueWait() {
+            return maxQueueWait;
+        }
+
+        public void setMaxQueueWait(Duration maxQueueWait) {
+            this.maxQueueWait = maxQueueWait;
+        }
+    }
+
+    /**
+     * 对话请求幂等配置
+     * 携带幂等键的对话在内存中记录已输出的内容，相同幂等键的重试接入进行中的生成或回放已完成的回复
+     */
+    public static class Idempotency {
+
+        /**
+         * 是否启用，关闭后忽略幂等键
+         */
+        private boolean enabled = true;
+
+        /**
+         * 回复完成后保留回放内容的时长
+         */
+        private Duration replayTtl = Duration.ofMinutes(10);
+
+        /**
+         * 回放内容的最大数量，超出时拒绝携带新幂等键的对话
+         */
+        private int maxEntries = 10000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getReplayTtl() {
+            return replayTtl;
+        }
+
+        public void setReplayTtl(Duration replayTtl) {
+            this.replayTtl = replayTtl;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+    }
+
+    /**
+     * 对话链路指标配置
+     * 只有已发布的Agent按ID打标签，其余记为other；每个标签组合都会生成一组直方图桶，需限制Agent标签的取值数
+     */
+    public static class Metrics {
+
+        /**
+         * agent标签的最大取值数，超出后新出现的Agent不再生成对话链路指标
+         */
+        private int maxAgentTags = 100;
+
+        public int getMaxAgentTags() {
+            return maxAgentTags;
+        }
+
+        public void setMaxAgentTags(int maxAgentTags) {
+            this.maxAgentTags = maxAgentTags;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.xhy.infrastructure.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 本地向量化配置
+ * 对应配置前缀 agentx.embedding
+ */
+@Component
+@ConfigurationProperties(prefix = "agentx.embedding")
+public class EmbeddingProperties {
+
+    /**
+     * 单批最大文本数
+     */
+    private int batchSize = 32;
+
+    /**
+     * 攒批等待时间，首个请求到达后最多等待该时间凑满一批
+     */
+    private Duration batchWait = Duration.ofMillis(5);
+
+    /**
+     * 待处理队列容量，队列满时提交方直接失败，不阻塞请求线程
+     */
+    private int queueCapacity = 10000;
+
+    /**
+     * 模型推理并行度
+     */
+    private int parallelism = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    /**
+     * 请求线程等待向量结果的超时时间，超时后调用方应降级处理
+     */
+    private Duration timeout = Duration.ofSeconds(2);
+
+    /**
+     * 消息向量缓存的最大条目数
+     */
+    private int cacheSize = 20000;
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Duration getBatchWait() {
+        return batchWait;
+    }
+
+    public void setBatchWait(Duration batchWait) {
+        this.batchWait = batchWait;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    public void setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+}
@@ -1,8 +1,11 @@
 package org.xhy.infrastructure.config;
 
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.MessageSourceResolvable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.validation.BindException;
@@ -12,10 +15,13 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.xhy.infrastructure.exception.BusinessException;
 import org.xhy.infrastructure.exception.EntityNotFoundException;
 import org.xhy.infrastructure.exception.ParamValidationException;
+import org.xhy.infrastructure.exception.RateLimitExceededException;
+import org.xhy.infrastructure.exception.ServiceUnavailableException;
 import org.xhy.interfaces.api.common.Result;
 
 import java.io.IOException;
@@ -61,6 +67,28 @@ public class GlobalExceptionHandler {
         return Result.notFound(e.getMessage());
     }
 
+    /**
+     * 处理服务暂不可用异常
+     */
+    @ExceptionHandler(ServiceUnavailableException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public Result<Void> handleServiceUnavailableException(ServiceUnavailableException e, HttpServletRequest request) {
+        logger.warn("服务暂不可用: {}, URL: {}", e.getMessage(), request.getRequestURL());
+        return Result.error(503, e.getMessage());
+    }
+
+    /**
+     * 处理超出配额或频率限制异常，通过Retry-After头告知客户端等待时间
+     */
+    @ExceptionHandler(RateLimitExceededException.class)
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    public Result<Void> handleRateLimitExceededException(RateLimitExceededException e, HttpServletRequest request,
+            HttpServletResponse response) {
+        logger.warn("请求被限流: {}, URL: {}", e.getMessage(), request.getRequestURL());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+        return Result.error(429, e.getMessage());
+    }
+
     /**
      * 处理方法参数校验异常（@Valid注解导致的异常）
      */
@@ -77,6 +105,22 @@ public class GlobalExceptionHandler {
         return Result.badRequest(errorMessage);
     }
 
+    /**
+     * 处理控制器方法参数校验异常（请求头、路径变量等参数上的约束注解导致的异常）
+     */
+    @ExceptionHandler(HandlerMethodValidationException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public Result<Void> handleHandlerMethodValidationException(HandlerMethodValidationException e,
+            HttpServletRequest request) {
+        String errorMessage = e.getAllValidationResults().stream()
+                .flatMap(result -> result.getResolvableErrors().stream())
+                .map(MessageSourceResolvable::getDefaultMessage)
+                .collect(Collectors.joining(", "));
+
+        logger.error("方法参数校验异常: {}, URL: {}", errorMessage, request.getRequestURL(), e);
+        return Result.badRequest(errorMessage);
+    }
+
     /**
      * 处理表单绑定异常
      */
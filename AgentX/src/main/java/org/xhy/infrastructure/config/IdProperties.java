@@ -0,0 +1,26 @@
+package org.xhy.infrastructure.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 主键生成配置
+ * 对应配置前缀 agentx.id
+ */
+@Component
+@ConfigurationProperties(prefix = "agentx.id")
+public class IdProperties {
+
+    /**
+     * 是否生成按时间递增的UUIDv7，关闭后恢复为随机UUID
+     */
+    private boolean timeOrdered = true;
+
+    public boolean isTimeOrdered() {
+        return timeOrdered;
+    }
+
+    public void setTimeOrdered(boolean timeOrdered) {
+        this.timeOrdered = timeOrdered;
+    }
+}
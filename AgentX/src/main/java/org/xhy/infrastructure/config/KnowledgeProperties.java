@@ -0,0 +1,270 @@
+package org.xhy.infrastructure.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.xhy.domain.knowledge.constant.RetrievalMode;
+
+import java.time.Duration;
+
+/**
+ * 知识库检索配置
+ * 对应配置前缀 agentx.knowledge
+ */
+@Component
+@ConfigurationProperties(prefix = "agentx.knowledge")
+public class KnowledgeProperties {
+
+    /**
+     * 单个文本块的目标token数，MiniLM最大输入为256个词元，超出部分会被截断
+     */
+    private int chunkTokens = 200;
+
+    /**
+     * 相邻文本块重叠的token数，避免句子被切断后丢失上下文
+     */
+    private int chunkOverlap = 40;
+
+    /**
+     * 每次检索返回的文本块数
+     */
+    private int topK = 5;
+
+    /**
+     * 最低相似度，低于该值的文本块不注入提示词
+     */
+    private double minScore = 0.3;
+
+    /**
+     * 检索结果占可用上下文的最大比例
+     */
+    private double referenceRatio = 0.3;
+
+    /**
+     * HNSW每层最大连接数
+     */
+    private int hnswM = 16;
+
+    /**
+     * HNSW构建时的候选集大小
+     */
+    private int efConstruction = 200;
+
+    /**
+     * HNSW查询时的候选集大小
+     */
+    private int efSearch = 64;
+
+    /**
+     * 检索方式：VECTOR 仅向量检索，HYBRID 向量与全文检索融合
+     */
+    private RetrievalMode retrievalMode = RetrievalMode.HYBRID;
+
+    /**
+     * 混合检索时每路取 topK 的多少倍候选参与融合
+     */
+    private int candidateMultiplier = 4;
+
+    /**
+     * 倒数排名融合的平滑常数，越大排名靠后的候选权重越接近靠前的候选
+     */
+    private int rrfK = 60;
+
+    /**
+     * 全文检索超时时间，超时后只使用向量检索结果
+     */
+    private Duration fullTextTimeout = Duration.ofSeconds(2);
+
+    /**
+     * 文档导入流水线配置
+     */
+    private Ingestion ingestion = new Ingestion();
+
+    public int getChunkTokens() {
+        return chunkTokens;
+    }
+
+    public void setChunkTokens(int chunkTokens) {
+        this.chunkTokens = chunkTokens;
+    }
+
+    public int getChunkOverlap() {
+        return chunkOverlap;
+    }
+
+    public void setChunkOverlap(int chunkOverlap) {
+        this.chunkOverlap = chunkOverlap;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    public void setTopK(int topK) {
+        this.topK = topK;
+    }
+
+    public double getMinScore() {
+        return minScore;
+    }
+
+    public void setMinScore(double minScore) {
+        this.minScore = minScore;
+    }
+
+    public double getReferenceRatio() {
+        return referenceRatio;
+    }
+
+    public void setReferenceRatio(double referenceRatio) {
+        this.referenceRatio = referenceRatio;
+    }
+
+    public int getHnswM() {
+        return hnswM;
+    }
+
+    public void setHnswM(int hnswM) {
+        this.hnswM = hnswM;
+    }
+
+    public int getEfConstruction() {
+        return efConstruction;
+    }
+
+    public void setEfConstruction(int efConstruction) {
+        this.efConstruction = efConstruction;
+    }
+
+    public int getEfSearch() {
+        return efSearch;
+    }
+
+    public void setEfSearch(int efSearch) {
+        this.efSearch = efSearch;
+    }
+
+    public RetrievalMode getRetrievalMode() {
+        return retrievalMode;
+    }
+
+    public void setRetrievalMode(RetrievalMode retrievalMode) {
+        this.retrievalMode = retrievalMode;
+    }
+
+    public int getCandidateMultiplier() {
+        return candidateMultiplier;
+    }
+
+    public void setCandidateMultiplier(int candidateMultiplier) {
+        this.candidateMultiplier = candidateMultiplier;
+    }
+
+    public int getRrfK() {
+        return rrfK;
+    }
+
+    public void setRrfK(int rrfK) {
+        this.rrfK = rrfK;
+    }
+
+    public Duration getFullTextTimeout() {
+        return fullTextTimeout;
+    }
+
+    public void setFullTextTimeout(Duration fullTextTimeout) {
+        this.fullTextTimeout = fullTextTimeout;
+    }
+
+    public Ingestion getIngestion() {
+        return ingestion;
+    }
+
+    public void setIngestion(Ingestion ingestion) {
+        this.ingestion = ingestion;
+    }
+
+    /**
+     * 文档导入流水线配置
+     * 解析切分 → 哈希查重 → 向量化 → 入库索引，各阶段之间为有界队列，下游处理不过来时上游阻塞等待
+     */
+    public static class Ingestion {
+
+        /**
+         * 阶段之间传递的每批文本块数
+         */
+        private int batchSize = 64;
+
+        /**
+         * 每个阶段队列最多积压的批数
+         */
+        private int queueCapacity = 8;
+
+        /**
+         * 解析切分线程数
+         */
+        private int parseThreads = 2;
+
+        /**
+         * 向量化并行度，默认使用全部CPU核
+         */
+        private int embedParallelism = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * 向量化任务拆分阈值，文本块数不超过该值时不再拆分
+         */
+        private int forkThreshold = 4;
+
+        /**
+         * 已结束任务的保留时间，超时后查询不到进度
+         */
+        private Duration jobRetention = Duration.ofHours(1);
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public int getParseThreads() {
+            return parseThreads;
+        }
+
+        public void setParseThreads(int parseThreads) {
+            this.parseThreads = parseThreads;
+        }
+
+        public int getEmbedParallelism() {
+            return embedParallelism;
+        }
+
+        public void setEmbedParallelism(int embedParallelism) {
+            this.embedParallelism = embedParallelism;
+        }
+
+        public int getForkThreshold() {
+            return forkThreshold;
+        }
+
+        public void setForkThreshold(int forkThreshold) {
+            this.forkThreshold = forkThreshold;
+        }
+
+        public Duration getJobRetention() {
+            return jobRetention;
+        }
+
+        public void setJobRetention(Duration jobRetention) {
+            this.jobRetention = jobRetention;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.xhy.infrastructure.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Agent长期记忆配置
+ * 对应配置前缀 agentx.memory
+ */
+@Component
+@ConfigurationProperties(prefix = "agentx.memory")
+public class MemoryProperties {
+
+    /**
+     * 是否启用长期记忆，关闭后既不提取也不召回
+     */
+    private boolean enabled = true;
+
+    /**
+     * 用户消息少于该字符数时不提取，过滤“好的”“谢谢”一类消息，节省一次模型调用
+     */
+    private int minMessageChars = 8;
+
+    /**
+     * 新事实与已有记忆的相似度达到该值时视为同一事实，合并而不新增
+     */
+    private double dedupThreshold = 0.9;
+
+    /**
+     * 每个用户在每个Agent下保留的记忆上限，超出时淘汰提及次数少且最久未更新的记忆
+     */
+    private int maxMemories = 200;
+
+    /**
+     * 每次对话最多召回的记忆条数
+     */
+    private int topK = 5;
+
+    /**
+     * 最低相似度，低于该值的记忆不注入提示词
+     */
+    private double minScore = 0.35;
+
+    /**
+     * 召回记忆注入提示词的token上限
+     */
+    private int tokenCap = 300;
+
+    /**
+     * 提取线程数
+     */
+    private int extractionThreads = 2;
+
+    /**
+     * 等待提取的对话上限，队列满时丢弃新的提取任务，不影响对话
+     */
+    private int queueCapacity = 200;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMinMessageChars() {
+        return minMessageChars;
+    }
+
+    public void setMinMessageChars(int minMessageChars) {
+        this.minMessageChars = minMessageChars;
+    }
+
+    public double getDedupThreshold() {
+        return dedupThreshold;
+    }
+
+    public void setDedupThreshold(double dedupThreshold) {
+        this.dedupThreshold = dedupThreshold;
+    }
+
+    public int getMaxMemories() {
+        return maxMemories;
+    }
+
+    public void setMaxMemories(int maxMemories) {
+        this.maxMemories = maxMemories;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    public void setTopK(int topK) {
+        this.topK = topK;
+    }
+
+    public double getMinScore() {
+        return minScore;
+    }
+
+    public void setMinScore(double minScore) {
+        this.minScore = minScore;
+    }
+
+    public int getTokenCap() {
+        return tokenCap;
+    }
+
+    public void setTokenCap(int tokenCap) {
+        this.tokenCap = tokenCap;
+    }
+
+    public int getExtractionThreads() {
+        return extractionThreads;
+    }
+
+    public void setExtractionThreads(int extractionThreads) {
+        this.extractionThreads = extractionThreads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+}
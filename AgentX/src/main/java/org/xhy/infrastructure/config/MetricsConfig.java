@@ -0,0 +1,22 @@
+package org.xhy.infrastructure.config;
+
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.xhy.infrastructure.metrics.ChatMetrics;
+
+/**
+ * 指标配置类
+ * 注册指标过滤器，Spring Boot在创建MeterRegistry时应用，先于任何指标的注册
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * 限制对话链路指标的agent标签取值数
+     */
+    @Bean
+    public MeterFilter chatAgentTagLimit(ChatProperties chatProperties) {
+        return ChatMetrics.agentTagLimit(chatProperties.getMetrics().getMaxAgentTags());
+    }
+}
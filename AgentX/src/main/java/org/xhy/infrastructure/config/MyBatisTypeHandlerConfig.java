@@ -8,12 +8,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xhy.domain.agent.model.LLMModelConfig;
 import org.xhy.domain.conversation.constant.Role;
+import org.xhy.domain.conversation.service.MessageContentCodec;
 import org.xhy.domain.llm.model.config.ProviderConfig;
 import org.xhy.domain.llm.model.enums.ModelType;
 import org.xhy.infrastructure.converter.*;
 
 import jakarta.annotation.PostConstruct;
 import org.xhy.infrastructure.llm.protocol.enums.ProviderProtocol;
+import org.xhy.infrastructure.typehandler.PackedContentTypeHandler;
 
 import java.util.List;
 
@@ -29,6 +31,9 @@ public class MyBatisTypeHandlerConfig {
     @Autowired
     private SqlSessionFactory sqlSessionFactory;
 
+    @Autowired
+    private MessageContentCodec messageContentCodec;
+
     /**
      * 初始化注册类型处理器
      */
@@ -44,6 +49,9 @@ public class MyBatisTypeHandlerConfig {
         typeHandlerRegistry.register(ModelType.class, new ModelTypeConverter());
         typeHandlerRegistry.register(Role.class, new RoleConverter());
 
+        // 压缩内容处理器只在字段上指定，由MyBatis反射创建，编码通过静态方法提供
+        PackedContentTypeHandler.setCodec(messageContentCodec);
+
         log.info("手动注册类型处理器：ProviderConfigConverter");
         
         // 打印所有已注册的类型处理器
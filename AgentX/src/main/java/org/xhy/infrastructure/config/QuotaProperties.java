@@ -0,0 +1,144 @@
+package org.xhy.infrastructure.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 对话配额和限流配置
+ * 对应配置前缀 agentx.quota，各项上限为0时表示不限制
+ */
+@Component
+@ConfigurationProperties(prefix = "agentx.quota")
+public class QuotaProperties {
+
+    /**
+     * 是否启用配额检查
+     */
+    private boolean enabled = true;
+
+    /**
+     * 用户当日token用量与数据库对账的间隔，两次对账之间只累加本节点的消耗
+     */
+    private Duration reconcileInterval = Duration.ofSeconds(30);
+
+    /**
+     * 计数器空闲超过该时长后回收
+     */
+    private Duration idleTimeout = Duration.ofMinutes(10);
+
+    /**
+     * 每个用户的限制
+     */
+    private User user = new User();
+
+    /**
+     * 每个Agent的限制，所有用户合计
+     */
+    private Agent agent = new Agent();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getReconcileInterval() {
+        return reconcileInterval;
+    }
+
+    public void setReconcileInterval(Duration reconcileInterval) {
+        this.reconcileInterval = reconcileInterval;
+    }
+
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public void setUser(User user) {
+        this.user = user;
+    }
+
+    public Agent getAgent() {
+        return agent;
+    }
+
+    public void setAgent(Agent agent) {
+        this.agent = agent;
+    }
+
+    /**
+     * 用户限制
+     */
+    public static class User {
+
+        /**
+         * 每分钟对话请求数上限
+         */
+        private int requestsPerMinute = 20;
+
+        /**
+         * 每天token用量上限（输入加输出），与用户每日用量表对账
+         */
+        private long dailyTokens = 0;
+
+        public int getRequestsPerMinute() {
+            return requestsPerMinute;
+        }
+
+        public void setRequestsPerMinute(int requestsPerMinute) {
+            this.requestsPerMinute = requestsPerMinute;
+        }
+
+        public long getDailyTokens() {
+            return dailyTokens;
+        }
+
+        public void setDailyTokens(long dailyTokens) {
+            this.dailyTokens = dailyTokens;
+        }
+    }
+
+    /**
+     * Agent限制
+     */
+    public static class Agent {
+
+        /**
+         * 每分钟对话请求数上限
+         */
+        private int requestsPerMinute = 0;
+
+        /**
+         * 最近一小时token用量上限（输入加输出），按本节点的消耗计算
+         */
+        private long hourlyTokens = 0;
+
+        public int getRequestsPerMinute() {
+            return requestsPerMinute;
+        }
+
+        public void setRequestsPerMinute(int requestsPerMinute) {
+            this.requestsPerMinute = requestsPerMinute;
+        }
+
+        public long getHourlyTokens() {
+            return hourlyTokens;
+        }
+
+        public void setHourlyTokens(long hourlyTokens) {
+            this.hourlyTokens = hourlyTokens;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.xhy.infrastructure.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 用量统计配置
+ * 对应配置前缀 agentx.usage
+ */
+@Component
+@ConfigurationProperties(prefix = "agentx.usage")
+public class UsageProperties {
+
+    /**
+     * 内存中累加的用量刷写到数据库的间隔，停机时会再刷写一次
+     */
+    private Duration flushInterval = Duration.ofSeconds(5);
+
+    /**
+     * 每条upsert语句包含的最大行数
+     */
+    private int batchSize = 500;
+
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    public void setFlushInterval(Duration flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+}
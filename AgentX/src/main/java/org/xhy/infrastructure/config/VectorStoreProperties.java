@@ -0,0 +1,107 @@
+package org.xhy.infrastructure.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 向量索引存储配置
+ * 对应配置前缀 agentx.vector
+ */
+@Component
+@ConfigurationProperties(prefix = "agentx.vector")
+public class VectorStoreProperties {
+
+    /**
+     * 是否持久化到本地磁盘，关闭时索引只在内存中，重启后从数据库重建
+     */
+    private boolean persistent = true;
+
+    /**
+     * 索引文件根目录
+     */
+    private String dataDir = "./data/vector";
+
+    /**
+     * 每个映射文件容纳的节点数
+     */
+    private int segmentNodes = 16384;
+
+    /**
+     * 后台刷盘间隔
+     */
+    private Duration flushInterval = Duration.ofSeconds(5);
+
+    /**
+     * 已删除节点占比超过该值时触发压缩
+     */
+    private double compactionRatio = 0.2;
+
+    /**
+     * 是否使用int8量化：查询时用int8编码遍历图，只为少量候选读取float向量精排。
+     * 持久化索引的编码保存在每一代的映射文件中，重启后保留；内存索引的编码放在堆外内存，原始向量写入临时文件
+     */
+    private boolean quantized = false;
+
+    /**
+     * 量化模式下取k的多少倍候选读取原始向量精排
+     */
+    private int rerankFactor = 4;
+
+    public boolean isPersistent() {
+        return persistent;
+    }
+
+    public void setPersistent(boolean persistent) {
+        this.persistent = persistent;
+    }
+
+    public String getDataDir() {
+        return dataDir;
+    }
+
+    public void setDataDir(String dataDir) {
+        this.dataDir = dataDir;
+    }
+
+    public int getSegmentNodes() {
+        return segmentNodes;
+    }
+
+    public void setSegmentNodes(int segmentNodes) {
+        this.segmentNodes = segmentNodes;
+    }
+
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    public void setFlushInterval(Duration flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    public double getCompactionRatio() {
+        return compactionRatio;
+    }
+
+    public void setCompactionRatio(double compactionRatio) {
+        this.compactionRatio = compactionRatio;
+    }
+
+    public boolean isQuantized() {
+        return quantized;
+    }
+
+    public void setQuantized(boolean quantized) {
+        this.quantized = quantized;
+    }
+
+    public int getRerankFactor() {
+        return rerankFactor;
+    }
+
+    public void setRerankFactor(int rerankFactor) {
+        this.rerankFactor = rerankFactor;
+    }
+}
@@ -0,0 +1,215 @@
+package org.xhy.infrastructure.embedding;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.onnx.allminilml6v2.AllMiniLmL6V2EmbeddingModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Service;
+import org.xhy.infrastructure.config.EmbeddingProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 本地向量化服务
+ * 使用内置的all-MiniLM-L6-v2模型在进程内生成384维向量。
+ * 提交的文本进入队列，由专用线程攒批后统一推理，推理不占用请求线程；
+ * 模型在第一次推理时才加载，不影响启动速度
+ */
+@Service
+public class LocalEmbeddingService implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalEmbeddingService.class);
+
+    /**
+     * 向量维度
+     */
+    public static final int DIMENSION = 384;
+
+    private final EmbeddingProperties properties;
+    private final BlockingQueue<EmbeddingTask> queue;
+    private final ExecutorService inferenceExecutor;
+    private final Thread batchThread;
+
+    private volatile AllMiniLmL6V2EmbeddingModel model;
+
+    public LocalEmbeddingService(EmbeddingProperties properties) {
+        this.properties = properties;
+        this.queue = new LinkedBlockingQueue<>(properties.getQueueCapacity());
+
+        AtomicInteger counter = new AtomicInteger();
+        this.inferenceExecutor = Executors.newFixedThreadPool(Math.max(1, properties.getParallelism()), r -> {
+            Thread thread = new Thread(r, "embedding-inference-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.batchThread = new Thread(this::runBatchLoop, "embedding-batcher");
+        this.batchThread.setDaemon(true);
+        this.batchThread.start();
+    }
+
+    /**
+     * 异步生成单条文本的向量
+     *
+     * @param text 文本
+     * @return 向量结果
+     */
+    public CompletableFuture<float[]> embedAsync(String text) {
+        EmbeddingTask task = new EmbeddingTask(text == null ? "" : text);
+        if (!queue.offer(task)) {
+            task.future.completeExceptionally(new RejectedExecutionException("向量化队列已满"));
+        }
+        return task.future;
+    }
+
+    /**
+     * 异步生成多条文本的向量，结果顺序与输入一致
+     *
+     * @param texts 文本列表
+     * @return 向量结果
+     */
+    public CompletableFuture<List<float[]>> embedAllAsync(List<String> texts) {
+        List<CompletableFuture<float[]>> futures = texts.stream()
+                .map(this::embedAsync)
+                .collect(Collectors.toList());
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .thenApply(v -> futures.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+    }
+
+    /**
+     * 同步等待多条文本的向量，等待时间不超过配置的超时时间
+     *
+     * @param texts 文本列表
+     * @return 向量结果
+     * @throws TimeoutException 超时
+     */
+    public List<float[]> embedAll(List<String> texts) throws TimeoutException {
+        try {
+            return embedAllAsync(texts).get(properties.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TimeoutException("等待向量结果被中断");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("向量化失败", e.getCause());
+        }
+    }
+
+    /**
+     * 在调用线程中直接推理单条文本，不经过攒批队列
+     * 供批量导入在自己的线程池中并行调用，避免大量文本挤占对话请求的向量化队列
+     *
+     * @param text 文本
+     * @return 向量
+     */
+    public float[] embedInCallerThread(String text) {
+        String input = text == null || text.isEmpty() ? " " : text;
+        return getModel().embed(input).content().vector();
+    }
+
+    /**
+     * 估算文本在模型分词器下的token数
+     */
+    public int estimateTokenCount(String text) {
+        return getModel().estimateTokenCount(text);
+    }
+
+    /**
+     * 当前待处理的文本数
+     */
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    @Override
+    public void destroy() {
+        batchThread.interrupt();
+        inferenceExecutor.shutdownNow();
+    }
+
+    /**
+     * 攒批循环：取到第一个任务后在等待窗口内继续收集，凑满一批或超时后统一推理
+     */
+    private void runBatchLoop() {
+        int batchSize = Math.max(1, properties.getBatchSize());
+        long waitNanos = properties.getBatchWait().toNanos();
+        List<EmbeddingTask> batch = new ArrayList<>(batchSize);
+
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + waitNanos;
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 && queue.drainTo(batch, batchSize - batch.size()) == 0) {
+                        break;
+                    }
+                    EmbeddingTask next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                process(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                batch.clear();
+            }
+        }
+
+        // 停机时让等待方尽快失败
+        EmbeddingTask task;
+        while ((task = queue.poll()) != null) {
+            task.future.completeExceptionally(new CancellationException("向量化服务已停止"));
+        }
+    }
+
+    private void process(List<EmbeddingTask> batch) {
+        try {
+            List<TextSegment> segments = batch.stream()
+                    .map(task -> TextSegment.from(task.text.isEmpty() ? " " : task.text))
+                    .collect(Collectors.toList());
+            List<Embedding> embeddings = getModel().embedAll(segments).content();
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future.complete(embeddings.get(i).vector());
+            }
+        } catch (Exception e) {
+            logger.warn("批量向量化失败，批大小: {}", batch.size(), e);
+            batch.forEach(task -> task.future.completeExceptionally(e));
+        }
+    }
+
+    private AllMiniLmL6V2EmbeddingModel getModel() {
+        AllMiniLmL6V2EmbeddingModel current = model;
+        if (current == null) {
+            synchronized (this) {
+                current = model;
+                if (current == null) {
+                    long start = System.currentTimeMillis();
+                    current = new AllMiniLmL6V2EmbeddingModel(inferenceExecutor);
+                    model = current;
+                    logger.info("本地向量模型加载完成，耗时: {}ms", System.currentTimeMillis() - start);
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 待向量化的文本
+     */
+    private static class EmbeddingTask {
+        private final String text;
+        private final CompletableFuture<float[]> future = new CompletableFuture<>();
+
+        private EmbeddingTask(String text) {
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.xhy.infrastructure.embedding;
+
+/**
+ * 向量计算工具类
+ */
+public final class VectorMath {
+
+    private VectorMath() {
+    }
+
+    /**
+     * 点积
+     * 浮点累加有顺序依赖，JIT不会自动向量化单个累加器的循环，这里用四个独立累加器展开
+     */
+    public static float dot(float[] a, float[] b) {
+        float s0 = 0f;
+        float s1 = 0f;
+        float s2 = 0f;
+        float s3 = 0f;
+        int length = a.length;
+        int bound = length & ~3;
+        int i = 0;
+        for (; i < bound; i += 4) {
+            s0 += a[i] * b[i];
+            s1 += a[i + 1] * b[i + 1];
+            s2 += a[i + 2] * b[i + 2];
+            s3 += a[i + 3] * b[i + 3];
+        }
+        for (; i < length; i++) {
+            s0 += a[i] * b[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * 余弦相似度，任一向量为零向量时返回0
+     */
+    public static float cosine(float[] a, float[] b) {
+        float dot = 0f;
+        float normA = 0f;
+        float normB = 0f;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        if (normA == 0f || normB == 0f) {
+            return 0f;
+        }
+        return (float) (dot / (Math.sqrt(normA) * Math.sqrt(normB)));
+    }
+
+    /**
+     * 原地归一化为单位向量，归一化后余弦相似度等于点积
+     *
+     * @return 传入的向量
+     */
+    public static float[] normalize(float[] vector) {
+        float norm = 0f;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        if (norm == 0f) {
+            return vector;
+        }
+        float scale = (float) (1.0 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,24 @@
+package org.xhy.infrastructure.exception;
+
+/**
+ * 超出配额或请求频率限制异常
+ * 准入检查在请求处理的最前面抛出，不填充堆栈，拒绝的开销只有一次对象分配
+ */
+public class RateLimitExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 建议的重试等待时间（秒）
+     */
+    private final long retryAfterSeconds;
+
+    public RateLimitExceededException(String message, long retryAfterMillis) {
+        super(message, null, false, false);
+        this.retryAfterSeconds = Math.max(1, (retryAfterMillis + 999) / 1000);
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
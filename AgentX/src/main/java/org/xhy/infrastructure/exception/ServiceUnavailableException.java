@@ -0,0 +1,18 @@
+package org.xhy.infrastructure.exception;
+
+/**
+ * 服务暂不可用异常
+ * 用于节点停机排空等暂时拒绝新请求的场景
+ */
+public class ServiceUnavailableException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+
+    public ServiceUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
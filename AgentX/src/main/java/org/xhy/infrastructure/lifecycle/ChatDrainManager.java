@@ -0,0 +1,193 @@
+package org.xhy.infrastructure.lifecycle;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.xhy.infrastructure.config.ChatProperties;
+import org.xhy.infrastructure.exception.ServiceUnavailableException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 对话停机排空管理器
+ * 跟踪本节点进行中的流式对话；收到停机信号后标记为不可就绪、拒绝新对话，
+ * 在宽限期内等待进行中的对话自然结束，超时后保存部分回复并关闭连接
+ *
+ * 生命周期阶段为最大值，先于Web服务器的优雅停机执行
+ */
+@Component
+public class ChatDrainManager implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatDrainManager.class);
+
+    private final ChatProperties chatProperties;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * 进行中的对话，key为LLM消息id，value为强制结束时的回调
+     */
+    private final Map<String, Runnable> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 登记与开始排空互斥：开始排空后不会再有对话登记成功，排空时看到的就是全部进行中的对话
+     */
+    private final Object registerLock = new Object();
+
+    private final Counter drainCompletedCounter;
+    private final Counter drainInterruptedCounter;
+
+    private volatile boolean running = false;
+    private volatile boolean draining = false;
+
+    public ChatDrainManager(ChatProperties chatProperties, ApplicationEventPublisher eventPublisher,
+                            MeterRegistry meterRegistry) {
+        this.chatProperties = chatProperties;
+        this.eventPublisher = eventPublisher;
+
+        Gauge.builder("agentx.chat.inflight", inFlight, Map::size)
+                .description("进行中的流式对话数")
+                .register(meterRegistry);
+        Gauge.builder("agentx.chat.draining", this, manager -> manager.draining ? 1 : 0)
+                .description("节点是否处于停机排空状态")
+                .register(meterRegistry);
+        this.drainCompletedCounter = Counter.builder("agentx.chat.drain.completed")
+                .description("排空期间自然结束的对话数")
+                .register(meterRegistry);
+        this.drainInterruptedCounter = Counter.builder("agentx.chat.drain.interrupted")
+                .description("宽限期结束后被中断并保存部分回复的对话数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 校验当前节点是否接受新对话
+     */
+    public void checkAccepting() {
+        if (draining) {
+            throw new ServiceUnavailableException("服务正在重启，请稍后重试");
+        }
+    }
+
+    /**
+     * 登记进行中的对话，已开始排空时拒绝登记
+     * 通过 {@link #checkAccepting} 后才开始排空的请求在这里被拒绝，不会漏在排空之外
+     *
+     * @param streamId  流id
+     * @param forceStop 宽限期结束时的强制结束回调，需保存部分回复并关闭连接
+     * @throws ServiceUnavailableException 已开始排空
+     */
+    public void register(String streamId, Runnable forceStop) {
+        synchronized (registerLock) {
+            checkAccepting();
+            inFlight.put(streamId, forceStop);
+        }
+    }
+
+    /**
+     * 注销已结束的对话
+     *
+     * @param streamId 流id
+     */
+    public void unregister(String streamId) {
+        if (inFlight.remove(streamId) != null && draining) {
+            drainCompletedCounter.increment();
+        }
+    }
+
+    /**
+     * 获取进行中的对话数
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    public boolean isDraining() {
+        return draining;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        drain();
+        running = false;
+    }
+
+    @Override
+    public void stop(Runnable callback) {
+        Thread drainThread = new Thread(() -> {
+            try {
+                drain();
+            } finally {
+                running = false;
+                callback.run();
+            }
+        }, "chat-drain");
+        drainThread.start();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * 排空进行中的对话
+     */
+    private void drain() {
+        synchronized (registerLock) {
+            draining = true;
+        }
+        AvailabilityChangeEvent.publish(eventPublisher, this, ReadinessState.REFUSING_TRAFFIC);
+
+        ChatProperties.Drain config = chatProperties.getDrain();
+        long deadline = System.currentTimeMillis() + config.getGracePeriod().toMillis();
+        long progressInterval = Math.max(100L, config.getProgressInterval().toMillis());
+        long nextProgressAt = 0L;
+        logger.info("开始停机排空，进行中的对话数: {}, 宽限期: {}", inFlight.size(), config.getGracePeriod());
+
+        while (!inFlight.isEmpty() && System.currentTimeMillis() < deadline) {
+            long now = System.currentTimeMillis();
+            if (now >= nextProgressAt) {
+                logger.info("停机排空中，剩余对话数: {}, 剩余宽限期: {}ms", inFlight.size(), deadline - now);
+                nextProgressAt = now + progressInterval;
+            }
+            try {
+                Thread.sleep(100L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        // 宽限期结束，保存部分回复并关闭连接
+        for (Map.Entry<String, Runnable> entry : inFlight.entrySet()) {
+            if (inFlight.remove(entry.getKey()) == null) {
+                continue;
+            }
+            try {
+                entry.getValue().run();
+                drainInterruptedCounter.increment();
+            } catch (Exception e) {
+                logger.error("停机时保存对话失败，流ID: {}", entry.getKey(), e);
+            }
+        }
+        logger.info("停机排空结束，自然结束: {}, 中断保存: {}",
+                (long) drainCompletedCounter.count(), (long) drainInterruptedCounter.count());
+    }
+}
@@ -0,0 +1,266 @@
+package org.xhy.infrastructure.llm;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.xhy.infrastructure.config.ChatProperties;
+import org.xhy.infrastructure.exception.ServiceUnavailableException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * 大模型调用调度器
+ * 每个服务商限制同时进行的调用数，未超出时直接调用；超出后请求进入所属用户的队列，
+ * 调用结束时按差额轮询（DRR）从各用户队列中出队：每轮用户获得 quantum * 权重 的额度，
+ * 队首请求的预估token数不超过剩余额度时出队，单个用户的大量请求不会挤占其他用户
+ */
+@Component
+public class LLMCallScheduler implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(LLMCallScheduler.class);
+
+    private final ChatProperties.Scheduling properties;
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService sweeper;
+
+    public LLMCallScheduler(ChatProperties chatProperties) {
+        this.properties = chatProperties.getScheduling();
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "llm-queue-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1000L, properties.getMaxQueueWait().toMillis() / 4);
+        sweeper.scheduleWithFixedDelay(this::expireWaiting, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 提交一次调用
+     * 有空闲并发且没有排队的请求时在当前线程立即开始，否则排队，由其他调用结束的线程开始；
+     * 开始后调用方必须在调用结束时执行 {@link Ticket#release()}
+     *
+     * @param providerId 服务商ID
+     * @param userId     用户ID
+     * @param cost       预估的token数
+     * @param onStart    开始调用
+     * @param onReject   排队超时或开始调用失败
+     */
+    public void submit(String providerId, String userId, int cost, Consumer<Ticket> onStart,
+                       Consumer<Throwable> onReject) {
+        Lane lane = lanes.computeIfAbsent(providerId, key -> new Lane());
+        Ticket ticket = new Ticket(lane, userId, Math.max(1, cost), onStart, onReject);
+        if (!properties.isEnabled()) {
+            synchronized (lane) {
+                lane.inFlight++;
+            }
+            ticket.started = System.currentTimeMillis();
+            start(ticket);
+            return;
+        }
+
+        List<Ticket> startable;
+        synchronized (lane) {
+            lane.enqueue(ticket, weightOf(userId));
+            startable = dispatch(lane);
+        }
+        startable.forEach(this::start);
+    }
+
+    @Override
+    public void destroy() {
+        sweeper.shutdownNow();
+    }
+
+    private void start(Ticket ticket) {
+        try {
+            ticket.onStart.accept(ticket);
+        } catch (RuntimeException e) {
+            ticket.release();
+            ticket.onReject.accept(e);
+        }
+    }
+
+    /**
+     * 调用结束，空出的并发交给排队的请求
+     */
+    private void release(Lane lane) {
+        List<Ticket> startable;
+        synchronized (lane) {
+            lane.inFlight--;
+            startable = dispatch(lane);
+        }
+        startable.forEach(this::start);
+    }
+
+    /**
+     * 差额轮询出队，调用方持有lane的锁；返回的请求在锁外开始
+     */
+    private List<Ticket> dispatch(Lane lane) {
+        List<Ticket> startable = new ArrayList<>();
+        int limit = Math.max(1, properties.getMaxInFlightPerProvider());
+        long now = System.currentTimeMillis();
+        while (lane.inFlight < limit && !lane.active.isEmpty()) {
+            UserQueue queue = lane.active.peekFirst();
+            Ticket head = queue.tickets.peekFirst();
+            if (head.cost > queue.deficit) {
+                // 额度不足，补充额度后排到队尾，等待下一轮
+                lane.active.pollFirst();
+                queue.deficit += (long) Math.max(1, properties.getQuantum()) * queue.weight;
+                lane.active.addLast(queue);
+                continue;
+            }
+            queue.tickets.pollFirst();
+            queue.deficit -= head.cost;
+            if (queue.tickets.isEmpty()) {
+                // 队列清空后额度不保留，避免空闲用户积攒额度
+                lane.active.pollFirst();
+                lane.queues.remove(queue.userId);
+            }
+            lane.inFlight++;
+            head.started = now;
+            startable.add(head);
+        }
+        return startable;
+    }
+
+    /**
+     * 拒绝排队超时的请求
+     */
+    private void expireWaiting() {
+        long deadline = System.currentTimeMillis() - properties.getMaxQueueWait().toMillis();
+        for (Map.Entry<String, Lane> entry : lanes.entrySet()) {
+            Lane lane = entry.getValue();
+            List<Ticket> expired = new ArrayList<>();
+            synchronized (lane) {
+                Iterator<UserQueue> queues = lane.active.iterator();
+                while (queues.hasNext()) {
+                    UserQueue queue = queues.next();
+                    while (!queue.tickets.isEmpty() && queue.tickets.peekFirst().enqueuedAt < deadline) {
+                        expired.add(queue.tickets.pollFirst());
+                    }
+                    if (queue.tickets.isEmpty()) {
+                        queues.remove();
+                        lane.queues.remove(queue.userId);
+                    }
+                }
+            }
+            if (!expired.isEmpty()) {
+                logger.warn("服务商 {} 的调用排队超时，拒绝 {} 个请求", entry.getKey(), expired.size());
+            }
+            for (Ticket ticket : expired) {
+                try {
+                    ticket.onReject.accept(new ServiceUnavailableException("模型服务繁忙，请稍后重试"));
+                } catch (RuntimeException e) {
+                    logger.warn("通知排队超时失败", e);
+                }
+            }
+        }
+    }
+
+    private int weightOf(String userId) {
+        Integer weight = userId != null ? properties.getUserWeights().get(userId) : null;
+        return Math.max(1, weight != null ? weight : properties.getDefaultWeight());
+    }
+
+    /**
+     * 一次调用的排队凭证
+     */
+    public final class Ticket {
+
+        private final Lane lane;
+        private final String userId;
+        private final int cost;
+        private final Consumer<Ticket> onStart;
+        private final Consumer<Throwable> onReject;
+        private final long enqueuedAt = System.currentTimeMillis();
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile long started;
+
+        private Ticket(Lane lane, String userId, int cost, Consumer<Ticket> onStart, Consumer<Throwable> onReject) {
+            this.lane = lane;
+            this.userId = userId;
+            this.cost = cost;
+            this.onStart = onStart;
+            this.onReject = onReject;
+        }
+
+        /**
+         * 排队等待的时长（毫秒），尚未开始时为0
+         */
+        public long getQueueWaitMillis() {
+            return started > 0 ? started - enqueuedAt : 0;
+        }
+
+        /**
+         * 调用开始的时间戳
+         */
+        public long getStartedAt() {
+            return started;
+        }
+
+        /**
+         * 调用结束，释放占用的并发；重复调用只生效一次
+         */
+        public void release() {
+            if (started > 0 && released.compareAndSet(false, true)) {
+                LLMCallScheduler.this.release(lane);
+            }
+        }
+    }
+
+    /**
+     * 单个服务商的调用状态
+     */
+    private static class Lane {
+
+        private int inFlight;
+
+        /**
+         * 有排队请求的用户队列
+         */
+        private final Map<String, UserQueue> queues = new HashMap<>();
+
+        /**
+         * 轮询顺序
+         */
+        private final ArrayDeque<UserQueue> active = new ArrayDeque<>();
+
+        private void enqueue(Ticket ticket, int weight) {
+            UserQueue queue = queues.get(ticket.userId);
+            if (queue == null) {
+                queue = new UserQueue(ticket.userId, weight);
+                queues.put(ticket.userId, queue);
+                active.addLast(queue);
+            }
+            queue.tickets.addLast(ticket);
+        }
+    }
+
+    /**
+     * 单个用户的排队请求和剩余额度
+     */
+    private static class UserQueue {
+
+        private final String userId;
+        private final int weight;
+        private final ArrayDeque<Ticket> tickets = new ArrayDeque<>();
+        private long deficit;
+
+        private UserQueue(String userId, int weight) {
+            this.userId = userId;
+            this.weight = weight;
+        }
+    }
+}
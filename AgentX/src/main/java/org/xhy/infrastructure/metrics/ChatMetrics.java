@@ -0,0 +1,173 @@
+package org.xhy.infrastructure.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * 对话链路耗时指标
+ * 各阶段的计时器按服务商协议、模型、Agent和溢出策略打标签，并发布直方图桶，
+ * 由 /actuator/prometheus 导出后可按阶段计算分位数，定位耗时最长的环节；
+ * 只有已发布的Agent按ID打标签，其余归入 {@link #OTHER_AGENT}，agent标签的取值数由 {@link #agentTagLimit} 限制；
+ * 上下文提交的等待、冲突和失败也在这里登记，名称和描述集中维护
+ */
+@Component
+public class ChatMetrics {
+
+    public static final String TAG_PROVIDER = "provider";
+    public static final String TAG_MODEL = "model";
+    public static final String TAG_AGENT = "agent";
+    public static final String TAG_STRATEGY = "strategy";
+
+    /**
+     * 对话请求从进入到响应结束（完成、超时或出错）的耗时
+     */
+    public static final String CHAT_REQUEST = "agentx.chat.request";
+
+    /**
+     * 准备对话环境的耗时，包括记忆召回、溢出策略和上下文预算
+     */
+    public static final String PREPARE = "agentx.chat.prepare";
+
+    /**
+     * Token溢出策略处理的耗时
+     */
+    public static final String TOKEN_PROCESS = "agentx.chat.token.process";
+
+    /**
+     * 摘要策略调用大模型生成摘要的耗时
+     */
+    public static final String SUMMARIZE = "agentx.chat.summarize";
+
+    /**
+     * 等待服务商并发空闲的排队耗时
+     */
+    public static final String QUEUE_WAIT = "agentx.chat.queue.wait";
+
+    /**
+     * 开始调用到收到第一个token的耗时
+     */
+    public static final String FIRST_TOKEN = "agentx.chat.first.token";
+
+    /**
+     * 相邻两个token的间隔
+     */
+    public static final String INTER_TOKEN = "agentx.chat.inter.token";
+
+    /**
+     * 开始调用到生成结束的耗时
+     */
+    public static final String GENERATION = "agentx.chat.generation";
+
+    /**
+     * 生成结束后写入消息、token数和用量的耗时
+     */
+    public static final String PERSIST = "agentx.chat.persist";
+
+    /**
+     * 提交上下文前等待本节点同一会话其他提交的耗时
+     */
+    public static final String CONTEXT_LOCK_WAIT = "agentx.context.commit.lock.wait";
+
+    /**
+     * 提交上下文时版本冲突并重试的次数
+     */
+    public static final String CONTEXT_CONFLICTS = "agentx.context.commit.conflicts";
+
+    /**
+     * 重试后仍未能提交的上下文数
+     */
+    public static final String CONTEXT_FAILURES = "agentx.context.commit.failures";
+
+    /**
+     * 未发布的Agent在agent标签中的取值
+     */
+    public static final String OTHER_AGENT = "other";
+
+    private static final String NONE = "none";
+
+    private static final Map<String, String> DESCRIPTIONS = Map.ofEntries(
+            Map.entry(CHAT_REQUEST, "对话请求从进入到响应结束的耗时"),
+            Map.entry(PREPARE, "准备对话环境的耗时"),
+            Map.entry(TOKEN_PROCESS, "Token溢出策略处理的耗时"),
+            Map.entry(SUMMARIZE, "生成历史摘要的耗时"),
+            Map.entry(QUEUE_WAIT, "等待服务商并发空闲的排队耗时"),
+            Map.entry(FIRST_TOKEN, "首token耗时"),
+            Map.entry(INTER_TOKEN, "相邻token的间隔"),
+            Map.entry(GENERATION, "模型生成的总耗时"),
+            Map.entry(PERSIST, "生成结束后的落库耗时"),
+            Map.entry(CONTEXT_LOCK_WAIT, "提交上下文前等待同一会话其他提交的时间"),
+            Map.entry(CONTEXT_CONFLICTS, "提交上下文时版本冲突并重试的次数"),
+            Map.entry(CONTEXT_FAILURES, "重试后仍未能提交的上下文数"));
+
+    private final MeterRegistry meterRegistry;
+
+    public ChatMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 对话链路的标准标签，空值记为none
+     */
+    public static Tags tags(String provider, String model, String agent, String strategy) {
+        return Tags.of(
+                TAG_PROVIDER, provider != null ? provider : NONE,
+                TAG_MODEL, model != null ? model : NONE,
+                TAG_AGENT, agent != null ? agent : NONE,
+                TAG_STRATEGY, strategy != null ? strategy : NONE);
+    }
+
+    /**
+     * 限制对话链路指标agent标签的取值数，超出后新出现的Agent不再生成指标，避免直方图桶随Agent数量增长
+     *
+     * @param maxAgentTags agent标签的最大取值数
+     * @return 指标过滤器
+     */
+    public static MeterFilter agentTagLimit(int maxAgentTags) {
+        return MeterFilter.maximumAllowableTags("agentx.chat", TAG_AGENT, maxAgentTags, MeterFilter.deny());
+    }
+
+    /**
+     * 获取阶段计时器，相同名称和标签返回同一个计时器
+     *
+     * @param name 指标名称
+     * @param tags 标签
+     * @return 计时器
+     */
+    public Timer timer(String name, Tags tags) {
+        return Timer.builder(name)
+                .description(DESCRIPTIONS.get(name))
+                .tags(tags)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofMinutes(5))
+                .register(meterRegistry);
+    }
+
+    /**
+     * 获取计数器，相同名称和标签返回同一个计数器
+     *
+     * @param name 指标名称
+     * @param tags 标签
+     * @return 计数器
+     */
+    public Counter counter(String name, Tags tags) {
+        return Counter.builder(name)
+                .description(DESCRIPTIONS.get(name))
+                .tags(tags)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 开始计时，结束时调用 {@link Timer.Sample#stop(Timer)}
+     */
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+}
@@ -0,0 +1,117 @@
+package org.xhy.infrastructure.ratelimit;
+
+/**
+ * 滑动窗口计数器
+ * 窗口等分为若干个桶，按当前时间落入的桶累加，求和时只计窗口内的桶；
+ * 窗口边界的精度为一个桶的长度。所有操作在对象锁内完成，只涉及数组运算，耗时在微秒以内
+ */
+public class SlidingWindowCounter {
+
+    private final long bucketMillis;
+    private final long[] counts;
+    private final long[] bucketStarts;
+
+    /**
+     * @param windowMillis 窗口长度（毫秒）
+     * @param buckets      桶数
+     */
+    public SlidingWindowCounter(long windowMillis, int buckets) {
+        this.bucketMillis = Math.max(1, windowMillis / buckets);
+        this.counts = new long[buckets];
+        this.bucketStarts = new long[buckets];
+    }
+
+    /**
+     * 在限额内累加
+     *
+     * @param now    当前时间（毫秒）
+     * @param amount 本次累加的数量
+     * @param limit  窗口内的上限
+     * @return 0表示已累加；大于0表示累加后会超出上限，未累加，值为窗口内计数降到允许本次累加所需等待的毫秒数
+     */
+    public synchronized long tryAdd(long now, long amount, long limit) {
+        long sum = sum(now);
+        if (sum + amount <= limit) {
+            add(now, amount);
+            return 0;
+        }
+        return releaseWait(now, sum + amount - limit);
+    }
+
+    /**
+     * 无条件累加，用于事后才知道数量的消耗
+     */
+    public synchronized void add(long now, long amount) {
+        long start = now - Math.floorMod(now, bucketMillis);
+        int index = (int) Math.floorMod(start / bucketMillis, (long) counts.length);
+        if (bucketStarts[index] != start) {
+            bucketStarts[index] = start;
+            counts[index] = 0;
+        }
+        counts[index] += amount;
+    }
+
+    /**
+     * 窗口内的计数
+     */
+    public synchronized long sum(long now) {
+        long windowStart = windowStart(now);
+        long sum = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (bucketStarts[i] >= windowStart) {
+                sum += counts[i];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * 窗口内计数低于上限所需等待的时间
+     *
+     * @return 已低于上限时返回0，否则返回等待的毫秒数
+     */
+    public synchronized long waitBelow(long now, long limit) {
+        long sum = sum(now);
+        return sum < limit ? 0 : releaseWait(now, sum - limit + 1);
+    }
+
+    /**
+     * 窗口内已无计数，可以回收
+     */
+    public synchronized boolean isIdle(long now) {
+        return sum(now) == 0;
+    }
+
+    /**
+     * 计算最早的桶依次移出窗口后，移出的计数达到excess所需等待的时间
+     */
+    private long releaseWait(long now, long excess) {
+        long windowStart = windowStart(now);
+        long windowMillis = bucketMillis * counts.length;
+        long released = 0;
+        long wait = windowMillis;
+        while (released < excess) {
+            long oldest = Long.MAX_VALUE;
+            int oldestIndex = -1;
+            for (int i = 0; i < counts.length; i++) {
+                if (bucketStarts[i] >= windowStart && counts[i] > 0 && bucketStarts[i] < oldest) {
+                    oldest = bucketStarts[i];
+                    oldestIndex = i;
+                }
+            }
+            if (oldestIndex < 0) {
+                // 单次数量超过上限，窗口清空后也无法累加
+                return windowMillis;
+            }
+            released += counts[oldestIndex];
+            wait = oldest + windowMillis - now;
+            windowStart = oldest + 1;
+        }
+        return Math.max(1, wait);
+    }
+
+    private long windowStart(long now) {
+        long currentStart = now - Math.floorMod(now, bucketMillis);
+        return currentStart - bucketMillis * (counts.length - 1);
+    }
+}
@@ -0,0 +1,103 @@
+package org.xhy.infrastructure.transport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.xhy.infrastructure.config.ChatProperties;
+import org.xhy.infrastructure.exception.BusinessException;
+import org.xhy.infrastructure.exception.ServiceUnavailableException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对话回放存储
+ * 按幂等键保存进行中和最近完成的对话输出，只保存在本节点内存中，过期后由后台线程清理
+ */
+@Component
+public class ChatReplayStore implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatReplayStore.class);
+
+    /**
+     * 清理间隔
+     */
+    private static final long SWEEP_INTERVAL_MS = 60_000L;
+
+    /**
+     * 未结束的对话最长保留时长，防止异常未结束的对话一直占用内存
+     */
+    private static final long MAX_AGE_MS = TimeUnit.HOURS.toMillis(1);
+
+    private final ChatProperties.Idempotency properties;
+    private final Map<String, ReplayableMessageTransport<?>> streams = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService sweeper;
+
+    public ChatReplayStore(ChatProperties chatProperties) {
+        this.properties = chatProperties.getIdempotency();
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "chat-replay-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::evictExpired, SWEEP_INTERVAL_MS, SWEEP_INTERVAL_MS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 登记一次对话的输出
+     * 幂等键已登记时返回已有的输出，调用方应接入而不是重新生成；
+     * 存储已满时拒绝新的幂等键，不登记就生成会让重试重复生成，违背幂等键的约定
+     *
+     * @param key       幂等键，调用方需限定在用户和会话范围内
+     * @param transport 本次对话的可回放传输
+     * @return 已登记的输出，首次登记时返回null
+     * @throws ServiceUnavailableException 存储已满且幂等键未登记
+     */
+    @SuppressWarnings("unchecked")
+    public <T> ReplayableMessageTransport<T> register(String key, ReplayableMessageTransport<T> transport) {
+        if (streams.size() >= properties.getMaxEntries()) {
+            ReplayableMessageTransport<T> existing = (ReplayableMessageTransport<T>) streams.get(key);
+            if (existing == null) {
+                logger.warn("对话回放存储已满（{}条），拒绝新的幂等键", streams.size());
+                throw new ServiceUnavailableException("服务繁忙，请稍后重试");
+            }
+            return checked(existing, transport);
+        }
+        return checked((ReplayableMessageTransport<T>) streams.putIfAbsent(key, transport), transport);
+    }
+
+    /**
+     * 对话未能开始时移除登记，重试可以重新生成
+     */
+    public void remove(String key, ReplayableMessageTransport<?> transport) {
+        streams.remove(key, transport);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    @Override
+    public void destroy() {
+        sweeper.shutdownNow();
+    }
+
+    private <T> ReplayableMessageTransport<T> checked(ReplayableMessageTransport<T> existing,
+                                                      ReplayableMessageTransport<T> transport) {
+        if (existing != null && existing != transport && !existing.getFingerprint().equals(transport.getFingerprint())) {
+            throw new BusinessException("幂等键已用于其他消息");
+        }
+        return existing;
+    }
+
+    private void evictExpired() {
+        long now = System.currentTimeMillis();
+        long retain = properties.getReplayTtl().toMillis();
+        streams.values().removeIf(stream -> stream.isExpired(now, retain, MAX_AGE_MS));
+    }
+}
@@ -0,0 +1,134 @@
+package org.xhy.infrastructure.transport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 可回放的消息传输
+ * 记录一次对话已输出的内容，并把输出同时发给所有接入的连接：
+ * 客户端断开不会中断生成，重试的请求接入后先收到已输出的内容，再继续接收后续输出
+ */
+public class ReplayableMessageTransport<T> implements MessageTransport<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplayableMessageTransport.class);
+
+    private final MessageTransport<T> delegate;
+
+    /**
+     * 请求内容，用于校验重试是否为同一请求
+     */
+    private final String fingerprint;
+
+    private final long createdAt = System.currentTimeMillis();
+
+    /**
+     * 已接入的连接
+     */
+    private final List<T> connections = new ArrayList<>();
+
+    /**
+     * 已输出的内容
+     */
+    private final StringBuilder content = new StringBuilder();
+
+    private String provider;
+    private String model;
+    private boolean done;
+    private Throwable error;
+    private volatile long finishedAt;
+
+    public ReplayableMessageTransport(MessageTransport<T> delegate, String fingerprint) {
+        this.delegate = delegate;
+        this.fingerprint = fingerprint;
+    }
+
+    @Override
+    public synchronized T createConnection(long timeout) {
+        T connection = delegate.createConnection(timeout);
+        connections.add(connection);
+        return connection;
+    }
+
+    @Override
+    public synchronized void sendMessage(T connection, String content, boolean isDone, String provider, String model) {
+        this.content.append(content);
+        this.done |= isDone;
+        this.provider = provider;
+        this.model = model;
+        Iterator<T> iterator = connections.iterator();
+        while (iterator.hasNext()) {
+            T target = iterator.next();
+            try {
+                delegate.sendMessage(target, content, isDone, provider, model);
+            } catch (RuntimeException e) {
+                // 客户端已断开，继续生成，等待重试接入
+                logger.debug("连接已断开，停止向其发送: {}", e.getMessage());
+                iterator.remove();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void completeConnection(T connection) {
+        finishedAt = System.currentTimeMillis();
+        for (T target : connections) {
+            try {
+                delegate.completeConnection(target);
+            } catch (RuntimeException e) {
+                logger.debug("关闭连接失败: {}", e.getMessage());
+            }
+        }
+        connections.clear();
+    }
+
+    @Override
+    public synchronized void handleError(T connection, Throwable error) {
+        this.error = error;
+        finishedAt = System.currentTimeMillis();
+        for (T target : connections) {
+            try {
+                delegate.handleError(target, error);
+            } catch (RuntimeException e) {
+                logger.debug("发送错误信息失败: {}", e.getMessage());
+            }
+        }
+        connections.clear();
+    }
+
+    /**
+     * 接入新的连接：先发送已输出的内容，对话已结束时直接结束连接，否则继续接收后续输出
+     *
+     * @param timeout 连接超时时间(毫秒)
+     * @return 新的连接
+     */
+    public synchronized T attach(long timeout) {
+        T connection = delegate.createConnection(timeout);
+        if (provider != null) {
+            delegate.sendMessage(connection, content.toString(), done, provider, model);
+        }
+        if (error != null) {
+            delegate.handleError(connection, error);
+        } else if (finishedAt > 0) {
+            delegate.completeConnection(connection);
+        } else {
+            connections.add(connection);
+        }
+        return connection;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * 是否已过期：结束超过保留时长，或创建超过最长存活时长
+     */
+    public boolean isExpired(long now, long retainMillis, long maxAgeMillis) {
+        long finished = finishedAt;
+        return (finished > 0 && now - finished > retainMillis) || now - createdAt > maxAgeMillis;
+    }
+}
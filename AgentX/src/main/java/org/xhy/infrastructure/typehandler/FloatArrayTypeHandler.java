@@ -0,0 +1,60 @@
+package org.xhy.infrastructure.typehandler;
+
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 向量类型处理器
+ * float数组与BYTEA之间按float32小端字节序转换，比文本或数组类型更紧凑，读取时无需解析
+ */
+public class FloatArrayTypeHandler extends BaseTypeHandler<float[]> {
+
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, float[] parameter, JdbcType jdbcType)
+            throws SQLException {
+        ps.setBytes(i, toBytes(parameter));
+    }
+
+    @Override
+    public float[] getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return fromBytes(rs.getBytes(columnName));
+    }
+
+    @Override
+    public float[] getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return fromBytes(rs.getBytes(columnIndex));
+    }
+
+    @Override
+    public float[] getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return fromBytes(cs.getBytes(columnIndex));
+    }
+
+    /**
+     * 向量转字节数组
+     */
+    public static byte[] toBytes(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(vector);
+        return buffer.array();
+    }
+
+    /**
+     * 字节数组转向量
+     */
+    public static float[] fromBytes(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        float[] vector = new float[bytes.length / Float.BYTES];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(vector);
+        return vector;
+    }
+}
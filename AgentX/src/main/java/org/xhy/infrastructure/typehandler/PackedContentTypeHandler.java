@@ -0,0 +1,69 @@
+package org.xhy.infrastructure.typehandler;
+
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+import org.xhy.domain.conversation.service.MessageContentCodec;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * 消息压缩内容类型处理器
+ * 字段在Java侧保持为原文，写入时按 {@link MessageContentCodec} 的阈值压缩后存入content_packed，不需要压缩时写入NULL；
+ * 读取时解压还原。MyBatis按类反射创建处理器，编码由 MyBatisTypeHandlerConfig 启动时设置
+ * 不注册为全局String处理器，只在字段上显式指定使用
+ */
+public class PackedContentTypeHandler extends BaseTypeHandler<String> {
+
+    private static volatile MessageContentCodec codec;
+
+    /**
+     * 设置内容编码
+     *
+     * @param contentCodec 内容编码
+     */
+    public static void setCodec(MessageContentCodec contentCodec) {
+        codec = contentCodec;
+    }
+
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, String parameter, JdbcType jdbcType)
+            throws SQLException {
+        MessageContentCodec current = codec;
+        byte[] packed = current != null ? current.compress(parameter) : null;
+        if (packed == null) {
+            ps.setNull(i, Types.BINARY);
+        } else {
+            ps.setBytes(i, packed);
+        }
+    }
+
+    @Override
+    public String getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return unpack(rs.getBytes(columnName));
+    }
+
+    @Override
+    public String getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return unpack(rs.getBytes(columnIndex));
+    }
+
+    @Override
+    public String getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return unpack(cs.getBytes(columnIndex));
+    }
+
+    private String unpack(byte[] packed) {
+        if (packed == null) {
+            return null;
+        }
+        MessageContentCodec current = codec;
+        if (current == null) {
+            throw new IllegalStateException("消息内容编码未初始化，无法读取压缩内容");
+        }
+        return current.decompress(packed);
+    }
+}
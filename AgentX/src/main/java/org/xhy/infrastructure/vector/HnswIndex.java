@@ -0,0 +1,482 @@
+package org.xhy.infrastructure.vector;
+
+import org.xhy.infrastructure.embedding.VectorMath;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 内存HNSW近似最近邻索引
+ * 向量需预先归一化，相似度为点积（即余弦相似度）。
+ * 查询之间可并发，写入互斥；删除只做标记，查询时跳过已删除节点。
+ * 指定量化存储时节点不持有float向量，图遍历用int8近似打分，最后从磁盘读取原始向量精排
+ */
+public class HnswIndex implements VectorIndex {
+
+    private final int dimension;
+    private final int m;
+    private final int maxLinksLevel0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final QuantizedVectorStore store;
+    private final int rerankFactor;
+
+    private final List<Node> nodes = new ArrayList<>();
+    private final Map<String, Integer> idToNode = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 每个线程复用的访问标记，避免每次搜索分配集合和装箱
+     */
+    private final ThreadLocal<VisitedMarks> visitedMarks = ThreadLocal.withInitial(VisitedMarks::new);
+
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    private int deletedCount;
+
+    /**
+     * @param dimension      向量维度
+     * @param m              每层最大连接数，第0层为2m
+     * @param efConstruction 构建时的候选集大小
+     */
+    public HnswIndex(int dimension, int m, int efConstruction) {
+        this(dimension, m, efConstruction, null, 0);
+    }
+
+    /**
+     * @param dimension      向量维度
+     * @param m              每层最大连接数，第0层为2m
+     * @param efConstruction 构建时的候选集大小
+     * @param store          量化存储，为null时在堆内保存float向量
+     * @param rerankFactor   量化模式下取k的多少倍候选做精排
+     */
+    public HnswIndex(int dimension, int m, int efConstruction, QuantizedVectorStore store, int rerankFactor) {
+        if (store != null && store.getDimension() != dimension) {
+            throw new IllegalArgumentException("量化存储维度不匹配: " + store.getDimension() + " != " + dimension);
+        }
+        this.dimension = dimension;
+        this.m = m;
+        this.maxLinksLevel0 = m * 2;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1 / Math.log(m);
+        this.store = store;
+        this.rerankFactor = Math.max(1, rerankFactor);
+    }
+
+    /**
+     * 添加向量，id已存在时先删除旧向量
+     *
+     * @param id     业务id
+     * @param vector 归一化向量
+     */
+    @Override
+    public void add(String id, float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("向量维度不匹配: " + vector.length + " != " + dimension);
+        }
+        lock.writeLock().lock();
+        try {
+            Integer existing = idToNode.get(id);
+            if (existing != null) {
+                markDeleted(existing);
+            }
+
+            int level = randomLevel();
+            int nodeId = nodes.size();
+            Node node = store == null
+                    ? new Node(id, vector, -1, level)
+                    : new Node(id, null, store.append(vector), level);
+            nodes.add(node);
+            idToNode.put(id, nodeId);
+            Probe probe = probe(vector);
+
+            if (entryPoint < 0) {
+                entryPoint = nodeId;
+                maxLevel = level;
+                return;
+            }
+
+            // 从顶层贪心下降到新节点所在层的上一层
+            int current = entryPoint;
+            for (int l = maxLevel; l > level; l--) {
+                current = greedySearch(probe, current, l);
+            }
+
+            // 在新节点所在的每一层建立连接
+            for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+                PriorityQueue<Candidate> found = searchLayer(probe, current, efConstruction, l, false);
+                List<Candidate> neighbors = selectNeighbors(found, m);
+                for (Candidate neighbor : neighbors) {
+                    connect(nodeId, neighbor.node, l);
+                    connect(neighbor.node, nodeId, l);
+                }
+                current = best(found).node;
+            }
+
+            if (level > maxLevel) {
+                maxLevel = level;
+                entryPoint = nodeId;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除向量（标记删除）
+     *
+     * @param id 业务id
+     * @return 是否存在
+     */
+    @Override
+    public boolean remove(String id) {
+        lock.writeLock().lock();
+        try {
+            Integer nodeId = idToNode.remove(id);
+            if (nodeId == null) {
+                return false;
+            }
+            markDeleted(nodeId);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 查询最相似的k个向量
+     *
+     * @param query    归一化的查询向量
+     * @param k        返回数量
+     * @param efSearch 查询时的候选集大小，越大召回越高、耗时越长
+     * @return 按相似度从高到低排列的结果
+     */
+    @Override
+    public List<VectorSearchHit> search(float[] query, int k, int efSearch) {
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0 || k <= 0) {
+                return new ArrayList<>();
+            }
+            Probe probe = probe(query);
+            int current = entryPoint;
+            for (int l = maxLevel; l > 0; l--) {
+                current = greedySearch(probe, current, l);
+            }
+            // 已删除节点仍参与图遍历，结果中跳过
+            PriorityQueue<Candidate> found = searchLayer(probe, current, Math.max(efSearch, k), 0, true);
+            List<Candidate> sorted = new ArrayList<>(found);
+            sorted.sort((a, b) -> Float.compare(b.score, a.score));
+            if (store != null) {
+                sorted = rerank(query, sorted, k);
+            }
+
+            List<VectorSearchHit> hits = new ArrayList<>(k);
+            for (Candidate candidate : sorted) {
+                if (hits.size() >= k) {
+                    break;
+                }
+                Node node = nodes.get(candidate.node);
+                hits.add(new VectorSearchHit(node.id, candidate.score));
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 有效向量数
+     */
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodes.size() - deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * 关闭量化存储并删除原始向量文件
+     */
+    @Override
+    public void close() throws IOException {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    /**
+     * 取近似得分最高的 k * rerankFactor 个候选，用原始向量重新打分
+     */
+    private List<Candidate> rerank(float[] query, List<Candidate> sorted, int k) {
+        int limit = Math.min(sorted.size(), k * rerankFactor);
+        List<Candidate> reranked = new ArrayList<>(limit);
+        for (int i = 0; i < limit; i++) {
+            int node = sorted.get(i).node;
+            reranked.add(new Candidate(node, store.exactScore(query, nodes.get(node).slot)));
+        }
+        reranked.sort((a, b) -> Float.compare(b.score, a.score));
+        return reranked;
+    }
+
+    private Probe probe(float[] vector) {
+        return new Probe(vector, store == null ? null : store.encode(vector));
+    }
+
+    private float score(Probe probe, int node) {
+        if (store == null) {
+            return VectorMath.dot(probe.vector, nodes.get(node).vector);
+        }
+        return store.approximateScore(probe.code, nodes.get(node).slot);
+    }
+
+    private Probe nodeProbe(int node) {
+        Node n = nodes.get(node);
+        return store == null ? new Probe(n.vector, null) : new Probe(null, store.code(n.slot));
+    }
+
+    private void markDeleted(int nodeId) {
+        Node node = nodes.get(nodeId);
+        if (!node.deleted) {
+            node.deleted = true;
+            deletedCount++;
+        }
+    }
+
+    private int randomLevel() {
+        double r = ThreadLocalRandom.current().nextDouble();
+        return (int) (-Math.log(1 - r) * levelMultiplier);
+    }
+
+    private int greedySearch(Probe query, int start, int level) {
+        int current = start;
+        float currentScore = score(query, current);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            Node node = nodes.get(current);
+            int[] links = node.links[level];
+            for (int i = 0; i < node.linkCounts[level]; i++) {
+                float score = score(query, links[i]);
+                if (score > currentScore) {
+                    currentScore = score;
+                    current = links[i];
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 在指定层搜索，返回最多ef个结果（小顶堆，堆顶为最差结果）
+     */
+    private PriorityQueue<Candidate> searchLayer(Probe query, int start, int ef, int level, boolean skipDeleted) {
+        VisitedMarks visited = visitedMarks.get();
+        visited.reset(nodes.size());
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>((a, b) -> Float.compare(b.score, a.score));
+        PriorityQueue<Candidate> results = new PriorityQueue<>((a, b) -> Float.compare(a.score, b.score));
+
+        Candidate first = new Candidate(start, score(query, start));
+        visited.add(start);
+        candidates.add(first);
+        if (!skipDeleted || !nodes.get(start).deleted) {
+            results.add(first);
+        }
+
+        while (!candidates.isEmpty()) {
+            Candidate candidate = candidates.poll();
+            if (results.size() >= ef && candidate.score < results.peek().score) {
+                break;
+            }
+            Node node = nodes.get(candidate.node);
+            int[] links = node.links[level];
+            for (int i = 0; i < node.linkCounts[level]; i++) {
+                int neighbor = links[i];
+                if (!visited.add(neighbor)) {
+                    continue;
+                }
+                Node neighborNode = nodes.get(neighbor);
+                float score = score(query, neighbor);
+                if (results.size() < ef || score > results.peek().score) {
+                    Candidate next = new Candidate(neighbor, score);
+                    candidates.add(next);
+                    if (!skipDeleted || !neighborNode.deleted) {
+                        results.add(next);
+                        if (results.size() > ef) {
+                            results.poll();
+                        }
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 启发式选择邻居：候选与已选邻居的相似度高于与目标的相似度时跳过，保持连接方向多样
+     */
+    private List<Candidate> selectNeighbors(Collection<Candidate> found, int max) {
+        List<Candidate> sorted = new ArrayList<>(found);
+        sorted.sort((a, b) -> Float.compare(b.score, a.score));
+        List<Candidate> selected = new ArrayList<>(max);
+        for (Candidate candidate : sorted) {
+            if (selected.size() >= max) {
+                break;
+            }
+            Probe probe = nodeProbe(candidate.node);
+            boolean keep = true;
+            for (Candidate chosen : selected) {
+                if (score(probe, chosen.node) > candidate.score) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                selected.add(candidate);
+            }
+        }
+        // 启发式选择不足时用剩余的最近候选补齐
+        for (Candidate candidate : sorted) {
+            if (selected.size() >= max) {
+                break;
+            }
+            if (!selected.contains(candidate)) {
+                selected.add(candidate);
+            }
+        }
+        return selected;
+    }
+
+    private void connect(int from, int to, int level) {
+        Node node = nodes.get(from);
+        int maxLinks = level == 0 ? maxLinksLevel0 : m;
+        int count = node.linkCounts[level];
+        int[] links = node.links[level];
+        for (int i = 0; i < count; i++) {
+            if (links[i] == to) {
+                return;
+            }
+        }
+        if (count < maxLinks) {
+            if (count == links.length) {
+                links = Arrays.copyOf(links, Math.min(maxLinks, Math.max(4, count * 2)));
+                node.links[level] = links;
+            }
+            links[count] = to;
+            node.linkCounts[level] = count + 1;
+            return;
+        }
+
+        // 连接已满时替换掉最远的邻居；这里不再跑启发式选择，避免每次插入触发大量两两计算
+        Probe probe = nodeProbe(from);
+        float newScore = score(probe, to);
+        int worst = -1;
+        float worstScore = newScore;
+        for (int i = 0; i < count; i++) {
+            float score = score(probe, links[i]);
+            if (score < worstScore) {
+                worstScore = score;
+                worst = i;
+            }
+        }
+        if (worst >= 0) {
+            links[worst] = to;
+        }
+    }
+
+    private Candidate best(PriorityQueue<Candidate> found) {
+        Candidate best = null;
+        for (Candidate candidate : found) {
+            if (best == null || candidate.score > best.score) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    private class Node {
+        private final String id;
+        private final float[] vector;
+        private final int slot;
+        private final int[][] links;
+        private final int[] linkCounts;
+        private volatile boolean deleted;
+
+        private Node(String id, float[] vector, int slot, int level) {
+            this.id = id;
+            this.vector = vector;
+            this.slot = slot;
+            this.links = new int[level + 1][];
+            this.linkCounts = new int[level + 1];
+            for (int l = 0; l <= level; l++) {
+                links[l] = new int[l == 0 ? Math.min(4, maxLinksLevel0) : Math.min(4, m)];
+            }
+        }
+    }
+
+    /**
+     * 按轮次标记已访问节点，每次搜索只需递增轮次，无需清空数组
+     */
+    private static class VisitedMarks {
+        private int[] marks = new int[0];
+        private int epoch;
+
+        private void reset(int size) {
+            if (marks.length < size) {
+                marks = new int[Math.max(size, marks.length * 2)];
+                epoch = 0;
+            }
+            epoch++;
+            if (epoch == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                epoch = 1;
+            }
+        }
+
+        /**
+         * 标记节点，已访问过时返回false
+         */
+        private boolean add(int node) {
+            if (marks[node] == epoch) {
+                return false;
+            }
+            marks[node] = epoch;
+            return true;
+        }
+    }
+
+    /**
+     * 一次打分的一侧：非量化模式用float向量，量化模式用int8编码
+     */
+    private static class Probe {
+        private final float[] vector;
+        private final QuantizedVectorStore.Code code;
+
+        private Probe(float[] vector, QuantizedVectorStore.Code code) {
+            this.vector = vector;
+            this.code = code;
+        }
+    }
+
+    private static class Candidate {
+        private final int node;
+        private final float score;
+
+        private Candidate(int node, float score) {
+            this.node = node;
+            this.score = score;
+        }
+    }
+}
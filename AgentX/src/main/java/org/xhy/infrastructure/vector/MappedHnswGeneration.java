@@ -0,0 +1,947 @@
+package org.xhy.infrastructure.vector;
+
+import org.xhy.infrastructure.embedding.VectorMath;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 磁盘HNSW图的一代数据，对应一个目录：
+ * <ul>
+ *     <li>meta.properties：节点数、入口点、最高层等元数据，刷盘时原子替换，是数据的提交点</li>
+ *     <li>seg-NNNNN.dat：定长节点记录（向量 + 第0层邻居），内存映射，按节点号追加</li>
+ *     <li>ids.log：按节点顺序追加的 [层数][id长度][id] 记录</li>
+ *     <li>tombstones.log：追加的已删除节点号</li>
+ *     <li>upper.bin：第1层及以上的邻居，只有约1/M的节点有上层，刷盘时整体重写</li>
+ *     <li>q-NNNNN.dat：量化模式下的定长int8编码记录（缩放系数 + 编码），与节点记录同步写入和刷盘</li>
+ * </ul>
+ * 量化模式下查询用int8编码遍历图，只为前 k * rerankFactor 个候选读取float向量精排；
+ * 未量化时建立的一代在以量化模式打开时从float向量补齐编码
+ * 写入由调用方串行化；每次写入后发布一个不可变快照，查询只读取快照可见的节点和删除标记，无需加锁。
+ * 已有节点的邻居列表会被原地更新，查询可能看到比快照更新的边，但超出快照节点数的邻居会被忽略，
+ * 因此结果集始终与快照一致。
+ * 查询前后通过引用计数持有这一代，压缩切换后旧的一代在最后一个查询结束时才删除文件
+ */
+class MappedHnswGeneration {
+
+    static final String META_FILE = "meta.properties";
+    private static final String IDS_FILE = "ids.log";
+    private static final String TOMBSTONES_FILE = "tombstones.log";
+    private static final String UPPER_FILE = "upper.bin";
+
+    private final Path dir;
+    private final int dimension;
+    private final int m;
+    private final int maxLinksLevel0;
+    private final int efConstruction;
+    private final int segmentNodes;
+    private final int vectorBytes;
+    private final int recordBytes;
+    private final double levelMultiplier;
+    private final boolean quantized;
+    private final int rerankFactor;
+    private final int codeBytes;
+
+    // 以下为写入方状态，由调用方保证串行访问
+    private MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private MappedByteBuffer[] codeSegments = new MappedByteBuffer[0];
+    private String[] nodeIds = new String[0];
+    private int[][][] upperLinks = new int[0][][];
+    private final Map<String, Integer> idToNode = new HashMap<>();
+    private final BitSet tombstones = new BitSet();
+    private int count;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    private int deletedCount;
+    private boolean tombstonesChanged;
+    private boolean upperDirty;
+    private boolean dirty;
+    private DataOutputStream idsOut;
+    private FileOutputStream idsFile;
+    private DataOutputStream tombstonesOut;
+    private FileOutputStream tombstonesFile;
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * 引用计数，初始的1由所属索引持有，退役时释放；归零后不能再被持有
+     */
+    private final AtomicInteger references = new AtomicInteger(1);
+    private volatile Runnable onRetired;
+
+    private final ThreadLocal<VisitedMarks> visitedMarks = ThreadLocal.withInitial(VisitedMarks::new);
+    private final ThreadLocal<byte[]> codeBuffer;
+
+    private MappedHnswGeneration(Path dir, int dimension, int m, int efConstruction, int segmentNodes,
+                                 boolean quantized, int rerankFactor) {
+        this.dir = dir;
+        this.dimension = dimension;
+        this.m = m;
+        this.maxLinksLevel0 = m * 2;
+        this.efConstruction = efConstruction;
+        this.segmentNodes = segmentNodes;
+        this.vectorBytes = dimension * Float.BYTES;
+        this.recordBytes = vectorBytes + Integer.BYTES + maxLinksLevel0 * Integer.BYTES;
+        this.levelMultiplier = 1 / Math.log(m);
+        this.quantized = quantized;
+        this.rerankFactor = Math.max(1, rerankFactor);
+        this.codeBytes = Float.BYTES + dimension;
+        this.codeBuffer = ThreadLocal.withInitial(() -> new byte[dimension]);
+    }
+
+    /**
+     * 打开目录中的数据，目录为空时创建新的一代
+     * 上次未正常关闭时，丢弃元数据之后追加的记录，并清理指向未提交节点的边
+     */
+    static MappedHnswGeneration open(Path dir, int dimension, int m, int efConstruction, int segmentNodes)
+            throws IOException {
+        return open(dir, dimension, m, efConstruction, segmentNodes, false, 1);
+    }
+
+    /**
+     * 打开目录中的数据，可选int8量化
+     *
+     * @param quantized    是否用int8编码遍历图
+     * @param rerankFactor 量化模式下取k的多少倍候选精排
+     */
+    static MappedHnswGeneration open(Path dir, int dimension, int m, int efConstruction, int segmentNodes,
+                                     boolean quantized, int rerankFactor) throws IOException {
+        Files.createDirectories(dir);
+        Path metaPath = dir.resolve(META_FILE);
+        Properties meta = new Properties();
+        if (Files.exists(metaPath)) {
+            try (InputStream in = Files.newInputStream(metaPath)) {
+                meta.load(in);
+            }
+            dimension = Integer.parseInt(meta.getProperty("dimension"));
+            m = Integer.parseInt(meta.getProperty("m"));
+            segmentNodes = Integer.parseInt(meta.getProperty("segmentNodes"));
+        }
+        MappedHnswGeneration generation = new MappedHnswGeneration(dir, dimension, m, efConstruction, segmentNodes,
+                quantized, rerankFactor);
+        generation.recover(meta);
+        return generation;
+    }
+
+    private void recover(Properties meta) throws IOException {
+        count = Integer.parseInt(meta.getProperty("count", "0"));
+        entryPoint = Integer.parseInt(meta.getProperty("entryPoint", "-1"));
+        maxLevel = Integer.parseInt(meta.getProperty("maxLevel", "-1"));
+        boolean clean = Boolean.parseBoolean(meta.getProperty("clean", "true"));
+
+        ensureCapacity(count);
+        int[] levels = readIds();
+        readTombstones();
+        readUpperLinks(levels);
+        for (int node = 0; node < count; node++) {
+            if (!tombstones.get(node)) {
+                idToNode.put(nodeIds[node], node);
+            }
+        }
+        if (!clean) {
+            sanitizeLevel0();
+        }
+        if (quantized && !Boolean.parseBoolean(meta.getProperty("quantized", "false"))) {
+            // 上次未以量化模式写入，编码不完整，从float向量补齐
+            for (int node = 0; node < count; node++) {
+                writeCode(node, vector(null, node));
+            }
+        }
+
+        idsFile = new FileOutputStream(dir.resolve(IDS_FILE).toFile(), true);
+        idsOut = new DataOutputStream(new BufferedOutputStream(idsFile));
+        tombstonesFile = new FileOutputStream(dir.resolve(TOMBSTONES_FILE).toFile(), true);
+        tombstonesOut = new DataOutputStream(new BufferedOutputStream(tombstonesFile));
+        tombstonesChanged = true;
+        publish();
+
+        // 打开后立即把元数据标记为未正常关闭，之后崩溃时能触发清理
+        dirty = true;
+        flush(false);
+    }
+
+    private int[] readIds() throws IOException {
+        int[] levels = new int[count];
+        Path path = dir.resolve(IDS_FILE);
+        if (!Files.exists(path)) {
+            return levels;
+        }
+        long position = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            for (int node = 0; node < count; node++) {
+                levels[node] = in.readInt();
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                nodeIds[node] = new String(bytes, StandardCharsets.UTF_8);
+                position += Integer.BYTES * 2 + bytes.length;
+            }
+        }
+        // 截掉元数据提交点之后的记录
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(position);
+        }
+        return levels;
+    }
+
+    private void readTombstones() throws IOException {
+        Path path = dir.resolve(TOMBSTONES_FILE);
+        if (!Files.exists(path)) {
+            return;
+        }
+        long size = Files.size(path);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            for (long i = 0; i < size / Integer.BYTES; i++) {
+                int node = in.readInt();
+                if (node < count && !tombstones.get(node)) {
+                    tombstones.set(node);
+                    deletedCount++;
+                }
+            }
+        }
+        // 丢弃写了一半的记录
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(size - size % Integer.BYTES);
+        }
+    }
+
+    private void readUpperLinks(int[] levels) throws IOException {
+        for (int node = 0; node < count; node++) {
+            if (levels[node] > 0) {
+                upperLinks[node] = newUpperLinks(levels[node]);
+            }
+        }
+        Path path = dir.resolve(UPPER_FILE);
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            int entries = in.readInt();
+            for (int e = 0; e < entries; e++) {
+                int node = in.readInt();
+                int level = in.readInt();
+                for (int l = 0; l < level; l++) {
+                    int linkCount = in.readInt();
+                    int[] links = new int[1 + m];
+                    int kept = 0;
+                    for (int i = 0; i < linkCount; i++) {
+                        int link = in.readInt();
+                        if (link < count) {
+                            links[1 + kept++] = link;
+                        }
+                    }
+                    links[0] = kept;
+                    if (node < count && upperLinks[node] != null && l < upperLinks[node].length) {
+                        upperLinks[node][l] = links;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 清理第0层中指向未提交节点的边，只在非正常关闭后执行
+     */
+    private void sanitizeLevel0() {
+        for (int node = 0; node < count; node++) {
+            ByteBuffer segment = segments[node / segmentNodes];
+            int base = (node % segmentNodes) * recordBytes + vectorBytes;
+            int linkCount = Math.min(segment.getInt(base), maxLinksLevel0);
+            int kept = 0;
+            for (int i = 0; i < linkCount; i++) {
+                int link = segment.getInt(base + Integer.BYTES * (1 + i));
+                if (link >= 0 && link < count) {
+                    segment.putInt(base + Integer.BYTES * (1 + kept++), link);
+                }
+            }
+            segment.putInt(base, kept);
+        }
+    }
+
+    /**
+     * 添加向量，id已存在时标记旧节点删除
+     */
+    void add(String id, float[] vector) throws IOException {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("向量维度不匹配: " + vector.length + " != " + dimension);
+        }
+        Integer existing = idToNode.get(id);
+        if (existing != null) {
+            markDeleted(existing);
+        }
+
+        int node = count;
+        ensureCapacity(node + 1);
+        ByteBuffer segment = segments[node / segmentNodes];
+        int offset = (node % segmentNodes) * recordBytes;
+        for (int i = 0; i < dimension; i++) {
+            segment.putFloat(offset + i * Float.BYTES, vector[i]);
+        }
+        segment.putInt(offset + vectorBytes, 0);
+        if (quantized) {
+            writeCode(node, vector);
+        }
+
+        int level = randomLevel();
+        nodeIds[node] = id;
+        if (level > 0) {
+            upperLinks[node] = newUpperLinks(level);
+            upperDirty = true;
+        }
+        idsOut.writeInt(level);
+        byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+        idsOut.writeInt(bytes.length);
+        idsOut.write(bytes);
+        idToNode.put(id, node);
+
+        if (entryPoint >= 0) {
+            // 写入方视图包含新节点，插入时不跳过已删除节点
+            Snapshot view = new Snapshot(node + 1, deletedCount, entryPoint, maxLevel, null, nodeIds, upperLinks,
+                    segments, codeSegments);
+            // 建图使用float向量，保证邻居质量不受量化影响
+            Query query = new Query(vector, null);
+            int current = entryPoint;
+            for (int l = maxLevel; l > level; l--) {
+                current = greedySearch(view, query, current, l);
+            }
+            for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+                PriorityQueue<Candidate> found = searchLayer(view, query, current, efConstruction, l);
+                for (Candidate neighbor : selectNeighbors(view, found, m)) {
+                    connect(view, node, neighbor.node, l);
+                    connect(view, neighbor.node, node, l);
+                }
+                current = best(found).node;
+            }
+        }
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+        count = node + 1;
+        dirty = true;
+        publish();
+    }
+
+    /**
+     * 标记删除
+     */
+    boolean remove(String id) throws IOException {
+        Integer node = idToNode.remove(id);
+        if (node == null) {
+            return false;
+        }
+        markDeleted(node);
+        publish();
+        return true;
+    }
+
+    private void markDeleted(int node) throws IOException {
+        if (tombstones.get(node)) {
+            return;
+        }
+        tombstones.set(node);
+        deletedCount++;
+        tombstonesOut.writeInt(node);
+        tombstonesChanged = true;
+        dirty = true;
+    }
+
+    /**
+     * 在当前快照上查询
+     */
+    List<VectorSearchHit> search(float[] query, int k, int efSearch) {
+        Snapshot view = snapshot;
+        if (view.entryPoint < 0 || k <= 0) {
+            return new ArrayList<>();
+        }
+        Query scored = new Query(query, quantized ? QuantizedVectorStore.quantize(query) : null);
+        int current = view.entryPoint;
+        for (int l = view.maxLevel; l > 0; l--) {
+            current = greedySearch(view, scored, current, l);
+        }
+        int candidates = quantized ? k * rerankFactor : k;
+        PriorityQueue<Candidate> found = searchLayer(view, scored, current, Math.max(efSearch, candidates), 0);
+        List<Candidate> sorted = new ArrayList<>(found);
+        sorted.sort((a, b) -> Float.compare(b.score, a.score));
+        if (quantized) {
+            // 近似分数最高的候选读取float向量精排
+            List<Candidate> reranked = new ArrayList<>(Math.min(candidates, sorted.size()));
+            for (int i = 0; i < sorted.size() && i < candidates; i++) {
+                int node = sorted.get(i).node;
+                reranked.add(new Candidate(node, dot(view, query, node)));
+            }
+            reranked.sort((a, b) -> Float.compare(b.score, a.score));
+            sorted = reranked;
+        }
+        List<VectorSearchHit> hits = new ArrayList<>(k);
+        for (Candidate candidate : sorted) {
+            if (hits.size() >= k) {
+                break;
+            }
+            hits.add(new VectorSearchHit(view.nodeIds[candidate.node], candidate.score));
+        }
+        return hits;
+    }
+
+    /**
+     * 数据落盘，最后原子替换元数据作为提交点
+     *
+     * @param clean 是否为正常关闭
+     */
+    void flush(boolean clean) throws IOException {
+        if (!dirty && !clean) {
+            return;
+        }
+        idsOut.flush();
+        idsFile.getFD().sync();
+        tombstonesOut.flush();
+        tombstonesFile.getFD().sync();
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+        for (MappedByteBuffer segment : codeSegments) {
+            segment.force();
+        }
+        if (upperDirty) {
+            writeUpperLinks();
+            upperDirty = false;
+        }
+
+        Properties meta = new Properties();
+        meta.setProperty("dimension", String.valueOf(dimension));
+        meta.setProperty("m", String.valueOf(m));
+        meta.setProperty("segmentNodes", String.valueOf(segmentNodes));
+        meta.setProperty("count", String.valueOf(count));
+        meta.setProperty("entryPoint", String.valueOf(entryPoint));
+        meta.setProperty("maxLevel", String.valueOf(maxLevel));
+        meta.setProperty("clean", String.valueOf(clean));
+        meta.setProperty("quantized", String.valueOf(quantized));
+        Path tmp = dir.resolve(META_FILE + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            meta.store(out, null);
+        }
+        Files.move(tmp, dir.resolve(META_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        dirty = false;
+    }
+
+    private void writeUpperLinks() throws IOException {
+        Path tmp = dir.resolve(UPPER_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            int entries = 0;
+            for (int node = 0; node < count; node++) {
+                if (upperLinks[node] != null) {
+                    entries++;
+                }
+            }
+            out.writeInt(entries);
+            for (int node = 0; node < count; node++) {
+                int[][] levels = upperLinks[node];
+                if (levels == null) {
+                    continue;
+                }
+                out.writeInt(node);
+                out.writeInt(levels.length);
+                for (int[] links : levels) {
+                    out.writeInt(links[0]);
+                    for (int i = 1; i <= links[0]; i++) {
+                        out.writeInt(links[i]);
+                    }
+                }
+            }
+        }
+        Files.move(tmp, dir.resolve(UPPER_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * 正常关闭，映射在缓冲区被回收时释放
+     */
+    void close() throws IOException {
+        flush(true);
+        idsOut.close();
+        tombstonesOut.close();
+    }
+
+    /**
+     * 查询前持有这一代
+     *
+     * @return 是否持有成功，已退役且没有查询时返回false，调用方应改用新的一代
+     */
+    boolean acquire() {
+        while (true) {
+            int current = references.get();
+            if (current == 0) {
+                return false;
+            }
+            if (references.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 查询结束后释放，最后一个引用释放时执行退役回调
+     */
+    void release() {
+        if (references.decrementAndGet() == 0) {
+            Runnable callback = onRetired;
+            if (callback != null) {
+                callback.run();
+            }
+        }
+    }
+
+    /**
+     * 退役：释放所属索引的引用，所有查询结束后执行回调，通常用于删除目录
+     */
+    void retire(Runnable callback) {
+        this.onRetired = callback;
+        release();
+    }
+
+    Snapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * 读取节点向量
+     */
+    float[] vector(Snapshot view, int node) {
+        ByteBuffer segment = (view != null ? view.segments : segments)[node / segmentNodes];
+        int offset = (node % segmentNodes) * recordBytes;
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = segment.getFloat(offset + i * Float.BYTES);
+        }
+        return vector;
+    }
+
+    String nodeId(int node) {
+        return nodeIds[node];
+    }
+
+    BitSet tombstonesCopy() {
+        return (BitSet) tombstones.clone();
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    int liveCount() {
+        return snapshot.count - snapshot.deletedCount;
+    }
+
+    double deletedRatio() {
+        Snapshot view = snapshot;
+        return view.count == 0 ? 0 : (double) view.deletedCount / view.count;
+    }
+
+    int getDimension() {
+        return dimension;
+    }
+
+    Path getDir() {
+        return dir;
+    }
+
+    boolean isDirty() {
+        return dirty;
+    }
+
+    private void publish() {
+        Snapshot previous = snapshot;
+        BitSet visibleTombstones = tombstonesChanged || previous == null
+                ? (BitSet) tombstones.clone() : previous.tombstones;
+        tombstonesChanged = false;
+        snapshot = new Snapshot(count, deletedCount, entryPoint, maxLevel, visibleTombstones, nodeIds, upperLinks,
+                segments, codeSegments);
+    }
+
+    private void ensureCapacity(int nodes) throws IOException {
+        if (nodes > nodeIds.length) {
+            int capacity = Math.max(nodes, Math.max(16, nodeIds.length * 2));
+            nodeIds = Arrays.copyOf(nodeIds, capacity);
+            upperLinks = Arrays.copyOf(upperLinks, capacity);
+        }
+        int requiredSegments = (nodes + segmentNodes - 1) / segmentNodes;
+        if (requiredSegments > segments.length) {
+            MappedByteBuffer[] grown = Arrays.copyOf(segments, requiredSegments);
+            for (int s = segments.length; s < requiredSegments; s++) {
+                grown[s] = mapSegment("seg", s, recordBytes);
+            }
+            segments = grown;
+        }
+        if (quantized && requiredSegments > codeSegments.length) {
+            MappedByteBuffer[] grown = Arrays.copyOf(codeSegments, requiredSegments);
+            for (int s = codeSegments.length; s < requiredSegments; s++) {
+                grown[s] = mapSegment("q", s, codeBytes);
+            }
+            codeSegments = grown;
+        }
+    }
+
+    private MappedByteBuffer mapSegment(String prefix, int index, int nodeBytes) throws IOException {
+        Path path = dir.resolve(String.format("%s-%05d.dat", prefix, index));
+        long length = (long) segmentNodes * nodeBytes;
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            if (file.length() < length) {
+                file.setLength(length);
+            }
+            MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return buffer;
+        }
+    }
+
+    private void writeCode(int node, float[] vector) {
+        QuantizedVectorStore.Code code = QuantizedVectorStore.quantize(vector);
+        ByteBuffer segment = codeSegments[node / segmentNodes];
+        int offset = (node % segmentNodes) * codeBytes;
+        segment.putFloat(offset, code.getScale());
+        segment.put(offset + Float.BYTES, code.getCodes(), 0, dimension);
+    }
+
+    private int[][] newUpperLinks(int level) {
+        int[][] links = new int[level][];
+        for (int l = 0; l < level; l++) {
+            links[l] = new int[1 + m];
+        }
+        return links;
+    }
+
+    private int randomLevel() {
+        double r = ThreadLocalRandom.current().nextDouble();
+        return (int) (-Math.log(1 - r) * levelMultiplier);
+    }
+
+    private float dot(Snapshot view, float[] query, int node) {
+        ByteBuffer segment = view.segments[node / segmentNodes];
+        int offset = (node % segmentNodes) * recordBytes;
+        float s0 = 0f;
+        float s1 = 0f;
+        float s2 = 0f;
+        float s3 = 0f;
+        int bound = dimension & ~3;
+        int i = 0;
+        for (; i < bound; i += 4) {
+            int p = offset + i * Float.BYTES;
+            s0 += query[i] * segment.getFloat(p);
+            s1 += query[i + 1] * segment.getFloat(p + 4);
+            s2 += query[i + 2] * segment.getFloat(p + 8);
+            s3 += query[i + 3] * segment.getFloat(p + 12);
+        }
+        for (; i < dimension; i++) {
+            s0 += query[i] * segment.getFloat(offset + i * Float.BYTES);
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * 查询打分：带编码时为int8近似分数，否则为float点积
+     */
+    private float score(Snapshot view, Query query, int node) {
+        if (query.code == null) {
+            return dot(view, query.vector, node);
+        }
+        ByteBuffer segment = view.codeSegments[node / segmentNodes];
+        int offset = (node % segmentNodes) * codeBytes;
+        byte[] codes = codeBuffer.get();
+        segment.get(offset + Float.BYTES, codes, 0, dimension);
+        return QuantizedVectorStore.dotInt8(query.code.getCodes(), codes, 0) * query.code.getScale()
+                * segment.getFloat(offset);
+    }
+
+    /**
+     * 读取邻居到buffer，返回邻居数；超出视图节点数的邻居被忽略
+     */
+    private int neighbors(Snapshot view, int node, int level, int[] buffer) {
+        int kept = 0;
+        if (level == 0) {
+            ByteBuffer segment = view.segments[node / segmentNodes];
+            int base = (node % segmentNodes) * recordBytes + vectorBytes;
+            int linkCount = Math.min(segment.getInt(base), maxLinksLevel0);
+            for (int i = 0; i < linkCount; i++) {
+                int link = segment.getInt(base + Integer.BYTES * (1 + i));
+                if (link >= 0 && link < view.count) {
+                    buffer[kept++] = link;
+                }
+            }
+            return kept;
+        }
+        int[][] levels = view.upperLinks[node];
+        if (levels == null || level > levels.length) {
+            return 0;
+        }
+        int[] links = levels[level - 1];
+        int linkCount = Math.min(links[0], m);
+        for (int i = 1; i <= linkCount; i++) {
+            int link = links[i];
+            if (link >= 0 && link < view.count) {
+                buffer[kept++] = link;
+            }
+        }
+        return kept;
+    }
+
+    private int greedySearch(Snapshot view, Query query, int start, int level) {
+        int[] buffer = new int[maxLinksLevel0];
+        int current = start;
+        float currentScore = score(view, query, current);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int linkCount = neighbors(view, current, level, buffer);
+            for (int i = 0; i < linkCount; i++) {
+                float score = score(view, query, buffer[i]);
+                if (score > currentScore) {
+                    currentScore = score;
+                    current = buffer[i];
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 在指定层搜索，返回最多ef个结果（小顶堆），视图带有删除标记时结果中跳过已删除节点
+     */
+    private PriorityQueue<Candidate> searchLayer(Snapshot view, Query query, int start, int ef, int level) {
+        VisitedMarks visited = visitedMarks.get();
+        visited.reset(view.count);
+        int[] buffer = new int[maxLinksLevel0];
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>((a, b) -> Float.compare(b.score, a.score));
+        PriorityQueue<Candidate> results = new PriorityQueue<>((a, b) -> Float.compare(a.score, b.score));
+
+        Candidate first = new Candidate(start, score(view, query, start));
+        visited.add(start);
+        candidates.add(first);
+        if (view.isLive(start)) {
+            results.add(first);
+        }
+
+        while (!candidates.isEmpty()) {
+            Candidate candidate = candidates.poll();
+            if (results.size() >= ef && candidate.score < results.peek().score) {
+                break;
+            }
+            int linkCount = neighbors(view, candidate.node, level, buffer);
+            for (int i = 0; i < linkCount; i++) {
+                int neighbor = buffer[i];
+                if (!visited.add(neighbor)) {
+                    continue;
+                }
+                float score = score(view, query, neighbor);
+                if (results.size() < ef || score > results.peek().score) {
+                    Candidate next = new Candidate(neighbor, score);
+                    candidates.add(next);
+                    if (view.isLive(neighbor)) {
+                        results.add(next);
+                        if (results.size() > ef) {
+                            results.poll();
+                        }
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 启发式选择邻居，与HnswIndex一致
+     */
+    private List<Candidate> selectNeighbors(Snapshot view, Collection<Candidate> found, int max) {
+        List<Candidate> sorted = new ArrayList<>(found);
+        sorted.sort((a, b) -> Float.compare(b.score, a.score));
+        List<Candidate> selected = new ArrayList<>(max);
+        List<float[]> selectedVectors = new ArrayList<>(max);
+        for (Candidate candidate : sorted) {
+            if (selected.size() >= max) {
+                break;
+            }
+            float[] vector = vector(view, candidate.node);
+            boolean keep = true;
+            for (float[] chosen : selectedVectors) {
+                if (VectorMath.dot(vector, chosen) > candidate.score) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                selected.add(candidate);
+                selectedVectors.add(vector);
+            }
+        }
+        for (Candidate candidate : sorted) {
+            if (selected.size() >= max) {
+                break;
+            }
+            if (!selected.contains(candidate)) {
+                selected.add(candidate);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * 添加一条边：先写邻居再写数量，列表已满时替换最远的邻居
+     */
+    private void connect(Snapshot view, int from, int to, int level) {
+        if (level == 0) {
+            ByteBuffer segment = segments[from / segmentNodes];
+            int base = (from % segmentNodes) * recordBytes + vectorBytes;
+            int linkCount = Math.min(segment.getInt(base), maxLinksLevel0);
+            for (int i = 0; i < linkCount; i++) {
+                if (segment.getInt(base + Integer.BYTES * (1 + i)) == to) {
+                    return;
+                }
+            }
+            if (linkCount < maxLinksLevel0) {
+                segment.putInt(base + Integer.BYTES * (1 + linkCount), to);
+                segment.putInt(base, linkCount + 1);
+                return;
+            }
+            float[] fromVector = vector(view, from);
+            int worst = -1;
+            float worstScore = dot(view, fromVector, to);
+            for (int i = 0; i < linkCount; i++) {
+                float score = dot(view, fromVector, segment.getInt(base + Integer.BYTES * (1 + i)));
+                if (score < worstScore) {
+                    worstScore = score;
+                    worst = i;
+                }
+            }
+            if (worst >= 0) {
+                segment.putInt(base + Integer.BYTES * (1 + worst), to);
+            }
+            return;
+        }
+
+        int[] links = upperLinks[from][level - 1];
+        int linkCount = links[0];
+        for (int i = 1; i <= linkCount; i++) {
+            if (links[i] == to) {
+                return;
+            }
+        }
+        upperDirty = true;
+        if (linkCount < m) {
+            links[1 + linkCount] = to;
+            links[0] = linkCount + 1;
+            return;
+        }
+        float[] fromVector = vector(view, from);
+        int worst = -1;
+        float worstScore = dot(view, fromVector, to);
+        for (int i = 1; i <= linkCount; i++) {
+            float score = dot(view, fromVector, links[i]);
+            if (score < worstScore) {
+                worstScore = score;
+                worst = i;
+            }
+        }
+        if (worst >= 0) {
+            links[worst] = to;
+        }
+    }
+
+    private Candidate best(PriorityQueue<Candidate> found) {
+        Candidate best = null;
+        for (Candidate candidate : found) {
+            if (best == null || candidate.score > best.score) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 不可变快照：节点数、入口点和删除标记固定，数组引用在发布后只会追加或原地更新边
+     */
+    static class Snapshot {
+        final int count;
+        final int deletedCount;
+        final int entryPoint;
+        final int maxLevel;
+        final BitSet tombstones;
+        final String[] nodeIds;
+        final int[][][] upperLinks;
+        final MappedByteBuffer[] segments;
+        final MappedByteBuffer[] codeSegments;
+
+        Snapshot(int count, int deletedCount, int entryPoint, int maxLevel, BitSet tombstones, String[] nodeIds,
+                 int[][][] upperLinks, MappedByteBuffer[] segments, MappedByteBuffer[] codeSegments) {
+            this.count = count;
+            this.deletedCount = deletedCount;
+            this.entryPoint = entryPoint;
+            this.maxLevel = maxLevel;
+            this.tombstones = tombstones;
+            this.nodeIds = nodeIds;
+            this.upperLinks = upperLinks;
+            this.segments = segments;
+            this.codeSegments = codeSegments;
+        }
+
+        boolean isLive(int node) {
+            return tombstones == null || !tombstones.get(node);
+        }
+    }
+
+    /**
+     * 查询向量，code不为空时用int8编码打分
+     */
+    private static class Query {
+        private final float[] vector;
+        private final QuantizedVectorStore.Code code;
+
+        private Query(float[] vector, QuantizedVectorStore.Code code) {
+            this.vector = vector;
+            this.code = code;
+        }
+    }
+
+    private static class VisitedMarks {
+        private int[] marks = new int[0];
+        private int epoch;
+
+        private void reset(int size) {
+            if (marks.length < size) {
+                marks = new int[Math.max(size, marks.length * 2)];
+                epoch = 0;
+            }
+            epoch++;
+            if (epoch == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                epoch = 1;
+            }
+        }
+
+        private boolean add(int node) {
+            if (marks[node] == epoch) {
+                return false;
+            }
+            marks[node] = epoch;
+            return true;
+        }
+    }
+
+    private static class Candidate {
+        private final int node;
+        private final float score;
+
+        private Candidate(int node, float score) {
+            this.node = node;
+            this.score = score;
+        }
+    }
+}
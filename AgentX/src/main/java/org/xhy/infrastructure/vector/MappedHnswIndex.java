@@ -0,0 +1,294 @@
+package org.xhy.infrastructure.vector;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * 持久化HNSW向量索引
+ * 图和向量存放在本地磁盘的内存映射文件中，重启时直接映射文件，无需重新向量化和插入。
+ * 写入串行、追加式，删除只写删除标记；查询基于写入后发布的快照，可多线程并发执行；
+ * 删除比例过高时由后台压缩为新的一代，切换通过原子替换CURRENT文件完成；
+ * 旧的一代在持有它的查询全部结束后才删除，未来得及删除的旧目录在下次打开时清理
+ */
+public class MappedHnswIndex implements VectorIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedHnswIndex.class);
+
+    private static final String CURRENT_FILE = "CURRENT";
+
+    private final Path baseDir;
+    private final int m;
+    private final int efConstruction;
+    private final int segmentNodes;
+    private final boolean quantized;
+    private final int rerankFactor;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ReentrantLock compactionLock = new ReentrantLock();
+
+    private volatile MappedHnswGeneration current;
+
+    private MappedHnswIndex(Path baseDir, int m, int efConstruction, int segmentNodes, boolean quantized,
+                            int rerankFactor, MappedHnswGeneration current) {
+        this.baseDir = baseDir;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.segmentNodes = segmentNodes;
+        this.quantized = quantized;
+        this.rerankFactor = rerankFactor;
+        this.current = current;
+    }
+
+    /**
+     * 打开索引目录，不存在时创建
+     *
+     * @param baseDir        索引目录
+     * @param dimension      向量维度，已有索引以元数据为准
+     * @param m              每层最大连接数
+     * @param efConstruction 构建时的候选集大小
+     * @param segmentNodes   每个映射文件容纳的节点数
+     * @return 索引
+     */
+    public static MappedHnswIndex open(Path baseDir, int dimension, int m, int efConstruction, int segmentNodes)
+            throws IOException {
+        return open(baseDir, dimension, m, efConstruction, segmentNodes, false, 1);
+    }
+
+    /**
+     * 打开索引目录，不存在时创建；量化模式下int8编码与图一起保存在每一代的目录中，重启后直接映射
+     *
+     * @param baseDir        索引目录
+     * @param dimension      向量维度，已有索引以元数据为准
+     * @param m              每层最大连接数
+     * @param efConstruction 构建时的候选集大小
+     * @param segmentNodes   每个映射文件容纳的节点数
+     * @param quantized      查询时是否用int8编码遍历图
+     * @param rerankFactor   量化模式下取k的多少倍候选精排
+     * @return 索引
+     */
+    public static MappedHnswIndex open(Path baseDir, int dimension, int m, int efConstruction, int segmentNodes,
+                                       boolean quantized, int rerankFactor) throws IOException {
+        Files.createDirectories(baseDir);
+        Path currentFile = baseDir.resolve(CURRENT_FILE);
+        String generationName = Files.exists(currentFile)
+                ? Files.readString(currentFile, StandardCharsets.UTF_8).trim()
+                : generationName(1);
+        MappedHnswGeneration generation = MappedHnswGeneration.open(baseDir.resolve(generationName), dimension, m,
+                efConstruction, segmentNodes, quantized, rerankFactor);
+        if (generation.getDimension() != dimension) {
+            throw new IllegalStateException("索引维度不匹配: " + generation.getDimension() + " != " + dimension);
+        }
+        if (!Files.exists(currentFile)) {
+            writeCurrent(baseDir, generationName);
+        }
+        deleteStaleGenerations(baseDir, generationName);
+        return new MappedHnswIndex(baseDir, m, efConstruction, segmentNodes, quantized, rerankFactor, generation);
+    }
+
+    @Override
+    public void add(String id, float[] vector) {
+        writeLock.lock();
+        try {
+            current.add(id, vector);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(String id) {
+        writeLock.lock();
+        try {
+            return current.remove(id);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public List<VectorSearchHit> search(float[] query, int k, int efSearch) {
+        while (true) {
+            MappedHnswGeneration generation = current;
+            // 持有失败说明这一代已被压缩替换，读取新的一代重试
+            if (generation.acquire()) {
+                try {
+                    return generation.search(query, k, efSearch);
+                } finally {
+                    generation.release();
+                }
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return current.liveCount();
+    }
+
+    @Override
+    public int getDimension() {
+        return current.getDimension();
+    }
+
+    /**
+     * 已删除节点占比
+     */
+    public double deletedRatio() {
+        return current.deletedRatio();
+    }
+
+    /**
+     * 把未落盘的数据刷到磁盘
+     */
+    public void flush() throws IOException {
+        writeLock.lock();
+        try {
+            current.flush(false);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 压缩：把存活向量重建到新的一代
+     * 重建期间写入照常进行，最后在写锁内补齐重建期间的增删并切换
+     */
+    public void compact() throws IOException {
+        if (!compactionLock.tryLock()) {
+            return;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            MappedHnswGeneration old = current;
+            MappedHnswGeneration.Snapshot snapshot = old.snapshot();
+            String nextName = generationName(generationNumber(old.getDir()) + 1);
+            Path nextDir = baseDir.resolve(nextName);
+            deleteRecursively(nextDir);
+            MappedHnswGeneration next = MappedHnswGeneration.open(nextDir, old.getDimension(), m, efConstruction,
+                    segmentNodes, quantized, rerankFactor);
+
+            // 1. 不持锁复制快照中的存活向量
+            for (int node = 0; node < snapshot.count; node++) {
+                if (snapshot.isLive(node)) {
+                    next.add(snapshot.nodeIds[node], old.vector(snapshot, node));
+                }
+            }
+
+            writeLock.lock();
+            try {
+                // 2. 补齐复制期间的删除和新增，先删后增，保证重新添加的id以最新向量为准
+                BitSet deletedSince = old.tombstonesCopy();
+                deletedSince.andNot(snapshot.tombstones);
+                for (int node = deletedSince.nextSetBit(0); node >= 0 && node < snapshot.count;
+                     node = deletedSince.nextSetBit(node + 1)) {
+                    next.remove(old.nodeId(node));
+                }
+                MappedHnswGeneration.Snapshot latest = old.snapshot();
+                for (int node = snapshot.count; node < latest.count; node++) {
+                    if (latest.isLive(node)) {
+                        next.add(latest.nodeIds[node], old.vector(latest, node));
+                    }
+                }
+
+                // 3. 新一代落盘后原子切换
+                next.flush(false);
+                writeCurrent(baseDir, nextName);
+                current = next;
+            } finally {
+                writeLock.unlock();
+            }
+
+            // 正在进行的查询仍持有旧的一代，等最后一个查询结束后再删除目录
+            old.close();
+            old.retire(() -> {
+                try {
+                    deleteRecursively(old.getDir());
+                } catch (IOException e) {
+                    logger.warn("删除旧的索引目录失败，下次打开时清理: dir={}", old.getDir(), e);
+                }
+            });
+            logger.info("向量索引压缩完成: dir={}, live={}, cost={}ms", baseDir, next.liveCount(),
+                    System.currentTimeMillis() - start);
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            current.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 关闭并删除索引文件
+     */
+    public void delete() throws IOException {
+        close();
+        deleteRecursively(baseDir);
+    }
+
+    public Path getBaseDir() {
+        return baseDir;
+    }
+
+    private static String generationName(long number) {
+        return String.format("gen-%05d", number);
+    }
+
+    private static long generationNumber(Path dir) {
+        return Long.parseLong(dir.getFileName().toString().substring("gen-".length()));
+    }
+
+    /**
+     * 删除CURRENT之外的旧目录：压缩切换后未来得及删除的旧一代，或切换前中断的新一代
+     */
+    private static void deleteStaleGenerations(Path baseDir, String currentName) throws IOException {
+        try (Stream<Path> dirs = Files.list(baseDir)) {
+            for (Path dir : dirs.toList()) {
+                String name = dir.getFileName().toString();
+                if (Files.isDirectory(dir) && name.startsWith("gen-") && !name.equals(currentName)) {
+                    logger.info("清理旧的索引目录: {}", dir);
+                    deleteRecursively(dir);
+                }
+            }
+        }
+    }
+
+    private static void writeCurrent(Path baseDir, String generationName) throws IOException {
+        Path tmp = baseDir.resolve(CURRENT_FILE + ".tmp");
+        Files.writeString(tmp, generationName, StandardCharsets.UTF_8);
+        Files.move(tmp, baseDir.resolve(CURRENT_FILE), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            for (Path p : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package org.xhy.infrastructure.vector;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * int8量化向量存储
+ * 每个向量按自身最大绝对值对称量化为int8，编码和缩放系数存放在堆外内存中，
+ * 原始float32向量追加写入磁盘文件，只在精排时按位置读取。
+ * 384维向量每条占用 4 + 384 字节，约为float数组的1/4
+ *
+ * 追加由调用方串行化，读取可多线程并发
+ */
+public class QuantizedVectorStore implements Closeable {
+
+    /**
+     * 每块堆外内存容纳的向量数
+     */
+    private static final int CHUNK_VECTORS = 4096;
+
+    /**
+     * 批量打分时每次复制到堆内的向量数
+     */
+    private static final int SCAN_BLOCK = 64;
+
+    private final int dimension;
+    private final int recordBytes;
+    private final Path file;
+    private final FileChannel channel;
+
+    private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+    private volatile int size;
+
+    private final ThreadLocal<byte[]> scratch;
+    private final ThreadLocal<ByteBuffer> readBuffer;
+
+    /**
+     * 内存索引每次打开都从数据库重建，原始向量文件只是精排用的临时文件，打开时清空；
+     * 需要跨重启保留量化编码时使用持久化索引 {@link MappedHnswIndex}
+     *
+     * @param dimension 向量维度
+     * @param file      原始向量文件，存在时清空
+     */
+    public QuantizedVectorStore(int dimension, Path file) throws IOException {
+        this.dimension = dimension;
+        this.recordBytes = Float.BYTES + dimension;
+        this.file = file;
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.scratch = ThreadLocal.withInitial(() -> new byte[recordBytes * SCAN_BLOCK]);
+        this.readBuffer = ThreadLocal.withInitial(() ->
+                ByteBuffer.allocateDirect(dimension * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN));
+    }
+
+    /**
+     * 追加向量
+     *
+     * @param vector 归一化向量
+     * @return 槽位号
+     */
+    public int append(float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("向量维度不匹配: " + vector.length + " != " + dimension);
+        }
+        int slot = size;
+        int chunkIndex = slot / CHUNK_VECTORS;
+        ByteBuffer[] current = chunks;
+        if (chunkIndex >= current.length) {
+            current = Arrays.copyOf(current, chunkIndex + 1);
+            current[chunkIndex] = ByteBuffer.allocateDirect(CHUNK_VECTORS * recordBytes).order(ByteOrder.LITTLE_ENDIAN);
+            chunks = current;
+        }
+
+        Code code = encode(vector);
+        ByteBuffer chunk = current[chunkIndex];
+        int offset = (slot % CHUNK_VECTORS) * recordBytes;
+        chunk.putFloat(offset, code.scale);
+        chunk.put(offset + Float.BYTES, code.codes, 0, dimension);
+
+        ByteBuffer raw = ByteBuffer.allocate(dimension * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        raw.asFloatBuffer().put(vector);
+        try {
+            channel.write(raw, (long) slot * dimension * Float.BYTES);
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入原始向量失败", e);
+        }
+        size = slot + 1;
+        return slot;
+    }
+
+    /**
+     * 量化查询向量，一次查询内复用
+     */
+    public Code encode(float[] vector) {
+        return quantize(vector);
+    }
+
+    /**
+     * 按向量自身的最大绝对值对称量化为int8
+     *
+     * @param vector 向量
+     * @return 编码和缩放系数
+     */
+    static Code quantize(float[] vector) {
+        int dimension = vector.length;
+        float max = 0f;
+        for (float v : vector) {
+            max = Math.max(max, Math.abs(v));
+        }
+        float scale = max == 0f ? 0f : max / 127f;
+        byte[] codes = new byte[dimension];
+        if (scale > 0f) {
+            float inverse = 1f / scale;
+            for (int i = 0; i < dimension; i++) {
+                codes[i] = (byte) Math.round(vector[i] * inverse);
+            }
+        }
+        return new Code(codes, scale);
+    }
+
+    /**
+     * 近似相似度：int8点积乘以两侧缩放系数
+     */
+    public float approximateScore(Code query, int slot) {
+        byte[] buffer = scratch.get();
+        ByteBuffer chunk = chunks[slot / CHUNK_VECTORS];
+        chunk.get((slot % CHUNK_VECTORS) * recordBytes, buffer, 0, recordBytes);
+        float scale = chunk.getFloat((slot % CHUNK_VECTORS) * recordBytes);
+        return dotInt8(query.codes, buffer, Float.BYTES) * query.scale * scale;
+    }
+
+    /**
+     * 读取已存储向量的编码，用于已存储向量之间的两两打分
+     */
+    public Code code(int slot) {
+        ByteBuffer chunk = chunks[slot / CHUNK_VECTORS];
+        int offset = (slot % CHUNK_VECTORS) * recordBytes;
+        byte[] codes = new byte[dimension];
+        chunk.get(offset + Float.BYTES, codes, 0, dimension);
+        return new Code(codes, chunk.getFloat(offset));
+    }
+
+    /**
+     * 顺序扫描全部向量的近似相似度，按块复制到堆内后打分
+     *
+     * @param query  量化后的查询
+     * @param scores 输出数组，长度不小于size()
+     */
+    public void scanScores(Code query, float[] scores) {
+        byte[] buffer = scratch.get();
+        ByteBuffer[] current = chunks;
+        int total = size;
+        for (int start = 0; start < total; start += SCAN_BLOCK) {
+            int count = Math.min(SCAN_BLOCK, total - start);
+            // 块大小整除每块向量数，一个扫描块不会跨越两块堆外内存
+            ByteBuffer chunk = current[start / CHUNK_VECTORS];
+            chunk.get((start % CHUNK_VECTORS) * recordBytes, buffer, 0, count * recordBytes);
+            for (int i = 0; i < count; i++) {
+                int offset = i * recordBytes;
+                float scale = Float.intBitsToFloat((buffer[offset] & 0xFF)
+                        | (buffer[offset + 1] & 0xFF) << 8
+                        | (buffer[offset + 2] & 0xFF) << 16
+                        | (buffer[offset + 3] & 0xFF) << 24);
+                scores[start + i] = dotInt8(query.codes, buffer, offset + Float.BYTES) * query.scale * scale;
+            }
+        }
+    }
+
+    /**
+     * 精确相似度，从磁盘读取原始向量
+     */
+    public float exactScore(float[] query, int slot) {
+        ByteBuffer buffer = readBuffer.get();
+        readRaw(slot, buffer);
+        float s0 = 0f;
+        float s1 = 0f;
+        float s2 = 0f;
+        float s3 = 0f;
+        int bound = dimension & ~3;
+        int i = 0;
+        for (; i < bound; i += 4) {
+            s0 += query[i] * buffer.getFloat(i * Float.BYTES);
+            s1 += query[i + 1] * buffer.getFloat((i + 1) * Float.BYTES);
+            s2 += query[i + 2] * buffer.getFloat((i + 2) * Float.BYTES);
+            s3 += query[i + 3] * buffer.getFloat((i + 3) * Float.BYTES);
+        }
+        for (; i < dimension; i++) {
+            s0 += query[i] * buffer.getFloat(i * Float.BYTES);
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * 从磁盘读取原始向量
+     */
+    public float[] read(int slot) {
+        ByteBuffer buffer = readBuffer.get();
+        readRaw(slot, buffer);
+        float[] vector = new float[dimension];
+        buffer.asFloatBuffer().get(vector);
+        return vector;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * 堆外内存占用字节数
+     */
+    public long offHeapBytes() {
+        return (long) chunks.length * CHUNK_VECTORS * recordBytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        Files.deleteIfExists(file);
+        chunks = new ByteBuffer[0];
+    }
+
+    private void readRaw(int slot, ByteBuffer buffer) {
+        buffer.clear();
+        long position = (long) slot * dimension * Float.BYTES;
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new IOException("原始向量文件被截断: slot=" + slot);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取原始向量失败", e);
+        }
+        buffer.flip();
+    }
+
+    /**
+     * int8点积，整数累加没有浮点顺序约束，JIT可以对该循环自动向量化
+     */
+    static int dotInt8(byte[] query, byte[] codes, int offset) {
+        int sum = 0;
+        for (int i = 0; i < query.length; i++) {
+            sum += query[i] * codes[offset + i];
+        }
+        return sum;
+    }
+
+    /**
+     * 量化编码
+     */
+    public static class Code {
+        private final byte[] codes;
+        private final float scale;
+
+        public Code(byte[] codes, float scale) {
+            this.codes = codes;
+            this.scale = scale;
+        }
+
+        public byte[] getCodes() {
+            return codes;
+        }
+
+        public float getScale() {
+            return scale;
+        }
+    }
+}
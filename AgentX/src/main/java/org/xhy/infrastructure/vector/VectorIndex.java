@@ -0,0 +1,55 @@
+package org.xhy.infrastructure.vector;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 向量索引
+ * 向量需预先归一化，相似度为点积
+ */
+public interface VectorIndex extends Closeable {
+
+    /**
+     * 添加向量，id已存在时替换旧向量
+     *
+     * @param id     业务id
+     * @param vector 归一化向量
+     */
+    void add(String id, float[] vector);
+
+    /**
+     * 删除向量
+     *
+     * @param id 业务id
+     * @return 是否存在
+     */
+    boolean remove(String id);
+
+    /**
+     * 查询最相似的k个向量
+     *
+     * @param query    归一化的查询向量
+     * @param k        返回数量
+     * @param efSearch 查询时的候选集大小
+     * @return 按相似度从高到低排列的结果
+     */
+    List<VectorSearchHit> search(float[] query, int k, int efSearch);
+
+    /**
+     * 有效向量数
+     */
+    int size();
+
+    /**
+     * 向量维度
+     */
+    int getDimension();
+
+    /**
+     * 释放索引持有的文件和堆外内存
+     */
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,142 @@
+package org.xhy.infrastructure.vector;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.xhy.infrastructure.config.VectorStoreProperties;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 向量索引注册表
+ * 按名称管理各业务的向量索引（如 knowledge/{知识库ID}），持久化模式下由单个后台线程负责定期刷盘和压缩
+ */
+@Component
+public class VectorIndexRegistry implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(VectorIndexRegistry.class);
+
+    /**
+     * 量化内存索引的原始向量文件名
+     */
+    private static final String QUANTIZED_VECTOR_FILE = "vectors.f32";
+
+    private final VectorStoreProperties properties;
+    private final Map<String, VectorIndex> indexes = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService maintenanceExecutor;
+
+    public VectorIndexRegistry(VectorStoreProperties properties) {
+        this.properties = properties;
+        this.maintenanceExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "vector-index-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getFlushInterval().toMillis();
+        maintenanceExecutor.scheduleWithFixedDelay(this::maintain, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 打开索引，已打开时直接返回
+     *
+     * @param name           索引名称，作为数据目录下的相对路径
+     * @param dimension      向量维度
+     * @param m              每层最大连接数
+     * @param efConstruction 构建时的候选集大小
+     * @return 索引
+     */
+    public VectorIndex open(String name, int dimension, int m, int efConstruction) {
+        return indexes.computeIfAbsent(name, key -> {
+            try {
+                if (!properties.isPersistent()) {
+                    if (!properties.isQuantized()) {
+                        return new HnswIndex(dimension, m, efConstruction);
+                    }
+                    QuantizedVectorStore store = new QuantizedVectorStore(dimension,
+                            resolve(key).resolve(QUANTIZED_VECTOR_FILE));
+                    return new HnswIndex(dimension, m, efConstruction, store, properties.getRerankFactor());
+                }
+                return MappedHnswIndex.open(resolve(key), dimension, m, efConstruction,
+                        properties.getSegmentNodes(), properties.isQuantized(), properties.getRerankFactor());
+            } catch (IOException e) {
+                throw new UncheckedIOException("打开向量索引失败: " + key, e);
+            }
+        });
+    }
+
+    /**
+     * 关闭并删除索引
+     *
+     * @param name 索引名称
+     */
+    public void drop(String name) {
+        VectorIndex index = indexes.remove(name);
+        if (index == null) {
+            return;
+        }
+        try {
+            if (index instanceof MappedHnswIndex mapped) {
+                mapped.delete();
+            } else {
+                index.close();
+            }
+        } catch (IOException e) {
+            logger.warn("删除向量索引文件失败: {}", name, e);
+        }
+    }
+
+    /**
+     * 定期维护：删除比例过高的索引压缩为新的一代，其余刷盘
+     */
+    private void maintain() {
+        for (Map.Entry<String, VectorIndex> entry : indexes.entrySet()) {
+            if (!(entry.getValue() instanceof MappedHnswIndex index)) {
+                continue;
+            }
+            try {
+                if (index.deletedRatio() >= properties.getCompactionRatio()) {
+                    index.compact();
+                } else {
+                    index.flush();
+                }
+            } catch (Exception e) {
+                logger.error("向量索引维护失败: {}", entry.getKey(), e);
+            }
+        }
+    }
+
+    private Path resolve(String name) {
+        Path root = Paths.get(properties.getDataDir()).toAbsolutePath().normalize();
+        Path path = root.resolve(name).normalize();
+        if (!path.startsWith(root)) {
+            throw new IllegalArgumentException("非法的索引名称: " + name);
+        }
+        return path;
+    }
+
+    @Override
+    public void destroy() {
+        maintenanceExecutor.shutdown();
+        try {
+            maintenanceExecutor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Map.Entry<String, VectorIndex> entry : indexes.entrySet()) {
+            try {
+                entry.getValue().close();
+            } catch (IOException e) {
+                logger.error("关闭向量索引失败: {}", entry.getKey(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package org.xhy.infrastructure.vector;
+
+/**
+ * 向量检索命中结果
+ */
+public class VectorSearchHit {
+
+    /**
+     * 业务id
+     */
+    private final String id;
+
+    /**
+     * 相似度分数
+     */
+    private final float score;
+
+    public VectorSearchHit(String id, float score) {
+        this.id = id;
+        this.score = score;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public float getScore() {
+        return score;
+    }
+}
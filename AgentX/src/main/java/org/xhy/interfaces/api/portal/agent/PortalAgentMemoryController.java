@@ -0,0 +1,52 @@
+package org.xhy.interfaces.api.portal.agent;
+
+import org.springframework.web.bind.annotation.*;
+import org.xhy.application.memory.dto.AgentMemoryDTO;
+import org.xhy.application.memory.service.AgentMemoryAppService;
+import org.xhy.infrastructure.auth.UserContext;
+import org.xhy.interfaces.api.common.Result;
+
+import java.util.List;
+
+/**
+ * Agent长期记忆管理
+ */
+@RestController
+@RequestMapping("/agent/memory")
+public class PortalAgentMemoryController {
+
+    private final AgentMemoryAppService agentMemoryAppService;
+
+    public PortalAgentMemoryController(AgentMemoryAppService agentMemoryAppService) {
+        this.agentMemoryAppService = agentMemoryAppService;
+    }
+
+    /**
+     * 获取Agent记住的关于当前用户的事实
+     */
+    @GetMapping("/{agentId}")
+    public Result<List<AgentMemoryDTO>> getMemories(@PathVariable String agentId) {
+        String userId = UserContext.getCurrentUserId();
+        return Result.success(agentMemoryAppService.getMemories(agentId, userId));
+    }
+
+    /**
+     * 清空Agent下的全部记忆
+     */
+    @DeleteMapping("/{agentId}")
+    public Result<Void> clearMemories(@PathVariable String agentId) {
+        String userId = UserContext.getCurrentUserId();
+        agentMemoryAppService.clearMemories(agentId, userId);
+        return Result.success();
+    }
+
+    /**
+     * 删除单条记忆
+     */
+    @DeleteMapping("/{agentId}/{memoryId}")
+    public Result<Void> deleteMemory(@PathVariable String agentId, @PathVariable String memoryId) {
+        String userId = UserContext.getCurrentUserId();
+        agentMemoryAppService.deleteMemory(memoryId, userId);
+        return Result.success();
+    }
+}
@@ -1,5 +1,6 @@
 package org.xhy.interfaces.api.portal.agent;
 
+import jakarta.validation.constraints.Size;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.xhy.application.agent.service.AgentSessionAppService;
@@ -7,10 +8,12 @@ import org.xhy.application.conversation.dto.ChatRequest;
 import org.xhy.application.conversation.dto.StreamChatRequest;
 import org.xhy.application.conversation.service.ConversationAppService;
 import org.xhy.application.conversation.dto.MessageDTO;
+import org.xhy.application.conversation.dto.MessageSearchResultDTO;
 import org.xhy.application.conversation.dto.SessionDTO;
 import org.xhy.infrastructure.auth.UserContext;
 import org.xhy.interfaces.api.common.Result;
 import org.xhy.interfaces.dto.conversation.ConversationRequest;
+import org.xhy.interfaces.dto.conversation.SearchMessagesRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
@@ -47,6 +50,15 @@ public class PortalAgentSessionController {
         return Result.success(conversationAppService.getConversationMessages(sessionId, userId));
     }
 
+    /**
+     * 在当前用户的全部会话中搜索消息
+     */
+    @GetMapping("/search")
+    public Result<MessageSearchResultDTO> searchMessages(@Validated SearchMessagesRequest request) {
+        String userId = UserContext.getCurrentUserId();
+        return Result.success(conversationAppService.searchMessages(request, userId));
+    }
+
     /**
      * 获取助理会话列表
      */
@@ -88,10 +100,16 @@ public class PortalAgentSessionController {
     /**
      * 发送消息
      * @param chatRequest 消息对象
+     * @param idempotencyKey 幂等键，请求体中未携带时使用请求头
      * @return
      */
     @PostMapping("/chat")
-    public SseEmitter chat(@RequestBody @Validated ChatRequest chatRequest){
+    public SseEmitter chat(@RequestBody @Validated ChatRequest chatRequest,
+                           @RequestHeader(value = "Idempotency-Key", required = false)
+                           @Size(max = 128, message = "幂等键长度不能超过128") String idempotencyKey){
+        if (chatRequest.getIdempotencyKey() == null) {
+            chatRequest.setIdempotencyKey(idempotencyKey);
+        }
         return conversationAppService.chat(chatRequest, UserContext.getCurrentUserId());
     }
 }
@@ -3,7 +3,7 @@ package org.xhy.interfaces.api.portal.agent;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.xhy.application.agent.service.AgentWorkspaceAppService;
-import org.xhy.application.agent.dto.AgentDTO;
+import org.xhy.application.agent.dto.WorkspaceAgentDTO;
 import org.xhy.domain.agent.model.LLMModelConfig;
 import org.xhy.infrastructure.auth.UserContext;
 import org.xhy.interfaces.api.common.Result;
@@ -31,7 +31,7 @@ public class PortalWorkspaceController {
      * @return
      */
     @GetMapping("/agents")
-    public Result<List<AgentDTO>> getAgents() {
+    public Result<List<WorkspaceAgentDTO>> getAgents() {
         String userId = UserContext.getCurrentUserId();
         return Result.success(agentWorkspaceAppService.getAgents(userId));
     }
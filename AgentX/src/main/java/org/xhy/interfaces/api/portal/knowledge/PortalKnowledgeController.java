@@ -0,0 +1,105 @@
+package org.xhy.interfaces.api.portal.knowledge;
+
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import org.xhy.application.knowledge.dto.IngestionJobDTO;
+import org.xhy.application.knowledge.dto.KnowledgeBaseDTO;
+import org.xhy.application.knowledge.dto.KnowledgeDocumentDTO;
+import org.xhy.application.knowledge.service.KnowledgeAppService;
+import org.xhy.infrastructure.auth.UserContext;
+import org.xhy.interfaces.api.common.Result;
+import org.xhy.interfaces.dto.knowledge.CreateIngestionJobRequest;
+import org.xhy.interfaces.dto.knowledge.CreateKnowledgeBaseRequest;
+import org.xhy.interfaces.dto.knowledge.IngestDocumentRequest;
+
+import java.util.List;
+
+/**
+ * 用户知识库管理
+ */
+@RestController
+@RequestMapping("/knowledge-bases")
+public class PortalKnowledgeController {
+
+    private final KnowledgeAppService knowledgeAppService;
+
+    public PortalKnowledgeController(KnowledgeAppService knowledgeAppService) {
+        this.knowledgeAppService = knowledgeAppService;
+    }
+
+    /**
+     * 创建知识库
+     */
+    @PostMapping
+    public Result<KnowledgeBaseDTO> createKnowledgeBase(@RequestBody @Validated CreateKnowledgeBaseRequest request) {
+        String userId = UserContext.getCurrentUserId();
+        return Result.success(knowledgeAppService.createKnowledgeBase(request, userId));
+    }
+
+    /**
+     * 获取用户的知识库列表
+     */
+    @GetMapping
+    public Result<List<KnowledgeBaseDTO>> getUserKnowledgeBases() {
+        String userId = UserContext.getCurrentUserId();
+        return Result.success(knowledgeAppService.getUserKnowledgeBases(userId));
+    }
+
+    /**
+     * 删除知识库
+     */
+    @DeleteMapping("/{knowledgeBaseId}")
+    public Result<Void> deleteKnowledgeBase(@PathVariable String knowledgeBaseId) {
+        String userId = UserContext.getCurrentUserId();
+        knowledgeAppService.deleteKnowledgeBase(knowledgeBaseId, userId);
+        return Result.success();
+    }
+
+    /**
+     * 获取知识库下的文档列表
+     */
+    @GetMapping("/{knowledgeBaseId}/documents")
+    public Result<List<KnowledgeDocumentDTO>> getDocuments(@PathVariable String knowledgeBaseId) {
+        String userId = UserContext.getCurrentUserId();
+        return Result.success(knowledgeAppService.getDocuments(knowledgeBaseId, userId));
+    }
+
+    /**
+     * 上传文档
+     */
+    @PostMapping("/{knowledgeBaseId}/documents")
+    public Result<KnowledgeDocumentDTO> ingestDocument(@PathVariable String knowledgeBaseId,
+                                                      @RequestBody @Validated IngestDocumentRequest request) {
+        String userId = UserContext.getCurrentUserId();
+        return Result.success(knowledgeAppService.ingestDocument(knowledgeBaseId, request, userId));
+    }
+
+    /**
+     * 批量导入文档，返回导入任务
+     */
+    @PostMapping("/{knowledgeBaseId}/ingestion-jobs")
+    public Result<IngestionJobDTO> createIngestionJob(@PathVariable String knowledgeBaseId,
+                                                      @RequestBody @Validated CreateIngestionJobRequest request) {
+        String userId = UserContext.getCurrentUserId();
+        return Result.success(knowledgeAppService.createIngestionJob(knowledgeBaseId, request, userId));
+    }
+
+    /**
+     * 查询导入任务进度
+     */
+    @GetMapping("/{knowledgeBaseId}/ingestion-jobs/{jobId}")
+    public Result<IngestionJobDTO> getIngestionJob(@PathVariable String knowledgeBaseId, @PathVariable String jobId) {
+        String userId = UserContext.getCurrentUserId();
+        return Result.success(knowledgeAppService.getIngestionJob(knowledgeBaseId, jobId, userId));
+    }
+
+    /**
+     * 删除文档
+     */
+    @DeleteMapping("/{knowledgeBaseId}/documents/{documentId}")
+    public Result<Void> deleteDocument(@PathVariable String knowledgeBaseId, @PathVariable String documentId) {
+        String userId = UserContext.getCurrentUserId();
+        knowledgeAppService.deleteDocument(knowledgeBaseId, documentId, userId);
+        return Result.success();
+    }
+}
@@ -0,0 +1,50 @@
+package org.xhy.interfaces.api.portal.usage;
+
+import org.springframework.web.bind.annotation.*;
+import org.xhy.application.usage.dto.UsageDTO;
+import org.xhy.application.usage.service.UsageAppService;
+import org.xhy.infrastructure.auth.UserContext;
+import org.xhy.interfaces.api.common.Result;
+
+import java.util.List;
+
+/**
+ * 用量统计
+ */
+@RestController
+@RequestMapping("/usage")
+public class PortalUsageController {
+
+    private final UsageAppService usageAppService;
+
+    public PortalUsageController(UsageAppService usageAppService) {
+        this.usageAppService = usageAppService;
+    }
+
+    /**
+     * 获取会话的消息数和token用量
+     */
+    @GetMapping("/sessions/{sessionId}")
+    public Result<UsageDTO> getSessionUsage(@PathVariable String sessionId) {
+        String userId = UserContext.getCurrentUserId();
+        return Result.success(usageAppService.getSessionUsage(sessionId, userId));
+    }
+
+    /**
+     * 获取当前用户最近若干天的每日用量
+     */
+    @GetMapping("/daily")
+    public Result<List<UsageDTO>> getDailyUsage(@RequestParam(defaultValue = "30") int days) {
+        String userId = UserContext.getCurrentUserId();
+        return Result.success(usageAppService.getDailyUsage(days, userId));
+    }
+
+    /**
+     * 获取自己创建的Agent各版本的用量
+     */
+    @GetMapping("/agents/{agentId}")
+    public Result<List<UsageDTO>> getAgentUsage(@PathVariable String agentId) {
+        String userId = UserContext.getCurrentUserId();
+        return Result.success(usageAppService.getAgentUsage(agentId, userId));
+    }
+}
@@ -3,6 +3,7 @@ package org.xhy.interfaces.dto.agent.request;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
 import org.xhy.domain.shared.enums.TokenOverflowStrategyEnum;
 
 /**
@@ -44,6 +45,11 @@ public class UpdateModelConfigRequest {
      * 策略类型
      */
     private TokenOverflowStrategyEnum strategyType =TokenOverflowStrategyEnum.NONE;
+    /**
+     * 自定义策略名称，选择通过插件注册的策略，设置后优先于策略类型
+     */
+    @Size(max = 64, message = "自定义策略名称不能超过64个字符")
+    private String customStrategyName;
     /**
      * 预留缓冲比例，适用于滑动窗口策略
      * 范围0-1之间的小数，表示预留的空间比例
@@ -94,6 +100,14 @@ public class UpdateModelConfigRequest {
         this.strategyType = strategyType;
     }
 
+    public String getCustomStrategyName() {
+        return customStrategyName;
+    }
+
+    public void setCustomStrategyName(String customStrategyName) {
+        this.customStrategyName = customStrategyName;
+    }
+
     public Double getReserveRatio() {
         return reserveRatio;
     }
@@ -0,0 +1,45 @@
+package org.xhy.interfaces.dto.conversation;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+
+/**
+ * 跨会话搜索消息的请求对象
+ */
+public class SearchMessagesRequest {
+
+    @NotBlank(message = "搜索内容不可为空")
+    private String query;
+
+    @Min(value = 1, message = "页码从1开始")
+    private int page = 1;
+
+    @Min(value = 1, message = "每页条数至少为1")
+    @Max(value = 50, message = "每页条数不能超过50")
+    private int pageSize = 20;
+
+    public String getQuery() {
+        return query;
+    }
+
+    public void setQuery(String query) {
+        this.query = query;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+}
@@ -0,0 +1,24 @@
+package org.xhy.interfaces.dto.knowledge;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+/**
+ * 批量导入知识库文档的请求对象
+ */
+public class CreateIngestionJobRequest {
+
+    @NotEmpty(message = "导入文档不可为空")
+    @Valid
+    private List<IngestDocumentRequest> documents;
+
+    public List<IngestDocumentRequest> getDocuments() {
+        return documents;
+    }
+
+    public void setDocuments(List<IngestDocumentRequest> documents) {
+        this.documents = documents;
+    }
+}
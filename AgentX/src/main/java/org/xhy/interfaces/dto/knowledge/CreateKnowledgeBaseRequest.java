@@ -0,0 +1,30 @@
+package org.xhy.interfaces.dto.knowledge;
+
+import jakarta.validation.constraints.NotBlank;
+
+/**
+ * 创建知识库的请求对象
+ */
+public class CreateKnowledgeBaseRequest {
+
+    @NotBlank(message = "知识库名称不可为空")
+    private String name;
+
+    private String description;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+}
@@ -0,0 +1,31 @@
+package org.xhy.interfaces.dto.knowledge;
+
+import jakarta.validation.constraints.NotBlank;
+
+/**
+ * 上传知识库文档的请求对象，内容为纯文本
+ */
+public class IngestDocumentRequest {
+
+    @NotBlank(message = "文档标题不可为空")
+    private String title;
+
+    @NotBlank(message = "文档内容不可为空")
+    private String content;
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+}
@@ -0,0 +1,98 @@
+package org.xhy.domain.conversation.handler;
+
+import dev.langchain4j.model.chat.request.ChatRequest;
+import org.junit.jupiter.api.Test;
+import org.xhy.domain.agent.model.AgentEntity;
+import org.xhy.domain.agent.model.LLMModelConfig;
+import org.xhy.domain.conversation.constant.Role;
+import org.xhy.domain.conversation.model.ContextEntity;
+import org.xhy.domain.conversation.model.MessageEntity;
+import org.xhy.domain.conversation.service.ContextDomainService;
+import org.xhy.domain.conversation.service.ConversationDomainService;
+import org.xhy.domain.conversation.service.MessageEmbeddingIndexer;
+import org.xhy.domain.llm.model.ModelEntity;
+import org.xhy.domain.memory.service.AgentMemoryDomainService;
+import org.xhy.domain.shared.enums.TokenOverflowStrategyEnum;
+import org.xhy.domain.token.model.ContextBudgetPlan;
+import org.xhy.domain.token.model.TokenMessage;
+import org.xhy.domain.token.model.config.ContextBudgetPolicy;
+import org.xhy.domain.token.service.ContextBudgetPlanner;
+import org.xhy.domain.token.service.MessageVectorCache;
+import org.xhy.domain.token.service.TokenEstimator;
+import org.xhy.domain.usage.service.UsageDomainService;
+import org.xhy.infrastructure.config.ChatProperties;
+import org.xhy.infrastructure.lifecycle.ChatDrainManager;
+import org.xhy.infrastructure.llm.LLMCallScheduler;
+import org.xhy.infrastructure.llm.LLMServiceFactory;
+import org.xhy.infrastructure.metrics.ChatMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 标准消息处理器测试类
+ */
+public class StandardMessageHandlerTest {
+
+    /**
+     * 不使用溢出策略、未配置最大Token数且模型窗口未知时，完整发送历史消息，不限制输出长度
+     */
+    @Test
+    public void testUnknownWindowKeepsHistoryWithoutOutputCap() {
+        ChatProperties chatProperties = new ChatProperties();
+        ChatProperties.Budget budget = chatProperties.getBudget();
+
+        LLMModelConfig llmModelConfig = new LLMModelConfig();
+        llmModelConfig.setStrategyType(TokenOverflowStrategyEnum.NONE);
+        ModelEntity model = new ModelEntity();
+        model.setModelId("unknown-model");
+
+        List<MessageEntity> history = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            MessageEntity message = new MessageEntity();
+            message.setId("m" + i);
+            message.setRole(i % 2 == 0 ? Role.USER : Role.SYSTEM);
+            message.setContent("this is a fairly long message that would not fit into a small default window " + i);
+            history.add(message);
+        }
+        List<TokenMessage> tokenMessages = history.stream()
+                .map(message -> new TokenMessage(message.getId(), message.getContent(), message.getRole().name(), null))
+                .collect(Collectors.toList());
+
+        // 与对话准备时的窗口选取一致
+        Integer contextWindow = budget.getContextWindows().get(model.getModelId());
+        ContextBudgetPolicy policy = ContextBudgetPolicy.forWindow(
+                contextWindow != null ? contextWindow : budget.getDefaultContextWindow(),
+                budget.getReservedOutputTokens());
+        ContextBudgetPlan plan = new ContextBudgetPlanner(new TokenEstimator())
+                .plan(null, StandardMessageHandler.SUMMARY_PREFIX, null, tokenMessages, "继续", policy);
+        assertEquals(history.size(), plan.getRetainedMessageCount());
+        assertEquals(0, plan.getDroppedMessageCount());
+
+        ChatEnvironment environment = new ChatEnvironment();
+        environment.setAgent(new AgentEntity());
+        environment.setModel(model);
+        environment.setLlmModelConfig(llmModelConfig);
+        environment.setContextEntity(new ContextEntity());
+        environment.setMessageHistory(history);
+        environment.setBudgetPlan(plan);
+        environment.setUserMessage("继续");
+
+        ChatRequest request = handler(chatProperties).prepareLlmRequest(environment);
+
+        assertEquals(history.size() + 1, request.messages().size());
+        assertNull(request.parameters().maxOutputTokens());
+    }
+
+    private StandardMessageHandler handler(ChatProperties chatProperties) {
+        return new StandardMessageHandler(mock(ConversationDomainService.class), mock(ContextDomainService.class),
+                mock(LLMServiceFactory.class), chatProperties, mock(ChatDrainManager.class),
+                mock(MessageVectorCache.class), mock(AgentMemoryDomainService.class),
+                mock(MessageEmbeddingIndexer.class), mock(UsageDomainService.class), mock(LLMCallScheduler.class),
+                mock(ChatMetrics.class), mock(StreamingCheckpointWriter.class));
+    }
+}
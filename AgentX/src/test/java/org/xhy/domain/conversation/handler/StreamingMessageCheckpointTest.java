@@ -0,0 +1,85 @@
+package org.xhy.domain.conversation.handler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.xhy.domain.conversation.model.MessageEntity;
+import org.xhy.domain.conversation.service.ConversationDomainService;
+import org.xhy.infrastructure.config.ChatProperties;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 流式消息检查点测试类
+ */
+public class StreamingMessageCheckpointTest {
+
+    private final ConversationDomainService conversationDomainService = mock(ConversationDomainService.class);
+    private final StreamingCheckpointWriter writer = new StreamingCheckpointWriter(new ChatProperties());
+    private final MessageEntity message = new MessageEntity();
+
+    @AfterEach
+    public void tearDown() {
+        writer.destroy();
+    }
+
+    /**
+     * 数据库写入阻塞时，追加片段不被阻塞
+     */
+    @Test
+    public void testAppendDoesNotWaitForDatabase() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(conversationDomainService).appendMessageContent(any(), any(), anyInt());
+        StreamingMessageCheckpoint checkpoint = new StreamingMessageCheckpoint(message, conversationDomainService,
+                writer, 60_000, 2);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            checkpoint.append("t");
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        release.countDown();
+
+        assertTrue(elapsedMs < 1000, "追加片段不应等待数据库写入");
+        verify(conversationDomainService, timeout(2000).atLeastOnce()).appendMessageContent(eq(message), any(), anyInt());
+        assertEquals(100, checkpoint.getContent().length());
+    }
+
+    /**
+     * 流式输出停顿后，定时任务仍会写入已生成的内容
+     */
+    @Test
+    public void testFlushesAfterStall() {
+        StreamingMessageCheckpoint checkpoint = new StreamingMessageCheckpoint(message, conversationDomainService,
+                writer, 50, 1000);
+        checkpoint.append("hello");
+
+        verify(conversationDomainService, timeout(2000)).appendMessageContent(message, "hello", 1);
+    }
+
+    /**
+     * 落库失败的增量保留到下一次落库
+     */
+    @Test
+    public void testFailedFlushIsRetried() {
+        doThrow(new RuntimeException("db down")).doNothing()
+                .when(conversationDomainService).appendMessageContent(any(), any(), anyInt());
+        StreamingMessageCheckpoint checkpoint = new StreamingMessageCheckpoint(message, conversationDomainService,
+                writer, 60_000, 1000);
+        checkpoint.append("a");
+        checkpoint.flush();
+        checkpoint.append("b");
+        checkpoint.flush();
+
+        verify(conversationDomainService).appendMessageContent(message, "ab", 2);
+    }
+}
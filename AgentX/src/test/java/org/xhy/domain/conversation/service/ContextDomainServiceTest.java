@@ -0,0 +1,113 @@
+package org.xhy.domain.conversation.service;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xhy.domain.conversation.model.ContextEntity;
+import org.xhy.domain.conversation.repository.ContextRepository;
+import org.xhy.infrastructure.exception.BusinessException;
+import org.xhy.infrastructure.metrics.ChatMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 上下文领域服务测试类
+ * 覆盖版本冲突后以最新上下文重试、并发插入冲突以及重试次数用完
+ */
+public class ContextDomainServiceTest {
+
+    private static final String SESSION_ID = "s1";
+
+    private ContextRepository contextRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private ContextDomainService service;
+
+    @BeforeAll
+    public static void initTableInfo() {
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), ContextEntity.class);
+    }
+
+    @BeforeEach
+    public void setUp() {
+        contextRepository = mock(ContextRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        service = new ContextDomainService(contextRepository, entity -> 0L, new ChatMetrics(meterRegistry));
+    }
+
+    /**
+     * 其他轮次先提交时，本轮消息追加到最新上下文上，按最新版本重新提交
+     */
+    @Test
+    public void testConflictRetriesOnLatest() {
+        ContextEntity latest = context("c1", 4, "m1", "m2", "m3", "m4");
+        when(contextRepository.update(isNull(), any())).thenReturn(0, 1);
+        when(contextRepository.selectOne(any())).thenReturn(latest);
+
+        ContextEntity mine = context("c1", 3, "m1", "m2");
+        ContextEntity committed = service.commitTurn(mine, List.of("m5", "m6"));
+
+        assertSame(mine, committed);
+        assertEquals(List.of("m1", "m2", "m3", "m4", "m5", "m6"), committed.getActiveMessages());
+        assertEquals(5, committed.getVersion());
+        verify(contextRepository, times(2)).update(isNull(), any());
+        assertEquals(1.0, meterRegistry.get(ChatMetrics.CONTEXT_CONFLICTS).counter().count());
+        assertEquals(1, meterRegistry.get(ChatMetrics.CONTEXT_LOCK_WAIT).timer().count());
+    }
+
+    /**
+     * 并发创建同一会话的上下文时插入返回0，改为在对方插入的上下文上追加
+     */
+    @Test
+    public void testInsertConflictFallsBackToUpdate() {
+        List<ContextEntity> inserted = new ArrayList<>();
+        when(contextRepository.insertIfAbsent(any())).thenAnswer(invocation -> {
+            ContextEntity context = invocation.getArgument(0);
+            assertNotNull(context.getId());
+            assertEquals(0, context.getVersion());
+            assertNotNull(context.getUpdatedAt());
+            inserted.add(context);
+            return 0;
+        });
+        when(contextRepository.selectOne(any())).thenReturn(context("c-other", 0, "m1"));
+        when(contextRepository.update(isNull(), any())).thenReturn(1);
+
+        ContextEntity mine = context(null, null);
+        ContextEntity committed = service.commitTurn(mine, List.of("m2"));
+
+        assertEquals("c-other", committed.getId());
+        assertEquals(List.of("m1", "m2"), committed.getActiveMessages());
+        assertEquals(1, committed.getVersion());
+        assertEquals(1, inserted.size());
+    }
+
+    /**
+     * 每次重试都冲突时放弃提交，记录失败
+     */
+    @Test
+    public void testGivesUpAfterRetries() {
+        when(contextRepository.update(isNull(), any())).thenReturn(0);
+        when(contextRepository.selectOne(any())).thenAnswer(invocation -> context("c1", 9, "m1"));
+
+        assertThrows(BusinessException.class, () -> service.commitTurn(context("c1", 3, "m1"), List.of("m2")));
+        assertEquals(6.0, meterRegistry.get(ChatMetrics.CONTEXT_CONFLICTS).counter().count());
+        assertEquals(1.0, meterRegistry.get(ChatMetrics.CONTEXT_FAILURES).counter().count());
+    }
+
+    private ContextEntity context(String id, Integer version, String... messageIds) {
+        ContextEntity context = new ContextEntity();
+        context.setId(id);
+        context.setSessionId(SESSION_ID);
+        context.setVersion(version);
+        context.setActiveMessages(new ArrayList<>(List.of(messageIds)));
+        return context;
+    }
+}
@@ -0,0 +1,72 @@
+package org.xhy.domain.conversation.service;
+
+import org.junit.jupiter.api.Test;
+import org.xhy.domain.conversation.constant.Role;
+import org.xhy.domain.conversation.model.MessageEntity;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 归档消息编解码测试类
+ */
+public class MessageArchiveCodecTest {
+
+    /**
+     * 编码、压缩、解压、解码后字段保持不变，空值保留为空
+     */
+    @Test
+    public void testRoundTrip() {
+        List<MessageEntity> messages = new ArrayList<>();
+        LocalDateTime start = LocalDateTime.of(2026, 10, 19, 8, 0, 0, 123_456_789);
+        for (int i = 0; i < 50; i++) {
+            MessageEntity message = new MessageEntity();
+            message.setId("m" + i);
+            message.setRole(i % 2 == 0 ? Role.USER : Role.SYSTEM);
+            message.setContent("第" + i + "条消息，包含emoji 🚀 和重复的内容 " + "abc".repeat(i));
+            message.setCreatedAt(start.plusSeconds(i));
+            message.setTokenCount(i);
+            message.setProvider(i % 2 == 0 ? null : "provider");
+            message.setModel(i % 2 == 0 ? null : "model");
+            message.setMetadata(i == 3 ? "{\"k\":1}" : null);
+            message.setStatus(i == 4 ? null : 1);
+            messages.add(message);
+        }
+        messages.get(1).setTokenCount(null);
+
+        byte[] raw = MessageArchiveCodec.encode(messages);
+        byte[] payload = MessageArchiveCodec.compress(raw, 3);
+        assertTrue(payload.length < raw.length);
+        List<MessageEntity> decoded = MessageArchiveCodec.decode(MessageArchiveCodec.decompress(payload, raw.length),
+                "session-1");
+
+        assertEquals(messages.size(), decoded.size());
+        for (int i = 0; i < messages.size(); i++) {
+            MessageEntity expected = messages.get(i);
+            MessageEntity actual = decoded.get(i);
+            assertEquals("session-1", actual.getSessionId());
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getRole(), actual.getRole());
+            assertEquals(expected.getContent(), actual.getContent());
+            assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+            assertEquals(expected.getTokenCount(), actual.getTokenCount());
+            assertEquals(expected.getProvider(), actual.getProvider());
+            assertEquals(expected.getModel(), actual.getModel());
+            assertEquals(expected.getMetadata(), actual.getMetadata());
+        }
+        assertEquals(1, decoded.get(3).getStatus());
+    }
+
+    /**
+     * 不认识的格式版本拒绝解码
+     */
+    @Test
+    public void testRejectsUnknownVersion() {
+        byte[] raw = MessageArchiveCodec.encode(List.of());
+        raw[0] = 99;
+        assertThrows(IllegalStateException.class, () -> MessageArchiveCodec.decode(raw, "session-1"));
+    }
+}
@@ -0,0 +1,208 @@
+package org.xhy.domain.conversation.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.xhy.domain.conversation.constant.Role;
+import org.xhy.domain.conversation.model.MessageArchiveEntity;
+import org.xhy.domain.conversation.model.MessageEntity;
+import org.xhy.domain.conversation.model.SessionEntity;
+import org.xhy.domain.conversation.repository.MessageArchiveRepository;
+import org.xhy.domain.conversation.repository.MessageRepository;
+import org.xhy.domain.conversation.repository.SessionRepository;
+import org.xhy.infrastructure.config.ChatProperties;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 消息冷存储服务测试类
+ * 归档表用内存中的行模拟：事务内取出的归档在提交后才删除，回滚时保留，没有事务时立即删除
+ */
+public class MessageArchiveServiceTest {
+
+    private static final String SESSION_ID = "session-1";
+
+    private final Map<String, MessageArchiveEntity> archives = new HashMap<>();
+    private MessageRepository messageRepository;
+    private SessionRepository sessionRepository;
+    private RecordingTransactionManager transactionManager;
+    private MessageArchiveService service;
+
+    @BeforeEach
+    public void setUp() {
+        messageRepository = mock(MessageRepository.class);
+        MessageArchiveRepository archiveRepository = mock(MessageArchiveRepository.class);
+        when(archiveRepository.exists(any())).thenAnswer(invocation -> archives.containsKey(SESSION_ID));
+        when(archiveRepository.take(anyString())).thenAnswer(invocation -> take(invocation.getArgument(0)));
+        when(archiveRepository.insert(any(MessageArchiveEntity.class))).thenAnswer(invocation -> {
+            MessageArchiveEntity archive = invocation.getArgument(0);
+            archives.put(archive.getSessionId(), archive);
+            return 1;
+        });
+
+        sessionRepository = mock(SessionRepository.class);
+        SessionEntity session = new SessionEntity();
+        session.setId(SESSION_ID);
+        session.setUpdatedAt(LocalDateTime.now().minusDays(30));
+        when(sessionRepository.selectById(SESSION_ID)).thenReturn(session);
+        when(sessionRepository.touch(eq(SESSION_ID), any())).thenAnswer(invocation -> {
+            session.setUpdatedAt(invocation.getArgument(1));
+            return 1;
+        });
+
+        transactionManager = new RecordingTransactionManager();
+        ChatProperties chatProperties = new ChatProperties();
+        ProxyFactory factory = new ProxyFactory(new MessageArchiveService(messageRepository, archiveRepository,
+                sessionRepository, chatProperties));
+        factory.setProxyTargetClass(true);
+        TransactionInterceptor interceptor = new TransactionInterceptor();
+        interceptor.setTransactionManager(transactionManager);
+        interceptor.setTransactionAttributeSource(new AnnotationTransactionAttributeSource());
+        factory.addAdvice(interceptor);
+        service = (MessageArchiveService) factory.getProxy();
+    }
+
+    /**
+     * 写回消息失败时事务回滚，归档不会丢失
+     */
+    @Test
+    public void testRestoreFailureKeepsArchive() {
+        archiveMessages(messages());
+        when(messageRepository.insert(anyList())).thenThrow(new IllegalStateException("insert failed"));
+
+        assertThrows(IllegalStateException.class, () -> service.restoreIfArchived(SESSION_ID));
+        assertTrue(archives.containsKey(SESSION_ID), "写回失败后归档被删除");
+        assertEquals(1, transactionManager.rollbacks);
+    }
+
+    /**
+     * 归档后恢复得到与原消息一致的内容，归档在提交后删除
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testArchiveRestoreRoundTrip() {
+        List<MessageEntity> original = messages();
+        archiveMessages(original);
+        MessageArchiveEntity archive = archives.get(SESSION_ID);
+        assertEquals(original.size(), archive.getMessageCount());
+        verify(messageRepository).purge(eq(SESSION_ID), eq(List.of("m1", "m2")));
+
+        assertTrue(service.restoreIfArchived(SESSION_ID));
+        ArgumentCaptor<List<MessageEntity>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(messageRepository).insert(inserted.capture());
+        assertEquals(original.size(), inserted.getValue().size());
+        for (int i = 0; i < original.size(); i++) {
+            MessageEntity expected = original.get(i);
+            MessageEntity actual = inserted.getValue().get(i);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(SESSION_ID, actual.getSessionId());
+            assertEquals(expected.getRole(), actual.getRole());
+            assertEquals(expected.getContent(), actual.getContent());
+            assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+            assertEquals(expected.getTokenCount(), actual.getTokenCount());
+        }
+        assertFalse(archives.containsKey(SESSION_ID));
+        assertFalse(service.restoreIfArchived(SESSION_ID));
+    }
+
+    /**
+     * 恢复后会话的更新时间晚于截止时间，下一轮扫描不会立即重新归档
+     */
+    @Test
+    public void testRestoredSessionNotArchivedAgain() {
+        List<MessageEntity> original = messages();
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(7);
+        when(messageRepository.selectList(any())).thenReturn(original);
+        assertTrue(service.archive(SESSION_ID, cutoff));
+        assertTrue(service.restoreIfArchived(SESSION_ID));
+        verify(sessionRepository).touch(eq(SESSION_ID), any());
+
+        assertFalse(service.archive(SESSION_ID, cutoff));
+        assertFalse(archives.containsKey(SESSION_ID));
+    }
+
+    private void archiveMessages(List<MessageEntity> hot) {
+        when(messageRepository.selectList(any())).thenReturn(hot);
+        assertTrue(service.archive(SESSION_ID, LocalDateTime.now()));
+    }
+
+    private List<MessageEntity> messages() {
+        LocalDateTime start = LocalDateTime.now().minusDays(30);
+        return List.of(message("m1", Role.USER, "你好", start), message("m2", Role.SYSTEM, "你好，有什么可以帮你？",
+                start.plusSeconds(3)));
+    }
+
+    private MessageEntity message(String id, Role role, String content, LocalDateTime createdAt) {
+        MessageEntity message = new MessageEntity();
+        message.setId(id);
+        message.setSessionId(SESSION_ID);
+        message.setRole(role);
+        message.setContent(content);
+        message.setCreatedAt(createdAt);
+        message.setTokenCount(content.length());
+        return message;
+    }
+
+    private MessageArchiveEntity take(String sessionId) {
+        MessageArchiveEntity archive = archives.get(sessionId);
+        if (archive == null) {
+            return null;
+        }
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            archives.remove(sessionId);
+            return archive;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    archives.remove(sessionId, archive);
+                }
+            }
+        });
+        return archive;
+    }
+
+    /**
+     * 只记录提交和回滚次数的事务管理器
+     */
+    private static class RecordingTransactionManager extends AbstractPlatformTransactionManager {
+
+        private int commits;
+        private int rollbacks;
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+            commits++;
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+            rollbacks++;
+        }
+    }
+}
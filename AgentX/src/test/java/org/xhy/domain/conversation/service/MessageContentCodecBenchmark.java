@@ -0,0 +1,218 @@
+package org.xhy.domain.conversation.service;
+
+import com.github.luben.zstd.ZstdDictTrainer;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.xhy.infrastructure.config.ChatProperties;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 消息内容压缩的体积和读取吞吐对比
+ * 默认不执行，运行方式：mvn test -Dtest=MessageContentCodecBenchmark -Dagentx.benchmark=true [-Dbench.size=2000]
+ * 指定 -Dbench.jdbcUrl=jdbc:postgresql://localhost:5432/agent?user=postgres&password=postgres 时
+ * 额外在真实数据库的临时表中对比明文和压缩存储的表大小与全表读取耗时
+ */
+@EnabledIfSystemProperty(named = "agentx.benchmark", matches = "true")
+public class MessageContentCodecBenchmark {
+
+    private static final int SIZE = Integer.getInteger("bench.size", 2000);
+
+    private static final int MIN_BYTES = 4096;
+
+    private static final int DICTIONARY_SIZE = 112640;
+
+    private static final String[] WORDS = {"配置", "接口", "返回", "参数", "数据库", "缓存", "线程", "请求", "异常",
+            "用户", "会话", "消息", "模型", "索引", "查询", "分页", "事务", "连接池", "超时", "重试"};
+
+    private static final String[] CODE_LINES = {
+            "    public List<MessageEntity> listByIds(String sessionId, List<String> ids) {",
+            "        return messageRepository.selectList(Wrappers.<MessageEntity>lambdaQuery()",
+            "                .eq(MessageEntity::getSessionId, sessionId));",
+            "    @Transactional(rollbackFor = Exception.class)",
+            "        if (result == null || result.isEmpty()) {",
+            "            throw new BusinessException(\"数据不存在\");",
+            "        logger.info(\"处理完成: id={}, cost={}ms\", id, cost);",
+            "SELECT id, session_id, content FROM messages WHERE session_id = ? ORDER BY created_at;",
+            "const response = await fetch(`/api/agent/session/${sessionId}/messages`);",
+            "    for (int i = 0; i < items.size(); i++) {",
+            "import org.springframework.stereotype.Service;",
+            "def handle(request):\n    payload = json.loads(request.body)\n    return JsonResponse(payload)"};
+
+    @Test
+    public void compressionRatioAndThroughput() {
+        List<String> corpus = corpus(SIZE * 2, 7);
+        List<String> training = corpus.subList(0, SIZE);
+        List<String> messages = corpus.subList(SIZE, corpus.size());
+
+        MessageContentCodec codec = codec();
+        Result plain = measure(codec, "zstd", messages);
+
+        ZstdDictTrainer trainer = new ZstdDictTrainer(DICTIONARY_SIZE * 100, DICTIONARY_SIZE);
+        for (String sample : training) {
+            trainer.addSample(sample.getBytes(StandardCharsets.UTF_8));
+        }
+        codec.activateDictionary(1, trainer.trainSamples());
+        Result dictionary = measure(codec, "zstd+字典", messages);
+
+        assertTrue(plain.storedBytes < plain.rawBytes);
+        assertTrue(dictionary.storedBytes <= plain.storedBytes);
+    }
+
+    @Test
+    public void postgresTableSizeAndReadThroughput() throws SQLException {
+        String url = System.getProperty("bench.jdbcUrl");
+        Assumptions.assumeTrue(url != null, "未指定 bench.jdbcUrl，跳过数据库基准");
+        List<String> messages = corpus(SIZE, 11);
+        ZstdDictTrainer trainer = new ZstdDictTrainer(DICTIONARY_SIZE * 100, DICTIONARY_SIZE);
+        for (String sample : corpus(SIZE, 13)) {
+            trainer.addSample(sample.getBytes(StandardCharsets.UTF_8));
+        }
+        MessageContentCodec codec = codec();
+        codec.activateDictionary(1, trainer.trainSamples());
+
+        try (Connection connection = DriverManager.getConnection(url)) {
+            connection.setAutoCommit(false);
+            runVariant(connection, codec, "明文", messages, false);
+            runVariant(connection, codec, "压缩", messages, true);
+        }
+    }
+
+    private MessageContentCodec codec() {
+        ChatProperties properties = new ChatProperties();
+        properties.getCompression().setEnabled(true);
+        properties.getCompression().setMinBytes(MIN_BYTES);
+        properties.getCompression().setLevel(3);
+        // 字典直接启用，不需要从数据库加载
+        return new MessageContentCodec(properties, null);
+    }
+
+    private Result measure(MessageContentCodec codec, String label, List<String> messages) {
+        long rawBytes = 0;
+        long storedBytes = 0;
+        List<byte[]> stored = new ArrayList<>(messages.size());
+        long start = System.nanoTime();
+        for (String message : messages) {
+            byte[] packed = codec.compress(message);
+            stored.add(packed);
+            int raw = message.getBytes(StandardCharsets.UTF_8).length;
+            rawBytes += raw;
+            storedBytes += packed != null ? packed.length : raw;
+        }
+        long encodeNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < stored.size(); i++) {
+            byte[] packed = stored.get(i);
+            assertEquals(messages.get(i), packed != null ? codec.decompress(packed) : messages.get(i));
+        }
+        long decodeNanos = System.nanoTime() - start;
+
+        System.out.printf("%-8s 原文 %.1fMB, 存储 %.1fMB (%.1f%%), 编码 %.0f MB/s, 解码 %.0f MB/s%n", label,
+                rawBytes / 1048576.0, storedBytes / 1048576.0, storedBytes * 100.0 / rawBytes,
+                rawBytes / 1048576.0 / (encodeNanos / 1e9), rawBytes / 1048576.0 / (decodeNanos / 1e9));
+        return new Result(rawBytes, storedBytes);
+    }
+
+    private void runVariant(Connection connection, MessageContentCodec codec, String label, List<String> messages,
+                            boolean compressed) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS bench_messages");
+            statement.execute("CREATE TABLE bench_messages (id SERIAL PRIMARY KEY, content TEXT NOT NULL, content_packed BYTEA)");
+            connection.commit();
+        }
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO bench_messages (content, content_packed) VALUES (?, ?)")) {
+            for (String message : messages) {
+                byte[] packed = compressed ? codec.compress(message) : null;
+                insert.setString(1, packed != null ? "" : message);
+                insert.setBytes(2, packed);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+            connection.commit();
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("VACUUM ANALYZE bench_messages");
+        } catch (SQLException e) {
+            connection.rollback();
+        }
+
+        long size;
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT pg_total_relation_size('bench_messages')")) {
+            rs.next();
+            size = rs.getLong(1);
+        }
+
+        int rounds = 5;
+        long chars = 0;
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery("SELECT content, content_packed FROM bench_messages")) {
+                while (rs.next()) {
+                    byte[] packed = rs.getBytes(2);
+                    chars += (packed != null ? codec.decompress(packed) : rs.getString(1)).length();
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%s: 表大小 %.1fMB, 全表读取 %.0f 行/秒 (%d字符)%n", label, size / 1048576.0,
+                messages.size() * rounds / seconds, chars);
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE bench_messages");
+            connection.commit();
+        }
+    }
+
+    /**
+     * 生成模拟的助手回复：说明文字夹杂代码块，长度4KB到40KB不等
+     */
+    private List<String> corpus(int count, long seed) {
+        Random random = new Random(seed);
+        List<String> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int target = MIN_BYTES + random.nextInt(36 * 1024);
+            StringBuilder text = new StringBuilder("## 问题分析\n\n");
+            while (text.length() * 2 < target) {
+                for (int w = 0; w < 30; w++) {
+                    text.append(WORDS[random.nextInt(WORDS.length)]);
+                    text.append(random.nextInt(8) == 0 ? "，" : "");
+                }
+                text.append("。\n\n```java\n");
+                int lines = 5 + random.nextInt(20);
+                for (int l = 0; l < lines; l++) {
+                    text.append(CODE_LINES[random.nextInt(CODE_LINES.length)]).append('\n');
+                }
+                text.append("```\n\n");
+            }
+            messages.add(text.toString());
+        }
+        return messages;
+    }
+
+    private static class Result {
+        private final long rawBytes;
+        private final long storedBytes;
+
+        private Result(long rawBytes, long storedBytes) {
+            this.rawBytes = rawBytes;
+            this.storedBytes = storedBytes;
+        }
+    }
+}
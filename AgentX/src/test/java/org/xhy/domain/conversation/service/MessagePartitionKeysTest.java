@@ -0,0 +1,104 @@
+package org.xhy.domain.conversation.service;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.xhy.domain.conversation.model.MessageEntity;
+import org.xhy.infrastructure.id.UuidV7IdentifierGenerator;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 消息分区裁剪条件测试类
+ */
+public class MessagePartitionKeysTest {
+
+    @BeforeAll
+    public static void initTableInfo() {
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), MessageEntity.class);
+    }
+
+    /**
+     * UUIDv7会话ID的下界不晚于任何时区下会话的本地创建时间，且与JVM时区无关
+     */
+    @Test
+    public void testSessionLowerBound() {
+        String sessionId = UuidV7IdentifierGenerator.nextUuidV7();
+        long millis = UuidV7IdentifierGenerator.timestampOf(sessionId);
+        LocalDateTime lowerBound = MessagePartitionKeys.sessionLowerBound(sessionId);
+        assertNotNull(lowerBound);
+        for (int hours = -12; hours <= 14; hours++) {
+            LocalDateTime local = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.ofHours(hours));
+            assertTrue(lowerBound.isBefore(local), "时区偏移 " + hours + " 下的创建时间早于下界");
+        }
+        assertEquals(LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC).minusHours(15), lowerBound);
+        assertNull(MessagePartitionKeys.sessionLowerBound(UUID.randomUUID().toString()));
+        assertNull(MessagePartitionKeys.sessionLowerBound("not-a-uuid"));
+    }
+
+    /**
+     * 按会话查询时带上会话ID和创建时间下界，非UUIDv7会话只带会话ID
+     */
+    @Test
+    public void testScopeToSession() {
+        String sessionId = UuidV7IdentifierGenerator.nextUuidV7();
+        LambdaQueryWrapper<MessageEntity> scoped = MessagePartitionKeys
+                .scopeToSession(Wrappers.<MessageEntity>lambdaQuery(), sessionId);
+        assertTrue(scoped.getSqlSegment().contains("session_id ="));
+        assertTrue(scoped.getSqlSegment().contains("created_at >="));
+        assertTrue(scoped.getParamNameValuePairs().containsValue(MessagePartitionKeys.sessionLowerBound(sessionId)));
+
+        LambdaQueryWrapper<MessageEntity> legacy = MessagePartitionKeys
+                .scopeToSession(Wrappers.<MessageEntity>lambdaQuery(), UUID.randomUUID().toString());
+        assertFalse(legacy.getSqlSegment().contains("created_at"));
+    }
+
+    /**
+     * 多个会话取最早的下界，存在非UUIDv7会话时不限定创建时间
+     */
+    @Test
+    public void testScopeToSessions() {
+        String older = UuidV7IdentifierGenerator.nextUuidV7();
+        String newer = UuidV7IdentifierGenerator.nextUuidV7();
+        LambdaQueryWrapper<MessageEntity> scoped = MessagePartitionKeys
+                .scopeToSessions(Wrappers.<MessageEntity>lambdaQuery(), List.of(newer, older));
+        assertTrue(scoped.getSqlSegment().contains("session_id IN"));
+        assertTrue(scoped.getParamNameValuePairs().containsValue(MessagePartitionKeys.sessionLowerBound(older)));
+
+        LambdaQueryWrapper<MessageEntity> mixed = MessagePartitionKeys
+                .scopeToSessions(Wrappers.<MessageEntity>lambdaQuery(), List.of(newer, UUID.randomUUID().toString()));
+        assertTrue(mixed.getSqlSegment().contains("session_id IN"));
+        assertFalse(mixed.getSqlSegment().contains("created_at"));
+    }
+
+    /**
+     * 单条消息按消息ID、会话ID和创建时间所在的秒限定
+     */
+    @Test
+    public void testScopeToMessage() {
+        MessageEntity message = new MessageEntity();
+        message.setId("m1");
+        message.setSessionId("s1");
+        message.setCreatedAt(LocalDateTime.of(2026, 10, 19, 8, 30, 15, 123_456_000));
+        LambdaQueryWrapper<MessageEntity> scoped = MessagePartitionKeys
+                .scopeToMessage(Wrappers.<MessageEntity>lambdaQuery(), message);
+        assertTrue(scoped.getSqlSegment().contains("created_at BETWEEN"));
+        assertTrue(scoped.getParamNameValuePairs().containsValue(LocalDateTime.of(2026, 10, 19, 8, 30, 15)));
+        assertTrue(scoped.getParamNameValuePairs().containsValue(LocalDateTime.of(2026, 10, 19, 8, 30, 16)));
+
+        message.setCreatedAt(null);
+        assertNull(MessagePartitionKeys.createdFrom(message));
+        assertFalse(MessagePartitionKeys.scopeToMessage(Wrappers.<MessageEntity>lambdaQuery(), message)
+                .getSqlSegment().contains("created_at"));
+    }
+}
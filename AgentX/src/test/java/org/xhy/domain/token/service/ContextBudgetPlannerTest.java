@@ -0,0 +1,122 @@
+package org.xhy.domain.token.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xhy.domain.token.model.ContextBudgetPlan;
+import org.xhy.domain.token.model.TokenMessage;
+import org.xhy.domain.token.model.config.ContextBudgetPolicy;
+import org.xhy.infrastructure.exception.BusinessException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 上下文预算规划器测试类
+ */
+public class ContextBudgetPlannerTest {
+
+    private static final String PREFIX = "以下是用户历史消息的摘要：";
+
+    private ContextBudgetPlanner planner;
+
+    @BeforeEach
+    public void setUp() {
+        planner = new ContextBudgetPlanner(new TokenEstimator());
+    }
+
+    /**
+     * 预算充足时不裁剪任何内容
+     */
+    @Test
+    public void testPlanWithinBudget() {
+        List<TokenMessage> history = createHistory(4, "hello world");
+        ContextBudgetPlan plan = planner.plan("你是一个助手", PREFIX, "之前聊过天气", history,
+                "今天呢", new ContextBudgetPolicy(4096, 512));
+
+        assertEquals(4, plan.getRetainedMessageCount());
+        assertEquals(0, plan.getDroppedMessageCount());
+        assertFalse(plan.isSummaryTrimmed());
+        assertEquals("之前聊过天气", plan.getSummary());
+        assertTrue(plan.isWithinWindow());
+    }
+
+    /**
+     * 历史消息超出预算时从最早的消息开始舍弃，保留最新的连续消息
+     */
+    @Test
+    public void testPlanDropsOldestHistory() {
+        List<TokenMessage> history = createHistory(50, "this is a fairly long message used to fill the budget");
+        ContextBudgetPlan plan = planner.plan("system", PREFIX, null, history,
+                "question", new ContextBudgetPolicy(300, 100));
+
+        assertTrue(plan.getDroppedMessageCount() > 0, "应该有历史消息被舍弃");
+        assertEquals(50, plan.getRetainedMessageCount() + plan.getDroppedMessageCount());
+        List<TokenMessage> retained = plan.getRetainedMessages();
+        assertEquals(history.get(history.size() - 1).getId(), retained.get(retained.size() - 1).getId());
+        assertTrue(plan.getHistoryTokens() <= plan.getHistoryBudget());
+        assertTrue(plan.isWithinWindow());
+    }
+
+    /**
+     * 摘要超出比例上限时保留末尾内容
+     */
+    @Test
+    public void testPlanTrimsSummaryTail() {
+        StringBuilder summary = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            summary.append("第").append(i).append("轮讨论了部署方案。");
+        }
+        summary.append("最近确认使用蓝绿发布。");
+        ContextBudgetPlan plan = planner.plan("system", PREFIX, summary.toString(), new ArrayList<>(),
+                "question", new ContextBudgetPolicy(1000, 200));
+
+        assertTrue(plan.isSummaryTrimmed());
+        assertTrue(plan.getSummaryTokens() <= plan.getSummaryBudget());
+        assertTrue(plan.getSummary().endsWith("最近确认使用蓝绿发布。"));
+    }
+
+    /**
+     * 必须保留的部分超出窗口时在发送前拒绝
+     */
+    @Test
+    public void testPlanRejectsOversizedPrompt() {
+        assertThrows(BusinessException.class, () -> planner.plan("system", PREFIX, null, new ArrayList<>(),
+                "a very long user message that cannot fit", new ContextBudgetPolicy(50, 40)));
+    }
+
+    /**
+     * 检索结果按相关度放入参考资料预算，放不下的跳过，剩余空间留给历史消息
+     */
+    @Test
+    public void testPlanReferencesWithinRatio() {
+        List<String> references = new ArrayList<>();
+        references.add("short relevant fact");
+        references.add("a much longer reference ".repeat(300));
+        references.add("another short fact");
+        List<TokenMessage> history = createHistory(10, "hello world");
+        ContextBudgetPolicy policy = new ContextBudgetPolicy(2048, 512);
+        policy.setReferenceRatio(0.3);
+
+        ContextBudgetPlan plan = planner.plan("system", PREFIX, null, "参考资料：", references, history,
+                "question", policy);
+
+        assertEquals(List.of("short relevant fact", "another short fact"), plan.getReferences());
+        assertEquals(1, plan.getDroppedReferenceCount());
+        assertTrue(plan.getReferenceTokens() <= plan.getReferenceBudget());
+        assertEquals(10, plan.getRetainedMessageCount());
+        assertTrue(plan.isWithinWindow());
+    }
+
+    private List<TokenMessage> createHistory(int count, String content) {
+        List<TokenMessage> messages = new ArrayList<>();
+        LocalDateTime base = LocalDateTime.now().minusHours(1);
+        for (int i = 0; i < count; i++) {
+            messages.add(new TokenMessage("msg-" + i, content + " " + i, i % 2 == 0 ? "USER" : "SYSTEM",
+                    null, base.plusSeconds(i)));
+        }
+        return messages;
+    }
+}
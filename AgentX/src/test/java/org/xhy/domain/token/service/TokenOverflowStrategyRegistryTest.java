@@ -0,0 +1,76 @@
+package org.xhy.domain.token.service;
+
+import org.junit.jupiter.api.Test;
+import org.xhy.application.conversation.assembler.TokenOverflowConfigAssembler;
+import org.xhy.domain.agent.model.LLMModelConfig;
+import org.xhy.domain.shared.enums.TokenOverflowStrategyEnum;
+import org.xhy.domain.token.model.TokenMessage;
+import org.xhy.domain.token.model.TokenProcessResult;
+import org.xhy.domain.token.model.config.TokenOverflowConfig;
+import org.xhy.domain.token.service.impl.NoTokenOverflowStrategy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Token超限处理策略注册表测试类
+ * 插件策略通过测试资源中的 META-INF/services 注册
+ */
+public class TokenOverflowStrategyRegistryTest {
+
+    /**
+     * 模型配置中的自定义策略名称经配置组装后选中插件策略
+     */
+    @Test
+    public void testCustomStrategyFromModelConfig() {
+        TokenDomainService tokenDomainService = new TokenDomainService(
+                new TokenOverflowStrategyRegistry(List.of(new NoTokenOverflowStrategy())));
+        assertTrue(tokenDomainService.hasStrategy(KeepLastTokenOverflowStrategy.NAME));
+        assertFalse(tokenDomainService.hasStrategy("MISSING"));
+
+        LLMModelConfig llmModelConfig = new LLMModelConfig();
+        llmModelConfig.setStrategyType(TokenOverflowStrategyEnum.NONE);
+        llmModelConfig.setCustomStrategyName(KeepLastTokenOverflowStrategy.NAME);
+        TokenOverflowConfig config = TokenOverflowConfigAssembler.toTokenOverflowConfig(llmModelConfig);
+
+        List<TokenMessage> messages = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            messages.add(new TokenMessage("m" + i, "message " + i, "USER", 3));
+        }
+        TokenProcessResult result = tokenDomainService.processMessages(messages, config);
+
+        assertEquals(KeepLastTokenOverflowStrategy.NAME, result.getStrategyName());
+        assertTrue(result.isProcessed());
+        assertEquals(List.of("m3", "m4"), result.getRetainedMessages().stream().map(TokenMessage::getId).toList());
+    }
+
+    /**
+     * 只保留最后两条消息的插件策略
+     */
+    public static class KeepLastTokenOverflowStrategy implements TokenOverflowStrategy {
+
+        static final String NAME = "KEEP_LAST";
+
+        @Override
+        public TokenProcessResult process(List<TokenMessage> messages, TokenOverflowConfig tokenOverflowConfig) {
+            TokenProcessResult result = new TokenProcessResult();
+            result.setRetainedMessages(new ArrayList<>(messages.subList(Math.max(0, messages.size() - 2),
+                    messages.size())));
+            result.setStrategyName(getName());
+            result.setProcessed(true);
+            return result;
+        }
+
+        @Override
+        public String getName() {
+            return NAME;
+        }
+
+        @Override
+        public boolean needsProcessing(List<TokenMessage> messages, TokenOverflowConfig tokenOverflowConfig) {
+            return messages.size() > 2;
+        }
+    }
+}
@@ -18,7 +18,7 @@ import static org.junit.jupiter.api.Assertions.*;
 /**
  * 无策略测试类
  */
-@SpringBootTest
+@SpringBootTest(properties = "agentx.agent.version-cache.warmup-size=0")
 public class NoTokenOverflowStrategyTest {
 
     private NoTokenOverflowStrategy strategy;
@@ -32,7 +32,7 @@ public class NoTokenOverflowStrategyTest {
         config.setStrategyType(TokenOverflowStrategyEnum.NONE);
         
         // 初始化策略
-        strategy = new NoTokenOverflowStrategy(config);
+        strategy = new NoTokenOverflowStrategy();
         
         // 准备测试数据
         messages = new ArrayList<>();
@@ -50,7 +50,7 @@ public class NoTokenOverflowStrategyTest {
     @Test
     public void process_shouldReturnOriginalMessages() {
         // 执行处理
-        TokenProcessResult process = strategy.process(messages,new TokenOverflowConfig());
+        TokenProcessResult process = strategy.process(messages, config);
         List<TokenMessage> result = process.getRetainedMessages();
 
         // 验证结果
@@ -62,7 +62,7 @@ public class NoTokenOverflowStrategyTest {
     @Test
     public void process_withEmptyList_shouldReturnEmptyList() {
         // 执行处理
-        TokenProcessResult process = strategy.process(new ArrayList<>(),new TokenOverflowConfig());
+        TokenProcessResult process = strategy.process(new ArrayList<>(), config);
         List<TokenMessage> result = process.getRetainedMessages();
 
         // 验证结果
@@ -73,7 +73,7 @@ public class NoTokenOverflowStrategyTest {
     @Test
     public void process_withNullList_shouldReturnEmptyList() {
         // 执行处理
-        TokenProcessResult process = strategy.process(null,new TokenOverflowConfig());
+        TokenProcessResult process = strategy.process(null, config);
         List<TokenMessage> result = process.getRetainedMessages();
 
         // 验证结果
@@ -93,9 +93,9 @@ public class NoTokenOverflowStrategyTest {
     @Test
     public void needsProcessing_shouldAlwaysReturnFalse() {
         // 对各种情况进行测试
-        assertFalse(strategy.needsProcessing(messages));
-        assertFalse(strategy.needsProcessing(new ArrayList<>()));
-        assertFalse(strategy.needsProcessing(null));
+        assertFalse(strategy.needsProcessing(messages, config));
+        assertFalse(strategy.needsProcessing(new ArrayList<>(), config));
+        assertFalse(strategy.needsProcessing(null, config));
     }
 
 
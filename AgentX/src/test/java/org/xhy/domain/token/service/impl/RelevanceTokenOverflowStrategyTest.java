@@ -0,0 +1,92 @@
+package org.xhy.domain.token.service.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xhy.domain.shared.enums.TokenOverflowStrategyEnum;
+import org.xhy.domain.token.model.TokenMessage;
+import org.xhy.domain.token.model.TokenProcessResult;
+import org.xhy.domain.token.model.config.TokenOverflowConfig;
+import org.xhy.domain.token.service.MessageVectorCache;
+import org.xhy.infrastructure.config.EmbeddingProperties;
+import org.xhy.infrastructure.embedding.LocalEmbeddingService;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 相关性保留策略测试类
+ */
+public class RelevanceTokenOverflowStrategyTest {
+
+    private LocalEmbeddingService embeddingService;
+    private RelevanceTokenOverflowStrategy strategy;
+    private TokenOverflowConfig config;
+
+    @BeforeEach
+    public void setUp() {
+        EmbeddingProperties properties = new EmbeddingProperties();
+        // 首次推理需要加载模型
+        properties.setTimeout(Duration.ofSeconds(60));
+        embeddingService = new LocalEmbeddingService(properties);
+        strategy = new RelevanceTokenOverflowStrategy(new MessageVectorCache(embeddingService, properties));
+
+        config = new TokenOverflowConfig(TokenOverflowStrategyEnum.RELEVANCE);
+        config.setMaxTokens(500);
+        config.setReserveRatio(0.0);
+        config.setRecentTailSize(2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        embeddingService.destroy();
+    }
+
+    /**
+     * 较早但与当前问题相关的消息应该被保留，无关的闲聊被丢弃
+     */
+    @Test
+    public void testRetainsRelevantOldMessage() {
+        List<TokenMessage> messages = new ArrayList<>();
+        LocalDateTime base = LocalDateTime.now().minusHours(1);
+        messages.add(message("fact", "The production database password rotates every Monday at 9am.", base));
+        for (int i = 0; i < 8; i++) {
+            messages.add(message("chat-" + i, "Haha, nice weather today, I love sunny days " + i, base.plusMinutes(i + 1)));
+        }
+        config.setCurrentMessage("When does the database password rotate?");
+
+        TokenProcessResult result = strategy.process(messages, config);
+        List<TokenMessage> retained = result.getRetainedMessages();
+
+        assertTrue(result.isProcessed());
+        assertTrue(result.getTotalTokens() <= config.getMaxTokens(), "总Token数应该小于等于最大限制");
+        assertTrue(retained.stream().anyMatch(m -> "fact".equals(m.getId())), "应该保留相关的早期消息");
+        assertEquals("chat-7", retained.get(retained.size() - 1).getId(), "应该保留最近的消息");
+        for (int i = 1; i < retained.size(); i++) {
+            assertFalse(retained.get(i - 1).getCreatedAt().isAfter(retained.get(i).getCreatedAt()),
+                    "保留的消息应该按时间顺序排列");
+        }
+    }
+
+    /**
+     * 未超出限制时不处理
+     */
+    @Test
+    public void testNoProcessingNeeded() {
+        List<TokenMessage> messages = new ArrayList<>();
+        messages.add(message("m1", "hello", LocalDateTime.now()));
+
+        TokenProcessResult result = strategy.process(messages, config);
+
+        assertFalse(result.isProcessed());
+        assertEquals(messages, result.getRetainedMessages());
+    }
+
+    private TokenMessage message(String id, String content, LocalDateTime createdAt) {
+        return new TokenMessage(id, content, "USER", 100, createdAt);
+    }
+}
@@ -19,7 +19,7 @@ import static org.junit.jupiter.api.Assertions.*;
 /**
  * 滑动窗口策略测试类
  */
-@SpringBootTest
+@SpringBootTest(properties = "agentx.agent.version-cache.warmup-size=0")
 public class SlidingWindowTokenOverflowStrategyTest {
 
     private SlidingWindowTokenOverflowStrategy strategy;
@@ -34,7 +34,7 @@ public class SlidingWindowTokenOverflowStrategyTest {
         
         // 创建配置
         config = TokenOverflowConfig.createSlidingWindowConfig(1000, 0.1);
-        strategy = new SlidingWindowTokenOverflowStrategy(config);
+        strategy = new SlidingWindowTokenOverflowStrategy();
     }
 
     /**
@@ -43,7 +43,7 @@ public class SlidingWindowTokenOverflowStrategyTest {
     @Test
     public void testProcess() {
         // 执行处理
-        TokenProcessResult process = strategy.process(messages,new TokenOverflowConfig());
+        TokenProcessResult process = strategy.process(messages, config);
         List<TokenMessage> result = process.getRetainedMessages();
         // 验证结果
         assertNotNull(result, "结果不应为空");
@@ -70,7 +70,7 @@ public class SlidingWindowTokenOverflowStrategyTest {
     @Test
     public void testProcessWithEmptyList() {
         // 执行处理
-        TokenProcessResult process = strategy.process(new ArrayList<>(),new TokenOverflowConfig());
+        TokenProcessResult process = strategy.process(new ArrayList<>(), config);
         List<TokenMessage> result = process.getRetainedMessages();
         // 验证结果
         assertNotNull(result, "结果不应为空");
@@ -88,10 +88,8 @@ public class SlidingWindowTokenOverflowStrategyTest {
         // 创建配置（限制为1000）
         TokenOverflowConfig testConfig = TokenOverflowConfig.createSlidingWindowConfig(1000, 0.1);
         
-        // 执行处理 - 注意：由于测试类自动注入策略，这里需要创建一个新的策略实例
-        SlidingWindowTokenOverflowStrategy testStrategy = new SlidingWindowTokenOverflowStrategy(testConfig);
-
-        TokenProcessResult process = testStrategy.process(smallMessages,new TokenOverflowConfig());
+        // 执行处理 - 策略无状态，配置随调用传入
+        TokenProcessResult process = strategy.process(smallMessages, testConfig);
         List<TokenMessage> result = process.getRetainedMessages();
 
         // 验证结果
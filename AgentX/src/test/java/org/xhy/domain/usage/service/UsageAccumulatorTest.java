@@ -0,0 +1,155 @@
+package org.xhy.domain.usage.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.xhy.domain.usage.model.SessionUsageEntity;
+import org.xhy.domain.usage.model.UserDailyUsageEntity;
+import org.xhy.domain.usage.repository.AgentVersionUsageRepository;
+import org.xhy.domain.usage.repository.SessionUsageRepository;
+import org.xhy.domain.usage.repository.UserDailyUsageRepository;
+import org.xhy.infrastructure.config.UsageProperties;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 用量累加器测试类
+ * 覆盖按批取走增量、写入失败后放回以及读取未刷写的增量
+ */
+public class UsageAccumulatorTest {
+
+    private SessionUsageRepository sessionUsageRepository;
+    private UserDailyUsageRepository userDailyUsageRepository;
+    private AgentVersionUsageRepository agentVersionUsageRepository;
+    private UsageAccumulator accumulator;
+
+    @BeforeEach
+    public void setUp() {
+        sessionUsageRepository = mock(SessionUsageRepository.class);
+        userDailyUsageRepository = mock(UserDailyUsageRepository.class);
+        agentVersionUsageRepository = mock(AgentVersionUsageRepository.class);
+        UsageProperties properties = new UsageProperties();
+        // 定时刷写不在测试期间触发，只测试手动刷写
+        properties.setFlushInterval(Duration.ofHours(1));
+        properties.setBatchSize(2);
+        accumulator = new UsageAccumulator(sessionUsageRepository, userDailyUsageRepository,
+                agentVersionUsageRepository, properties);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        accumulator.destroy();
+    }
+
+    /**
+     * 刷写按键排序分批取走全部增量，取走后不再有未刷写的增量
+     */
+    @Test
+    public void testFlushDrainsInSortedBatches() {
+        accumulator.add("s3", "u1", "a1", "v1", 1, 10, 20);
+        accumulator.add("s1", "u1", "a1", "v1", 1, 10, 20);
+        accumulator.add("s2", "u1", "a1", "v1", 1, 10, 20);
+        accumulator.add("s1", "u1", "a1", "v1", 1, 5, 5);
+
+        accumulator.flush();
+
+        ArgumentCaptor<List<SessionUsageEntity>> batches = captor();
+        verify(sessionUsageRepository, times(2)).upsertIncrements(batches.capture());
+        List<List<SessionUsageEntity>> written = batches.getAllValues();
+        assertEquals(List.of("s1", "s2"), written.get(0).stream().map(SessionUsageEntity::getSessionId).toList());
+        assertEquals(List.of("s3"), written.get(1).stream().map(SessionUsageEntity::getSessionId).toList());
+        SessionUsageEntity s1 = written.get(0).get(0);
+        assertEquals(2, s1.getMessageCount());
+        assertEquals(15, s1.getInputTokens());
+        assertEquals(25, s1.getOutputTokens());
+        verify(userDailyUsageRepository).upsertIncrements(anyList());
+        verify(agentVersionUsageRepository).upsertIncrements(anyList());
+
+        SessionUsageEntity pending = new SessionUsageEntity();
+        accumulator.addPendingSession("s1", pending);
+        assertEquals(0, pending.getMessageCount());
+        accumulator.flush();
+        verifyNoMoreInteractions(sessionUsageRepository);
+    }
+
+    /**
+     * 写入失败的增量放回内存，与期间新写入的增量合并，下一轮一起写入
+     */
+    @Test
+    public void testFailedBatchIsMergedBack() {
+        accumulator.add("s1", "u1", "a1", null, 1, 10, 20);
+        AtomicBoolean failed = new AtomicBoolean();
+        when(sessionUsageRepository.upsertIncrements(anyList())).thenAnswer(invocation -> {
+            if (failed.compareAndSet(false, true)) {
+                // 写入期间同一会话又有一轮对话结束
+                accumulator.add("s1", "u1", "a1", null, 1, 1, 2);
+                throw new IllegalStateException("database unavailable");
+            }
+            return 1;
+        });
+
+        accumulator.flush();
+        SessionUsageEntity pending = new SessionUsageEntity();
+        accumulator.addPendingSession("s1", pending);
+        assertEquals(2, pending.getMessageCount());
+        assertEquals(11, pending.getInputTokens());
+        assertEquals(22, pending.getOutputTokens());
+
+        ArgumentCaptor<List<SessionUsageEntity>> retried = captor();
+        accumulator.flush();
+        verify(sessionUsageRepository, times(2)).upsertIncrements(retried.capture());
+        SessionUsageEntity written = retried.getValue().get(0);
+        assertEquals(2, written.getMessageCount());
+        assertEquals(33, written.getTotalTokens());
+        SessionUsageEntity afterRetry = new SessionUsageEntity();
+        accumulator.addPendingSession("s1", afterRetry);
+        assertEquals(0, afterRetry.getMessageCount());
+    }
+
+    /**
+     * 读取未刷写的增量时累加到目标上，不取走增量；未发布的版本按空字符串记录
+     */
+    @Test
+    public void testPendingReads() {
+        accumulator.add("s1", "u1", "a1", "v1", 1, 10, 20);
+        accumulator.add("s2", "u1", "a1", null, 1, 3, 4);
+        accumulator.add("s3", "u2", "a2", "v9", 1, 100, 100);
+
+        UserDailyUsageEntity today = new UserDailyUsageEntity();
+        today.add(5, 50, 50);
+        accumulator.addPendingUserDay("u1", LocalDate.now(), today);
+        assertEquals(7, today.getMessageCount());
+        assertEquals(137, today.getTotalTokens());
+
+        UserDailyUsageEntity yesterday = new UserDailyUsageEntity();
+        accumulator.addPendingUserDay("u1", LocalDate.now().minusDays(1), yesterday);
+        assertEquals(0, yesterday.getMessageCount());
+
+        SessionUsageEntity unpublished = new SessionUsageEntity();
+        accumulator.addPendingAgentVersion("a1", "", unpublished);
+        assertEquals(1, unpublished.getMessageCount());
+        assertEquals(7, unpublished.getTotalTokens());
+
+        List<String> versionIds = accumulator.pendingVersionIds("a1");
+        assertEquals(2, versionIds.size());
+        assertTrue(versionIds.containsAll(List.of("v1", "")));
+
+        SessionUsageEntity again = new SessionUsageEntity();
+        accumulator.addPendingSession("s1", again);
+        accumulator.addPendingSession("s1", again);
+        assertEquals(2, again.getMessageCount());
+    }
+
+    @SuppressWarnings("unchecked")
+    private ArgumentCaptor<List<SessionUsageEntity>> captor() {
+        return ArgumentCaptor.forClass(List.class);
+    }
+}
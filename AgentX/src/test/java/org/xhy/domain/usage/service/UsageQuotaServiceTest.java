@@ -0,0 +1,177 @@
+package org.xhy.domain.usage.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.xhy.domain.usage.model.UsageCounter;
+import org.xhy.domain.usage.model.UserDailyUsageEntity;
+import org.xhy.domain.usage.repository.UserDailyUsageRepository;
+import org.xhy.infrastructure.config.GlobalExceptionHandler;
+import org.xhy.infrastructure.config.QuotaProperties;
+import org.xhy.infrastructure.exception.RateLimitExceededException;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 对话配额服务测试类
+ * 覆盖对账后的每日token上限、Agent每小时token上限以及429响应的Retry-After
+ */
+public class UsageQuotaServiceTest {
+
+    private static final String USER_ID = "u1";
+
+    private UserDailyUsageRepository userDailyUsageRepository;
+    private UsageAccumulator accumulator;
+    private QuotaProperties properties;
+    private UsageQuotaService quotaService;
+
+    @BeforeEach
+    public void setUp() {
+        userDailyUsageRepository = mock(UserDailyUsageRepository.class);
+        accumulator = mock(UsageAccumulator.class);
+        properties = new QuotaProperties();
+        // 定时对账不在测试期间触发，只有首次出现的用户会立即对账
+        properties.setReconcileInterval(Duration.ofHours(1));
+        properties.getUser().setRequestsPerMinute(0);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (quotaService != null) {
+            quotaService.destroy();
+        }
+    }
+
+    /**
+     * 首次请求按本地消耗放行；对账把数据库中的用量和尚未刷写的增量计入后，达到上限的用户被拒绝到次日
+     */
+    @Test
+    public void testDailyLimitAfterReconciliation() {
+        properties.getUser().setDailyTokens(1000);
+        persistedUsage(900);
+        pendingUsage(100);
+        quotaService = new UsageQuotaService(userDailyUsageRepository, accumulator, properties);
+
+        RateLimitExceededException rejected = awaitRejection();
+        assertEquals("今日token用量已达上限，请明天再试", rejected.getMessage());
+        long untilTomorrow = LocalDate.now().plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                - System.currentTimeMillis();
+        assertTrue(Math.abs(untilTomorrow / 1000 - rejected.getRetryAfterSeconds()) <= 2,
+                "重试等待时间应为到次日零点的秒数: " + rejected.getRetryAfterSeconds());
+    }
+
+    /**
+     * 对账之后本节点的消耗叠加在对账值上，累计达到上限时拒绝
+     */
+    @Test
+    public void testLocalConsumptionAfterReconciliation() {
+        properties.getUser().setDailyTokens(1000);
+        persistedUsage(990);
+        pendingUsage(0);
+        quotaService = new UsageQuotaService(userDailyUsageRepository, accumulator, properties);
+
+        quotaService.checkUser(USER_ID);
+        verify(accumulator, timeout(5000)).addPendingUserDay(eq(USER_ID), any(), any());
+        quotaService.consume(USER_ID, "a1", 5);
+        quotaService.checkUser(USER_ID);
+        quotaService.consume(USER_ID, "a1", 5);
+        // 对账查询之后的本地消耗不会被对账扣除，对账生效后累计达到上限
+        awaitRejection();
+    }
+
+    /**
+     * Agent最近一小时的token用量达到上限后拒绝，等待时间不超过一小时
+     */
+    @Test
+    public void testAgentHourlyTokens() {
+        properties.getAgent().setHourlyTokens(100);
+        quotaService = new UsageQuotaService(userDailyUsageRepository, accumulator, properties);
+
+        quotaService.checkAgent("a1");
+        quotaService.consume(USER_ID, "a1", 60);
+        quotaService.checkAgent("a1");
+        quotaService.consume(USER_ID, "a1", 40);
+        RateLimitExceededException rejected = assertThrows(RateLimitExceededException.class,
+                () -> quotaService.checkAgent("a1"));
+        assertTrue(rejected.getRetryAfterSeconds() > 3500 && rejected.getRetryAfterSeconds() <= 3600,
+                "最早的用量约一小时后移出窗口: " + rejected.getRetryAfterSeconds());
+        quotaService.checkAgent("a2");
+    }
+
+    /**
+     * 请求频率超限时返回429，Retry-After为滑动窗口中最早的请求移出前需要等待的秒数
+     */
+    @Test
+    public void testTooManyRequestsRetryAfter() throws Exception {
+        properties.getUser().setRequestsPerMinute(2);
+        quotaService = new UsageQuotaService(userDailyUsageRepository, accumulator, properties);
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new QuotaController(quotaService))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+
+        mockMvc.perform(get("/chat")).andExpect(status().isOk());
+        mockMvc.perform(get("/chat")).andExpect(status().isOk());
+        MvcResult result = mockMvc.perform(get("/chat")).andExpect(status().isTooManyRequests()).andReturn();
+        long retryAfter = Long.parseLong(result.getResponse().getHeader(HttpHeaders.RETRY_AFTER));
+        assertTrue(retryAfter >= 58 && retryAfter <= 60, "Retry-After应接近一分钟: " + retryAfter);
+    }
+
+    private RateLimitExceededException awaitRejection() {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                quotaService.checkUser(USER_ID);
+            } catch (RateLimitExceededException e) {
+                return e;
+            }
+            Thread.onSpinWait();
+        }
+        return fail("对账后仍未达到每日上限");
+    }
+
+    private void persistedUsage(long tokens) {
+        UserDailyUsageEntity usage = new UserDailyUsageEntity();
+        usage.setUserId(USER_ID);
+        usage.setUsageDate(LocalDate.now());
+        usage.setInputTokens(tokens);
+        when(userDailyUsageRepository.selectByUsers(anyList(), any())).thenReturn(List.of(usage));
+    }
+
+    private void pendingUsage(long tokens) {
+        doAnswer(invocation -> {
+            UsageCounter target = invocation.getArgument(2);
+            target.add(0, 0, tokens);
+            return null;
+        }).when(accumulator).addPendingUserDay(eq(USER_ID), any(), any());
+    }
+
+    @RestController
+    private static class QuotaController {
+        private final UsageQuotaService quotaService;
+
+        private QuotaController(UsageQuotaService quotaService) {
+            this.quotaService = quotaService;
+        }
+
+        @GetMapping("/chat")
+        public String chat() {
+            quotaService.checkUser(USER_ID);
+            return "ok";
+        }
+    }
+}
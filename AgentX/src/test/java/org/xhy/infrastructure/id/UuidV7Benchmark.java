@@ -0,0 +1,185 @@
+package org.xhy.infrastructure.id;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * UUIDv7与随机UUID主键的插入吞吐和索引大小对比
+ * 默认不执行，运行方式：mvn test -Dtest=UuidV7Benchmark -Dagentx.benchmark=true [-Dbench.size=200000]
+ * 指定 -Dbench.jdbcUrl=jdbc:postgresql://localhost:5432/agent?user=postgres&password=postgres 时
+ * 额外在真实数据库的临时表中对比VARCHAR(36)和原生uuid列
+ */
+@EnabledIfSystemProperty(named = "agentx.benchmark", matches = "true")
+public class UuidV7Benchmark {
+
+    private static final int SIZE = Integer.getInteger("bench.size", 200_000);
+
+    /**
+     * 模拟的B树叶子页容量：8KB页、VARCHAR(36)键的索引元组约48字节
+     */
+    private static final int LEAF_CAPACITY = 150;
+
+    /**
+     * 最右侧叶子页分裂时左页保留的比例，对应PostgreSQL B树默认的fillfactor 90
+     */
+    private static final double RIGHTMOST_FILL = 0.9;
+
+    @Test
+    public void generatesMonotonicUniqueIds() {
+        List<String> ids = new ArrayList<>(SIZE);
+        long start = System.nanoTime();
+        for (int i = 0; i < SIZE; i++) {
+            ids.add(UuidV7IdentifierGenerator.nextUuidV7());
+        }
+        long v7Nanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < SIZE; i++) {
+            UUID.randomUUID().toString();
+        }
+        long v4Nanos = System.nanoTime() - start;
+
+        Set<String> unique = new HashSet<>(ids);
+        assertEquals(SIZE, unique.size());
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue(ids.get(i - 1).compareTo(ids.get(i)) < 0, "UUIDv7应按生成顺序递增");
+        }
+        assertEquals(7, UUID.fromString(ids.get(0)).version());
+        assertEquals(2, UUID.fromString(ids.get(0)).variant());
+
+        System.out.printf("生成%d个ID: v7 %.1f ns/个, v4 %.1f ns/个%n", SIZE,
+                (double) v7Nanos / SIZE, (double) v4Nanos / SIZE);
+    }
+
+    @Test
+    public void simulatedIndexFill() {
+        LeafStats random = simulate(() -> UUID.randomUUID().toString());
+        LeafStats ordered = simulate(UuidV7IdentifierGenerator::nextUuidV7);
+        System.out.printf("模拟B树叶子页(%d个键): v4 %d页 填充率%.0f%%, v7 %d页 填充率%.0f%%, 页数比 %.2f%n",
+                SIZE, random.pages, random.fill * 100, ordered.pages, ordered.fill * 100,
+                (double) random.pages / ordered.pages);
+        assertTrue(ordered.pages < random.pages);
+    }
+
+    @Test
+    public void postgresInsertAndIndexSize() throws SQLException {
+        String url = System.getProperty("bench.jdbcUrl");
+        Assumptions.assumeTrue(url != null, "未指定 bench.jdbcUrl，跳过数据库基准");
+        try (Connection connection = DriverManager.getConnection(url)) {
+            connection.setAutoCommit(false);
+            runVariant(connection, "VARCHAR(36)", "v4", () -> UUID.randomUUID().toString());
+            runVariant(connection, "VARCHAR(36)", "v7", UuidV7IdentifierGenerator::nextUuidV7);
+            runVariant(connection, "UUID", "v4", () -> UUID.randomUUID().toString());
+            runVariant(connection, "UUID", "v7", UuidV7IdentifierGenerator::nextUuidV7);
+        }
+    }
+
+    private void runVariant(Connection connection, String columnType, String label, Supplier<String> ids)
+            throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS bench_ids");
+            statement.execute("CREATE TABLE bench_ids (id " + columnType + " PRIMARY KEY, "
+                    + "session_id VARCHAR(36) NOT NULL, content TEXT NOT NULL)");
+            connection.commit();
+        }
+
+        String cast = "UUID".equals(columnType) ? "CAST(? AS UUID)" : "?";
+        long start = System.nanoTime();
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO bench_ids (id, session_id, content) VALUES (" + cast + ", ?, ?)")) {
+            for (int i = 0; i < SIZE; i++) {
+                insert.setString(1, ids.get());
+                insert.setString(2, "session");
+                insert.setString(3, "message content " + i);
+                insert.addBatch();
+                if ((i + 1) % 1000 == 0) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT pg_relation_size('bench_ids_pkey')")) {
+            rs.next();
+            long indexBytes = rs.getLong(1);
+            System.out.printf("%-12s %s: 插入%d行 %dms (%.0f 行/秒), 主键索引 %.1fMB%n", columnType, label, SIZE,
+                    millis, SIZE * 1000.0 / Math.max(1, millis), indexBytes / 1024.0 / 1024.0);
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE bench_ids");
+            connection.commit();
+        }
+    }
+
+    /**
+     * 模拟B树叶子页的分裂：插入位置在最右侧页末尾时按fillfactor分裂，其他位置对半分裂
+     */
+    private LeafStats simulate(Supplier<String> ids) {
+        TreeMap<String, List<String>> leaves = new TreeMap<>();
+        List<String> first = new ArrayList<>();
+        leaves.put("", first);
+        for (int i = 0; i < SIZE; i++) {
+            String id = ids.get();
+            Map.Entry<String, List<String>> entry = leaves.floorEntry(id);
+            List<String> leaf = entry.getValue();
+            int position = insertionPoint(leaf, id);
+            leaf.add(position, id);
+            if (leaf.size() <= LEAF_CAPACITY) {
+                continue;
+            }
+            boolean rightmost = entry.getKey().equals(leaves.lastKey()) && position == leaf.size() - 1;
+            int split = rightmost ? (int) (LEAF_CAPACITY * RIGHTMOST_FILL) : leaf.size() / 2;
+            List<String> right = new ArrayList<>(leaf.subList(split, leaf.size()));
+            leaf.subList(split, leaf.size()).clear();
+            leaves.put(right.get(0), right);
+        }
+        return new LeafStats(leaves.size(), (double) SIZE / ((long) leaves.size() * LEAF_CAPACITY));
+    }
+
+    private int insertionPoint(List<String> leaf, String id) {
+        int low = 0;
+        int high = leaf.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (leaf.get(mid).compareTo(id) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static class LeafStats {
+        private final int pages;
+        private final double fill;
+
+        private LeafStats(int pages, double fill) {
+            this.pages = pages;
+            this.fill = fill;
+        }
+    }
+}
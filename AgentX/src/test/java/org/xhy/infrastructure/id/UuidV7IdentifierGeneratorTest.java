@@ -0,0 +1,106 @@
+package org.xhy.infrastructure.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * UUIDv7主键生成器测试类
+ */
+public class UuidV7IdentifierGeneratorTest {
+
+    private static final int COUNTER_LIMIT = 1 << 12;
+
+    /**
+     * 生成的主键为标准格式的UUIDv7，字符串顺序与生成顺序一致
+     */
+    @Test
+    public void testMonotonicFormat() {
+        long before = System.currentTimeMillis();
+        String previous = null;
+        for (int i = 0; i < 10000; i++) {
+            String id = UuidV7IdentifierGenerator.nextUuidV7();
+            UUID uuid = UUID.fromString(id);
+            assertEquals(7, uuid.version());
+            assertEquals(2, uuid.variant());
+            assertTrue(UuidV7IdentifierGenerator.timestampOf(id) >= before);
+            if (previous != null) {
+                assertTrue(id.compareTo(previous) > 0, previous + " >= " + id);
+            }
+            previous = id;
+        }
+        assertEquals(-1L, UuidV7IdentifierGenerator.timestampOf(UUID.randomUUID().toString()));
+    }
+
+    /**
+     * 同一毫秒内计数递增，计数用完时进位到下一毫秒并从0开始
+     */
+    @Test
+    public void testCounterRollover() {
+        long now = System.currentTimeMillis();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < COUNTER_LIMIT * 3; i++) {
+            ids.add(UuidV7IdentifierGenerator.nextUuidV7(now));
+        }
+
+        int rollovers = 0;
+        for (int i = 1; i < ids.size(); i++) {
+            long previousTimestamp = UuidV7IdentifierGenerator.timestampOf(ids.get(i - 1));
+            long timestamp = UuidV7IdentifierGenerator.timestampOf(ids.get(i));
+            int previousCounter = counterOf(ids.get(i - 1));
+            int counter = counterOf(ids.get(i));
+            if (timestamp == previousTimestamp) {
+                assertEquals(previousCounter + 1, counter);
+            } else {
+                assertEquals(previousTimestamp + 1, timestamp);
+                assertEquals(COUNTER_LIMIT - 1, previousCounter);
+                assertEquals(0, counter);
+                rollovers++;
+            }
+            assertTrue(ids.get(i).compareTo(ids.get(i - 1)) > 0);
+        }
+        assertTrue(rollovers >= 2);
+    }
+
+    /**
+     * 多线程并发生成不重复，各线程内严格递增
+     */
+    @Test
+    public void testConcurrentUniqueness() throws InterruptedException {
+        Set<String> all = ConcurrentHashMap.newKeySet();
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> errors = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                String previous = null;
+                for (int i = 0; i < 20000; i++) {
+                    String id = UuidV7IdentifierGenerator.nextUuidV7();
+                    if (!all.add(id) || (previous != null && id.compareTo(previous) <= 0)) {
+                        synchronized (errors) {
+                            errors.add(new AssertionError("重复或乱序: " + id));
+                        }
+                        return;
+                    }
+                    previous = id;
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(errors.isEmpty(), errors.toString());
+        assertEquals(8 * 20000, all.size());
+    }
+
+    private int counterOf(String id) {
+        return (int) (UUID.fromString(id).getMostSignificantBits() & (COUNTER_LIMIT - 1));
+    }
+}
@@ -0,0 +1,79 @@
+package org.xhy.infrastructure.lifecycle;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.xhy.infrastructure.config.ChatProperties;
+import org.xhy.infrastructure.exception.ServiceUnavailableException;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 对话停机排空管理器测试类
+ * 覆盖排空期间拒绝新对话和宽限期结束时中断进行中的对话
+ */
+public class ChatDrainManagerTest {
+
+    private ChatProperties chatProperties;
+    private SimpleMeterRegistry meterRegistry;
+    private ChatDrainManager manager;
+
+    @BeforeEach
+    public void setUp() {
+        chatProperties = new ChatProperties();
+        meterRegistry = new SimpleMeterRegistry();
+        manager = new ChatDrainManager(chatProperties, mock(ApplicationEventPublisher.class), meterRegistry);
+        manager.start();
+    }
+
+    /**
+     * 排空开始后，已通过准入检查的请求在登记时被拒绝；进行中的对话自然结束后排空完成
+     */
+    @Test
+    public void testRejectRegisterDuringDrain() throws InterruptedException {
+        chatProperties.getDrain().setGracePeriod(Duration.ofSeconds(10));
+        AtomicInteger forceStops = new AtomicInteger();
+        manager.register("a", forceStops::incrementAndGet);
+
+        CountDownLatch stopped = new CountDownLatch(1);
+        manager.stop(stopped::countDown);
+        while (!manager.isDraining()) {
+            Thread.sleep(5);
+        }
+
+        assertThrows(ServiceUnavailableException.class, manager::checkAccepting);
+        assertThrows(ServiceUnavailableException.class, () -> manager.register("b", forceStops::incrementAndGet));
+        assertEquals(1, manager.getInFlightCount());
+
+        manager.unregister("a");
+        assertTrue(stopped.await(5, TimeUnit.SECONDS));
+        assertEquals(0, forceStops.get());
+        assertEquals(1.0, meterRegistry.get("agentx.chat.drain.completed").counter().count());
+        assertFalse(manager.isRunning());
+    }
+
+    /**
+     * 宽限期结束时仍未结束的对话执行强制结束回调
+     */
+    @Test
+    public void testInterruptAtGraceTimeout() {
+        chatProperties.getDrain().setGracePeriod(Duration.ofMillis(200));
+        AtomicInteger forceStops = new AtomicInteger();
+        manager.register("a", forceStops::incrementAndGet);
+        manager.register("b", forceStops::incrementAndGet);
+
+        manager.stop();
+
+        assertEquals(2, forceStops.get());
+        assertEquals(0, manager.getInFlightCount());
+        assertEquals(2.0, meterRegistry.get("agentx.chat.drain.interrupted").counter().count());
+        assertEquals(0.0, meterRegistry.get("agentx.chat.drain.completed").counter().count());
+    }
+}
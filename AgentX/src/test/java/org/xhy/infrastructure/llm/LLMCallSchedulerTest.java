@@ -0,0 +1,83 @@
+package org.xhy.infrastructure.llm;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.xhy.infrastructure.config.ChatProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 大模型调用调度器测试类
+ */
+public class LLMCallSchedulerTest {
+
+    private static final int QUANTUM = 1000;
+
+    private final List<String> started = new ArrayList<>();
+    private final List<LLMCallScheduler.Ticket> running = new ArrayList<>();
+    private LLMCallScheduler scheduler;
+
+    @AfterEach
+    public void tearDown() {
+        scheduler.destroy();
+    }
+
+    /**
+     * 并发已满时，排队较多的用户不能挤占其他用户，各用户轮流出队
+     */
+    @Test
+    public void testUsersTakeTurns() {
+        scheduler = createScheduler(1, new ChatProperties().getScheduling());
+        submit("a", "a1", QUANTUM);
+        submit("a", "a2", QUANTUM);
+        submit("a", "a3", QUANTUM);
+        submit("b", "b1", QUANTUM);
+        assertEquals(List.of("a1"), started);
+
+        releaseAll(3);
+        assertEquals(List.of("a1", "a2", "b1", "a3"), started);
+        assertTrue(running.get(1).getQueueWaitMillis() >= 0);
+    }
+
+    /**
+     * 权重为2的用户每轮获得两倍额度
+     */
+    @Test
+    public void testWeightedShare() {
+        ChatProperties.Scheduling properties = new ChatProperties().getScheduling();
+        properties.getUserWeights().put("paid", 2);
+        scheduler = createScheduler(1, properties);
+        submit("blocker", "x", QUANTUM);
+        for (int i = 1; i <= 3; i++) {
+            submit("free", "f" + i, QUANTUM);
+            submit("paid", "p" + i, QUANTUM);
+        }
+
+        releaseAll(6);
+        assertEquals(List.of("x", "f1", "p1", "p2", "f2", "p3", "f3"), started);
+    }
+
+    private LLMCallScheduler createScheduler(int maxInFlight, ChatProperties.Scheduling properties) {
+        properties.setMaxInFlightPerProvider(maxInFlight);
+        properties.setQuantum(QUANTUM);
+        ChatProperties chatProperties = new ChatProperties();
+        chatProperties.setScheduling(properties);
+        return new LLMCallScheduler(chatProperties);
+    }
+
+    private void submit(String userId, String name, int cost) {
+        scheduler.submit("provider", userId, cost, ticket -> {
+            started.add(name);
+            running.add(ticket);
+        }, error -> fail(error));
+    }
+
+    private void releaseAll(int times) {
+        for (int i = 0; i < times; i++) {
+            running.get(i).release();
+        }
+    }
+}
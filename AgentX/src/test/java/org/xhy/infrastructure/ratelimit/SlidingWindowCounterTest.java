@@ -0,0 +1,61 @@
+package org.xhy.infrastructure.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 滑动窗口计数器测试类
+ */
+public class SlidingWindowCounterTest {
+
+    /**
+     * 窗口60秒、每桶1秒
+     */
+    private final SlidingWindowCounter counter = new SlidingWindowCounter(60_000, 60);
+
+    /**
+     * 达到上限后拒绝，等待时间为最早一次计数移出窗口的时间
+     */
+    @Test
+    public void testRejectOverLimitWithRetryAfter() {
+        long start = 1_000_000L;
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, counter.tryAdd(start + i * 1000L, 1, 3));
+        }
+
+        long wait = counter.tryAdd(start + 2500, 1, 3);
+        assertTrue(wait > 0);
+        assertEquals(start + 60_000 - (start + 2500), wait);
+        assertEquals(3, counter.sum(start + 2500));
+    }
+
+    /**
+     * 最早的计数移出窗口后重新放行
+     */
+    @Test
+    public void testAdmitAfterWindowSlides() {
+        long start = 1_000_000L;
+        counter.tryAdd(start, 2, 3);
+        counter.tryAdd(start + 10_000, 1, 3);
+
+        assertTrue(counter.tryAdd(start + 59_999, 1, 3) > 0);
+        assertEquals(0, counter.tryAdd(start + 60_000, 1, 3));
+        assertEquals(2, counter.sum(start + 60_000));
+        assertTrue(counter.isIdle(start + 200_000));
+    }
+
+    /**
+     * 事后累加的消耗超出上限时，等待到足够多的计数移出窗口
+     */
+    @Test
+    public void testWaitBelowLimit() {
+        long start = 1_000_000L;
+        counter.add(start, 50);
+        counter.add(start + 30_000, 80);
+
+        assertEquals(0, counter.waitBelow(start + 30_000, 200));
+        assertEquals(start + 60_000 - (start + 30_000), counter.waitBelow(start + 30_000, 100));
+        assertEquals(start + 90_000 - (start + 30_000), counter.waitBelow(start + 30_000, 50));
+    }
+}
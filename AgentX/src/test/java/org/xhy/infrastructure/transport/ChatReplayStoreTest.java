@@ -0,0 +1,152 @@
+package org.xhy.infrastructure.transport;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xhy.infrastructure.config.ChatProperties;
+import org.xhy.infrastructure.exception.BusinessException;
+import org.xhy.infrastructure.exception.ServiceUnavailableException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 对话回放存储测试类
+ * 覆盖进行中和已结束对话的接入、请求内容不一致的重试以及存储已满时的拒绝
+ */
+public class ChatReplayStoreTest {
+
+    private static final String KEY = "u1:s1:k1";
+
+    private ChatReplayStore store;
+    private final RecordingTransport delegate = new RecordingTransport();
+
+    @BeforeEach
+    public void setUp() {
+        ChatProperties chatProperties = new ChatProperties();
+        chatProperties.getIdempotency().setMaxEntries(2);
+        store = new ChatReplayStore(chatProperties);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        store.destroy();
+    }
+
+    /**
+     * 生成中的重试先收到已输出的内容，再和原连接一起接收后续输出和结束
+     */
+    @Test
+    public void testReplayInFlight() {
+        ReplayableMessageTransport<Connection> original = new ReplayableMessageTransport<>(delegate, "你好");
+        assertNull(store.register(KEY, original));
+        Connection first = original.createConnection(1000);
+        original.sendMessage(first, "你", false, "openai", "gpt");
+        original.sendMessage(first, "好", false, "openai", "gpt");
+
+        ReplayableMessageTransport<Connection> existing = store.register(KEY,
+                new ReplayableMessageTransport<>(delegate, "你好"));
+        assertSame(original, existing);
+        Connection retry = existing.attach(1000);
+        assertEquals(List.of("你好"), retry.messages);
+        assertFalse(retry.completed);
+
+        original.sendMessage(first, "！", true, "openai", "gpt");
+        original.completeConnection(first);
+        assertEquals(List.of("你", "好", "！"), first.messages);
+        assertEquals(List.of("你好", "！"), retry.messages);
+        assertTrue(first.completed);
+        assertTrue(retry.completed);
+    }
+
+    /**
+     * 已结束的对话直接回放完整内容并结束连接；出错结束的对话回放后返回同样的错误
+     */
+    @Test
+    public void testReplayFinished() {
+        ReplayableMessageTransport<Connection> original = new ReplayableMessageTransport<>(delegate, "你好");
+        store.register(KEY, original);
+        Connection first = original.createConnection(1000);
+        original.sendMessage(first, "你好", false, "openai", "gpt");
+        original.sendMessage(first, "！", true, "openai", "gpt");
+        original.completeConnection(first);
+
+        Connection retry = store.register(KEY, new ReplayableMessageTransport<>(delegate, "你好")).attach(1000);
+        assertEquals(List.of("你好！"), retry.messages);
+        assertEquals(List.of(true), retry.doneFlags);
+        assertTrue(retry.completed);
+
+        ReplayableMessageTransport<Connection> failed = new ReplayableMessageTransport<>(delegate, "再见");
+        store.register("u1:s1:k2", failed);
+        IllegalStateException error = new IllegalStateException("模型调用失败");
+        failed.handleError(failed.createConnection(1000), error);
+        Connection failedRetry = store.register("u1:s1:k2", new ReplayableMessageTransport<>(delegate, "再见"))
+                .attach(1000);
+        assertSame(error, failedRetry.error);
+        assertFalse(failedRetry.completed);
+    }
+
+    /**
+     * 同一幂等键携带不同的请求内容时拒绝，不接入已有的输出
+     */
+    @Test
+    public void testFingerprintMismatch() {
+        store.register(KEY, new ReplayableMessageTransport<>(delegate, "你好"));
+        assertThrows(BusinessException.class,
+                () -> store.register(KEY, new ReplayableMessageTransport<>(delegate, "另一条消息")));
+    }
+
+    /**
+     * 存储已满时拒绝新的幂等键，已登记的幂等键仍可接入；移除后可以重新登记
+     */
+    @Test
+    public void testStoreFull() {
+        ReplayableMessageTransport<Connection> first = new ReplayableMessageTransport<>(delegate, "a");
+        ReplayableMessageTransport<Connection> second = new ReplayableMessageTransport<>(delegate, "b");
+        store.register("k1", first);
+        store.register("k2", second);
+
+        assertThrows(ServiceUnavailableException.class,
+                () -> store.register("k3", new ReplayableMessageTransport<>(delegate, "c")));
+        assertSame(first, store.register("k1", new ReplayableMessageTransport<>(delegate, "a")));
+
+        store.remove("k2", second);
+        assertNull(store.register("k3", new ReplayableMessageTransport<>(delegate, "c")));
+    }
+
+    /**
+     * 记录收到内容的连接
+     */
+    private static class Connection {
+        private final List<String> messages = new ArrayList<>();
+        private final List<Boolean> doneFlags = new ArrayList<>();
+        private boolean completed;
+        private Throwable error;
+    }
+
+    private static class RecordingTransport implements MessageTransport<Connection> {
+
+        @Override
+        public Connection createConnection(long timeout) {
+            return new Connection();
+        }
+
+        @Override
+        public void sendMessage(Connection connection, String content, boolean isDone, String provider, String model) {
+            connection.messages.add(content);
+            connection.doneFlags.add(isDone);
+        }
+
+        @Override
+        public void completeConnection(Connection connection) {
+            connection.completed = true;
+        }
+
+        @Override
+        public void handleError(Connection connection, Throwable error) {
+            connection.error = error;
+        }
+    }
+}
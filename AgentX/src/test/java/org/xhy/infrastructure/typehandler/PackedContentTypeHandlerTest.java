@@ -0,0 +1,71 @@
+package org.xhy.infrastructure.typehandler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.xhy.domain.conversation.service.MessageContentCodec;
+import org.xhy.infrastructure.config.ChatProperties;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 消息压缩内容类型处理器测试类
+ */
+public class PackedContentTypeHandlerTest {
+
+    private final PackedContentTypeHandler handler = new PackedContentTypeHandler();
+
+    @BeforeEach
+    public void setUp() {
+        ChatProperties chatProperties = new ChatProperties();
+        chatProperties.getCompression().setEnabled(true);
+        chatProperties.getCompression().setMinBytes(64);
+        PackedContentTypeHandler.setCodec(new MessageContentCodec(chatProperties, null));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        PackedContentTypeHandler.setCodec(null);
+    }
+
+    /**
+     * 超过阈值的内容写入压缩形式，读取时还原为原文
+     */
+    @Test
+    public void testLargeContentRoundTrip() throws Exception {
+        String content = "数据库连接池超时后重试，".repeat(50);
+        PreparedStatement ps = mock(PreparedStatement.class);
+        handler.setParameter(ps, 1, content, null);
+
+        ArgumentCaptor<byte[]> packed = ArgumentCaptor.forClass(byte[].class);
+        verify(ps).setBytes(eq(1), packed.capture());
+        assertTrue(packed.getValue().length < content.length());
+
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getBytes("content_packed")).thenReturn(packed.getValue());
+        assertEquals(content, handler.getResult(rs, "content_packed"));
+    }
+
+    /**
+     * 未达到阈值的内容不压缩，content_packed写入NULL，读取NULL时不覆盖明文
+     */
+    @Test
+    public void testSmallContentWritesNull() throws Exception {
+        PreparedStatement ps = mock(PreparedStatement.class);
+        handler.setParameter(ps, 1, "你好", null);
+
+        verify(ps).setNull(1, Types.BINARY);
+        verify(ps, never()).setBytes(anyInt(), any());
+
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getBytes("content_packed")).thenReturn(null);
+        assertNull(handler.getResult(rs, "content_packed"));
+    }
+}
@@ -0,0 +1,345 @@
+package org.xhy.infrastructure.vector;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xhy.infrastructure.embedding.VectorMath;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 持久化HNSW索引测试类
+ * 覆盖非正常关闭后的恢复（元数据提交点、ids.log截断、第0层清理、删除标记）和压缩
+ */
+public class MappedHnswIndexTest {
+
+    private static final int DIMENSION = 8;
+    private static final int M = 8;
+    private static final int EF_CONSTRUCTION = 64;
+    private static final int SEGMENT_NODES = 32;
+
+    /**
+     * 大于测试中的节点数，查询覆盖整个图，结果与精确查询一致
+     */
+    private static final int EF_SEARCH = 256;
+
+    private final Random random = new Random(7);
+    private final Map<String, float[]> vectors = new HashMap<>();
+    private Path dir;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("mapped-hnsw-test");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path p : paths.sorted((a, b) -> b.compareTo(a)).toList()) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+
+    /**
+     * 正常关闭后重新打开，向量和删除标记都保留
+     */
+    @Test
+    public void testReopenAfterClose() throws IOException {
+        MappedHnswIndex index = open();
+        addAll(index, "a", 50);
+        assertTrue(index.remove("a3"));
+        index.close();
+
+        MappedHnswIndex reopened = open();
+        assertEquals(49, reopened.size());
+        assertAllFound(reopened, "a", 50, "a3");
+        reopened.close();
+    }
+
+    /**
+     * 非正常关闭后重新打开：元数据之后写入的节点被丢弃，ids.log和tombstones.log中写了一半的记录被截掉，
+     * 之后新增的节点不会被旧的边误连
+     */
+    @Test
+    public void testReopenAfterTruncatedLog() throws IOException {
+        MappedHnswIndex crashed = open();
+        addAll(crashed, "a", 40);
+        crashed.remove("a5");
+        crashed.flush();
+        // 提交点之后的写入：边已写入映射文件，但元数据仍是40个节点
+        addAll(crashed, "lost", 10);
+        crashed.remove("a6");
+        Path generation = currentGeneration();
+        // 模拟进程在写日志时退出，日志末尾留下不完整的记录
+        append(generation.resolve("ids.log"), new byte[]{0, 0, 0, 1, 0, 0});
+        append(generation.resolve("tombstones.log"), new byte[]{0, 0});
+
+        MappedHnswIndex reopened = open();
+        assertEquals(39, reopened.size());
+        assertAllFound(reopened, "a", 40, "a5");
+        for (int i = 0; i < 10; i++) {
+            String id = "lost" + i;
+            assertFalse(reopened.search(vectors.get(id), 50, EF_SEARCH).stream()
+                    .anyMatch(hit -> hit.getId().equals(id)), "未提交的节点不应可见: " + id);
+        }
+        assertEquals(0, Files.size(generation.resolve("tombstones.log")) % Integer.BYTES);
+
+        // 复用被丢弃的节点号后，再次打开时日志与元数据一致
+        addAll(reopened, "b", 10);
+        assertAllFound(reopened, "b", 10, null);
+        reopened.close();
+
+        MappedHnswIndex again = open();
+        assertEquals(49, again.size());
+        assertAllFound(again, "a", 40, "a5");
+        assertAllFound(again, "b", 10, null);
+        again.close();
+    }
+
+    /**
+     * 压缩与写入并发：压缩期间的增删在切换前补齐，旧的一代被删除
+     */
+    @Test
+    public void testCompactionReplaysConcurrentWrites() throws Exception {
+        MappedHnswIndex index = open();
+        addAll(index, "a", 100);
+        for (int i = 0; i < 60; i++) {
+            index.remove("a" + i);
+        }
+
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread compactor = new Thread(() -> {
+            try {
+                index.compact();
+            } catch (Throwable e) {
+                error.set(e);
+            }
+        });
+        compactor.start();
+        addAll(index, "b", 30);
+        for (int i = 60; i < 70; i++) {
+            index.remove("a" + i);
+        }
+        compactor.join();
+        assertNull(error.get());
+
+        assertEquals(60, index.size());
+        assertAllFound(index, "b", 30, null);
+        for (int i = 70; i < 100; i++) {
+            assertFound(index, "a" + i);
+        }
+        index.close();
+
+        MappedHnswIndex reopened = open();
+        assertEquals(60, reopened.size());
+        assertEquals(1, generationDirs().size());
+        reopened.close();
+    }
+
+    /**
+     * 压缩期间的查询不受影响，查询全部结束后旧的一代才被删除
+     */
+    @Test
+    public void testSearchDuringCompaction() throws Exception {
+        MappedHnswIndex index = open();
+        addAll(index, "a", 120);
+        for (int i = 0; i < 60; i++) {
+            index.remove("a" + i);
+        }
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        List<Thread> searchers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int offset = t;
+            Thread searcher = new Thread(() -> {
+                int i = 0;
+                while (running.get() && error.get() == null) {
+                    String id = "a" + (70 + (offset * 13 + i++) % 50);
+                    try {
+                        assertFound(index, id);
+                    } catch (Throwable e) {
+                        error.set(e);
+                    }
+                }
+            });
+            searcher.start();
+            searchers.add(searcher);
+        }
+        for (int round = 0; round < 3; round++) {
+            index.compact();
+            index.remove("a" + (60 + round));
+            index.add("a" + (60 + round), vectors.get("a" + (60 + round)));
+        }
+        running.set(false);
+        for (Thread searcher : searchers) {
+            searcher.join();
+        }
+        assertNull(error.get());
+        assertEquals(1, generationDirs().size());
+        index.close();
+    }
+
+    /**
+     * 退役的一代在持有它的查询释放前不执行删除，之后不能再被持有
+     */
+    @Test
+    public void testRetireWaitsForReaders() throws IOException {
+        MappedHnswGeneration generation = MappedHnswGeneration.open(dir.resolve("gen-00001"), DIMENSION, M,
+                EF_CONSTRUCTION, SEGMENT_NODES);
+        AtomicBoolean retired = new AtomicBoolean();
+        assertTrue(generation.acquire());
+        generation.close();
+        generation.retire(() -> retired.set(true));
+        assertFalse(retired.get());
+
+        generation.release();
+        assertTrue(retired.get());
+        assertFalse(generation.acquire());
+    }
+
+    /**
+     * int8量化的召回率与float索引相当，编码随图落盘，重新打开后召回率不变；
+     * 未量化建立的索引以量化模式打开时补齐编码
+     */
+    @Test
+    public void testQuantizedRecall() throws IOException {
+        int dimension = 64;
+        int k = 10;
+        Random data = new Random(42);
+        float[][] centers = new float[20][];
+        for (int i = 0; i < centers.length; i++) {
+            centers[i] = clusteredVector(data, null, dimension);
+        }
+        float[][] points = new float[1500][];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = clusteredVector(data, centers[data.nextInt(centers.length)], dimension);
+        }
+        float[][] queries = new float[50][];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = clusteredVector(data, centers[data.nextInt(centers.length)], dimension);
+        }
+
+        MappedHnswIndex exact = MappedHnswIndex.open(dir.resolve("float"), dimension, 16, 100, 512);
+        MappedHnswIndex quantized = MappedHnswIndex.open(dir.resolve("int8"), dimension, 16, 100, 512, true, 4);
+        for (int i = 0; i < points.length; i++) {
+            exact.add(String.valueOf(i), points[i]);
+            quantized.add(String.valueOf(i), points[i]);
+        }
+        double exactRecall = recall(exact, points, queries, k);
+        double quantizedRecall = recall(quantized, points, queries, k);
+        assertTrue(quantizedRecall >= exactRecall - 0.05,
+                "量化后召回率下降过多: " + quantizedRecall + " < " + exactRecall);
+        quantized.close();
+        exact.close();
+        Path int8Generation = dir.resolve("int8").resolve(Files.readString(dir.resolve("int8/CURRENT")).trim());
+        assertTrue(Files.exists(int8Generation.resolve("q-00000.dat")));
+
+        MappedHnswIndex reopened = MappedHnswIndex.open(dir.resolve("int8"), dimension, 16, 100, 512, true, 4);
+        assertEquals(quantizedRecall, recall(reopened, points, queries, k), 1e-9);
+        reopened.close();
+
+        MappedHnswIndex backfilled = MappedHnswIndex.open(dir.resolve("float"), dimension, 16, 100, 512, true, 4);
+        assertTrue(recall(backfilled, points, queries, k) >= exactRecall - 0.05);
+        backfilled.close();
+    }
+
+    private MappedHnswIndex open() throws IOException {
+        return MappedHnswIndex.open(dir, DIMENSION, M, EF_CONSTRUCTION, SEGMENT_NODES);
+    }
+
+    private void addAll(MappedHnswIndex index, String prefix, int count) {
+        for (int i = 0; i < count; i++) {
+            float[] vector = randomVector();
+            vectors.put(prefix + i, vector);
+            index.add(prefix + i, vector);
+        }
+    }
+
+    private void assertAllFound(MappedHnswIndex index, String prefix, int count, String removed) {
+        for (int i = 0; i < count; i++) {
+            String id = prefix + i;
+            if (id.equals(removed)) {
+                assertFalse(index.search(vectors.get(id), count, EF_SEARCH).stream()
+                        .anyMatch(hit -> hit.getId().equals(id)), "已删除的节点不应可见: " + id);
+            } else {
+                assertFound(index, id);
+            }
+        }
+    }
+
+    private void assertFound(MappedHnswIndex index, String id) {
+        List<VectorSearchHit> hits = index.search(vectors.get(id), 1, EF_SEARCH);
+        assertFalse(hits.isEmpty(), "查询结果为空: " + id);
+        assertEquals(id, hits.get(0).getId());
+    }
+
+    private float[] randomVector() {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return VectorMath.normalize(vector);
+    }
+
+    private double recall(MappedHnswIndex index, float[][] points, float[][] queries, int k) {
+        double total = 0;
+        for (float[] query : queries) {
+            Integer[] order = new Integer[points.length];
+            for (int i = 0; i < points.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Float.compare(VectorMath.dot(query, points[b]),
+                    VectorMath.dot(query, points[a])));
+            Set<String> truth = new HashSet<>();
+            for (int i = 0; i < k; i++) {
+                truth.add(String.valueOf(order[i]));
+            }
+            long found = index.search(query, k, 64).stream().filter(hit -> truth.contains(hit.getId())).count();
+            total += (double) found / k;
+        }
+        return total / queries.length;
+    }
+
+    private float[] clusteredVector(Random data, float[] center, int dimension) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) data.nextGaussian() * (center != null ? 0.6f : 1f) + (center != null ? center[i] : 0f);
+        }
+        return VectorMath.normalize(vector);
+    }
+
+    private Path currentGeneration() throws IOException {
+        return dir.resolve(Files.readString(dir.resolve("CURRENT")).trim());
+    }
+
+    private List<Path> generationDirs() throws IOException {
+        try (Stream<Path> paths = Files.list(dir)) {
+            return paths.filter(Files::isDirectory).toList();
+        }
+    }
+
+    private void append(Path file, byte[] bytes) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file, StandardOpenOption.APPEND)) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package org.xhy.infrastructure.vector;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.xhy.infrastructure.embedding.VectorMath;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * int8量化存储的召回率/延迟基准
+ * 默认不执行，运行方式：mvn test -Dtest=QuantizedVectorBenchmark -Dagentx.benchmark=true [-Dbench.size=50000]
+ */
+@EnabledIfSystemProperty(named = "agentx.benchmark", matches = "true")
+public class QuantizedVectorBenchmark {
+
+    private static final int DIMENSION = 384;
+    private static final int K = 10;
+    private static final int EF_SEARCH = 64;
+    private static final int QUERIES = 200;
+
+    private Path dir;
+    private float[][] vectors;
+    private float[][] queries;
+    private List<Set<String>> truth;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("quantized-bench");
+        int size = Integer.getInteger("bench.size", 10000);
+        Random random = new Random(42);
+        // 围绕若干中心生成向量，模拟文本嵌入的聚簇分布
+        float[][] centers = new float[Math.max(1, size / 50)][];
+        for (int i = 0; i < centers.length; i++) {
+            centers[i] = randomVector(random, null, 0f);
+        }
+        vectors = new float[size][];
+        for (int i = 0; i < size; i++) {
+            vectors[i] = randomVector(random, centers[random.nextInt(centers.length)], 0.6f);
+        }
+        queries = new float[QUERIES][];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = randomVector(random, centers[random.nextInt(centers.length)], 0.6f);
+        }
+        truth = new ArrayList<>();
+        for (float[] query : queries) {
+            truth.add(exactTopK(query));
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (var paths = Files.walk(dir)) {
+            for (Path p : paths.sorted((a, b) -> b.compareTo(a)).toList()) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+
+    @Test
+    public void benchmarkHnsw() throws IOException {
+        long floatBytes = (long) vectors.length * DIMENSION * Float.BYTES;
+        System.out.printf("vectors=%d dim=%d k=%d ef=%d%n", vectors.length, DIMENSION, K, EF_SEARCH);
+
+        HnswIndex floatIndex = new HnswIndex(DIMENSION, 16, 200);
+        long buildMs = build(floatIndex);
+        Result floatResult = measure(floatIndex);
+        System.out.printf("float32 hnsw        : memory=%6.1fMB build=%6dms recall=%.3f p50=%.3fms p99=%.3fms%n",
+                floatBytes / 1048576.0, buildMs, floatResult.recall, floatResult.p50, floatResult.p99);
+
+        for (int rerankFactor : new int[]{1, 2, 4, 8}) {
+            try (QuantizedVectorStore store = new QuantizedVectorStore(DIMENSION, dir.resolve("hnsw-" + rerankFactor));
+                 HnswIndex index = new HnswIndex(DIMENSION, 16, 200, store, rerankFactor)) {
+                buildMs = build(index);
+                Result result = measure(index);
+                System.out.printf("int8 hnsw rerank x%d : memory=%6.1fMB build=%6dms recall=%.3f p50=%.3fms p99=%.3fms%n",
+                        rerankFactor, store.offHeapBytes() / 1048576.0, buildMs, result.recall, result.p50, result.p99);
+                if (rerankFactor == 4) {
+                    assertTrue(result.recall >= floatResult.recall - 0.05, "量化后召回率下降过多");
+                    assertTrue(store.offHeapBytes() * 3 < floatBytes, "量化后内存未明显下降");
+                }
+            }
+        }
+    }
+
+    @Test
+    public void benchmarkFlatScan() throws IOException {
+        try (QuantizedVectorStore store = new QuantizedVectorStore(DIMENSION, dir.resolve("flat"))) {
+            for (float[] vector : vectors) {
+                store.append(vector);
+            }
+            float[] scores = new float[vectors.length];
+            for (int rerank : new int[]{K, K * 4}) {
+                double[] latencies = new double[QUERIES];
+                double recall = 0;
+                for (int q = 0; q < QUERIES; q++) {
+                    long start = System.nanoTime();
+                    store.scanScores(store.encode(queries[q]), scores);
+                    int[] candidates = topIndexes(scores, rerank);
+                    List<float[]> exact = new ArrayList<>();
+                    for (int slot : candidates) {
+                        exact.add(new float[]{slot, store.exactScore(queries[q], slot)});
+                    }
+                    exact.sort((a, b) -> Float.compare(b[1], a[1]));
+                    latencies[q] = (System.nanoTime() - start) / 1e6;
+                    Set<String> found = new HashSet<>();
+                    for (int i = 0; i < Math.min(K, exact.size()); i++) {
+                        found.add(String.valueOf((int) exact.get(i)[0]));
+                    }
+                    recall += overlap(found, truth.get(q));
+                }
+                Arrays.sort(latencies);
+                System.out.printf("int8 flat rerank %3d: recall=%.3f p50=%.3fms p99=%.3fms%n", rerank,
+                        recall / QUERIES, latencies[QUERIES / 2], latencies[QUERIES * 99 / 100]);
+            }
+
+            double[] latencies = new double[QUERIES];
+            for (int q = 0; q < QUERIES; q++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < vectors.length; i++) {
+                    scores[i] = VectorMath.dot(queries[q], vectors[i]);
+                }
+                topIndexes(scores, K);
+                latencies[q] = (System.nanoTime() - start) / 1e6;
+            }
+            Arrays.sort(latencies);
+            System.out.printf("float32 flat        : recall=1.000 p50=%.3fms p99=%.3fms%n",
+                    latencies[QUERIES / 2], latencies[QUERIES * 99 / 100]);
+        }
+    }
+
+    private long build(HnswIndex index) {
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < vectors.length; i++) {
+            index.add(String.valueOf(i), vectors[i]);
+        }
+        return System.currentTimeMillis() - start;
+    }
+
+    private Result measure(HnswIndex index) {
+        // 预热
+        for (float[] query : queries) {
+            index.search(query, K, EF_SEARCH);
+        }
+        double[] latencies = new double[QUERIES];
+        double recall = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            long start = System.nanoTime();
+            List<VectorSearchHit> hits = index.search(queries[q], K, EF_SEARCH);
+            latencies[q] = (System.nanoTime() - start) / 1e6;
+            Set<String> found = new HashSet<>();
+            for (VectorSearchHit hit : hits) {
+                found.add(hit.getId());
+            }
+            recall += overlap(found, truth.get(q));
+        }
+        Arrays.sort(latencies);
+        return new Result(recall / QUERIES, latencies[QUERIES / 2], latencies[QUERIES * 99 / 100]);
+    }
+
+    private Set<String> exactTopK(float[] query) {
+        float[] scores = new float[vectors.length];
+        for (int i = 0; i < vectors.length; i++) {
+            scores[i] = VectorMath.dot(query, vectors[i]);
+        }
+        Set<String> ids = new HashSet<>();
+        for (int index : topIndexes(scores, K)) {
+            ids.add(String.valueOf(index));
+        }
+        return ids;
+    }
+
+    private int[] topIndexes(float[] scores, int k) {
+        int n = Math.min(k, scores.length);
+        int[] top = new int[n];
+        float[] topScores = new float[n];
+        int count = 0;
+        for (int i = 0; i < scores.length; i++) {
+            float score = scores[i];
+            if (count == n && score <= topScores[n - 1]) {
+                continue;
+            }
+            int pos = count < n ? count++ : n - 1;
+            while (pos > 0 && topScores[pos - 1] < score) {
+                topScores[pos] = topScores[pos - 1];
+                top[pos] = top[pos - 1];
+                pos--;
+            }
+            topScores[pos] = score;
+            top[pos] = i;
+        }
+        return top;
+    }
+
+    private double overlap(Set<String> found, Set<String> expected) {
+        int hit = 0;
+        for (String id : found) {
+            if (expected.contains(id)) {
+                hit++;
+            }
+        }
+        return (double) hit / expected.size();
+    }
+
+    private float[] randomVector(Random random, float[] center, float noise) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            float value = (float) random.nextGaussian();
+            vector[i] = center == null ? value : center[i] + value * noise / (float) Math.sqrt(DIMENSION) * 4;
+        }
+        VectorMath.normalize(vector);
+        return vector;
+    }
+
+    private static class Result {
+        private final double recall;
+        private final double p50;
+        private final double p99;
+
+        private Result(double recall, double p50, double p99) {
+            this.recall = recall;
+            this.p50 = p50;
+            this.p99 = p99;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+-- 已发布Agent目录迁移脚本：每个Agent每个发布状态只保留最新版本，市场和审核列表直接读取
+-- 创建于: 2026-10-19
+
+-- 第一步: 启用三元组扩展，支持 LIKE '%关键词%' 使用索引
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- 第二步: 创建目录表，由版本发布、状态变更和删除时在同一事务中维护
+CREATE TABLE IF NOT EXISTS agent_version_catalog (
+    agent_id VARCHAR(36) NOT NULL,
+    publish_status INTEGER NOT NULL,
+    version_id VARCHAR(36) NOT NULL,
+    name VARCHAR(50),
+    published_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (agent_id, publish_status)
+);
+
+COMMENT ON TABLE agent_version_catalog IS 'Agent版本目录表：每个Agent每个发布状态的最新版本';
+COMMENT ON COLUMN agent_version_catalog.agent_id IS 'Agent ID';
+COMMENT ON COLUMN agent_version_catalog.publish_status IS '发布状态：1-审核中, 2-已发布, 3-拒绝, 4-已下架';
+COMMENT ON COLUMN agent_version_catalog.version_id IS '该状态下发布时间最新的版本ID';
+COMMENT ON COLUMN agent_version_catalog.name IS '版本名称，冗余保存用于名称搜索';
+COMMENT ON COLUMN agent_version_catalog.published_at IS '版本发布时间';
+
+-- 第三步: 用已有版本初始化目录
+INSERT INTO agent_version_catalog (agent_id, publish_status, version_id, name, published_at)
+SELECT DISTINCT ON (agent_id, publish_status) agent_id, publish_status, id, name, published_at
+FROM agent_versions
+WHERE deleted_at IS NULL AND publish_status IS NOT NULL
+ORDER BY agent_id, publish_status, published_at DESC
+ON CONFLICT (agent_id, publish_status) DO NOTHING;
+
+-- 第四步: 创建索引
+CREATE INDEX IF NOT EXISTS idx_agent_version_catalog_status ON agent_version_catalog(publish_status);
+CREATE INDEX IF NOT EXISTS idx_agent_version_catalog_name_trgm ON agent_version_catalog USING GIN(name gin_trgm_ops);
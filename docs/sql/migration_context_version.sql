@@ -0,0 +1,17 @@
+-- 会话上下文版本号迁移脚本
+-- 创建于: 2026-10-19
+-- 同一会话的多轮对话并发提交上下文时，以版本号做比较并交换，避免后提交的一方覆盖先提交的一轮
+
+-- 第一步: 添加版本号，已有上下文从0开始
+ALTER TABLE context ADD COLUMN IF NOT EXISTS version INTEGER NOT NULL DEFAULT 0;
+COMMENT ON COLUMN context.version IS '版本号，每次提交加1，用于检出同一会话的并发提交';
+
+-- 第二步: 清理并发插入产生的重复上下文，每个会话保留最近更新的一条
+DELETE FROM context c
+USING context newer
+WHERE c.session_id = newer.session_id
+  AND (c.updated_at < newer.updated_at OR (c.updated_at = newer.updated_at AND c.id < newer.id));
+
+-- 第三步: 会话ID改为唯一索引，并发创建同一会话的上下文时只有一方成功
+DROP INDEX IF EXISTS idx_context_session_id;
+CREATE UNIQUE INDEX IF NOT EXISTS idx_context_session_id ON context(session_id);
@@ -0,0 +1,11 @@
+-- 知识库文本块内容哈希迁移脚本：重新上传文档时复用未变文本块的向量
+-- 创建于: 2026-10-19
+
+-- 第一步: 添加内容哈希字段，历史文本块为空，不参与复用
+ALTER TABLE knowledge_chunks ADD COLUMN IF NOT EXISTS content_hash VARCHAR(64);
+
+-- 第二步: 添加注释
+COMMENT ON COLUMN knowledge_chunks.content_hash IS '文本块内容的SHA-256，重新上传文档时内容未变的文本块直接复用向量';
+
+-- 第三步: 按知识库和哈希创建索引
+CREATE INDEX IF NOT EXISTS idx_knowledge_chunks_hash ON knowledge_chunks(knowledge_base_id, content_hash) WHERE deleted_at IS NULL;
@@ -0,0 +1,12 @@
+-- 知识库全文检索迁移脚本：支持关键词与向量的混合检索
+-- 创建于: 2026-10-19
+
+-- 第一步: 添加由内容生成的全文检索列（需要PostgreSQL 12及以上），已有数据在添加时自动计算
+ALTER TABLE knowledge_chunks
+    ADD COLUMN IF NOT EXISTS content_tsv TSVECTOR GENERATED ALWAYS AS (to_tsvector('simple', content)) STORED;
+
+-- 第二步: 添加注释
+COMMENT ON COLUMN knowledge_chunks.content_tsv IS '全文检索向量，simple配置不做词干和停用词处理，错误码、SKU等标识符按原样成词';
+
+-- 第三步: 创建GIN索引
+CREATE INDEX IF NOT EXISTS idx_knowledge_chunks_tsv ON knowledge_chunks USING GIN(content_tsv);
@@ -0,0 +1,29 @@
+-- 消息冷存储迁移脚本：长期不活跃会话的消息压缩后移入归档表
+-- 创建于: 2026-10-19
+
+-- 第一步: 创建消息归档表，一个会话一行，行本身即会话消息已归档的标记
+CREATE TABLE IF NOT EXISTS message_archives (
+    session_id VARCHAR(36) PRIMARY KEY,
+    message_count INTEGER NOT NULL,
+    raw_bytes INTEGER NOT NULL,
+    payload BYTEA NOT NULL,
+    first_message_at TIMESTAMP NOT NULL,
+    last_message_at TIMESTAMP NOT NULL,
+    archived_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- 第二步: 添加注释
+COMMENT ON TABLE message_archives IS '消息归档表，存放不活跃会话压缩后的消息，会话再次打开时恢复到消息表';
+COMMENT ON COLUMN message_archives.session_id IS '会话ID';
+COMMENT ON COLUMN message_archives.message_count IS '归档的消息条数';
+COMMENT ON COLUMN message_archives.raw_bytes IS '压缩前的字节数';
+COMMENT ON COLUMN message_archives.payload IS 'zstd压缩后的消息数据';
+COMMENT ON COLUMN message_archives.first_message_at IS '最早一条消息的创建时间';
+COMMENT ON COLUMN message_archives.last_message_at IS '最后一条消息的创建时间';
+COMMENT ON COLUMN message_archives.archived_at IS '归档时间';
+
+-- 第三步: 压缩后的数据已经无法再压缩，关闭TOAST压缩，只保留行外存储
+ALTER TABLE message_archives ALTER COLUMN payload SET STORAGE EXTERNAL;
+
+-- 第四步: 为扫描不活跃会话创建索引，按会话取最后一条消息时间（已执行分区迁移的可跳过）
+CREATE INDEX IF NOT EXISTS idx_messages_session_created ON messages(session_id, created_at);
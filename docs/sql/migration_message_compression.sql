@@ -0,0 +1,58 @@
+-- 消息内容压缩迁移脚本：大消息用zstd压缩后存储，读取时由应用透明解压
+-- 创建于: 2026-10-19
+-- 压缩后的内容以 [4字节字典ID][zstd帧] 的形式存放在content_packed列中，content列为NULL，小消息保持明文。
+-- 应用写入压缩消息时同时带上原文，由触发器生成检索向量后清空content列，一条语句完成写入
+
+-- 第一步: 创建压缩字典表，字典只增不改，已压缩的内容按ID引用
+CREATE TABLE IF NOT EXISTS message_dictionaries (
+    id SERIAL PRIMARY KEY,
+    dictionary BYTEA NOT NULL,
+    sample_count INTEGER NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+COMMENT ON TABLE message_dictionaries IS '消息压缩字典表，从最近的大消息中训练的zstd字典';
+COMMENT ON COLUMN message_dictionaries.id IS '字典ID，记录在压缩内容的头部';
+COMMENT ON COLUMN message_dictionaries.dictionary IS 'zstd字典内容';
+COMMENT ON COLUMN message_dictionaries.sample_count IS '训练使用的样本数';
+COMMENT ON COLUMN message_dictionaries.created_at IS '创建时间';
+
+-- 第二步: 增加压缩内容列，压缩存储的消息content列为NULL
+ALTER TABLE messages ADD COLUMN IF NOT EXISTS content_packed BYTEA;
+ALTER TABLE messages ALTER COLUMN content DROP NOT NULL;
+
+COMMENT ON COLUMN messages.content IS '消息内容，压缩存储时为NULL';
+COMMENT ON COLUMN messages.content_packed IS '压缩后的消息内容，[4字节字典ID][zstd帧]，未压缩时为NULL';
+
+-- 第三步: 全文检索列改为普通列，由触发器从写入的原文生成检索词；
+-- 压缩消息写入时content列带原文，触发器生成检索词后将其清空（数据库无法解压zstd，检索词只能在写入时生成）。
+-- 只更新其他列时content为NULL，保留已有的检索向量
+DROP INDEX IF EXISTS idx_messages_tsv;
+DROP INDEX IF EXISTS idx_messages_p_tsv;
+ALTER TABLE messages DROP COLUMN IF EXISTS content_tsv;
+ALTER TABLE messages ADD COLUMN content_tsv TSVECTOR;
+UPDATE messages SET content_tsv = to_tsvector('simple', content) WHERE content_packed IS NULL;
+
+CREATE OR REPLACE FUNCTION messages_content_tsv() RETURNS TRIGGER AS $$
+BEGIN
+    IF NEW.content IS NOT NULL THEN
+        NEW.content_tsv := to_tsvector('simple', NEW.content);
+        IF NEW.content_packed IS NOT NULL THEN
+            NEW.content := NULL;
+        END IF;
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_messages_content_tsv ON messages;
+CREATE TRIGGER trg_messages_content_tsv
+    BEFORE INSERT OR UPDATE OF content, content_packed ON messages
+    FOR EACH ROW EXECUTE FUNCTION messages_content_tsv();
+
+COMMENT ON COLUMN messages.content_tsv IS '全文检索向量，simple配置不做词干和停用词处理；由触发器在写入时按原文生成';
+
+-- 第四步: 早先按空串存储的压缩消息改为NULL
+UPDATE messages SET content = NULL WHERE content_packed IS NOT NULL AND content = '';
+
+CREATE INDEX IF NOT EXISTS idx_messages_tsv ON messages USING GIN(content_tsv);
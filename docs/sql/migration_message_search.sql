@@ -0,0 +1,28 @@
+-- 会话消息搜索迁移脚本：支持在用户全部会话中按关键词和语义搜索消息
+-- 创建于: 2026-10-19
+
+-- 第一步: 添加由内容生成的全文检索列（需要PostgreSQL 12及以上），已有数据在添加时自动计算
+ALTER TABLE messages
+    ADD COLUMN IF NOT EXISTS content_tsv TSVECTOR GENERATED ALWAYS AS (to_tsvector('simple', content)) STORED;
+
+COMMENT ON COLUMN messages.content_tsv IS '全文检索向量，simple配置不做词干和停用词处理';
+
+CREATE INDEX IF NOT EXISTS idx_messages_tsv ON messages USING GIN(content_tsv);
+
+-- 第二步: 创建消息向量表，由后台任务在消息写入后分批补齐
+CREATE TABLE IF NOT EXISTS message_embeddings (
+    message_id VARCHAR(36) PRIMARY KEY,
+    user_id VARCHAR(36) NOT NULL,
+    session_id VARCHAR(36) NOT NULL,
+    embedding BYTEA NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+COMMENT ON TABLE message_embeddings IS '消息向量表，用于跨会话语义搜索';
+COMMENT ON COLUMN message_embeddings.message_id IS '消息ID';
+COMMENT ON COLUMN message_embeddings.user_id IS '消息所属会话的用户ID，冗余保存便于按用户加载索引';
+COMMENT ON COLUMN message_embeddings.session_id IS '消息所属会话ID';
+COMMENT ON COLUMN message_embeddings.embedding IS 'int8量化向量：4字节float32小端缩放系数 + 384字节编码';
+
+-- 第三步: 创建按用户分页加载向量的索引
+CREATE INDEX IF NOT EXISTS idx_message_embeddings_user ON message_embeddings(user_id, message_id);
@@ -0,0 +1,11 @@
+-- 消息状态迁移脚本：支持流式消息增量落库
+-- 创建于: 2026-10-19
+
+-- 第一步: 添加消息状态字段，历史消息均视为已完成
+ALTER TABLE messages ADD COLUMN IF NOT EXISTS status SMALLINT NOT NULL DEFAULT 2;
+
+-- 第二步: 添加注释
+COMMENT ON COLUMN messages.status IS '消息状态：1-生成中, 2-已完成, 3-已中断';
+
+-- 第三步: 为生成中消息创建部分索引，便于排查和清理中断的消息
+CREATE INDEX IF NOT EXISTS idx_messages_streaming ON messages(created_at) WHERE status = 1;
@@ -0,0 +1,61 @@
+-- 消息表分区迁移脚本（按会话ID哈希）：会话内的查询和更新只访问一个分区
+-- 创建于: 2026-10-19
+-- 与 migration_messages_partition_range.sql 二选一执行。适合会话长期活跃、不需要按时间清理历史消息的部署；
+-- 需要按时间淘汰历史消息时使用按创建时间范围分区的脚本。
+-- 执行期间需停止写入；分区表的主键必须包含分区键，因此主键改为 (id, session_id)，
+-- 应用中按会话和按单条消息的读写都已带上会话ID（见 MessagePartitionKeys）。
+
+BEGIN;
+
+-- 第一步: 检查前置迁移，压缩列和检索列由 migration_message_compression.sql 创建，须先执行该脚本
+DO $$
+BEGIN
+    IF (SELECT COUNT(*) FROM information_schema.columns
+        WHERE table_schema = current_schema() AND table_name = 'messages'
+          AND column_name IN ('content_packed', 'content_tsv')) < 2 THEN
+        RAISE EXCEPTION '请先执行 migration_message_compression.sql';
+    END IF;
+END $$;
+
+-- 第二步: 创建分区父表，列定义、默认值、生成列和注释沿用原表
+CREATE TABLE messages_partitioned (
+    LIKE messages INCLUDING DEFAULTS INCLUDING GENERATED INCLUDING COMMENTS,
+    PRIMARY KEY (id, session_id)
+) PARTITION BY HASH (session_id);
+
+-- 第三步: 创建16个哈希分区
+DO $$
+BEGIN
+    FOR i IN 0..15 LOOP
+        EXECUTE format('CREATE TABLE messages_h%s PARTITION OF messages_partitioned FOR VALUES WITH (MODULUS 16, REMAINDER %s)', i, i);
+    END LOOP;
+END $$;
+
+-- 第四步: 复制数据，压缩内容和全文检索向量原样复制（压缩消息的检索向量无法从库中重新生成）
+INSERT INTO messages_partitioned (id, session_id, role, content, content_packed, content_tsv, created_at, token_count, provider, model, metadata, status)
+SELECT id, session_id, role, content, content_packed, content_tsv, created_at, token_count, provider, model, metadata, status
+FROM messages;
+
+-- 第五步: 在父表上创建索引，自动应用到每个分区
+CREATE INDEX idx_messages_p_session_created ON messages_partitioned(session_id, created_at);
+CREATE INDEX idx_messages_p_streaming ON messages_partitioned(created_at) WHERE status = 1;
+CREATE INDEX idx_messages_p_tsv ON messages_partitioned USING GIN(content_tsv);
+
+-- 第六步: 替换原表，原表保留为 messages_unpartitioned，确认无误后手动删除
+ALTER TABLE messages RENAME TO messages_unpartitioned;
+ALTER TABLE messages_partitioned RENAME TO messages;
+COMMENT ON TABLE messages IS '会话消息表（按会话ID哈希分区）';
+
+-- 第七步: LIKE 不复制触发器，数据复制完成后在新父表上重建全文检索触发器，自动应用到每个分区
+CREATE TRIGGER trg_messages_content_tsv
+    BEFORE INSERT OR UPDATE OF content, content_packed ON messages
+    FOR EACH ROW EXECUTE FUNCTION messages_content_tsv();
+
+COMMIT;
+
+-- 回滚方式（数据未写入新表前）:
+-- BEGIN;
+-- ALTER TABLE messages RENAME TO messages_partitioned;
+-- ALTER TABLE messages_unpartitioned RENAME TO messages;
+-- DROP TABLE messages_partitioned;
+-- COMMIT;
@@ -0,0 +1,96 @@
+-- 消息表分区迁移脚本（按创建时间范围）：会话内的查询只访问会话创建之后的分区，历史分区可整体分离归档
+-- 创建于: 2026-10-19
+-- 与 migration_messages_partition_hash.sql 二选一执行。会话ID为UUIDv7时，应用按会话查询会带上
+-- created_at >= 会话创建时间 的条件（见 MessagePartitionKeys），规划器据此跳过会话创建之前的分区；
+-- 按单条消息更新时带上消息自身的创建时间区间，只访问一个分区。
+-- 执行期间需停止写入；主键改为 (id, created_at)。
+
+BEGIN;
+
+-- 第一步: 检查前置迁移，压缩列和检索列由 migration_message_compression.sql 创建，须先执行该脚本
+DO $$
+BEGIN
+    IF (SELECT COUNT(*) FROM information_schema.columns
+        WHERE table_schema = current_schema() AND table_name = 'messages'
+          AND column_name IN ('content_packed', 'content_tsv')) < 2 THEN
+        RAISE EXCEPTION '请先执行 migration_message_compression.sql';
+    END IF;
+END $$;
+
+-- 第二步: 创建分区父表，列定义、默认值、生成列和注释沿用原表
+CREATE TABLE messages_partitioned (
+    LIKE messages INCLUDING DEFAULTS INCLUDING GENERATED INCLUDING COMMENTS,
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+-- 第三步: 创建按月分区的维护函数：补齐从指定月份到未来若干个月的分区，已存在的跳过
+CREATE OR REPLACE FUNCTION create_messages_partitions(from_month DATE, months_ahead INTEGER)
+RETURNS VOID AS $$
+DECLARE
+    month_start DATE := date_trunc('month', from_month)::DATE;
+    last_month DATE := (date_trunc('month', CURRENT_DATE) + make_interval(months => months_ahead))::DATE;
+BEGIN
+    WHILE month_start <= last_month LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF messages FOR VALUES FROM (%L) TO (%L)',
+                       'messages_p' || to_char(month_start, 'YYYYMM'), month_start, (month_start + INTERVAL '1 month')::DATE);
+        month_start := (month_start + INTERVAL '1 month')::DATE;
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+COMMENT ON FUNCTION create_messages_partitions(DATE, INTEGER) IS '补齐消息表的按月分区，建议每月定时执行一次';
+
+-- 第四步: 创建分离历史分区的维护函数：早于保留期的分区从父表分离并改名为 messages_archive_*，
+-- 分离后的表不再参与查询，可导出后删除
+CREATE OR REPLACE FUNCTION detach_messages_partitions(retention_months INTEGER)
+RETURNS SETOF TEXT AS $$
+DECLARE
+    cutoff TEXT := 'messages_p' || to_char(date_trunc('month', CURRENT_DATE) - make_interval(months => retention_months), 'YYYYMM');
+    partition_name TEXT;
+BEGIN
+    FOR partition_name IN
+        SELECT c.relname FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'messages'::regclass AND c.relname ~ '^messages_p[0-9]{6}$' AND c.relname < cutoff
+        ORDER BY c.relname
+    LOOP
+        EXECUTE format('ALTER TABLE messages DETACH PARTITION %I', partition_name);
+        EXECUTE format('ALTER TABLE %I RENAME TO %I', partition_name, replace(partition_name, 'messages_p', 'messages_archive_'));
+        RETURN NEXT partition_name;
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+COMMENT ON FUNCTION detach_messages_partitions(INTEGER) IS '分离早于保留月数的消息分区，返回被分离的分区名';
+
+-- 第五步: 替换原表，原表保留为 messages_unpartitioned，确认无误后手动删除
+ALTER TABLE messages RENAME TO messages_unpartitioned;
+ALTER TABLE messages_partitioned RENAME TO messages;
+COMMENT ON TABLE messages IS '会话消息表（按创建时间按月分区）';
+
+-- 第六步: 按历史数据的最早月份创建分区，并预建未来两个月；超出范围的数据落入默认分区
+SELECT create_messages_partitions(COALESCE((SELECT MIN(created_at) FROM messages_unpartitioned)::DATE, CURRENT_DATE), 2);
+CREATE TABLE messages_default PARTITION OF messages DEFAULT;
+
+-- 第七步: 复制数据，压缩内容和全文检索向量原样复制（压缩消息的检索向量无法从库中重新生成）
+INSERT INTO messages (id, session_id, role, content, content_packed, content_tsv, created_at, token_count, provider, model, metadata, status)
+SELECT id, session_id, role, content, content_packed, content_tsv, created_at, token_count, provider, model, metadata, status
+FROM messages_unpartitioned;
+
+-- 第八步: LIKE 不复制触发器，数据复制完成后在新父表上重建全文检索触发器，自动应用到每个分区
+CREATE TRIGGER trg_messages_content_tsv
+    BEFORE INSERT OR UPDATE OF content, content_packed ON messages
+    FOR EACH ROW EXECUTE FUNCTION messages_content_tsv();
+
+-- 第九步: 在父表上创建索引，自动应用到每个分区
+CREATE INDEX idx_messages_p_session_created ON messages(session_id, created_at);
+CREATE INDEX idx_messages_p_streaming ON messages(created_at) WHERE status = 1;
+CREATE INDEX idx_messages_p_tsv ON messages USING GIN(content_tsv);
+
+COMMIT;
+
+-- 日常维护示例:
+-- 每月预建分区: SELECT create_messages_partitions(CURRENT_DATE, 2);
+-- 只保留最近12个月的消息: SELECT * FROM detach_messages_partitions(12);
+-- 归档完成后删除: DROP TABLE messages_archive_202501;
+-- 注意：默认分区中已有某月的数据时，无法再创建该月的分区，需先将数据移出默认分区
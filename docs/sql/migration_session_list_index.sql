@@ -0,0 +1,7 @@
+-- 会话列表读模型索引迁移脚本
+-- 创建于: 2026-10-19
+-- 工作区和会话侧边栏按用户和Agent筛选会话，并在同一条查询中取每个会话的最后一条消息
+-- （最后一条消息走已有的 idx_messages_session_created 索引）
+
+-- 第一步: 创建用户+Agent的会话索引，附带创建时间以便直接按时间倒序返回
+CREATE INDEX IF NOT EXISTS idx_sessions_user_agent ON sessions(user_id, agent_id, created_at DESC);
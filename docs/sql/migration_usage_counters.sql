@@ -0,0 +1,75 @@
+-- 用量计数迁移脚本：按会话、用户每日、Agent版本增量维护消息数和token数
+-- 创建于: 2026-10-19
+-- 应用在内存中累加增量并定期upsert到这三张表，查询用量时只读取对应的计数行
+
+-- 第一步: 创建会话用量表
+CREATE TABLE IF NOT EXISTS session_usage (
+    session_id VARCHAR(36) PRIMARY KEY,
+    user_id VARCHAR(36) NOT NULL,
+    agent_id VARCHAR(36),
+    message_count BIGINT NOT NULL DEFAULT 0,
+    input_tokens BIGINT NOT NULL DEFAULT 0,
+    output_tokens BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- 第二步: 创建用户每日用量表
+CREATE TABLE IF NOT EXISTS user_daily_usage (
+    user_id VARCHAR(36) NOT NULL,
+    usage_date DATE NOT NULL,
+    message_count BIGINT NOT NULL DEFAULT 0,
+    input_tokens BIGINT NOT NULL DEFAULT 0,
+    output_tokens BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (user_id, usage_date)
+);
+
+-- 第三步: 创建Agent版本用量表
+CREATE TABLE IF NOT EXISTS agent_version_usage (
+    agent_id VARCHAR(36) NOT NULL,
+    version_id VARCHAR(36) NOT NULL DEFAULT '',
+    message_count BIGINT NOT NULL DEFAULT 0,
+    input_tokens BIGINT NOT NULL DEFAULT 0,
+    output_tokens BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (agent_id, version_id)
+);
+
+-- 第四步: 添加注释
+COMMENT ON TABLE session_usage IS '会话用量表，由应用定期累加';
+COMMENT ON COLUMN session_usage.message_count IS '消息数（用户消息和助手回复）';
+COMMENT ON COLUMN session_usage.input_tokens IS '输入token数';
+COMMENT ON COLUMN session_usage.output_tokens IS '输出token数';
+COMMENT ON TABLE user_daily_usage IS '用户每日用量表，日期按应用服务器本地时区划分';
+COMMENT ON TABLE agent_version_usage IS 'Agent版本用量表';
+COMMENT ON COLUMN agent_version_usage.version_id IS '对话时Agent发布的版本ID，未发布时为空字符串';
+
+-- 第五步: 按Agent版本查询用量排行
+CREATE INDEX IF NOT EXISTS idx_agent_version_usage_messages ON agent_version_usage(message_count DESC);
+
+-- 第六步: 从消息表回填历史用量，需在新版本应用启动前执行，否则启动后产生的用量会被重复计入。
+-- 用户消息的token数计为输入，模型回复（角色为SYSTEM，兼容ASSISTANT）的token数计为输出；已转入冷存储的消息不回填；
+-- 历史对话当时所用的版本无从得知，Agent用量记在当前发布的版本下
+INSERT INTO session_usage (session_id, user_id, agent_id, message_count, input_tokens, output_tokens)
+SELECT s.id, s.user_id, s.agent_id, COUNT(*),
+       COALESCE(SUM(m.token_count) FILTER (WHERE m.role = 'USER'), 0),
+       COALESCE(SUM(m.token_count) FILTER (WHERE m.role <> 'USER'), 0)
+FROM sessions s JOIN messages m ON m.session_id = s.id
+WHERE m.role IN ('USER', 'SYSTEM', 'ASSISTANT') AND m.deleted_at IS NULL
+GROUP BY s.id, s.user_id, s.agent_id
+ON CONFLICT (session_id) DO NOTHING;
+
+INSERT INTO user_daily_usage (user_id, usage_date, message_count, input_tokens, output_tokens)
+SELECT s.user_id, m.created_at::date, COUNT(*),
+       COALESCE(SUM(m.token_count) FILTER (WHERE m.role = 'USER'), 0),
+       COALESCE(SUM(m.token_count) FILTER (WHERE m.role <> 'USER'), 0)
+FROM sessions s JOIN messages m ON m.session_id = s.id
+WHERE m.role IN ('USER', 'SYSTEM', 'ASSISTANT') AND m.deleted_at IS NULL
+GROUP BY s.user_id, m.created_at::date
+ON CONFLICT (user_id, usage_date) DO NOTHING;
+
+INSERT INTO agent_version_usage (agent_id, version_id, message_count, input_tokens, output_tokens)
+SELECT u.agent_id, COALESCE(a.published_version, ''), SUM(u.message_count), SUM(u.input_tokens), SUM(u.output_tokens)
+FROM session_usage u JOIN agents a ON a.id = u.agent_id
+GROUP BY u.agent_id, COALESCE(a.published_version, '')
+ON CONFLICT (agent_id, version_id) DO NOTHING;
@@ -0,0 +1,45 @@
+-- 会话、消息、上下文主键改为原生uuid类型的迁移脚本（可选）
+-- 创建于: 2026-10-19
+--
+-- 应用默认生成UUIDv7主键（agentx.id.time-ordered），VARCHAR(36)列无需迁移即可使用；
+-- 本脚本把高频写入表的主键和关联列改为16字节的原生uuid，进一步缩小主键索引和关联索引。
+-- 执行前提：
+--   1. 数据库连接串追加 stringtype=unspecified，例如 jdbc:postgresql://localhost:5432/agent?stringtype=unspecified，
+--      使字符串参数可以直接与uuid列比较和写入，代码中的实体和SQL无需修改
+--   2. 停止应用后执行；执行后删除本地向量索引目录下的 messages 子目录（agentx.vector.data-dir），
+--      消息ID的文本格式统一为带连字符的标准格式，索引会在首次搜索时按新格式重建
+--   3. 旧数据中的ID为32位十六进制字符串，uuid类型可以直接解析，读取时统一返回带连字符的标准格式
+
+-- 第一步: 转换主键和关联列
+ALTER TABLE sessions ALTER COLUMN id TYPE UUID USING id::uuid;
+
+ALTER TABLE messages ALTER COLUMN id TYPE UUID USING id::uuid;
+ALTER TABLE messages ALTER COLUMN session_id TYPE UUID USING session_id::uuid;
+
+ALTER TABLE context ALTER COLUMN id TYPE UUID USING id::uuid;
+ALTER TABLE context ALTER COLUMN session_id TYPE UUID USING session_id::uuid;
+
+ALTER TABLE message_embeddings ALTER COLUMN message_id TYPE UUID USING message_id::uuid;
+ALTER TABLE message_embeddings ALTER COLUMN session_id TYPE UUID USING session_id::uuid;
+
+-- 归档表和会话用量表以会话ID为主键，归档表在会话列表查询中与sessions关联，需与sessions.id同为uuid；
+-- 用量表按会话ID upsert，统一类型后旧格式的ID与新写入的ID落在同一行
+ALTER TABLE message_archives ALTER COLUMN session_id TYPE UUID USING session_id::uuid;
+ALTER TABLE session_usage ALTER COLUMN session_id TYPE UUID USING session_id::uuid;
+
+-- 第二步: 以文本保存的消息ID和会话ID统一为标准格式，与从uuid列读出的ID保持一致
+UPDATE context
+SET active_messages = (
+    SELECT COALESCE(json_agg(elem.value::uuid::text ORDER BY elem.ordinality), '[]'::json)
+    FROM json_array_elements_text(context.active_messages) WITH ORDINALITY AS elem(value, ordinality)
+)
+WHERE active_messages IS NOT NULL;
+
+UPDATE agent_memories
+SET source_session_id = source_session_id::uuid::text
+WHERE source_session_id IS NOT NULL;
+
+-- 第三步: 更新统计信息
+ANALYZE sessions;
+ANALYZE messages;
+ANALYZE context;
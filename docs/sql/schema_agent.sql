@@ -106,4 +106,26 @@ ALTER TABLE agent_versions ADD COLUMN review_time TIMESTAMP;
 -- 添加注释
 COMMENT ON COLUMN agent_versions.publish_status IS '发布状态：1-审核中, 2-已发布, 3-拒绝, 4-已下架';
 COMMENT ON COLUMN agent_versions.reject_reason IS '审核拒绝原因';
-COMMENT ON COLUMN agent_versions.review_time IS '审核时间';
\ No newline at end of file
+COMMENT ON COLUMN agent_versions.review_time IS '审核时间';
+
+-- Agent版本目录表：每个Agent每个发布状态的最新版本，市场和审核列表直接读取
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE TABLE agent_version_catalog (
+    agent_id VARCHAR(36) NOT NULL,
+    publish_status INTEGER NOT NULL,
+    version_id VARCHAR(36) NOT NULL,
+    name VARCHAR(50),
+    published_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (agent_id, publish_status)
+);
+
+COMMENT ON TABLE agent_version_catalog IS 'Agent版本目录表：每个Agent每个发布状态的最新版本';
+COMMENT ON COLUMN agent_version_catalog.agent_id IS 'Agent ID';
+COMMENT ON COLUMN agent_version_catalog.publish_status IS '发布状态：1-审核中, 2-已发布, 3-拒绝, 4-已下架';
+COMMENT ON COLUMN agent_version_catalog.version_id IS '该状态下发布时间最新的版本ID';
+COMMENT ON COLUMN agent_version_catalog.name IS '版本名称，冗余保存用于名称搜索';
+COMMENT ON COLUMN agent_version_catalog.published_at IS '版本发布时间';
+
+CREATE INDEX idx_agent_version_catalog_status ON agent_version_catalog(publish_status);
+CREATE INDEX idx_agent_version_catalog_name_trgm ON agent_version_catalog USING GIN(name gin_trgm_ops);
@@ -0,0 +1,30 @@
+-- Agent长期记忆表设计
+-- 按用户和Agent保存从对话中提取的长期事实，跨会话召回
+-- 创建于: 2026-10-19
+
+CREATE TABLE IF NOT EXISTS agent_memories (
+    id VARCHAR(36) PRIMARY KEY,
+    user_id VARCHAR(36) NOT NULL,
+    agent_id VARCHAR(36) NOT NULL,
+    content TEXT NOT NULL,
+    embedding BYTEA NOT NULL,
+    token_count INTEGER NOT NULL DEFAULT 0,
+    mention_count INTEGER NOT NULL DEFAULT 1,
+    source_session_id VARCHAR(36),
+    last_recalled_at TIMESTAMP NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    deleted_at TIMESTAMP NULL
+);
+
+COMMENT ON TABLE agent_memories IS 'Agent长期记忆表，每条记录是一条关于用户的长期事实';
+COMMENT ON COLUMN agent_memories.user_id IS '用户ID';
+COMMENT ON COLUMN agent_memories.agent_id IS 'Agent ID';
+COMMENT ON COLUMN agent_memories.content IS '事实内容，一句简短的陈述句';
+COMMENT ON COLUMN agent_memories.embedding IS 'int8量化向量：4字节float32小端缩放系数 + 384字节编码';
+COMMENT ON COLUMN agent_memories.token_count IS '事实内容的token数';
+COMMENT ON COLUMN agent_memories.mention_count IS '被重复提及的次数，相似事实合并时累加，容量满时优先淘汰次数少的';
+COMMENT ON COLUMN agent_memories.source_session_id IS '最近一次提取该事实的会话ID';
+COMMENT ON COLUMN agent_memories.last_recalled_at IS '最近一次被召回注入提示词的时间';
+
+CREATE INDEX IF NOT EXISTS idx_agent_memories_owner ON agent_memories(user_id, agent_id) WHERE deleted_at IS NULL;
@@ -0,0 +1,77 @@
+-- 知识库数据库表设计
+-- 用于存储知识库、文档以及切分后的文本块和向量
+-- 创建于: 2026-10-19
+
+-- 知识库表
+CREATE TABLE IF NOT EXISTS knowledge_bases (
+    id VARCHAR(36) PRIMARY KEY,
+    name VARCHAR(100) NOT NULL,
+    description TEXT,
+    user_id VARCHAR(36) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    deleted_at TIMESTAMP NULL
+);
+
+COMMENT ON TABLE knowledge_bases IS '知识库表，智能体通过knowledge_base_ids关联';
+COMMENT ON COLUMN knowledge_bases.name IS '知识库名称';
+COMMENT ON COLUMN knowledge_bases.description IS '知识库描述';
+COMMENT ON COLUMN knowledge_bases.user_id IS '创建者用户ID';
+
+CREATE INDEX IF NOT EXISTS idx_knowledge_bases_user ON knowledge_bases(user_id);
+
+-- 知识库文档表
+CREATE TABLE IF NOT EXISTS knowledge_documents (
+    id VARCHAR(36) PRIMARY KEY,
+    knowledge_base_id VARCHAR(36) NOT NULL,
+    title VARCHAR(255) NOT NULL,
+    content_length INTEGER NOT NULL DEFAULT 0,
+    chunk_count INTEGER NOT NULL DEFAULT 0,
+    status SMALLINT NOT NULL DEFAULT 1,
+    error_message TEXT,
+    user_id VARCHAR(36) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    deleted_at TIMESTAMP NULL
+);
+
+COMMENT ON TABLE knowledge_documents IS '知识库文档表';
+COMMENT ON COLUMN knowledge_documents.knowledge_base_id IS '所属知识库ID';
+COMMENT ON COLUMN knowledge_documents.title IS '文档标题';
+COMMENT ON COLUMN knowledge_documents.content_length IS '原文字符数';
+COMMENT ON COLUMN knowledge_documents.chunk_count IS '切分后的文本块数量';
+COMMENT ON COLUMN knowledge_documents.status IS '文档状态：1-处理中, 2-已完成, 3-失败';
+COMMENT ON COLUMN knowledge_documents.error_message IS '处理失败原因';
+
+CREATE INDEX IF NOT EXISTS idx_knowledge_documents_kb ON knowledge_documents(knowledge_base_id);
+
+-- 文本块表，向量以float32小端字节序存储
+CREATE TABLE IF NOT EXISTS knowledge_chunks (
+    id VARCHAR(36) PRIMARY KEY,
+    knowledge_base_id VARCHAR(36) NOT NULL,
+    document_id VARCHAR(36) NOT NULL,
+    chunk_index INTEGER NOT NULL,
+    content TEXT NOT NULL,
+    token_count INTEGER NOT NULL DEFAULT 0,
+    content_hash VARCHAR(64),
+    embedding BYTEA NOT NULL,
+    content_tsv TSVECTOR GENERATED ALWAYS AS (to_tsvector('simple', content)) STORED,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    deleted_at TIMESTAMP NULL
+);
+
+COMMENT ON TABLE knowledge_chunks IS '知识库文本块表';
+COMMENT ON COLUMN knowledge_chunks.knowledge_base_id IS '所属知识库ID，冗余存储便于按知识库加载向量索引';
+COMMENT ON COLUMN knowledge_chunks.document_id IS '所属文档ID';
+COMMENT ON COLUMN knowledge_chunks.chunk_index IS '文本块在文档中的序号';
+COMMENT ON COLUMN knowledge_chunks.content IS '文本块内容';
+COMMENT ON COLUMN knowledge_chunks.token_count IS '文本块token数';
+COMMENT ON COLUMN knowledge_chunks.content_hash IS '文本块内容的SHA-256，重新上传文档时内容未变的文本块直接复用向量';
+COMMENT ON COLUMN knowledge_chunks.embedding IS 'all-MiniLM-L6-v2归一化向量（384维float32）';
+COMMENT ON COLUMN knowledge_chunks.content_tsv IS '全文检索向量，simple配置不做词干和停用词处理，错误码、SKU等标识符按原样成词';
+
+CREATE INDEX IF NOT EXISTS idx_knowledge_chunks_kb ON knowledge_chunks(knowledge_base_id) WHERE deleted_at IS NULL;
+CREATE INDEX IF NOT EXISTS idx_knowledge_chunks_document ON knowledge_chunks(document_id);
+CREATE INDEX IF NOT EXISTS idx_knowledge_chunks_hash ON knowledge_chunks(knowledge_base_id, content_hash) WHERE deleted_at IS NULL;
+CREATE INDEX IF NOT EXISTS idx_knowledge_chunks_tsv ON knowledge_chunks USING GIN(content_tsv);
@@ -35,12 +35,15 @@ CREATE TABLE messages (
     id VARCHAR(36) PRIMARY KEY,           -- 消息唯一ID
     session_id VARCHAR(36) NOT NULL,      -- 所属会话ID
     role VARCHAR(20) NOT NULL,            -- 消息角色(user/assistant/system)
-    content TEXT NOT NULL,                -- 消息内容
+    content TEXT,                         -- 消息内容，压缩存储时为NULL
+    content_packed BYTEA,                 -- 压缩后的消息内容
     created_at TIMESTAMP NOT NULL,        -- 创建时间
     token_count INTEGER,                  -- Token数量(可选，用于统计)
     provider VARCHAR(50),                 -- 服务提供商
     model VARCHAR(50),                    -- 使用的模型
-    metadata JSON                        -- 消息元数据
+    metadata JSON,                        -- 消息元数据
+    status SMALLINT NOT NULL DEFAULT 2,   -- 消息状态：1-生成中, 2-已完成, 3-已中断
+    content_tsv TSVECTOR                  -- 全文检索向量，由触发器在写入时按原文生成
 );
 
 -- 为messages表添加注释
@@ -48,12 +51,117 @@ COMMENT ON TABLE messages IS '会话消息表';
 COMMENT ON COLUMN messages.id IS '消息唯一ID';
 COMMENT ON COLUMN messages.session_id IS '所属会话ID';
 COMMENT ON COLUMN messages.role IS '消息角色(user/assistant/system)';
-COMMENT ON COLUMN messages.content IS '消息内容';
+COMMENT ON COLUMN messages.content IS '消息内容，压缩存储时为NULL';
+COMMENT ON COLUMN messages.content_packed IS '压缩后的消息内容，[4字节字典ID][zstd帧]，未压缩时为NULL';
 COMMENT ON COLUMN messages.created_at IS '创建时间';
 COMMENT ON COLUMN messages.token_count IS 'Token数量(可选，用于统计)';
 COMMENT ON COLUMN messages.provider IS '服务提供商';
 COMMENT ON COLUMN messages.model IS '使用的模型';
 COMMENT ON COLUMN messages.metadata IS '消息元数据';
+COMMENT ON COLUMN messages.status IS '消息状态：1-生成中, 2-已完成, 3-已中断';
+COMMENT ON COLUMN messages.content_tsv IS '全文检索向量，simple配置不做词干和停用词处理；由触发器在写入时按原文生成';
+
+-- 写入或内容变更时按原文生成全文检索向量；压缩消息写入时同时带上原文，生成检索向量后清空content列
+CREATE OR REPLACE FUNCTION messages_content_tsv() RETURNS TRIGGER AS $$
+BEGIN
+    IF NEW.content IS NOT NULL THEN
+        NEW.content_tsv := to_tsvector('simple', NEW.content);
+        IF NEW.content_packed IS NOT NULL THEN
+            NEW.content := NULL;
+        END IF;
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_messages_content_tsv
+    BEFORE INSERT OR UPDATE OF content, content_packed ON messages
+    FOR EACH ROW EXECUTE FUNCTION messages_content_tsv();
+
+-- 创建消息向量表
+CREATE TABLE message_embeddings (
+    message_id VARCHAR(36) PRIMARY KEY,   -- 消息ID
+    user_id VARCHAR(36) NOT NULL,         -- 消息所属会话的用户ID
+    session_id VARCHAR(36) NOT NULL,      -- 所属会话ID
+    embedding BYTEA NOT NULL,             -- int8量化向量
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP -- 创建时间
+);
+
+COMMENT ON TABLE message_embeddings IS '消息向量表，用于跨会话语义搜索';
+COMMENT ON COLUMN message_embeddings.message_id IS '消息ID';
+COMMENT ON COLUMN message_embeddings.user_id IS '消息所属会话的用户ID，冗余保存便于按用户加载索引';
+COMMENT ON COLUMN message_embeddings.session_id IS '消息所属会话ID';
+COMMENT ON COLUMN message_embeddings.embedding IS 'int8量化向量：4字节float32小端缩放系数 + 384字节编码';
+
+-- 创建消息归档表
+CREATE TABLE message_archives (
+    session_id VARCHAR(36) PRIMARY KEY,   -- 会话ID
+    message_count INTEGER NOT NULL,       -- 归档的消息条数
+    raw_bytes INTEGER NOT NULL,           -- 压缩前的字节数
+    payload BYTEA NOT NULL,               -- zstd压缩后的消息数据
+    first_message_at TIMESTAMP NOT NULL,  -- 最早一条消息的创建时间
+    last_message_at TIMESTAMP NOT NULL,   -- 最后一条消息的创建时间
+    archived_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP -- 归档时间
+);
+
+COMMENT ON TABLE message_archives IS '消息归档表，存放不活跃会话压缩后的消息，会话再次打开时恢复到消息表';
+COMMENT ON COLUMN message_archives.session_id IS '会话ID';
+COMMENT ON COLUMN message_archives.message_count IS '归档的消息条数';
+COMMENT ON COLUMN message_archives.raw_bytes IS '压缩前的字节数';
+COMMENT ON COLUMN message_archives.payload IS 'zstd压缩后的消息数据';
+COMMENT ON COLUMN message_archives.first_message_at IS '最早一条消息的创建时间';
+COMMENT ON COLUMN message_archives.last_message_at IS '最后一条消息的创建时间';
+COMMENT ON COLUMN message_archives.archived_at IS '归档时间';
+ALTER TABLE message_archives ALTER COLUMN payload SET STORAGE EXTERNAL;
+
+-- 创建用量计数表，由应用在内存中累加后定期upsert
+CREATE TABLE session_usage (
+    session_id VARCHAR(36) PRIMARY KEY,   -- 会话ID
+    user_id VARCHAR(36) NOT NULL,         -- 用户ID
+    agent_id VARCHAR(36),                 -- Agent ID
+    message_count BIGINT NOT NULL DEFAULT 0, -- 消息数
+    input_tokens BIGINT NOT NULL DEFAULT 0,  -- 输入token数
+    output_tokens BIGINT NOT NULL DEFAULT 0, -- 输出token数
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP -- 最后更新时间
+);
+
+CREATE TABLE user_daily_usage (
+    user_id VARCHAR(36) NOT NULL,         -- 用户ID
+    usage_date DATE NOT NULL,             -- 日期
+    message_count BIGINT NOT NULL DEFAULT 0, -- 消息数
+    input_tokens BIGINT NOT NULL DEFAULT 0,  -- 输入token数
+    output_tokens BIGINT NOT NULL DEFAULT 0, -- 输出token数
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, -- 最后更新时间
+    PRIMARY KEY (user_id, usage_date)
+);
+
+CREATE TABLE agent_version_usage (
+    agent_id VARCHAR(36) NOT NULL,        -- Agent ID
+    version_id VARCHAR(36) NOT NULL DEFAULT '', -- 版本ID，未发布时为空字符串
+    message_count BIGINT NOT NULL DEFAULT 0, -- 消息数
+    input_tokens BIGINT NOT NULL DEFAULT 0,  -- 输入token数
+    output_tokens BIGINT NOT NULL DEFAULT 0, -- 输出token数
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, -- 最后更新时间
+    PRIMARY KEY (agent_id, version_id)
+);
+
+COMMENT ON TABLE session_usage IS '会话用量表，由应用定期累加';
+COMMENT ON TABLE user_daily_usage IS '用户每日用量表，日期按应用服务器本地时区划分';
+COMMENT ON TABLE agent_version_usage IS 'Agent版本用量表';
+
+-- 创建消息压缩字典表
+CREATE TABLE message_dictionaries (
+    id SERIAL PRIMARY KEY,                -- 字典ID
+    dictionary BYTEA NOT NULL,            -- zstd字典内容
+    sample_count INTEGER NOT NULL,        -- 训练使用的样本数
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP -- 创建时间
+);
+
+COMMENT ON TABLE message_dictionaries IS '消息压缩字典表，从最近的大消息中训练的zstd字典';
+COMMENT ON COLUMN message_dictionaries.id IS '字典ID，记录在压缩内容的头部';
+COMMENT ON COLUMN message_dictionaries.dictionary IS 'zstd字典内容';
+COMMENT ON COLUMN message_dictionaries.sample_count IS '训练使用的样本数';
+COMMENT ON COLUMN message_dictionaries.created_at IS '创建时间';
 
 -- 创建上下文表
 CREATE TABLE context (
@@ -61,6 +169,7 @@ CREATE TABLE context (
     session_id VARCHAR(36) NOT NULL,      -- 所属会话ID
     active_messages JSON,                 -- 活跃消息ID列表，当前包含在上下文中的消息
     summary TEXT,                         -- 可选，当前上下文的摘要信息
+    version INTEGER NOT NULL DEFAULT 0,   -- 版本号，每次提交加1
     updated_at TIMESTAMP NOT NULL        -- 最后更新时间
 );
 
@@ -70,6 +179,7 @@ COMMENT ON COLUMN context.id IS '上下文唯一ID';
 COMMENT ON COLUMN context.session_id IS '所属会话ID';
 COMMENT ON COLUMN context.active_messages IS '活跃消息ID列表，当前包含在上下文中的消息';
 COMMENT ON COLUMN context.summary IS '当前上下文的摘要信息';
+COMMENT ON COLUMN context.version IS '版本号，每次提交加1，用于检出同一会话的并发提交';
 COMMENT ON COLUMN context.updated_at IS '最后更新时间';
 
 -- =============================================
@@ -78,6 +188,7 @@ COMMENT ON COLUMN context.updated_at IS '最后更新时间';
 
 -- 创建会话查询索引
 CREATE INDEX idx_sessions_user_id ON sessions(user_id);
+CREATE INDEX idx_sessions_user_agent ON sessions(user_id, agent_id, created_at DESC);
 CREATE INDEX idx_sessions_created_at ON sessions(created_at);
 CREATE INDEX idx_sessions_updated_at ON sessions(updated_at);
 CREATE INDEX idx_sessions_agent_version_id ON sessions(agent_version_id);
@@ -85,9 +196,13 @@ CREATE INDEX idx_sessions_agent_version_id ON sessions(agent_version_id);
 -- 创建消息查询索引
 CREATE INDEX idx_messages_session_id ON messages(session_id);
 CREATE INDEX idx_messages_created_at ON messages(created_at);
+CREATE INDEX idx_messages_session_created ON messages(session_id, created_at);
+CREATE INDEX idx_messages_tsv ON messages USING GIN(content_tsv);
+CREATE INDEX idx_agent_version_usage_messages ON agent_version_usage(message_count DESC);
+CREATE INDEX idx_message_embeddings_user ON message_embeddings(user_id, message_id);
 
--- 创建上下文查询索引
-CREATE INDEX idx_context_session_id ON context(session_id); 
+-- 创建上下文查询索引，每个会话只有一条上下文
+CREATE UNIQUE INDEX idx_context_session_id ON context(session_id);
 
 -- Agent 数据库表设计
 -- 用于存储Agent的基本信息和配置
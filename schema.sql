@@ -20,6 +20,7 @@ CREATE TABLE messages (
     provider VARCHAR(50),
     model VARCHAR(50),
     metadata JSON,
+    status SMALLINT NOT NULL DEFAULT 2,
     FOREIGN KEY (session_id) REFERENCES sessions(id)
 );
 